@@ -0,0 +1,15 @@
+package com.battlelancer.seriesguide.test;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks tests that only log timings on a device. They are skipped by default, run them with
+ * {@code gradlew -Pbenchmarks connectedAndroidTestFreeDebug}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Benchmark {
+}
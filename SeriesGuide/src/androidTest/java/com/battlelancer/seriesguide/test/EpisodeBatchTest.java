@@ -0,0 +1,159 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import com.battlelancer.seriesguide.Constants;
+import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.provider.EpisodeBatch;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.battlelancer.seriesguide.thetvdbapi.TvdbEpisodeRecord;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EpisodeBatchTest extends AndroidTestCase {
+
+    private SQLiteDatabase db;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = SQLiteDatabase.create(null);
+        new SeriesGuideDatabase(getContext()).onCreate(db);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.close();
+        super.tearDown();
+    }
+
+    public void test_insert() {
+        EpisodeBatch batch = new EpisodeBatch(1)
+                .add(episode(1001, "Pilot"), true)
+                .add(episode(1002, "Second"), true);
+
+        assertThat(SeriesGuideDatabase.applyEpisodes(db, batch)).isEqualTo(2);
+
+        Cursor episode = db.query(Tables.EPISODES, new String[] {
+                Episodes.NUMBER, Episodes.ABSOLUTE_NUMBER, Episodes.SEASON, Episodes.DVDNUMBER,
+                Episodes.FIRSTAIREDMS, Episodes.TITLE, Episodes.OVERVIEW, Seasons.REF_SEASON_ID,
+                Shows.REF_SHOW_ID, Episodes.DIRECTORS, Episodes.GUESTSTARS, Episodes.WRITERS,
+                Episodes.IMAGE, Episodes.IMDBID, Episodes.LAST_EDITED
+        }, Episodes._ID + "=1001", null, null, null, null);
+        assertThat(episode.moveToFirst()).isTrue();
+        assertThat(episode.getInt(0)).isEqualTo(3);
+        assertThat(episode.getInt(1)).isEqualTo(13);
+        assertThat(episode.getInt(2)).isEqualTo(2);
+        assertThat(episode.getDouble(3)).isEqualTo(3.5);
+        assertThat(episode.getLong(4)).isEqualTo(1464739200000L);
+        assertThat(episode.getString(5)).isEqualTo("Pilot");
+        assertThat(episode.getString(6)).isEqualTo("Overview of Pilot");
+        // id columns have TEXT affinity
+        assertThat(episode.getString(7)).isEqualTo("501");
+        assertThat(episode.getString(8)).isEqualTo("42");
+        assertThat(episode.getString(9)).isEqualTo("|Jane Doe|");
+        assertThat(episode.getString(10)).isEqualTo("|John Roe|");
+        assertThat(episode.getString(11)).isEqualTo("|Alex Writer|");
+        assertThat(episode.getString(12)).isEqualTo("episodes/42/1001.jpg");
+        assertThat(episode.getString(13)).isEqualTo("tt1001");
+        assertThat(episode.getLong(14)).isEqualTo(1464000000L);
+        episode.close();
+    }
+
+    public void test_insertMissingNumbers() {
+        TvdbEpisodeRecord missing = episode(1002, "Missing");
+        missing.hasNumber = false;
+        missing.hasAbsoluteNumber = false;
+        missing.hasDvdNumber = false;
+        TvdbEpisodeRecord first = episode(1003, "First");
+        first.dvdNumber = 0.5;
+        SeriesGuideDatabase.applyEpisodes(db, new EpisodeBatch()
+                .add(episode(1001, "Pilot"), true)
+                .add(missing, true)
+                .add(first, true));
+
+        // stored empty like TVDb sends them
+        assertThat(DatabaseUtils.stringForQuery(db, "SELECT typeof(" + Episodes.NUMBER + ")"
+                + "||typeof(" + Episodes.ABSOLUTE_NUMBER + ")||typeof(" + Episodes.DVDNUMBER
+                + ") FROM " + Tables.EPISODES + " WHERE " + Episodes._ID + "=1002", null))
+                .isEqualTo("texttexttext");
+
+        // episodes without DVD number come after all others
+        Cursor episodes = db.query(Tables.EPISODES, new String[] { Episodes._ID }, null, null,
+                null, null, Constants.EpisodeSorting.DVDOLDEST_FIRST.query());
+        assertThat(episodes.getCount()).isEqualTo(3);
+        episodes.moveToPosition(2);
+        assertThat(episodes.getInt(0)).isEqualTo(1002);
+        episodes.close();
+    }
+
+    public void test_update() {
+        SeriesGuideDatabase.applyEpisodes(db, new EpisodeBatch()
+                .add(episode(1001, "Pilot"), true));
+        ContentValues values = new ContentValues();
+        values.put(Episodes.WATCHED, EpisodeFlags.WATCHED);
+        db.update(Tables.EPISODES, values, null, null);
+
+        EpisodeBatch batch = new EpisodeBatch()
+                // already exists, is not replaced
+                .add(episode(1001, "Inserted"), true)
+                .add(episode(1001, "Updated"), false)
+                // does not exist, is not inserted
+                .add(episode(1002, "Missing"), false);
+
+        assertThat(SeriesGuideDatabase.applyEpisodes(db, batch)).isEqualTo(1);
+
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES)).isEqualTo(1);
+        assertThat(DatabaseUtils.stringForQuery(db, "SELECT " + Episodes.TITLE + " FROM "
+                + Tables.EPISODES + " WHERE " + Episodes._ID + "=1001", null))
+                .isEqualTo("Updated");
+        // flags are kept
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES,
+                Episodes.SELECTION_WATCHED)).isEqualTo(1);
+    }
+
+    public void test_isEmpty() {
+        EpisodeBatch batch = new EpisodeBatch();
+        assertThat(batch.isEmpty()).isTrue();
+        assertThat(SeriesGuideDatabase.applyEpisodes(db, batch)).isEqualTo(0);
+
+        // grows beyond its initial capacity
+        batch = new EpisodeBatch(1);
+        for (int i = 1; i <= 10; i++) {
+            batch.add(episode(i, "Episode " + i), true);
+        }
+        assertThat(batch.size()).isEqualTo(10);
+        assertThat(SeriesGuideDatabase.applyEpisodes(db, batch)).isEqualTo(10);
+    }
+
+    private static TvdbEpisodeRecord episode(int episodeId, String title) {
+        TvdbEpisodeRecord episode = new TvdbEpisodeRecord();
+        episode.id = episodeId;
+        episode.number = 3;
+        episode.hasNumber = true;
+        episode.absoluteNumber = 13;
+        episode.hasAbsoluteNumber = true;
+        episode.season = 2;
+        episode.dvdNumber = 3.5;
+        episode.hasDvdNumber = true;
+        episode.firstAiredMs = 1464739200000L;
+        episode.title = title;
+        episode.overview = "Overview of " + title;
+        episode.seasonId = 501;
+        episode.showId = 42;
+        episode.directors = "|Jane Doe|";
+        episode.guestStars = "|John Roe|";
+        episode.writers = "|Alex Writer|";
+        episode.image = "episodes/42/" + episodeId + ".jpg";
+        episode.imdbId = "tt" + episodeId;
+        episode.lastEdited = 1464000000L;
+        return episode;
+    }
+}
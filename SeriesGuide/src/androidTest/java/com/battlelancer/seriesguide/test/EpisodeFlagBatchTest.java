@@ -0,0 +1,140 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.provider.EpisodeFlagBatch;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeFlagOutbox;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EpisodeFlagBatchTest extends AndroidTestCase {
+
+    private SQLiteDatabase db;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = SQLiteDatabase.create(null);
+        new SeriesGuideDatabase(getContext()).onCreate(db);
+
+        // two shows with two seasons of three episodes, id is show, season and number
+        ContentValues values = new ContentValues();
+        for (int show = 1; show <= 2; show++) {
+            for (int season = 1; season <= 2; season++) {
+                for (int number = 1; number <= 3; number++) {
+                    values.clear();
+                    values.put(Episodes._ID, episodeId(show, season, number));
+                    values.put(Shows.REF_SHOW_ID, show);
+                    values.put(Episodes.SEASON, season);
+                    values.put(Episodes.NUMBER, number);
+                    db.insert(Tables.EPISODES, null, values);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.close();
+        super.tearDown();
+    }
+
+    public void test_applyEpisodeFlags() {
+        EpisodeFlagBatch batch = new EpisodeFlagBatch()
+                .add(1, 1, 1, EpisodeFlags.WATCHED, EpisodeFlagBatch.NO_CHANGE)
+                .add(1, 1, 2, EpisodeFlagBatch.NO_CHANGE, 1)
+                .add(2, 2, 3, EpisodeFlags.SKIPPED, 1)
+                // not in the database
+                .add(3, 1, 1, EpisodeFlags.WATCHED, 1);
+
+        assertThat(SeriesGuideDatabase.applyEpisodeFlags(db, batch)).isEqualTo(4);
+
+        assertFlags(episodeId(1, 1, 1), EpisodeFlags.WATCHED, 0);
+        assertFlags(episodeId(1, 1, 2), EpisodeFlags.UNWATCHED, 1);
+        assertFlags(episodeId(2, 2, 3), EpisodeFlags.SKIPPED, 1);
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES,
+                Episodes.WATCHED + "!=" + EpisodeFlags.UNWATCHED)).isEqualTo(2);
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES,
+                Episodes.SELECTION_COLLECTED)).isEqualTo(2);
+    }
+
+    public void test_clearFlagsOfShow() {
+        setAllFlags(EpisodeFlags.WATCHED, 1);
+        setFlags(episodeId(1, 2, 1), EpisodeFlags.SKIPPED, 1);
+
+        EpisodeFlagBatch batch = new EpisodeFlagBatch()
+                .clearFlagsOfShow(1, true, false)
+                .add(1, 1, 3, EpisodeFlags.WATCHED, EpisodeFlagBatch.NO_CHANGE);
+        SeriesGuideDatabase.applyEpisodeFlags(db, batch);
+
+        // only the episode in the batch and the skipped one keep their watched flag
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES,
+                Shows.REF_SHOW_ID + "=1 AND " + Episodes.SELECTION_WATCHED)).isEqualTo(1);
+        assertFlags(episodeId(1, 1, 3), EpisodeFlags.WATCHED, 1);
+        assertFlags(episodeId(1, 2, 1), EpisodeFlags.SKIPPED, 1);
+        // collected flags and other shows are not touched
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES,
+                Episodes.SELECTION_COLLECTED)).isEqualTo(12);
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES,
+                Shows.REF_SHOW_ID + "=2 AND " + Episodes.SELECTION_WATCHED)).isEqualTo(6);
+    }
+
+    public void test_keepsQueuedChanges() {
+        setAllFlags(EpisodeFlags.WATCHED, 1);
+        // watched flag of one episode was removed locally, but not uploaded, yet
+        int queuedId = episodeId(1, 1, 1);
+        setFlags(queuedId, EpisodeFlags.UNWATCHED, 1);
+        ContentValues values = new ContentValues();
+        values.put(EpisodeFlagOutbox.EPISODE_TVDB_ID, queuedId);
+        values.put(EpisodeFlagOutbox.SHOW_TVDB_ID, 1);
+        values.put(EpisodeFlagOutbox.SEASON, 1);
+        values.put(EpisodeFlagOutbox.NUMBER, 1);
+        values.put(EpisodeFlagOutbox.TYPE, EpisodeFlagOutbox.TYPE_WATCHED);
+        values.put(EpisodeFlagOutbox.VALUE, EpisodeFlags.UNWATCHED);
+        values.put(EpisodeFlagOutbox.VALUE_SYNCED, EpisodeFlags.WATCHED);
+        db.insert(Tables.EPISODE_FLAG_OUTBOX, null, values);
+
+        // download still has the old flags
+        EpisodeFlagBatch batch = new EpisodeFlagBatch()
+                .clearFlagsOfShow(1, true, true)
+                .add(1, 1, 1, EpisodeFlags.WATCHED, 0);
+        SeriesGuideDatabase.applyEpisodeFlags(db, batch);
+
+        // queued watched flag is kept, collected flag is not queued so is changed
+        assertFlags(queuedId, EpisodeFlags.UNWATCHED, 0);
+    }
+
+    private static int episodeId(int show, int season, int number) {
+        return show * 100 + season * 10 + number;
+    }
+
+    private void setAllFlags(int watched, int collected) {
+        ContentValues values = new ContentValues();
+        values.put(Episodes.WATCHED, watched);
+        values.put(Episodes.COLLECTED, collected);
+        db.update(Tables.EPISODES, values, null, null);
+    }
+
+    private void setFlags(int episodeId, int watched, int collected) {
+        ContentValues values = new ContentValues();
+        values.put(Episodes.WATCHED, watched);
+        values.put(Episodes.COLLECTED, collected);
+        db.update(Tables.EPISODES, values, Episodes._ID + "=" + episodeId, null);
+    }
+
+    private void assertFlags(int episodeId, int watched, int collected) {
+        assertThat(DatabaseUtils.longForQuery(db, "SELECT " + Episodes.WATCHED + " FROM "
+                + Tables.EPISODES + " WHERE " + Episodes._ID + "=" + episodeId, null))
+                .isEqualTo(watched);
+        assertThat(DatabaseUtils.longForQuery(db, "SELECT " + Episodes.COLLECTED + " FROM "
+                + Tables.EPISODES + " WHERE " + Episodes._ID + "=" + episodeId, null))
+                .isEqualTo(collected);
+    }
+}
@@ -0,0 +1,119 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.provider.EpisodeFlagBatch;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares applying episode flags one update statement per episode (as trakt and Hexagon
+ * downloads used to) with {@link SeriesGuideDatabase#applyEpisodeFlags} on a synthetic library of
+ * 20k episodes. Correctness is covered by {@link EpisodeFlagBatchTest}.
+ */
+@Benchmark
+public class EpisodeFlagsBenchmarkTest extends AndroidTestCase {
+
+    private static final String TAG = "EpisodeFlagsBenchmark";
+
+    private static final int SHOWS = 20;
+    private static final int SEASONS = 20;
+    private static final int EPISODES = 50;
+    private static final int TOTAL = SHOWS * SEASONS * EPISODES;
+
+    private SQLiteDatabase db;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = SQLiteDatabase.create(null);
+        new SeriesGuideDatabase(getContext()).onCreate(db);
+
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            int id = 1;
+            for (int show = 1; show <= SHOWS; show++) {
+                for (int season = 1; season <= SEASONS; season++) {
+                    for (int number = 1; number <= EPISODES; number++) {
+                        values.clear();
+                        values.put(Episodes._ID, id++);
+                        values.put(Episodes.TITLE, "Episode " + number);
+                        values.put(Shows.REF_SHOW_ID, show);
+                        values.put(Episodes.SEASON, season);
+                        values.put(Episodes.NUMBER, number);
+                        db.insert(Tables.EPISODES, null, values);
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.close();
+        super.tearDown();
+    }
+
+    public void test_perEpisodeUpdates() {
+        long start = SystemClock.elapsedRealtime();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(Episodes.WATCHED, EpisodeFlags.WATCHED);
+            for (int show = 1; show <= SHOWS; show++) {
+                for (int season = 1; season <= SEASONS; season++) {
+                    for (int number = 1; number <= EPISODES; number++) {
+                        db.update(Tables.EPISODES, values,
+                                Shows.REF_SHOW_ID + "=" + show + " AND "
+                                        + Episodes.SEASON + "=" + season + " AND "
+                                        + Episodes.NUMBER + "=" + number, null);
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.i(TAG, "per episode updates: " + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        assertAllWatched();
+    }
+
+    public void test_applyEpisodeFlags() {
+        long start = SystemClock.elapsedRealtime();
+        EpisodeFlagBatch batch = new EpisodeFlagBatch(TOTAL);
+        for (int show = 1; show <= SHOWS; show++) {
+            for (int season = 1; season <= SEASONS; season++) {
+                for (int number = 1; number <= EPISODES; number++) {
+                    batch.add(show, season, number, EpisodeFlags.WATCHED,
+                            EpisodeFlagBatch.NO_CHANGE);
+                }
+            }
+        }
+        SeriesGuideDatabase.applyEpisodeFlags(db, batch);
+        Log.i(TAG, "applyEpisodeFlags: " + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        assertAllWatched();
+        // collected flag was not touched
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES,
+                Episodes.COLLECTED + "=1")).isEqualTo(0);
+    }
+
+    private void assertAllWatched() {
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES,
+                Episodes.SELECTION_WATCHED)).isEqualTo(TOTAL);
+    }
+}
@@ -0,0 +1,263 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.sax.Element;
+import android.sax.EndElementListener;
+import android.sax.EndTextElementListener;
+import android.sax.RootElement;
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+import android.test.mock.MockContentResolver;
+import android.util.Log;
+import android.util.Xml;
+import com.battlelancer.seriesguide.SeriesGuideApplication;
+import com.battlelancer.seriesguide.provider.EpisodeBatch;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideProvider;
+import com.battlelancer.seriesguide.thetvdbapi.TvdbEpisodeParser;
+import com.battlelancer.seriesguide.thetvdbapi.TvdbEpisodeRecord;
+import com.battlelancer.seriesguide.util.DBUtils;
+import com.battlelancer.seriesguide.util.TimeTools;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalTime;
+import org.xmlpull.v1.XmlPullParser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parses and writes a synthetic TVDb episode file of 5k episodes through a {@link
+ * SeriesGuideProvider} using its own database file. Once like TVDb episodes used to be: all
+ * fields parsed with {@link android.sax} listeners into {@link ContentValues}, new episodes bulk
+ * inserted and existing ones updated with one operation each. And once with {@link
+ * TvdbEpisodeParser} into an {@link EpisodeBatch}. Parsing is also benchmarked on the JVM, see
+ * the benchmark module. Correctness is covered by {@link TvdbEpisodeParserTest} and {@link
+ * EpisodeBatchTest}.
+ */
+@Benchmark
+public class EpisodeIngestBenchmarkTest extends AndroidTestCase {
+
+    private static final String TAG = "EpisodeIngestBenchmark";
+
+    private static final int EPISODES = 5000;
+    private static final int SHOW_TVDB_ID = 80379;
+    private static final String SHOW_TIME_ZONE = "America/New_York";
+    private static final int SHOW_RELEASE_TIME = 2000;
+    private static final String SHOW_COUNTRY = "us";
+
+    private Context context;
+    private MockContentResolver resolver;
+    private byte[] xml;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // a provider writing to its own database file, reached only through the mock resolver
+        resolver = new MockContentResolver();
+        context = new ContextWrapper(new RenamingDelegatingContext(getContext(), "test.")) {
+            @Override
+            public ContentResolver getContentResolver() {
+                return resolver;
+            }
+        };
+        context.deleteDatabase(SeriesGuideDatabase.DATABASE_NAME);
+        SeriesGuideProvider provider = new SeriesGuideProvider();
+        provider.attachInfo(context, null);
+        resolver.addProvider(SeriesGuideApplication.CONTENT_AUTHORITY, provider);
+
+        xml = buildEpisodesXml();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        context.deleteDatabase(SeriesGuideDatabase.DATABASE_NAME);
+        super.tearDown();
+    }
+
+    public void test_contentValues() throws Exception {
+        long start = SystemClock.elapsedRealtime();
+        ArrayList<ContentValues> inserts = parseContentValues();
+        long parsed = SystemClock.elapsedRealtime();
+        resolver.bulkInsert(Episodes.CONTENT_URI,
+                inserts.toArray(new ContentValues[inserts.size()]));
+        long end = SystemClock.elapsedRealtime();
+        logThroughput("ContentValues parse", inserts.size(), parsed - start);
+        logThroughput("ContentValues insert", inserts.size(), end - parsed);
+        logThroughput("ContentValues parse and insert", inserts.size(), end - start);
+
+        assertEpisodeCount();
+
+        start = SystemClock.elapsedRealtime();
+        ArrayList<ContentValues> updates = parseContentValues();
+        ArrayList<ContentProviderOperation> batch = new ArrayList<>(updates.size());
+        for (ContentValues values : updates) {
+            batch.add(ContentProviderOperation
+                    .newUpdate(Episodes.buildEpisodeUri(values.getAsString(Episodes._ID)))
+                    .withValues(values).build());
+        }
+        DBUtils.applyInSmallBatches(context, batch);
+        logThroughput("ContentValues parse and update", updates.size(),
+                SystemClock.elapsedRealtime() - start);
+
+        assertEpisodeCount();
+    }
+
+    public void test_episodeBatch() throws Exception {
+        long start = SystemClock.elapsedRealtime();
+        EpisodeBatch inserts = parseEpisodeBatch(true);
+        long parsed = SystemClock.elapsedRealtime();
+        assertThat(inserts.apply(context)).isTrue();
+        long end = SystemClock.elapsedRealtime();
+        logThroughput("EpisodeBatch parse", inserts.size(), parsed - start);
+        logThroughput("EpisodeBatch insert", inserts.size(), end - parsed);
+        logThroughput("EpisodeBatch parse and insert", inserts.size(), end - start);
+
+        assertEpisodeCount();
+
+        start = SystemClock.elapsedRealtime();
+        EpisodeBatch updates = parseEpisodeBatch(false);
+        assertThat(updates.apply(context)).isTrue();
+        logThroughput("EpisodeBatch parse and update", updates.size(),
+                SystemClock.elapsedRealtime() - start);
+
+        assertEpisodeCount();
+    }
+
+    /**
+     * Parses like TheTVDB did before {@link TvdbEpisodeParser}.
+     */
+    private ArrayList<ContentValues> parseContentValues() throws Exception {
+        final DateTimeZone showTimeZone = TimeTools.getDateTimeZone(SHOW_TIME_ZONE);
+        final LocalTime showReleaseTime = TimeTools.getShowReleaseTime(SHOW_RELEASE_TIME);
+        final String deviceTimeZone = SHOW_TIME_ZONE;
+
+        RootElement root = new RootElement("Data");
+        Element episode = root.getChild("Episode");
+        final ArrayList<ContentValues> episodes = new ArrayList<>(EPISODES);
+        final ContentValues values = new ContentValues();
+
+        episode.setEndElementListener(new EndElementListener() {
+            public void end() {
+                episodes.add(new ContentValues(values));
+                values.clear();
+            }
+        });
+        putText(episode, "id", values, Episodes._ID);
+        putText(episode, "EpisodeNumber", values, Episodes.NUMBER);
+        putText(episode, "absolute_number", values, Episodes.ABSOLUTE_NUMBER);
+        putText(episode, "SeasonNumber", values, Episodes.SEASON);
+        putText(episode, "DVD_episodenumber", values, Episodes.DVDNUMBER);
+        episode.getChild("FirstAired").setEndTextElementListener(new EndTextElementListener() {
+            public void end(String releaseDate) {
+                long releaseDateTime = TimeTools.parseEpisodeReleaseDate(showTimeZone,
+                        releaseDate, showReleaseTime, SHOW_COUNTRY, deviceTimeZone);
+                values.put(Episodes.FIRSTAIREDMS, releaseDateTime);
+            }
+        });
+        putText(episode, "EpisodeName", values, Episodes.TITLE);
+        putText(episode, "Overview", values, Episodes.OVERVIEW);
+        putText(episode, "seasonid", values, Seasons.REF_SEASON_ID);
+        putText(episode, "seriesid", values, Shows.REF_SHOW_ID);
+        putText(episode, "Director", values, Episodes.DIRECTORS);
+        putText(episode, "GuestStars", values, Episodes.GUESTSTARS);
+        putText(episode, "Writer", values, Episodes.WRITERS);
+        putText(episode, "filename", values, Episodes.IMAGE);
+        putText(episode, "IMDB_ID", values, Episodes.IMDBID);
+        episode.getChild("lastupdated").setEndTextElementListener(new EndTextElementListener() {
+            public void end(String body) {
+                try {
+                    values.put(Episodes.LAST_EDITED, Long.valueOf(body));
+                } catch (NumberFormatException e) {
+                    values.put(Episodes.LAST_EDITED, 0);
+                }
+            }
+        });
+
+        Xml.parse(new ByteArrayInputStream(xml), Xml.Encoding.UTF_8, root.getContentHandler());
+        return episodes;
+    }
+
+    private static void putText(Element episode, String element, final ContentValues values,
+            final String column) {
+        episode.getChild(element).setEndTextElementListener(new EndTextElementListener() {
+            public void end(String body) {
+                values.put(column, body.trim());
+            }
+        });
+    }
+
+    private EpisodeBatch parseEpisodeBatch(final boolean isNew) throws Exception {
+        final EpisodeBatch batch = new EpisodeBatch(EPISODES);
+        TvdbEpisodeParser episodeParser = new TvdbEpisodeParser(
+                TimeTools.getDateTimeZone(SHOW_TIME_ZONE),
+                TimeTools.getShowReleaseTime(SHOW_RELEASE_TIME), SHOW_COUNTRY, SHOW_TIME_ZONE);
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setInput(new ByteArrayInputStream(xml), "UTF-8");
+        episodeParser.parse(parser, new TvdbEpisodeParser.Callback() {
+            @Override
+            public void onEpisode(TvdbEpisodeRecord episode) {
+                batch.add(episode, isNew);
+            }
+        });
+        return batch;
+    }
+
+    private static void logThroughput(String name, int episodes, long millis) {
+        Log.i(TAG, name + ": " + episodes + " episodes in " + millis + " ms ("
+                + (millis > 0 ? episodes * 1000L / millis : episodes) + " episodes/s)");
+    }
+
+    private void assertEpisodeCount() {
+        Cursor episodes = resolver.query(Episodes.CONTENT_URI,
+                new String[] { Episodes._ID }, Shows.REF_SHOW_ID + "=?",
+                new String[] { String.valueOf(SHOW_TVDB_ID) }, null);
+        assertThat(episodes).isNotNull();
+        assertThat(episodes.getCount()).isEqualTo(EPISODES);
+        episodes.close();
+    }
+
+    private static byte[] buildEpisodesXml() {
+        StringBuilder xml = new StringBuilder(EPISODES * 1024);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<Data>\n");
+        xml.append("<Series><id>").append(SHOW_TVDB_ID).append("</id></Series>\n");
+        for (int i = 0; i < EPISODES; i++) {
+            int season = i / 25 + 1;
+            int number = i % 25 + 1;
+            xml.append("<Episode>\n")
+                    .append("<id>").append(1000000 + i).append("</id>\n")
+                    .append("<DVD_episodenumber>").append(number)
+                    .append(".0</DVD_episodenumber>\n")
+                    .append("<Director>|Jane Doe|</Director>\n")
+                    .append("<EpisodeName>Episode ").append(i).append("</EpisodeName>\n")
+                    .append("<EpisodeNumber>").append(number).append("</EpisodeNumber>\n")
+                    .append("<FirstAired>2010-09-").append(number < 10 ? "0" : "")
+                    .append(number).append("</FirstAired>\n")
+                    .append("<GuestStars>|John Roe|Mary Major|</GuestStars>\n")
+                    .append("<IMDB_ID>tt").append(2000000 + i).append("</IMDB_ID>\n")
+                    .append("<Overview>Things happen, then other things happen. Then even more"
+                            + " things happen, until nothing happens.</Overview>\n")
+                    .append("<SeasonNumber>").append(season).append("</SeasonNumber>\n")
+                    .append("<Writer>|Alex Writer|</Writer>\n")
+                    .append("<absolute_number>").append(i + 1).append("</absolute_number>\n")
+                    .append("<filename>episodes/").append(SHOW_TVDB_ID).append('/')
+                    .append(1000000 + i).append(".jpg</filename>\n")
+                    .append("<lastupdated>").append(1450000000 + i).append("</lastupdated>\n")
+                    .append("<seasonid>").append(10000 + season).append("</seasonid>\n")
+                    .append("<seriesid>").append(SHOW_TVDB_ID).append("</seriesid>\n")
+                    .append("</Episode>\n");
+        }
+        xml.append("</Data>\n");
+        return xml.toString().getBytes(Charset.forName("UTF-8"));
+    }
+}
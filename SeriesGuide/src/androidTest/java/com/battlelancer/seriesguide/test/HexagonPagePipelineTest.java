@@ -0,0 +1,192 @@
+package com.battlelancer.seriesguide.test;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.battlelancer.seriesguide.backend.HexagonPagePipeline;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HexagonPagePipelineTest extends TestCase {
+
+    /** Pages waiting to be written, plus the one being written and the one being downloaded. */
+    private static final int MAX_PAGES_AHEAD = 2 + 1 + 1;
+
+    public static Test suite() {
+        return new TestSuite(HexagonPagePipelineTest.class);
+    }
+
+    /**
+     * Returns pages with a single item, the page number. Throws the given error instead of
+     * returning page {@code errorPage}.
+     */
+    private static class NumberedPages implements HexagonPagePipeline.PageLoader<Integer> {
+
+        final int pageCount;
+        final int errorPage;
+        final Throwable error;
+        final AtomicInteger loaded = new AtomicInteger();
+
+        NumberedPages(int pageCount) {
+            this(pageCount, -1, null);
+        }
+
+        NumberedPages(int pageCount, int errorPage, Throwable error) {
+            this.pageCount = pageCount;
+            this.errorPage = errorPage;
+            this.error = error;
+        }
+
+        @Nullable
+        @Override
+        public HexagonPagePipeline.Page<Integer> load(@Nullable String cursor)
+                throws IOException {
+            int page = cursor == null ? 0 : Integer.parseInt(cursor);
+            if (page == errorPage) {
+                if (error instanceof IOException) {
+                    throw (IOException) error;
+                }
+                if (error instanceof RuntimeException) {
+                    throw (RuntimeException) error;
+                }
+                throw (Error) error;
+            }
+            loaded.incrementAndGet();
+            String nextCursor = page + 1 < pageCount ? String.valueOf(page + 1) : null;
+            return new HexagonPagePipeline.Page<>(Collections.singletonList(page), nextCursor);
+        }
+    }
+
+    private static class RecordingWriter implements HexagonPagePipeline.PageWriter<Integer> {
+
+        final List<Integer> written = new ArrayList<>();
+
+        @Override
+        public boolean write(@NonNull List<Integer> items) {
+            written.addAll(items);
+            return true;
+        }
+    }
+
+    public void test_pageOrder() throws IOException {
+        RecordingWriter writer = new RecordingWriter();
+
+        boolean success = new HexagonPagePipeline<>(new NumberedPages(10), writer).run();
+
+        assertThat(success).isTrue();
+        assertThat(writer.written).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+
+    public void test_noPages() throws IOException {
+        HexagonPagePipeline.PageLoader<Integer> loader
+                = new HexagonPagePipeline.PageLoader<Integer>() {
+            @Nullable
+            @Override
+            public HexagonPagePipeline.Page<Integer> load(@Nullable String cursor) {
+                return null;
+            }
+        };
+        RecordingWriter writer = new RecordingWriter();
+
+        assertThat(new HexagonPagePipeline<>(loader, writer).run()).isTrue();
+        assertThat(writer.written).isEmpty();
+    }
+
+    public void test_downloadErrorAfterPages() {
+        IOException error = new IOException("page 3 failed");
+        RecordingWriter writer = new RecordingWriter();
+
+        try {
+            new HexagonPagePipeline<>(new NumberedPages(10, 3, error), writer).run();
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertThat(e).isSameAs(error);
+        }
+        // pages before the failed one are written
+        assertThat(writer.written).containsExactly(0, 1, 2);
+    }
+
+    public void test_downloadRuntimeException() throws IOException {
+        IllegalStateException error = new IllegalStateException();
+
+        try {
+            new HexagonPagePipeline<>(new NumberedPages(10, 2, error), new RecordingWriter())
+                    .run();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertThat(e).isSameAs(error);
+        }
+    }
+
+    public void test_downloadError() throws IOException {
+        // must not block forever
+        AssertionError error = new AssertionError("download failed");
+
+        try {
+            new HexagonPagePipeline<>(new NumberedPages(10, 2, error), new RecordingWriter())
+                    .run();
+            fail("AssertionError expected");
+        } catch (AssertionError e) {
+            assertThat(e).isSameAs(error);
+        }
+    }
+
+    public void test_writerFailureStopsDownload() throws IOException, InterruptedException {
+        NumberedPages loader = new NumberedPages(Integer.MAX_VALUE);
+        final List<Integer> written = new ArrayList<>();
+        HexagonPagePipeline.PageWriter<Integer> writer
+                = new HexagonPagePipeline.PageWriter<Integer>() {
+            @Override
+            public boolean write(@NonNull List<Integer> items) {
+                written.addAll(items);
+                return false;
+            }
+        };
+
+        boolean success = new HexagonPagePipeline<>(loader, writer).run();
+
+        assertThat(success).isFalse();
+        assertThat(written).containsExactly(0);
+        // no more pages are downloaded
+        Thread.sleep(100);
+        int loaded = loader.loaded.get();
+        assertThat(loaded).isLessThanOrEqualTo(MAX_PAGES_AHEAD);
+        Thread.sleep(100);
+        assertThat(loader.loaded.get()).isEqualTo(loaded);
+    }
+
+    public void test_backPressure() throws IOException {
+        final NumberedPages loader = new NumberedPages(20);
+        final List<Integer> loadedWhileWriting = new ArrayList<>();
+        HexagonPagePipeline.PageWriter<Integer> writer
+                = new HexagonPagePipeline.PageWriter<Integer>() {
+            @Override
+            public boolean write(@NonNull List<Integer> items) {
+                // a slow writer: give the download a chance to get ahead
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+                loadedWhileWriting.add(loader.loaded.get() - items.get(0));
+                return true;
+            }
+        };
+
+        assertThat(new HexagonPagePipeline<>(loader, writer).run()).isTrue();
+
+        assertThat(loadedWhileWriting).hasSize(20);
+        for (int pagesAhead : loadedWhileWriting) {
+            assertThat(pagesAhead).isLessThanOrEqualTo(MAX_PAGES_AHEAD);
+        }
+        // download did get ahead while writing the first page
+        assertThat(loadedWhileWriting.get(0)).isGreaterThan(1);
+    }
+}
@@ -0,0 +1,142 @@
+package com.battlelancer.seriesguide.test;
+
+import android.test.AndroidTestCase;
+import android.text.format.DateUtils;
+import com.battlelancer.seriesguide.util.CachePolicyInterceptor;
+import com.battlelancer.seriesguide.util.HttpMetrics;
+import com.battlelancer.seriesguide.util.HttpMetricsInterceptor;
+import java.io.File;
+import java.util.Collections;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that requests made through a client set up like the shared HTTP client record {@link
+ * HttpMetrics} and respect cache policies, using a local mock web server.
+ */
+public class HttpMetricsTest extends AndroidTestCase {
+
+    private MockWebServer server;
+    private Cache cache;
+    private OkHttpClient client;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new MockWebServer();
+        server.start();
+
+        File cacheDir = new File(getContext().getCacheDir(), "http-metrics-test");
+        cache = new Cache(cacheDir, 1024 * 1024);
+        cache.evictAll();
+        client = new OkHttpClient.Builder()
+                .addInterceptor(new HttpMetricsInterceptor())
+                .addNetworkInterceptor(new CachePolicyInterceptor(Collections.singletonList(
+                        new CachePolicyInterceptor.Rule(server.getHostName(), "/cached/.*",
+                                DateUtils.HOUR_IN_MILLIS))))
+                .cache(cache)
+                .build();
+
+        HttpMetrics.reset();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.shutdown();
+        cache.delete();
+        super.tearDown();
+    }
+
+    public void test_cachePolicyOverridesNoCache() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "no-cache")
+                .setBody("poster"));
+
+        assertThat(get("/cached/poster.jpg")).isEqualTo("poster");
+        assertThat(get("/cached/poster.jpg")).isEqualTo("poster");
+
+        // second response came from the cache
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        HttpMetrics.HostStats stats = HttpMetrics.getStats(server.getHostName());
+        assertThat(stats).isNotNull();
+        assertThat(stats.requests).isEqualTo(2);
+        assertThat(stats.cacheHits).isEqualTo(1);
+        assertThat(stats.conditionalHits).isEqualTo(0);
+        assertThat(stats.totalBytes).isEqualTo(2 * "poster".length());
+        assertThat(stats.statusCodes.get(200)).isEqualTo(2);
+    }
+
+    public void test_conditionalRequest() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "no-cache")
+                .setHeader("ETag", "\"v1\"")
+                .setBody("summary"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        assertThat(get("/shows/1")).isEqualTo("summary");
+        assertThat(get("/shows/1")).isEqualTo("summary");
+
+        // second request was revalidated with the ETag
+        server.takeRequest();
+        RecordedRequest revalidation = server.takeRequest();
+        assertThat(revalidation.getHeader("If-None-Match")).isEqualTo("\"v1\"");
+        HttpMetrics.HostStats stats = HttpMetrics.getStats(server.getHostName());
+        assertThat(stats).isNotNull();
+        assertThat(stats.requests).isEqualTo(2);
+        assertThat(stats.cacheHits).isEqualTo(1);
+        assertThat(stats.conditionalHits).isEqualTo(1);
+    }
+
+    public void test_cachePolicyTraktListNotCached() throws Exception {
+        client = new OkHttpClient.Builder()
+                .addNetworkInterceptor(new CachePolicyInterceptor(Collections.singletonList(
+                        new CachePolicyInterceptor.Rule(server.getHostName(),
+                                CachePolicyInterceptor.PATH_TRAKT_SUMMARY,
+                                DateUtils.HOUR_IN_MILLIS))))
+                .cache(cache)
+                .build();
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse()
+                    .setHeader("Cache-Control", "no-cache")
+                    .setBody("response"));
+        }
+
+        get("/shows/trending");
+        get("/shows/trending");
+        // list response is not rewritten, so both were requested
+        assertThat(server.getRequestCount()).isEqualTo(2);
+
+        get("/shows/game-of-thrones");
+        get("/shows/game-of-thrones");
+        // summary response is cached
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    public void test_failure() throws Exception {
+        server.shutdown();
+
+        try {
+            get("/shows/1");
+            fail("request should fail");
+        } catch (java.io.IOException ignored) {
+        }
+
+        HttpMetrics.HostStats stats = HttpMetrics.getStats(server.getHostName());
+        assertThat(stats).isNotNull();
+        assertThat(stats.failures).isEqualTo(1);
+    }
+
+    private String get(String path) throws Exception {
+        Response response = client.newCall(new Request.Builder()
+                .url(server.url(path))
+                .build()).execute();
+        return response.body().string();
+    }
+}
@@ -0,0 +1,236 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import com.battlelancer.seriesguide.dataliberation.JsonExportTask.EpisodesQuery;
+import com.battlelancer.seriesguide.dataliberation.JsonExportTask.SeasonsQuery;
+import com.battlelancer.seriesguide.dataliberation.JsonExportTask.ShowsQuery;
+import com.battlelancer.seriesguide.dataliberation.JsonShowsWriter;
+import com.battlelancer.seriesguide.dataliberation.model.Episode;
+import com.battlelancer.seriesguide.dataliberation.model.Season;
+import com.battlelancer.seriesguide.dataliberation.model.Show;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the single pass shows export of {@link JsonShowsWriter} with building a graph of
+ * {@link Show} objects using one seasons query per show and one episodes query per season (as the
+ * export used to) on a synthetic library of 20k episodes. Logs episodes per second and peak heap.
+ * Correctness is covered by {@link JsonShowsWriterTest}.
+ */
+@Benchmark
+public class JsonExportBenchmarkTest extends AndroidTestCase {
+
+    private static final String TAG = "JsonExportBenchmark";
+
+    private static final int SHOWS = 100;
+    private static final int SEASONS = 10;
+    private static final int EPISODES = 20;
+    private static final int TOTAL = SHOWS * SEASONS * EPISODES;
+
+    private SQLiteDatabase db;
+    private File exportFile;
+    private long startTime;
+    private long peakHeap;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = SQLiteDatabase.create(null);
+        new SeriesGuideDatabase(getContext()).onCreate(db);
+        exportFile = new File(getContext().getCacheDir(), "benchmark-shows-export.json");
+
+        StringBuilder overview = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            overview.append("A long episode description. ");
+        }
+
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            int episodeId = 1;
+            for (int show = 1; show <= SHOWS; show++) {
+                values.clear();
+                values.put(Shows._ID, show);
+                values.put(Shows.TITLE, "Show " + show);
+                db.insert(Tables.SHOWS, null, values);
+                for (int season = 1; season <= SEASONS; season++) {
+                    int seasonId = show * 100 + season;
+                    values.clear();
+                    values.put(Seasons._ID, seasonId);
+                    values.put(Seasons.COMBINED, season);
+                    values.put(Shows.REF_SHOW_ID, show);
+                    db.insert(Tables.SEASONS, null, values);
+                    for (int number = 1; number <= EPISODES; number++) {
+                        values.clear();
+                        values.put(Episodes._ID, episodeId++);
+                        values.put(Episodes.TITLE, "Episode " + number);
+                        values.put(Episodes.OVERVIEW, overview.toString());
+                        values.put(Episodes.WATCHED, number % 2);
+                        values.put(Shows.REF_SHOW_ID, show);
+                        values.put(Seasons.REF_SEASON_ID, seasonId);
+                        values.put(Episodes.SEASON, season);
+                        values.put(Episodes.NUMBER, number);
+                        db.insert(Tables.EPISODES, null, values);
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.close();
+        //noinspection ResultOfMethodCallIgnored
+        exportFile.delete();
+        super.tearDown();
+    }
+
+    public void test_singlePass() throws IOException {
+        startMeasuring();
+
+        Cursor shows = db.query(Tables.SHOWS, ShowsQuery.PROJECTION_FULL, null, null, null, null,
+                ShowsQuery.SORT);
+        Cursor seasons = db.query(Tables.SEASONS, SeasonsQuery.PROJECTION, null, null, null, null,
+                SeasonsQuery.SORT);
+        Cursor episodes = db.query(Tables.EPISODES, EpisodesQuery.PROJECTION_FULL, null, null,
+                null, null, EpisodesQuery.SORT);
+
+        JsonWriter writer = new JsonWriter(
+                new OutputStreamWriter(new FileOutputStream(exportFile), "UTF-8"));
+        JsonShowsWriter showsWriter = new JsonShowsWriter(writer, seasons, episodes, true);
+        writer.beginArray();
+        while (shows.moveToNext()) {
+            showsWriter.writeShow(shows);
+            samplePeakHeap();
+        }
+        writer.endArray();
+        writer.close();
+
+        shows.close();
+        seasons.close();
+        episodes.close();
+
+        stopMeasuring("single pass");
+        assertExported();
+    }
+
+    public void test_queryPerSeason() throws IOException {
+        startMeasuring();
+
+        Gson gson = new Gson();
+        JsonWriter writer = new JsonWriter(
+                new OutputStreamWriter(new FileOutputStream(exportFile), "UTF-8"));
+        writer.beginArray();
+        Cursor shows = db.query(Tables.SHOWS, ShowsQuery.PROJECTION_FULL, null, null, null, null,
+                Shows.TITLE + " COLLATE NOCASE ASC");
+        while (shows.moveToNext()) {
+            Show show = new Show();
+            show.tvdbId = shows.getInt(ShowsQuery.ID);
+            show.title = shows.getString(ShowsQuery.TITLE);
+            show.overview = shows.getString(ShowsQuery.OVERVIEW);
+            show.seasons = new ArrayList<>();
+
+            Cursor seasons = db.query(Tables.SEASONS,
+                    new String[] { Seasons._ID, Seasons.COMBINED },
+                    Shows.REF_SHOW_ID + "=?", new String[] { String.valueOf(show.tvdbId) },
+                    null, null, null);
+            while (seasons.moveToNext()) {
+                Season season = new Season();
+                season.tvdbId = seasons.getInt(0);
+                season.season = seasons.getInt(1);
+                season.episodes = new ArrayList<>();
+
+                Cursor episodes = db.query(Tables.EPISODES, EpisodesQuery.PROJECTION_FULL,
+                        Seasons.REF_SEASON_ID + "=?",
+                        new String[] { String.valueOf(season.tvdbId) }, null, null,
+                        Episodes.NUMBER + " ASC");
+                while (episodes.moveToNext()) {
+                    Episode episode = new Episode();
+                    episode.tvdbId = episodes.getInt(EpisodesQuery.ID);
+                    episode.episode = episodes.getInt(EpisodesQuery.NUMBER);
+                    episode.watched = episodes.getInt(EpisodesQuery.WATCHED) == 1;
+                    episode.title = episodes.getString(EpisodesQuery.TITLE);
+                    episode.overview = episodes.getString(EpisodesQuery.OVERVIEW);
+                    season.episodes.add(episode);
+                }
+                episodes.close();
+
+                show.seasons.add(season);
+            }
+            seasons.close();
+
+            samplePeakHeap();
+            gson.toJson(show, Show.class, writer);
+        }
+        shows.close();
+        writer.endArray();
+        writer.close();
+
+        stopMeasuring("query per season");
+        assertExported();
+    }
+
+    private void startMeasuring() {
+        Runtime.getRuntime().gc();
+        peakHeap = 0;
+        startTime = SystemClock.elapsedRealtime();
+    }
+
+    private void samplePeakHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    private void stopMeasuring(String name) {
+        long duration = Math.max(SystemClock.elapsedRealtime() - startTime, 1);
+        Log.i(TAG, name + ": " + (TOTAL * 1000L / duration) + " episodes/s, peak heap "
+                + (peakHeap / 1024) + " KB, " + (exportFile.length() / 1024) + " KB written");
+    }
+
+    private void assertExported() throws IOException {
+        InputStreamReader reader = new InputStreamReader(new FileInputStream(exportFile),
+                "UTF-8");
+        Show[] shows = new Gson().fromJson(reader, Show[].class);
+        reader.close();
+
+        assertThat(shows).hasSize(SHOWS);
+        int episodes = 0;
+        int watched = 0;
+        for (Show show : shows) {
+            assertThat(show.seasons).hasSize(SEASONS);
+            for (Season season : show.seasons) {
+                for (Episode episode : season.episodes) {
+                    assertThat(episode.episode).isBetween(1, EPISODES);
+                    episodes++;
+                    if (episode.watched) {
+                        watched++;
+                    }
+                }
+            }
+        }
+        assertThat(episodes).isEqualTo(TOTAL);
+        assertThat(watched).isEqualTo(TOTAL / 2);
+    }
+}
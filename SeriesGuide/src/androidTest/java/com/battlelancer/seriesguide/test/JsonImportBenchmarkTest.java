@@ -0,0 +1,233 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import com.battlelancer.seriesguide.dataliberation.JsonShowsReader;
+import com.battlelancer.seriesguide.dataliberation.model.Episode;
+import com.battlelancer.seriesguide.dataliberation.model.Season;
+import com.battlelancer.seriesguide.dataliberation.model.Show;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares streaming a shows backup into the database using {@link JsonShowsReader} with reading
+ * each show into memory first (as the import used to) on a synthetic full dump of 20 shows with
+ * 1,000 episodes each. Logs rows per second and peak heap. Correctness is covered by {@link
+ * JsonShowsReaderTest}.
+ */
+@Benchmark
+public class JsonImportBenchmarkTest extends AndroidTestCase {
+
+    private static final String TAG = "JsonImportBenchmark";
+
+    private static final int SHOWS = 20;
+    private static final int SEASONS = 20;
+    private static final int EPISODES = 50;
+    private static final int TOTAL = SHOWS * SEASONS * EPISODES;
+
+    private SQLiteDatabase db;
+    private File importFile;
+    private long startTime;
+    private long peakHeap;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = SQLiteDatabase.create(null);
+        new SeriesGuideDatabase(getContext()).onCreate(db);
+        importFile = new File(getContext().getCacheDir(), "benchmark-shows-import.json");
+
+        StringBuilder overview = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            overview.append("A long episode description. ");
+        }
+
+        // write one show at a time to not hold the whole library in memory
+        Gson gson = new Gson();
+        JsonWriter writer = new JsonWriter(
+                new OutputStreamWriter(new FileOutputStream(importFile), "UTF-8"));
+        writer.beginArray();
+        int episodeId = 1;
+        for (int showId = 1; showId <= SHOWS; showId++) {
+            Show show = new Show();
+            show.tvdbId = showId;
+            show.title = "Show " + showId;
+            show.seasons = new ArrayList<>();
+            for (int number = 1; number <= SEASONS; number++) {
+                Season season = new Season();
+                season.tvdbId = showId * 100 + number;
+                season.season = number;
+                season.episodes = new ArrayList<>();
+                for (int episodeNumber = 1; episodeNumber <= EPISODES; episodeNumber++) {
+                    Episode episode = new Episode();
+                    episode.tvdbId = episodeId++;
+                    episode.episode = episodeNumber;
+                    episode.title = "Episode " + episodeNumber;
+                    episode.overview = overview.toString();
+                    episode.watched = episodeNumber % 2 == 1;
+                    season.episodes.add(episode);
+                }
+                show.seasons.add(season);
+            }
+            gson.toJson(show, Show.class, writer);
+        }
+        writer.endArray();
+        writer.close();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.close();
+        //noinspection ResultOfMethodCallIgnored
+        importFile.delete();
+        super.tearDown();
+    }
+
+    public void test_streaming() throws IOException {
+        startMeasuring();
+
+        JsonReader reader = new JsonReader(
+                new InputStreamReader(new FileInputStream(importFile), "UTF-8"));
+        int episodeCount = new JsonShowsReader(reader, new JsonShowsReader.Database() {
+            @Override
+            public void beginShow() {
+                db.beginTransaction();
+            }
+
+            @Override
+            public void insertShow(ContentValues values) {
+                db.insert(Tables.SHOWS, null, values);
+            }
+
+            @Override
+            public void insertSeasons(ContentValues[] values) {
+                insertAll(Tables.SEASONS, values);
+            }
+
+            @Override
+            public void insertEpisodes(ContentValues[] values) {
+                insertAll(Tables.EPISODES, values);
+                samplePeakHeap();
+            }
+
+            @Override
+            public void endShow(boolean isSuccessful) {
+                if (isSuccessful) {
+                    db.setTransactionSuccessful();
+                }
+                db.endTransaction();
+            }
+        }, new String[] { "en" }).readShows();
+        reader.close();
+
+        stopMeasuring("streaming");
+        assertThat(episodeCount).isEqualTo(TOTAL);
+        assertImported();
+    }
+
+    public void test_showInMemory() throws IOException {
+        startMeasuring();
+
+        Gson gson = new Gson();
+        JsonReader reader = new JsonReader(
+                new InputStreamReader(new FileInputStream(importFile), "UTF-8"));
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Show show = gson.fromJson(reader, Show.class);
+
+            ContentValues showValues = new ContentValues();
+            showValues.put(Shows._ID, show.tvdbId);
+            showValues.put(Shows.TITLE, show.title);
+
+            ArrayList<ContentValues> seasonBatch = new ArrayList<>();
+            ArrayList<ContentValues> episodeBatch = new ArrayList<>();
+            for (Season season : show.seasons) {
+                ContentValues seasonValues = new ContentValues();
+                seasonValues.put(Seasons._ID, season.tvdbId);
+                seasonValues.put(Shows.REF_SHOW_ID, show.tvdbId);
+                seasonValues.put(Seasons.COMBINED, season.season);
+                seasonBatch.add(seasonValues);
+                for (Episode episode : season.episodes) {
+                    ContentValues episodeValues = new ContentValues();
+                    episodeValues.put(Episodes._ID, episode.tvdbId);
+                    episodeValues.put(Shows.REF_SHOW_ID, show.tvdbId);
+                    episodeValues.put(Seasons.REF_SEASON_ID, season.tvdbId);
+                    episodeValues.put(Episodes.SEASON, season.season);
+                    episodeValues.put(Episodes.NUMBER, episode.episode);
+                    episodeValues.put(Episodes.TITLE, episode.title);
+                    episodeValues.put(Episodes.OVERVIEW, episode.overview);
+                    episodeValues.put(Episodes.WATCHED, episode.watched ? 1 : 0);
+                    episodeBatch.add(episodeValues);
+                }
+            }
+            samplePeakHeap();
+
+            db.beginTransaction();
+            try {
+                db.insert(Tables.SHOWS, null, showValues);
+                insertAll(Tables.SEASONS,
+                        seasonBatch.toArray(new ContentValues[seasonBatch.size()]));
+                insertAll(Tables.EPISODES,
+                        episodeBatch.toArray(new ContentValues[episodeBatch.size()]));
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        reader.endArray();
+        reader.close();
+
+        stopMeasuring("show in memory");
+        assertImported();
+    }
+
+    private void insertAll(String table, ContentValues[] values) {
+        for (ContentValues value : values) {
+            db.insert(table, null, value);
+        }
+    }
+
+    private void startMeasuring() {
+        Runtime.getRuntime().gc();
+        peakHeap = 0;
+        startTime = SystemClock.elapsedRealtime();
+    }
+
+    private void samplePeakHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    private void stopMeasuring(String name) {
+        long duration = Math.max(SystemClock.elapsedRealtime() - startTime, 1);
+        Log.i(TAG, name + ": " + (TOTAL * 1000L / duration) + " episode rows/s, peak heap "
+                + (peakHeap / 1024) + " KB, " + (importFile.length() / 1024) + " KB read");
+    }
+
+    private void assertImported() {
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.SHOWS)).isEqualTo(SHOWS);
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.SEASONS)).isEqualTo(SHOWS * SEASONS);
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES)).isEqualTo(TOTAL);
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES,
+                Episodes.SELECTION_WATCHED)).isEqualTo(TOTAL / 2);
+    }
+}
@@ -0,0 +1,220 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentValues;
+import com.battlelancer.seriesguide.dataliberation.JsonShowsReader;
+import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonShowsReaderTest extends TestCase {
+
+    public static Test suite() {
+        return new TestSuite(JsonShowsReaderTest.class);
+    }
+
+    /**
+     * Records all calls, a show is only kept if it was ended successfully.
+     */
+    private static class RecordingDatabase implements JsonShowsReader.Database {
+
+        final List<ContentValues> shows = new ArrayList<>();
+        final List<ContentValues> seasons = new ArrayList<>();
+        final List<ContentValues> episodes = new ArrayList<>();
+        final List<Integer> episodeChunkSizes = new ArrayList<>();
+        final List<Boolean> showResults = new ArrayList<>();
+        boolean inShow;
+
+        @Override
+        public void beginShow() {
+            assertThat(inShow).isFalse();
+            inShow = true;
+        }
+
+        @Override
+        public void insertShow(ContentValues values) {
+            assertThat(inShow).isTrue();
+            shows.add(values);
+        }
+
+        @Override
+        public void insertSeasons(ContentValues[] values) {
+            assertThat(inShow).isTrue();
+            for (ContentValues value : values) {
+                seasons.add(value);
+            }
+        }
+
+        @Override
+        public void insertEpisodes(ContentValues[] values) {
+            assertThat(inShow).isTrue();
+            episodeChunkSizes.add(values.length);
+            for (ContentValues value : values) {
+                // chunk array may be reused, keep values only
+                episodes.add(value);
+            }
+        }
+
+        @Override
+        public void endShow(boolean isSuccessful) {
+            assertThat(inShow).isTrue();
+            inShow = false;
+            showResults.add(isSuccessful);
+        }
+    }
+
+    public void test_readShows() throws IOException {
+        String json = "["
+                // ids before seasons and episodes, as exported
+                + "{\"tvdb_id\":10,\"title\":\"Ten\",\"language\":\"de\",\"seasons\":["
+                + "{\"tvdb_id\":101,\"season\":1,\"episodes\":["
+                + "{\"tvdb_id\":1011,\"episode\":1,\"watched\":true},"
+                + "{\"tvdb_id\":1012,\"episode\":2,\"watched\":true,\"skipped\":true},"
+                + "{\"tvdb_id\":0,\"episode\":3},"
+                + "{\"tvdb_id\":1014,\"episode\":-4,\"collected\":true}]},"
+                // seasons without episodes are not imported
+                + "{\"tvdb_id\":102,\"season\":2,\"episodes\":[]},"
+                + "{\"tvdb_id\":103,\"season\":3,\"episodes\":null},"
+                // invalid season id
+                + "{\"tvdb_id\":0,\"season\":4,\"episodes\":[{\"tvdb_id\":1041}]}]},"
+                // invalid show id
+                + "{\"tvdb_id\":0,\"seasons\":[{\"tvdb_id\":1,\"season\":1,"
+                + "\"episodes\":[{\"tvdb_id\":1}]}]},"
+                // ids after seasons and episodes
+                + "{\"seasons\":[{\"episodes\":[{\"episode\":1,\"tvdb_id\":2011}],"
+                + "\"season\":-1,\"tvdb_id\":201}],\"title\":\"Twenty\",\"tvdb_id\":20}"
+                + "]";
+
+        RecordingDatabase database = new RecordingDatabase();
+        int episodeCount = read(json, database);
+
+        assertThat(episodeCount).isEqualTo(4);
+        assertThat(database.showResults).containsExactly(true, true, true);
+
+        assertThat(database.shows).hasSize(2);
+        ContentValues show = database.shows.get(0);
+        assertThat(show.getAsInteger(Shows._ID)).isEqualTo(10);
+        assertThat(show.getAsString(Shows.TITLE)).isEqualTo("Ten");
+        // language not supported
+        assertThat(show.containsKey(Shows.LANGUAGE)).isFalse();
+        assertThat(database.shows.get(1).getAsInteger(Shows._ID)).isEqualTo(20);
+        assertThat(database.shows.get(1).getAsString(Shows.TITLE)).isEqualTo("Twenty");
+
+        assertThat(database.seasons).hasSize(2);
+        assertSeason(database.seasons.get(0), 101, 10, 1);
+        assertSeason(database.seasons.get(1), 201, 20, 0);
+
+        assertThat(database.episodes).hasSize(4);
+        assertEpisode(database.episodes.get(0), 1011, 10, 101, 1, 1);
+        assertThat(database.episodes.get(0).getAsInteger(Episodes.WATCHED))
+                .isEqualTo(EpisodeFlags.WATCHED);
+        assertEpisode(database.episodes.get(1), 1012, 10, 101, 1, 2);
+        assertThat(database.episodes.get(1).getAsInteger(Episodes.WATCHED))
+                .isEqualTo(EpisodeFlags.SKIPPED);
+        assertEpisode(database.episodes.get(2), 1014, 10, 101, 1, 0);
+        assertThat(database.episodes.get(2).getAsInteger(Episodes.WATCHED))
+                .isEqualTo(EpisodeFlags.UNWATCHED);
+        assertThat(database.episodes.get(2).getAsBoolean(Episodes.COLLECTED)).isTrue();
+        assertEpisode(database.episodes.get(3), 2011, 20, 201, 0, 1);
+    }
+
+    public void test_readShowsInChunks() throws IOException {
+        int episodes = JsonShowsReader.EPISODE_CHUNK_SIZE * 2 + 1;
+        StringBuilder json = new StringBuilder("[{\"tvdb_id\":10,\"seasons\":[");
+        json.append("{\"tvdb_id\":101,\"season\":1,\"episodes\":[");
+        for (int i = 1; i <= episodes; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append("{\"tvdb_id\":").append(i).append(",\"episode\":").append(i).append('}');
+        }
+        json.append("]}]}]");
+
+        RecordingDatabase database = new RecordingDatabase();
+        assertThat(read(json.toString(), database)).isEqualTo(episodes);
+
+        assertThat(database.episodeChunkSizes).containsExactly(
+                JsonShowsReader.EPISODE_CHUNK_SIZE, JsonShowsReader.EPISODE_CHUNK_SIZE, 1);
+        assertThat(database.episodes).hasSize(episodes);
+        for (int i = 0; i < episodes; i++) {
+            assertThat(database.episodes.get(i).getAsInteger(Episodes._ID)).isEqualTo(i + 1);
+        }
+    }
+
+    public void test_readShowsInvalid() throws IOException {
+        String json = "[{\"tvdb_id\":10,\"seasons\":[{\"tvdb_id\":101,\"season\":1,"
+                + "\"episodes\":[{\"tvdb_id\":1011},{\"tvdb_id\":\"not a number\"}]}]}]";
+
+        RecordingDatabase database = new RecordingDatabase();
+        try {
+            read(json, database);
+            fail("Exception expected");
+        } catch (RuntimeException expected) {
+            // malformed episode
+        }
+
+        // show was ended and should be discarded
+        assertThat(database.inShow).isFalse();
+        assertThat(database.showResults).containsExactly(false);
+    }
+
+    public void test_readShowsInvalidSeasons() throws IOException {
+        String json = "[{\"tvdb_id\":10,\"seasons\":["
+                // null season id or number
+                + "{\"tvdb_id\":null,\"season\":1,\"episodes\":[{\"tvdb_id\":1011}]},"
+                + "{\"tvdb_id\":102,\"season\":null,\"episodes\":[{\"tvdb_id\":1021}]},"
+                // season id or number that is not an int
+                + "{\"tvdb_id\":\"abc\",\"season\":3,\"episodes\":[{\"tvdb_id\":1031}]},"
+                + "{\"tvdb_id\":104,\"season\":4.5,\"episodes\":[{\"tvdb_id\":1041}]},"
+                + "{\"episodes\":[{\"tvdb_id\":1051}],\"season\":5,\"tvdb_id\":1.5},"
+                + "{\"tvdb_id\":106,\"season\":6,\"episodes\":[{\"tvdb_id\":1061}]}]}]";
+
+        RecordingDatabase database = new RecordingDatabase();
+        assertThat(read(json, database)).isEqualTo(2);
+
+        // invalid seasons are skipped, the show is still imported
+        assertThat(database.showResults).containsExactly(true);
+        assertThat(database.seasons).hasSize(2);
+        assertSeason(database.seasons.get(0), 102, 10, 0);
+        assertSeason(database.seasons.get(1), 106, 10, 6);
+        assertThat(database.episodes).hasSize(2);
+        assertThat(database.episodes.get(0).getAsInteger(Episodes._ID)).isEqualTo(1021);
+        assertThat(database.episodes.get(1).getAsInteger(Episodes._ID)).isEqualTo(1061);
+    }
+
+    private static int read(String json, JsonShowsReader.Database database)
+            throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        try {
+            return new JsonShowsReader(reader, database, new String[] { "en" }).readShows();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void assertSeason(ContentValues values, int seasonId, int showId,
+            int season) {
+        assertThat(values.getAsInteger(Seasons._ID)).isEqualTo(seasonId);
+        assertThat(values.getAsInteger(Shows.REF_SHOW_ID)).isEqualTo(showId);
+        assertThat(values.getAsInteger(Seasons.COMBINED)).isEqualTo(season);
+    }
+
+    private static void assertEpisode(ContentValues values, int episodeId, int showId,
+            int seasonId, int season, int number) {
+        assertThat(values.getAsInteger(Episodes._ID)).isEqualTo(episodeId);
+        assertThat(values.getAsInteger(Shows.REF_SHOW_ID)).isEqualTo(showId);
+        assertThat(values.getAsInteger(Seasons.REF_SEASON_ID)).isEqualTo(seasonId);
+        assertThat(values.getAsInteger(Episodes.SEASON)).isEqualTo(season);
+        assertThat(values.getAsInteger(Episodes.NUMBER)).isEqualTo(number);
+    }
+}
@@ -0,0 +1,170 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import com.battlelancer.seriesguide.dataliberation.JsonExportTask.EpisodesQuery;
+import com.battlelancer.seriesguide.dataliberation.JsonExportTask.SeasonsQuery;
+import com.battlelancer.seriesguide.dataliberation.JsonExportTask.ShowsQuery;
+import com.battlelancer.seriesguide.dataliberation.JsonShowsWriter;
+import com.battlelancer.seriesguide.dataliberation.model.Episode;
+import com.battlelancer.seriesguide.dataliberation.model.Season;
+import com.battlelancer.seriesguide.dataliberation.model.Show;
+import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonShowsWriterTest extends AndroidTestCase {
+
+    private SQLiteDatabase db;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = SQLiteDatabase.create(null);
+        new SeriesGuideDatabase(getContext()).onCreate(db);
+
+        // ids sort differently as text than as numbers
+        insertShow(2, "Second");
+        insertShow(10, "Tenth");
+
+        insertSeason(1001, 10, 1);
+        insertSeason(1002, 10, 2);
+        insertSeason(201, 2, 1);
+        // season of a show that was removed
+        insertSeason(501, 5, 1);
+
+        insertEpisode(10011, 10, 1001, 1, 1, EpisodeFlags.WATCHED, 0);
+        insertEpisode(10012, 10, 1001, 1, 2, EpisodeFlags.SKIPPED, 1);
+        insertEpisode(10021, 10, 1002, 2, 1, EpisodeFlags.UNWATCHED, 0);
+        // episode without a season
+        insertEpisode(2001, 2, 0, 0, 1, EpisodeFlags.UNWATCHED, 0);
+        insertEpisode(2011, 2, 201, 1, 1, EpisodeFlags.UNWATCHED, 1);
+        // episode of a show that was removed
+        insertEpisode(5011, 5, 501, 1, 1, EpisodeFlags.WATCHED, 0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.close();
+        super.tearDown();
+    }
+
+    public void test_writeShow() throws IOException {
+        Show[] shows = export(true);
+
+        assertThat(shows).hasSize(2);
+
+        Show show = shows[0];
+        assertThat(show.tvdbId).isEqualTo(10);
+        assertThat(show.title).isEqualTo("Tenth");
+        assertThat(show.overview).isEqualTo("Overview of Tenth");
+        assertThat(show.seasons).hasSize(2);
+        Season season = show.seasons.get(0);
+        assertThat(season.tvdbId).isEqualTo(1001);
+        assertThat(season.season).isEqualTo(1);
+        assertThat(season.episodes).hasSize(2);
+        Episode episode = season.episodes.get(0);
+        assertThat(episode.tvdbId).isEqualTo(10011);
+        assertThat(episode.episode).isEqualTo(1);
+        assertThat(episode.title).isEqualTo("Episode 10011");
+        assertThat(episode.overview).isEqualTo("Overview of 10011");
+        assertThat(episode.watched).isTrue();
+        assertThat(episode.skipped).isFalse();
+        assertThat(episode.collected).isFalse();
+        episode = season.episodes.get(1);
+        assertThat(episode.tvdbId).isEqualTo(10012);
+        assertThat(episode.watched).isFalse();
+        assertThat(episode.skipped).isTrue();
+        assertThat(episode.collected).isTrue();
+        season = show.seasons.get(1);
+        assertThat(season.tvdbId).isEqualTo(1002);
+        assertThat(season.episodes).hasSize(1);
+        assertThat(season.episodes.get(0).tvdbId).isEqualTo(10021);
+
+        show = shows[1];
+        assertThat(show.tvdbId).isEqualTo(2);
+        assertThat(show.seasons).hasSize(1);
+        season = show.seasons.get(0);
+        assertThat(season.tvdbId).isEqualTo(201);
+        assertThat(season.episodes).hasSize(1);
+        assertThat(season.episodes.get(0).tvdbId).isEqualTo(2011);
+        assertThat(season.episodes.get(0).collected).isTrue();
+    }
+
+    public void test_writeShowNotFullDump() throws IOException {
+        Show[] shows = export(false);
+
+        assertThat(shows).hasSize(2);
+        assertThat(shows[0].overview).isNull();
+        Episode episode = shows[0].seasons.get(0).episodes.get(0);
+        assertThat(episode.title).isEqualTo("Episode 10011");
+        assertThat(episode.overview).isNull();
+    }
+
+    private Show[] export(boolean isFullDump) throws IOException {
+        Cursor shows = db.query(Tables.SHOWS, ShowsQuery.PROJECTION_FULL, null, null, null, null,
+                ShowsQuery.SORT);
+        Cursor seasons = db.query(Tables.SEASONS, SeasonsQuery.PROJECTION, null, null, null, null,
+                SeasonsQuery.SORT);
+        Cursor episodes = db.query(Tables.EPISODES, EpisodesQuery.PROJECTION_FULL, null, null,
+                null, null, EpisodesQuery.SORT);
+
+        StringWriter json = new StringWriter();
+        JsonWriter writer = new JsonWriter(json);
+        JsonShowsWriter showsWriter = new JsonShowsWriter(writer, seasons, episodes, isFullDump);
+        writer.beginArray();
+        while (shows.moveToNext()) {
+            showsWriter.writeShow(shows);
+        }
+        writer.endArray();
+        writer.close();
+
+        shows.close();
+        seasons.close();
+        episodes.close();
+
+        return new Gson().fromJson(json.toString(), Show[].class);
+    }
+
+    private void insertShow(int showId, String title) {
+        ContentValues values = new ContentValues();
+        values.put(Shows._ID, showId);
+        values.put(Shows.TITLE, title);
+        values.put(Shows.OVERVIEW, "Overview of " + title);
+        db.insert(Tables.SHOWS, null, values);
+    }
+
+    private void insertSeason(int seasonId, int showId, int season) {
+        ContentValues values = new ContentValues();
+        values.put(Seasons._ID, seasonId);
+        values.put(Seasons.COMBINED, season);
+        values.put(Shows.REF_SHOW_ID, showId);
+        db.insert(Tables.SEASONS, null, values);
+    }
+
+    private void insertEpisode(int episodeId, int showId, int seasonId, int season, int number,
+            int watched, int collected) {
+        ContentValues values = new ContentValues();
+        values.put(Episodes._ID, episodeId);
+        values.put(Episodes.TITLE, "Episode " + episodeId);
+        values.put(Episodes.OVERVIEW, "Overview of " + episodeId);
+        values.put(Shows.REF_SHOW_ID, showId);
+        values.put(Seasons.REF_SEASON_ID, seasonId);
+        values.put(Episodes.SEASON, season);
+        values.put(Episodes.NUMBER, number);
+        values.put(Episodes.WATCHED, watched);
+        values.put(Episodes.COLLECTED, collected);
+        db.insert(Tables.EPISODES, null, values);
+    }
+}
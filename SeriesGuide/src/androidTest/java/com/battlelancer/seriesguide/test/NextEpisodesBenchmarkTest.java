@@ -0,0 +1,157 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.text.format.DateUtils;
+import android.util.Log;
+import com.battlelancer.seriesguide.R;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.battlelancer.seriesguide.settings.DisplaySettings;
+import com.battlelancer.seriesguide.util.TextTools;
+import com.battlelancer.seriesguide.util.TimeTools;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares finding the next episode of all shows with a single statement using {@link
+ * SeriesGuideDatabase#updateNextEpisodes} with running one query and one update per show (as
+ * {@link com.battlelancer.seriesguide.util.DBUtils#updateLatestEpisode} used to) on a synthetic
+ * library of 500 shows. Correctness is covered by {@link NextEpisodesTest}.
+ */
+@Benchmark
+public class NextEpisodesBenchmarkTest extends AndroidTestCase {
+
+    private static final String TAG = "NextEpisodesBenchmark";
+
+    private static final int SHOWS = 500;
+    private static final int EPISODES = 100;
+
+    private SQLiteDatabase db;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = SQLiteDatabase.create(null);
+        new SeriesGuideDatabase(getContext()).onCreate(db);
+
+        long firstRelease = System.currentTimeMillis() - 50 * DateUtils.DAY_IN_MILLIS;
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int show = 1; show <= SHOWS; show++) {
+                int lastWatched = lastWatchedNumber(show);
+                values.clear();
+                values.put(Shows._ID, show);
+                values.put(Shows.TITLE, "Show " + show);
+                values.put(Shows.LASTWATCHEDID,
+                        lastWatched == 0 ? 0 : episodeId(show, lastWatched));
+                db.insert(Tables.SHOWS, null, values);
+                for (int number = 1; number <= EPISODES; number++) {
+                    values.clear();
+                    values.put(Episodes._ID, episodeId(show, number));
+                    values.put(Episodes.TITLE, "Episode " + number);
+                    values.put(Shows.REF_SHOW_ID, show);
+                    values.put(Episodes.SEASON, 1);
+                    values.put(Episodes.NUMBER, number);
+                    values.put(Episodes.FIRSTAIREDMS,
+                            firstRelease + number * DateUtils.DAY_IN_MILLIS);
+                    values.put(Episodes.WATCHED, number <= lastWatched ? 1 : 0);
+                    db.insert(Tables.EPISODES, null, values);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.close();
+        super.tearDown();
+    }
+
+    public void test_singleStatement() {
+        long start = SystemClock.elapsedRealtime();
+        SeriesGuideDatabase.updateNextEpisodes(db, 0, false, false,
+                System.currentTimeMillis(), DisplaySettings.NUMBERFORMAT_DEFAULT);
+        Log.i(TAG, "single statement: " + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        assertNextEpisodes();
+    }
+
+    public void test_queryPerShow() {
+        long start = SystemClock.elapsedRealtime();
+        Cursor shows = db.rawQuery("SELECT " + Tables.SHOWS + "." + Shows._ID + ","
+                + Episodes.SEASON + "," + Episodes.NUMBER + "," + Episodes.FIRSTAIREDMS
+                + " FROM " + Tables.SHOWS
+                + " LEFT OUTER JOIN " + Tables.EPISODES + " ON " + Shows.LASTWATCHEDID + "="
+                + Tables.EPISODES + "." + Episodes._ID, null);
+        ContentValues values = new ContentValues();
+        while (shows.moveToNext()) {
+            String showTvdbId = shows.getString(0);
+            String season = shows.isNull(1) ? "-1" : shows.getString(1);
+            String number = shows.isNull(2) ? "-1" : shows.getString(2);
+            String releaseTime = shows.isNull(3)
+                    ? String.valueOf(Long.MIN_VALUE) : shows.getString(3);
+
+            Cursor next = db.query(Tables.EPISODES, new String[] {
+                            Episodes._ID, Episodes.SEASON, Episodes.NUMBER,
+                            Episodes.FIRSTAIREDMS, Episodes.TITLE
+                    }, Shows.REF_SHOW_ID + "=? AND " + Episodes.WATCHED + "=0 AND (("
+                            + Episodes.FIRSTAIREDMS + "=? AND (" + Episodes.NUMBER + "!=? OR "
+                            + Episodes.SEASON + "!=?)) OR " + Episodes.FIRSTAIREDMS + ">?) AND "
+                            + Episodes.FIRSTAIREDMS + "!=-1",
+                    new String[] { showTvdbId, releaseTime, number, season, releaseTime },
+                    null, null, Episodes.FIRSTAIREDMS + " ASC," + Episodes.SEASON + " ASC,"
+                            + Episodes.NUMBER + " ASC");
+            values.clear();
+            if (next.moveToFirst()) {
+                Date actualRelease = TimeTools.applyUserOffset(getContext(), next.getLong(3));
+                values.put(Shows.NEXTEPISODE, next.getInt(0));
+                values.put(Shows.NEXTAIRDATEMS, next.getLong(3));
+                values.put(Shows.NEXTTEXT, TextTools.getNextEpisodeString(getContext(),
+                        next.getInt(1), next.getInt(2), next.getString(4)));
+                values.put(Shows.NEXTAIRDATETEXT, getContext().getString(
+                        R.string.release_date_and_day,
+                        TimeTools.formatToLocalRelativeTime(getContext(), actualRelease),
+                        TimeTools.formatToLocalDay(actualRelease)));
+            } else {
+                values.put(Shows.NEXTEPISODE, "");
+            }
+            next.close();
+            db.update(Tables.SHOWS, values, Shows._ID + "=?", new String[] { showTvdbId });
+        }
+        shows.close();
+        Log.i(TAG, "query per show: " + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        assertNextEpisodes();
+    }
+
+    private void assertNextEpisodes() {
+        Cursor shows = db.query(Tables.SHOWS, new String[] { Shows._ID, Shows.NEXTEPISODE },
+                null, null, null, null, null);
+        assertThat(shows.getCount()).isEqualTo(SHOWS);
+        while (shows.moveToNext()) {
+            int show = shows.getInt(0);
+            assertThat(shows.getInt(1))
+                    .isEqualTo(episodeId(show, lastWatchedNumber(show) + 1));
+        }
+        shows.close();
+    }
+
+    private static int lastWatchedNumber(int show) {
+        return show % (EPISODES / 2);
+    }
+
+    private static int episodeId(int show, int number) {
+        return show * 1000 + number;
+    }
+}
@@ -0,0 +1,131 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.text.format.DateUtils;
+import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.battlelancer.seriesguide.settings.DisplaySettings;
+import com.battlelancer.seriesguide.util.DBUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NextEpisodesTest extends AndroidTestCase {
+
+    private static final long NOW = 1464739200000L;
+    private static final long DAY = DateUtils.DAY_IN_MILLIS;
+
+    private SQLiteDatabase db;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = SQLiteDatabase.create(null);
+        new SeriesGuideDatabase(getContext()).onCreate(db);
+
+        // watched up to the second episode
+        insertShow(1, 102);
+        insertEpisode(101, 1, 1, 1, NOW - 3 * DAY, EpisodeFlags.WATCHED);
+        insertEpisode(102, 1, 1, 2, NOW - 2 * DAY, EpisodeFlags.WATCHED);
+        insertEpisode(103, 1, 1, 3, NOW - DAY, EpisodeFlags.UNWATCHED);
+        insertEpisode(104, 1, 1, 4, NOW + DAY, EpisodeFlags.UNWATCHED);
+
+        // nothing watched, special released first
+        insertShow(2, 0);
+        insertEpisode(201, 2, 0, 1, NOW - 5 * DAY, EpisodeFlags.UNWATCHED);
+        insertEpisode(202, 2, 1, 1, NOW - 4 * DAY, EpisodeFlags.UNWATCHED);
+
+        // all watched or skipped
+        insertShow(3, 302);
+        insertEpisode(301, 3, 1, 1, NOW - 2 * DAY, EpisodeFlags.SKIPPED);
+        insertEpisode(302, 3, 1, 2, NOW - DAY, EpisodeFlags.WATCHED);
+
+        // double episode released at the same time, episode without release date
+        insertShow(4, 401);
+        insertEpisode(401, 4, 1, 1, NOW - DAY, EpisodeFlags.WATCHED);
+        insertEpisode(402, 4, 1, 2, NOW - DAY, EpisodeFlags.UNWATCHED);
+        insertEpisode(403, 4, 1, 3, -1, EpisodeFlags.UNWATCHED);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.close();
+        super.tearDown();
+    }
+
+    public void test_updateNextEpisodes() {
+        int result = SeriesGuideDatabase.updateNextEpisodes(db, 0, false, false, NOW,
+                DisplaySettings.NUMBERFORMAT_DEFAULT);
+
+        assertThat(result).isEqualTo(-1);
+        assertNextEpisode(1, "103", NOW - DAY, "1x03 Episode 103");
+        assertNextEpisode(2, "201", NOW - 5 * DAY, "0x01 Episode 201");
+        assertNextEpisode(3, "", Long.valueOf(DBUtils.UNKNOWN_NEXT_RELEASE_DATE), "");
+        assertNextEpisode(4, "402", NOW - DAY, "1x02 Episode 402");
+    }
+
+    public void test_updateNextEpisodesHidingSpecials() {
+        SeriesGuideDatabase.updateNextEpisodes(db, 0, true, false, NOW,
+                DisplaySettings.NUMBERFORMAT_DEFAULT);
+
+        assertNextEpisode(2, "202", NOW - 4 * DAY, "1x01 Episode 202");
+    }
+
+    public void test_updateNextEpisodesNoReleased() {
+        SeriesGuideDatabase.updateNextEpisodes(db, 0, false, true, NOW,
+                DisplaySettings.NUMBERFORMAT_DEFAULT);
+
+        assertNextEpisode(1, "104", NOW + DAY, "1x04 Episode 104");
+        assertNextEpisode(2, "", Long.valueOf(DBUtils.UNKNOWN_NEXT_RELEASE_DATE), "");
+    }
+
+    public void test_updateNextEpisodesOfShow() {
+        int result = SeriesGuideDatabase.updateNextEpisodes(db, 1, false, false, NOW,
+                DisplaySettings.NUMBERFORMAT_ENGLISHLOWER);
+
+        assertThat(result).isEqualTo(103);
+        assertNextEpisode(1, "103", NOW - DAY, "s01e03 Episode 103");
+        // other shows are not touched
+        assertNextEpisode(2, "", 0, "");
+
+        assertThat(SeriesGuideDatabase.updateNextEpisodes(db, 3, false, false, NOW,
+                DisplaySettings.NUMBERFORMAT_DEFAULT)).isEqualTo(0);
+    }
+
+    private void insertShow(int showId, int lastWatchedId) {
+        ContentValues values = new ContentValues();
+        values.put(Shows._ID, showId);
+        values.put(Shows.TITLE, "Show " + showId);
+        values.put(Shows.LASTWATCHEDID, lastWatchedId);
+        db.insert(Tables.SHOWS, null, values);
+    }
+
+    private void insertEpisode(int episodeId, int showId, int season, int number,
+            long releaseTime, int watched) {
+        ContentValues values = new ContentValues();
+        values.put(Episodes._ID, episodeId);
+        values.put(Episodes.TITLE, "Episode " + episodeId);
+        values.put(Shows.REF_SHOW_ID, showId);
+        values.put(Episodes.SEASON, season);
+        values.put(Episodes.NUMBER, number);
+        values.put(Episodes.FIRSTAIREDMS, releaseTime);
+        values.put(Episodes.WATCHED, watched);
+        db.insert(Tables.EPISODES, null, values);
+    }
+
+    private void assertNextEpisode(int showId, String episodeId, long releaseTime, String text) {
+        Cursor show = db.query(Tables.SHOWS,
+                new String[] { Shows.NEXTEPISODE, Shows.NEXTAIRDATEMS, Shows.NEXTTEXT },
+                Shows._ID + "=" + showId, null, null, null, null);
+        assertThat(show.moveToFirst()).isTrue();
+        assertThat(show.getString(0)).isEqualTo(episodeId);
+        assertThat(show.getLong(1)).isEqualTo(releaseTime);
+        assertThat(show.getString(2)).isEqualTo(text);
+        show.close();
+    }
+}
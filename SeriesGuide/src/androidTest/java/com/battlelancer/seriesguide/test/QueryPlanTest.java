@@ -0,0 +1,130 @@
+package com.battlelancer.seriesguide.test;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import com.battlelancer.seriesguide.adapters.CalendarAdapter;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideProvider;
+import com.battlelancer.seriesguide.settings.DisplaySettings;
+import com.battlelancer.seriesguide.util.SelectionBuilder;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@code EXPLAIN QUERY PLAN} for frequently used queries and ensures none of them has to scan
+ * the whole episodes table.
+ */
+public class QueryPlanTest extends AndroidTestCase {
+
+    private static final Pattern FULL_SCAN_EPISODES = Pattern.compile(
+            "^SCAN (TABLE )?episodes\\b");
+
+    private SQLiteDatabase db;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = SQLiteDatabase.create(null);
+        new SeriesGuideDatabase(getContext()).onCreate(db);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.close();
+        super.tearDown();
+    }
+
+    public void test_episodeById() {
+        assertNoEpisodesScan(Episodes.buildEpisodeUri(42), null, null, null);
+        assertNoEpisodesScan(Episodes.buildEpisodeWithShowUri("42"), null, null, null);
+    }
+
+    public void test_episodesOfShow() {
+        assertNoEpisodesScan(Episodes.buildEpisodesOfShowUri(42), null, null,
+                Episodes.SORT_SEASON_ASC);
+    }
+
+    public void test_episodesOfSeason() {
+        assertNoEpisodesScan(Episodes.buildEpisodesOfSeasonUri("42"), Episodes.SELECTION_UNWATCHED,
+                null, Episodes.SORT_NUMBER_ASC);
+        assertNoEpisodesScan(Episodes.buildEpisodesOfSeasonWithShowUri("42"), null, null,
+                Episodes.SORT_NUMBER_ASC);
+    }
+
+    public void test_episodeByNumber() {
+        // as used when applying episode flags downloaded from trakt or hexagon
+        assertNoEpisodesScan(Episodes.CONTENT_URI,
+                Shows.REF_SHOW_ID + "=42 AND " + Episodes.SEASON + "=1 AND "
+                        + Episodes.NUMBER + "=2", null, null);
+    }
+
+    public void test_nextEpisode() {
+        // creates the temporary table the statement inserts into
+        SeriesGuideDatabase.updateNextEpisodes(db, 0, false, false, 0,
+                DisplaySettings.NUMBERFORMAT_DEFAULT);
+
+        assertNoEpisodesScan(SeriesGuideDatabase.buildNextEpisodesInsert(0, false, false, 0,
+                DisplaySettings.NUMBERFORMAT_DEFAULT));
+        assertNoEpisodesScan(SeriesGuideDatabase.buildNextEpisodesInsert(42, true, false, 0,
+                DisplaySettings.NUMBERFORMAT_DEFAULT));
+        assertNoEpisodesScan(SeriesGuideDatabase.buildNextEpisodesInsert(0, true, true,
+                System.currentTimeMillis(), DisplaySettings.NUMBERFORMAT_DEFAULT));
+    }
+
+    public void test_calendar() {
+        String[] args = new String[] { "0", "1" };
+        assertNoEpisodesScan(Episodes.CONTENT_URI_WITHSHOW,
+                CalendarAdapter.Query.QUERY_UPCOMING, args,
+                CalendarAdapter.Query.SORTING_UPCOMING);
+        assertNoEpisodesScan(Episodes.CONTENT_URI_WITHSHOW,
+                CalendarAdapter.Query.QUERY_RECENT + " AND " + Shows.SELECTION_FAVORITES
+                        + " AND " + Episodes.SELECTION_NO_SPECIALS, args,
+                CalendarAdapter.Query.SORTING_RECENT);
+    }
+
+    public void test_seasonsOfShow() {
+        String plan = explain(Seasons.buildSeasonsOfShowUri("42"), null, null, null);
+        assertThat(plan).doesNotContain("SCAN TABLE seasons");
+    }
+
+    private void assertNoEpisodesScan(Uri uri, String selection, String[] selectionArgs,
+            String sortOrder) {
+        String plan = explain(uri, selection, selectionArgs, sortOrder);
+        assertNoEpisodesScan(uri.toString(), plan);
+    }
+
+    private void assertNoEpisodesScan(String statement) {
+        assertNoEpisodesScan(statement, explain(statement, null));
+    }
+
+    private void assertNoEpisodesScan(String name, String plan) {
+        for (String step : plan.split("\n")) {
+            assertThat(FULL_SCAN_EPISODES.matcher(step).find())
+                    .overridingErrorMessage("Full scan of episodes for %s:\n%s", name, plan)
+                    .isFalse();
+        }
+    }
+
+    private String explain(Uri uri, String selection, String[] selectionArgs, String sortOrder) {
+        SelectionBuilder builder = SeriesGuideProvider.buildSelection(uri)
+                .where(selection, selectionArgs);
+        return explain(builder.buildQuery(null, sortOrder), builder.getSelectionArgs());
+    }
+
+    private String explain(String statement, String[] args) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + statement, args);
+        int detailColumn = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) {
+            plan.append(cursor.getString(detailColumn)).append("\n");
+        }
+        cursor.close();
+        return plan.toString();
+    }
+}
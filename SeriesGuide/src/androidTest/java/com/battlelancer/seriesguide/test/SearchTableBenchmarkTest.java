@@ -0,0 +1,123 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeSearch;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Triggers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares keeping the episode search table up to date using {@link Triggers} with rebuilding it
+ * after each change (as sync, adding shows and import used to) on a library of 50k episodes.
+ * Correctness is covered by {@link SearchTableTest}.
+ */
+@Benchmark
+public class SearchTableBenchmarkTest extends AndroidTestCase {
+
+    private static final String TAG = "SearchTableBenchmark";
+
+    private static final int SHOWS = 100;
+    private static final int EPISODES = 500;
+
+    private SQLiteDatabase db;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = SQLiteDatabase.create(null);
+        new SeriesGuideDatabase(getContext()).onCreate(db);
+
+        db.beginTransaction();
+        try {
+            for (int show = 1; show <= SHOWS; show++) {
+                insertShow(show);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.close();
+        super.tearDown();
+    }
+
+    public void test_triggers() {
+        long start = SystemClock.elapsedRealtime();
+        changeOneEpisode();
+        Log.i(TAG, "one episode, triggers: " + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        start = SystemClock.elapsedRealtime();
+        addOneShow();
+        Log.i(TAG, "one show, triggers: " + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        assertSearchTableUpToDate();
+    }
+
+    public void test_rebuild() {
+        db.execSQL("DROP TRIGGER " + Triggers.EPISODES_SEARCH_INSERT);
+        db.execSQL("DROP TRIGGER " + Triggers.EPISODES_SEARCH_UPDATE);
+        db.execSQL("DROP TRIGGER " + Triggers.EPISODES_SEARCH_DELETE);
+
+        long start = SystemClock.elapsedRealtime();
+        changeOneEpisode();
+        SeriesGuideDatabase.rebuildFtsTable(db);
+        Log.i(TAG, "one episode, rebuild: " + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        start = SystemClock.elapsedRealtime();
+        addOneShow();
+        SeriesGuideDatabase.rebuildFtsTable(db);
+        Log.i(TAG, "one show, rebuild: " + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        assertSearchTableUpToDate();
+    }
+
+    private void changeOneEpisode() {
+        ContentValues values = new ContentValues();
+        values.put(Episodes.TITLE, "Changed title");
+        db.update(Tables.EPISODES, values, Episodes._ID + "=1", null);
+    }
+
+    private void addOneShow() {
+        db.beginTransaction();
+        try {
+            insertShow(SHOWS + 1);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void insertShow(int show) {
+        ContentValues values = new ContentValues();
+        for (int number = 1; number <= EPISODES; number++) {
+            values.clear();
+            values.put(Episodes._ID, (show - 1) * EPISODES + number);
+            values.put(Episodes.TITLE, "Episode " + number);
+            values.put(Episodes.OVERVIEW, "An episode of show " + show + ".");
+            values.put(Shows.REF_SHOW_ID, show);
+            values.put(Episodes.SEASON, 1);
+            values.put(Episodes.NUMBER, number);
+            db.insert(Tables.EPISODES, null, values);
+        }
+    }
+
+    private void assertSearchTableUpToDate() {
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES_SEARCH))
+                .isEqualTo((SHOWS + 1) * EPISODES);
+        assertThat(DatabaseUtils.longForQuery(db, "SELECT " + EpisodeSearch._DOCID
+                + " FROM " + Tables.EPISODES_SEARCH + " WHERE " + Tables.EPISODES_SEARCH
+                + " MATCH 'changed'", null)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,138 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.test.AndroidTestCase;
+import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeSearch;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchTableTest extends AndroidTestCase {
+
+    private SQLiteDatabase db;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        db = SQLiteDatabase.create(null);
+        new SeriesGuideDatabase(getContext()).onCreate(db);
+
+        insertEpisode(1, "Pilot", "Where it all begins.");
+        insertEpisode(2, "Second", "The plot thickens.");
+        insertEpisode(3, "Finale", "Where it all ends.");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        db.close();
+        super.tearDown();
+    }
+
+    public void test_insert() {
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES_SEARCH)).isEqualTo(3);
+        assertThat(match("pilot")).containsExactly(1L);
+        assertThat(match("where")).containsExactly(1L, 3L);
+    }
+
+    public void test_update() {
+        ContentValues values = new ContentValues();
+        values.put(Episodes.TITLE, "Renamed");
+        db.update(Tables.EPISODES, values, Episodes._ID + "=1", null);
+        values.clear();
+        values.put(Episodes.OVERVIEW, "A new description.");
+        db.update(Tables.EPISODES, values, Episodes._ID + "=2", null);
+
+        assertThat(match("pilot")).isEmpty();
+        assertThat(match("renamed")).containsExactly(1L);
+        assertThat(match("thickens")).isEmpty();
+        assertThat(match("description")).containsExactly(2L);
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES_SEARCH)).isEqualTo(3);
+    }
+
+    public void test_updateFlags() {
+        ContentValues values = new ContentValues();
+        values.put(Episodes.WATCHED, EpisodeFlags.WATCHED);
+        db.update(Tables.EPISODES, values, null, null);
+
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES_SEARCH)).isEqualTo(3);
+        assertThat(match("pilot")).containsExactly(1L);
+    }
+
+    public void test_delete() {
+        db.delete(Tables.EPISODES, Episodes._ID + "=2", null);
+
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES_SEARCH)).isEqualTo(2);
+        assertThat(match("second")).isEmpty();
+        assertThat(match("where")).containsExactly(1L, 3L);
+    }
+
+    public void test_rebuildFtsTable() {
+        db.delete(Tables.EPISODES_SEARCH, null, null);
+
+        SeriesGuideDatabase.rebuildFtsTable(db);
+
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES_SEARCH)).isEqualTo(3);
+        assertThat(match("pilot")).containsExactly(1L);
+        assertThat(match("where")).containsExactly(1L, 3L);
+
+        // triggers still work after re-creating the table
+        insertEpisode(4, "Special", "Behind the scenes.");
+        assertThat(match("special")).containsExactly(4L);
+    }
+
+    public void test_repairSearchTable() {
+        // nothing to repair
+        assertThat(SeriesGuideDatabase.repairSearchTable(db)).isFalse();
+
+        // triggers fail if the search table is broken, so do the episode changes
+        db.execSQL("DROP TABLE " + Tables.EPISODES_SEARCH);
+        assertThat(insertEpisode(4, "Special", "Behind the scenes.")).isEqualTo(-1);
+        try {
+            db.delete(Tables.EPISODES, Episodes._ID + "=2", null);
+            fail("SQLiteException expected");
+        } catch (SQLiteException expected) {
+            // no such table
+        }
+
+        assertThat(SeriesGuideDatabase.repairSearchTable(db)).isTrue();
+
+        assertThat(insertEpisode(4, "Special", "Behind the scenes.")).isEqualTo(4);
+        db.delete(Tables.EPISODES, Episodes._ID + "=2", null);
+        assertThat(match("special")).containsExactly(4L);
+        assertThat(match("where")).containsExactly(1L, 3L);
+        assertThat(DatabaseUtils.queryNumEntries(db, Tables.EPISODES_SEARCH)).isEqualTo(3);
+    }
+
+    private long insertEpisode(int episodeId, String title, String overview) {
+        ContentValues values = new ContentValues();
+        values.put(Episodes._ID, episodeId);
+        values.put(Episodes.TITLE, title);
+        values.put(Episodes.OVERVIEW, overview);
+        values.put(Shows.REF_SHOW_ID, 1);
+        values.put(Episodes.SEASON, 1);
+        values.put(Episodes.NUMBER, episodeId);
+        return db.insert(Tables.EPISODES, null, values);
+    }
+
+    private List<Long> match(String query) {
+        List<Long> docIds = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT " + EpisodeSearch._DOCID + " FROM "
+                + Tables.EPISODES_SEARCH + " WHERE " + Tables.EPISODES_SEARCH + " MATCH ?"
+                + " ORDER BY " + EpisodeSearch._DOCID, new String[] { query });
+        while (cursor.moveToNext()) {
+            docIds.add(cursor.getLong(0));
+        }
+        cursor.close();
+        return docIds;
+    }
+}
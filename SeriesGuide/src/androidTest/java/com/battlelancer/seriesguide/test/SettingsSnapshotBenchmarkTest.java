@@ -0,0 +1,66 @@
+package com.battlelancer.seriesguide.test;
+
+import android.os.Debug;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import com.battlelancer.seriesguide.settings.DisplaySettings;
+import com.battlelancer.seriesguide.settings.SettingsSnapshot;
+import com.battlelancer.seriesguide.ui.SeriesGuidePreferences;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares allocations of the settings reads done when binding 1,000 calendar rows (see {@link
+ * com.battlelancer.seriesguide.adapters.CalendarAdapter}) using {@link SettingsSnapshot} with
+ * reading the preferences directly (as the settings classes used to). Correctness is covered by
+ * {@link SettingsSnapshotTest}.
+ */
+@Benchmark
+public class SettingsSnapshotBenchmarkTest extends AndroidTestCase {
+
+    private static final String TAG = "SettingsSnapshotBench";
+
+    private static final int ROWS = 1000;
+
+    @SuppressWarnings("deprecation")
+    public void test_calendarBindAllocations() {
+        // load snapshot outside of measurement
+        boolean isDisplayExactDateSnapshot = DisplaySettings.isDisplayExactDate(getContext());
+        int offsetSnapshot = SettingsSnapshot.get(getContext()).userOffset;
+
+        Debug.startAllocCounting();
+
+        Debug.resetThreadAllocCount();
+        for (int row = 0; row < ROWS; row++) {
+            int offset;
+            try {
+                offset = Integer.valueOf(PreferenceManager.getDefaultSharedPreferences(getContext())
+                        .getString(SeriesGuidePreferences.KEY_OFFSET, "0"));
+            } catch (NumberFormatException e) {
+                offset = 0;
+            }
+            boolean isDisplayExactDate = PreferenceManager.getDefaultSharedPreferences(
+                    getContext()).getBoolean(DisplaySettings.KEY_DISPLAY_EXACT_DATE, false);
+            assertEquals(offsetSnapshot, offset);
+            assertEquals(isDisplayExactDateSnapshot, isDisplayExactDate);
+        }
+        int allocationsPreferences = Debug.getThreadAllocCount();
+
+        Debug.resetThreadAllocCount();
+        for (int row = 0; row < ROWS; row++) {
+            int offset = SettingsSnapshot.get(getContext()).userOffset;
+            boolean isDisplayExactDate = DisplaySettings.isDisplayExactDate(getContext());
+            assertEquals(offsetSnapshot, offset);
+            assertEquals(isDisplayExactDateSnapshot, isDisplayExactDate);
+        }
+        int allocationsSnapshot = Debug.getThreadAllocCount();
+
+        Debug.stopAllocCounting();
+
+        Log.i(TAG, "preferences: " + allocationsPreferences + " allocations");
+        Log.i(TAG, "snapshot: " + allocationsSnapshot + " allocations");
+
+        assertThat(allocationsSnapshot).isLessThan(allocationsPreferences);
+    }
+}
@@ -0,0 +1,111 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.settings.DisplaySettings;
+import com.battlelancer.seriesguide.settings.SettingsSnapshot;
+import com.battlelancer.seriesguide.ui.CalendarFragment;
+import com.battlelancer.seriesguide.ui.SeriesGuidePreferences;
+import com.battlelancer.seriesguide.util.DBUtils;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SettingsSnapshotTest extends AndroidTestCase {
+
+    private SharedPreferences prefs;
+    private boolean wasHidingSpecials;
+    private boolean wasDisplayingExactDate;
+    private String offset;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        prefs = PreferenceManager.getDefaultSharedPreferences(getContext());
+        wasHidingSpecials = prefs.getBoolean(DisplaySettings.KEY_HIDE_SPECIALS, false);
+        wasDisplayingExactDate = prefs.getBoolean(DisplaySettings.KEY_DISPLAY_EXACT_DATE, false);
+        offset = prefs.getString(SeriesGuidePreferences.KEY_OFFSET, "0");
+        // load snapshot, starts listening for changes
+        SettingsSnapshot.get(getContext());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        prefs.edit()
+                .putBoolean(DisplaySettings.KEY_HIDE_SPECIALS, wasHidingSpecials)
+                .putBoolean(DisplaySettings.KEY_DISPLAY_EXACT_DATE, wasDisplayingExactDate)
+                .putString(SeriesGuidePreferences.KEY_OFFSET, offset)
+                .commit();
+        SettingsSnapshot.update(prefs, DisplaySettings.KEY_HIDE_SPECIALS);
+        super.tearDown();
+    }
+
+    public void test_update() {
+        boolean isHidingSpecials = !wasHidingSpecials;
+        prefs.edit().putBoolean(DisplaySettings.KEY_HIDE_SPECIALS, isHidingSpecials).commit();
+
+        SettingsSnapshot.update(prefs, DisplaySettings.KEY_HIDE_SPECIALS);
+
+        assertThat(SettingsSnapshot.get(getContext()).isHidingSpecials)
+                .isEqualTo(isHidingSpecials);
+    }
+
+    /**
+     * Checks the settings read when binding calendar rows.
+     */
+    public void test_calendarSettings() {
+        boolean isDisplayExactDate = !wasDisplayingExactDate;
+        prefs.edit()
+                .putBoolean(DisplaySettings.KEY_DISPLAY_EXACT_DATE, isDisplayExactDate)
+                .putString(SeriesGuidePreferences.KEY_OFFSET, "3")
+                .commit();
+        SettingsSnapshot.update(prefs, SeriesGuidePreferences.KEY_OFFSET);
+
+        assertThat(SettingsSnapshot.get(getContext()).userOffset).isEqualTo(3);
+        assertThat(DisplaySettings.isDisplayExactDate(getContext()))
+                .isEqualTo(isDisplayExactDate);
+
+        // invalid offset
+        prefs.edit().putString(SeriesGuidePreferences.KEY_OFFSET, "three").commit();
+        SettingsSnapshot.update(prefs, SeriesGuidePreferences.KEY_OFFSET);
+
+        assertThat(SettingsSnapshot.get(getContext()).userOffset).isEqualTo(0);
+    }
+
+    /**
+     * Like {@link CalendarFragment}, re-queries from a preference change listener which may be
+     * called before the listener of the snapshot.
+     */
+    public void test_queryInChangeListener() throws InterruptedException {
+        final boolean isHidingSpecials = !wasHidingSpecials;
+        final String[][][] query = new String[1][][];
+        final CountDownLatch changed = new CountDownLatch(1);
+        SharedPreferences.OnSharedPreferenceChangeListener listener
+                = new SharedPreferences.OnSharedPreferenceChangeListener() {
+            @Override
+            public void onSharedPreferenceChanged(SharedPreferences sharedPreferences,
+                    String key) {
+                if (DisplaySettings.KEY_HIDE_SPECIALS.equals(key)) {
+                    SettingsSnapshot.update(sharedPreferences, key);
+                    query[0] = DBUtils.buildActivityQuery(getContext(),
+                            CalendarFragment.CalendarType.UPCOMING, 30);
+                    changed.countDown();
+                }
+            }
+        };
+        prefs.registerOnSharedPreferenceChangeListener(listener);
+        try {
+            prefs.edit().putBoolean(DisplaySettings.KEY_HIDE_SPECIALS, isHidingSpecials).commit();
+            // listeners are called on the main thread
+            assertThat(changed.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            prefs.unregisterOnSharedPreferenceChangeListener(listener);
+        }
+
+        assertThat(query[0][0][0].contains(Episodes.SELECTION_NO_SPECIALS))
+                .isEqualTo(isHidingSpecials);
+    }
+}
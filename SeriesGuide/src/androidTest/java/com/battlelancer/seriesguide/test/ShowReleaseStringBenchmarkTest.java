@@ -0,0 +1,77 @@
+package com.battlelancer.seriesguide.test;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import com.battlelancer.seriesguide.util.TimeFormatCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares building the network and release time string of 500 shows (as {@link
+ * com.battlelancer.seriesguide.adapters.ShowsAdapter} does on every bind) with the memoized
+ * strings of {@link TimeFormatCache} with the code path used before, see {@link
+ * ShowReleaseStringTest#buildUncached}. Correctness is covered by {@link ShowReleaseStringTest}.
+ */
+@Benchmark
+public class ShowReleaseStringBenchmarkTest extends AndroidTestCase {
+
+    private static final String TAG = "ShowReleaseStringBench";
+
+    private static final int SHOWS = 500;
+    private static final int ROUNDS = 10;
+
+    private static final String[] TIME_ZONES = {
+            "America/New_York", "America/Los_Angeles", "Europe/London", "Europe/Berlin",
+            "Asia/Tokyo"
+    };
+    private static final String[] COUNTRIES = { "us", "us", "gb", "de", "jp" };
+
+    public void test_bindsPerSecond() {
+        String[] uncached = new String[SHOWS];
+        long start = SystemClock.elapsedRealtime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int show = 0; show < SHOWS; show++) {
+                uncached[show] = ShowReleaseStringTest.buildUncached(getContext(), time(show),
+                        weekday(show), timeZone(show), country(show), "Network");
+            }
+        }
+        long uncachedDuration = SystemClock.elapsedRealtime() - start;
+
+        String[] cached = new String[SHOWS];
+        TimeFormatCache.invalidate();
+        start = SystemClock.elapsedRealtime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int show = 0; show < SHOWS; show++) {
+                cached[show] = ShowReleaseStringTest.build(getContext(), time(show),
+                        weekday(show), timeZone(show), country(show));
+            }
+        }
+        long cachedDuration = SystemClock.elapsedRealtime() - start;
+
+        Log.i(TAG, "uncached: " + bindsPerSecond(uncachedDuration) + " binds/s");
+        Log.i(TAG, "cached: " + bindsPerSecond(cachedDuration) + " binds/s");
+
+        assertThat(cached).isEqualTo(uncached);
+    }
+
+    private static int time(int show) {
+        return 1800 + (show % 6) * 100 + (show % 2) * 30;
+    }
+
+    private static int weekday(int show) {
+        return show % 8; // includes daily
+    }
+
+    private static String timeZone(int show) {
+        return TIME_ZONES[show % TIME_ZONES.length];
+    }
+
+    private static String country(int show) {
+        return COUNTRIES[show % COUNTRIES.length];
+    }
+
+    private static long bindsPerSecond(long durationMs) {
+        return SHOWS * ROUNDS * 1000L / Math.max(durationMs, 1);
+    }
+}
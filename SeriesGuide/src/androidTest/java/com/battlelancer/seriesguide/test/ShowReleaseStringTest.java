@@ -0,0 +1,118 @@
+package com.battlelancer.seriesguide.test;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import android.text.format.DateFormat;
+import com.battlelancer.seriesguide.R;
+import com.battlelancer.seriesguide.adapters.BaseShowsAdapter;
+import com.battlelancer.seriesguide.settings.SettingsSnapshot;
+import com.battlelancer.seriesguide.ui.SeriesGuidePreferences;
+import com.battlelancer.seriesguide.util.TimeTools;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShowReleaseStringTest extends AndroidTestCase {
+
+    private static final String[] TIME_ZONES = {
+            "America/New_York", "America/Los_Angeles", "Europe/London", "Europe/Berlin",
+            "Asia/Tokyo", "Not/A_Zone", "", null
+    };
+    private static final String[] COUNTRIES = { "us", "us", "gb", "de", "jp", "us", null, "" };
+
+    private SharedPreferences prefs;
+    private String offset;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        prefs = PreferenceManager.getDefaultSharedPreferences(getContext());
+        offset = prefs.getString(SeriesGuidePreferences.KEY_OFFSET, "0");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        setOffset(offset);
+        super.tearDown();
+    }
+
+    public void test_buildNetworkAndTimeString() {
+        setOffset("0");
+        assertMatchesUncached();
+    }
+
+    public void test_buildNetworkAndTimeStringUserOffset() {
+        setOffset("0");
+        String withoutOffset = build(getContext(), 2000, 2, "America/New_York", "us");
+
+        setOffset("2");
+        String withOffset = build(getContext(), 2000, 2, "America/New_York", "us");
+
+        assertThat(withOffset).isNotEqualTo(withoutOffset);
+        assertMatchesUncached();
+    }
+
+    public void test_buildNetworkAndTimeStringNoTime() {
+        assertThat(BaseShowsAdapter.buildNetworkAndTimeString(getContext(), -1, 2,
+                "America/New_York", "us", "Network")).isEqualTo("Network");
+        assertThat(BaseShowsAdapter.buildNetworkAndTimeString(getContext(), 2000, 2,
+                "America/New_York", "us", "")).isEqualTo(
+                buildUncached(getContext(), 2000, 2, "America/New_York", "us", ""));
+    }
+
+    private void assertMatchesUncached() {
+        // twice, the second time strings are memoized
+        for (int round = 0; round < 2; round++) {
+            for (int show = 0; show < 48; show++) {
+                int time = 1800 + (show % 6) * 100 + (show % 2) * 30;
+                int weekday = show % 8; // includes daily
+                String timeZone = TIME_ZONES[show % TIME_ZONES.length];
+                String country = COUNTRIES[show % COUNTRIES.length];
+                assertThat(build(getContext(), time, weekday, timeZone, country))
+                        .isEqualTo(buildUncached(getContext(), time, weekday, timeZone, country,
+                                "Network"));
+            }
+        }
+    }
+
+    private void setOffset(String offset) {
+        prefs.edit().putString(SeriesGuidePreferences.KEY_OFFSET, offset).commit();
+        // do not wait for the snapshot listener on the main thread
+        SettingsSnapshot.update(prefs, SeriesGuidePreferences.KEY_OFFSET);
+    }
+
+    static String build(Context context, int time, int weekday, String timeZone,
+            String country) {
+        return BaseShowsAdapter.buildNetworkAndTimeString(context, time, weekday, timeZone,
+                country, "Network");
+    }
+
+    /**
+     * Builds the network and release time string like {@link BaseShowsAdapter} did before
+     * release strings and formats were cached. {@link TimeTools#getShowReleaseDateTime} only
+     * caches the time zone and user offset lookups.
+     */
+    static String buildUncached(Context context, int time, int weekday, String timeZone,
+            String country, String network) {
+        StringBuilder networkAndTime = new StringBuilder();
+        networkAndTime.append(network);
+
+        Date release = TimeTools.getShowReleaseDateTime(context,
+                TimeTools.getShowReleaseTime(time), weekday, timeZone, country);
+
+        String dayString = weekday == TimeTools.RELEASE_WEEKDAY_DAILY
+                ? context.getString(R.string.daily)
+                : new SimpleDateFormat("E", Locale.getDefault()).format(release);
+        String timeString = DateFormat.getTimeFormat(context).format(release);
+        if (networkAndTime.length() > 0) {
+            networkAndTime.append(" / ");
+        }
+        networkAndTime.append(dayString).append(" ").append(timeString);
+
+        return networkAndTime.toString();
+    }
+}
@@ -0,0 +1,184 @@
+package com.battlelancer.seriesguide.test;
+
+import android.util.Xml;
+import com.battlelancer.seriesguide.thetvdbapi.TvdbEpisodeParser;
+import com.battlelancer.seriesguide.thetvdbapi.TvdbEpisodeRecord;
+import com.battlelancer.seriesguide.util.ReleaseTimes;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalTime;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TvdbEpisodeParserTest extends TestCase {
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<Data>\n"
+            + "<Series><id>42</id><SeriesName>Not an episode</SeriesName></Series>\n"
+            // all fields set, with entities, CDATA and surrounding whitespace
+            + "<Episode>\n"
+            + "  <id>1001</id>\n"
+            + "  <EpisodeNumber>3</EpisodeNumber>\n"
+            + "  <absolute_number>13</absolute_number>\n"
+            + "  <SeasonNumber>2</SeasonNumber>\n"
+            + "  <DVD_episodenumber>3.5</DVD_episodenumber>\n"
+            + "  <FirstAired>2016-05-31</FirstAired>\n"
+            + "  <EpisodeName>\n    Pilot &amp; Co.  \n  </EpisodeName>\n"
+            + "  <Overview><![CDATA[Line <b>one</b>]]> &amp; more</Overview>\n"
+            + "  <seasonid>501</seasonid>\n"
+            + "  <seriesid>42</seriesid>\n"
+            + "  <Director>|Jane Doe|</Director>\n"
+            + "  <GuestStars>|A &lt;B&gt;|C|</GuestStars>\n"
+            + "  <Writer>|John Roe|</Writer>\n"
+            + "  <filename>episodes/42/1001.jpg</filename>\n"
+            + "  <IMDB_ID>tt0000001</IMDB_ID>\n"
+            + "  <lastupdated>1464000000</lastupdated>\n"
+            + "  <Unknown>ignored</Unknown>\n"
+            + "</Episode>\n"
+            // empty elements, non-numeric numbers, malformed date
+            + "<Episode>\n"
+            + "  <id>1002</id>\n"
+            + "  <EpisodeNumber>four</EpisodeNumber>\n"
+            + "  <absolute_number/>\n"
+            + "  <SeasonNumber> </SeasonNumber>\n"
+            + "  <DVD_episodenumber>n/a</DVD_episodenumber>\n"
+            + "  <FirstAired>2016-13-45</FirstAired>\n"
+            + "  <EpisodeName></EpisodeName>\n"
+            + "  <Overview/>\n"
+            + "  <seasonid>12a</seasonid>\n"
+            + "  <seriesid>42</seriesid>\n"
+            + "  <Director></Director>\n"
+            + "  <lastupdated>99999999999999999999</lastupdated>\n"
+            + "</Episode>\n"
+            // missing FirstAired, date in another format
+            + "<Episode>\n"
+            + "  <id>1003</id>\n"
+            + "  <EpisodeNumber>5</EpisodeNumber>\n"
+            + "</Episode>\n"
+            + "<Episode>\n"
+            + "  <id>1004</id>\n"
+            + "  <FirstAired>31.05.2016</FirstAired>\n"
+            + "</Episode>\n"
+            + "</Data>\n";
+
+    public static Test suite() {
+        return new TestSuite(TvdbEpisodeParserTest.class);
+    }
+
+    public void test_parse() throws XmlPullParserException, IOException {
+        List<TvdbEpisodeRecord> episodes = parse(XML);
+
+        assertThat(episodes).hasSize(4);
+
+        TvdbEpisodeRecord episode = episodes.get(0);
+        assertThat(episode.id).isEqualTo(1001);
+        assertThat(episode.number).isEqualTo(3);
+        assertThat(episode.hasNumber).isTrue();
+        assertThat(episode.absoluteNumber).isEqualTo(13);
+        assertThat(episode.hasAbsoluteNumber).isTrue();
+        assertThat(episode.season).isEqualTo(2);
+        assertThat(episode.dvdNumber).isEqualTo(3.5);
+        assertThat(episode.hasDvdNumber).isTrue();
+        // 20:00 in New York (EDT) is midnight UTC
+        assertThat(episode.firstAiredMs).isEqualTo(1464739200000L);
+        assertThat(episode.title).isEqualTo("Pilot & Co.");
+        assertThat(episode.overview).isEqualTo("Line <b>one</b> & more");
+        assertThat(episode.seasonId).isEqualTo(501);
+        assertThat(episode.showId).isEqualTo(42);
+        assertThat(episode.directors).isEqualTo("|Jane Doe|");
+        assertThat(episode.guestStars).isEqualTo("|A <B>|C|");
+        assertThat(episode.writers).isEqualTo("|John Roe|");
+        assertThat(episode.image).isEqualTo("episodes/42/1001.jpg");
+        assertThat(episode.imdbId).isEqualTo("tt0000001");
+        assertThat(episode.lastEdited).isEqualTo(1464000000L);
+
+        episode = episodes.get(1);
+        assertThat(episode.id).isEqualTo(1002);
+        assertThat(episode.number).isEqualTo(0);
+        // empty or non-numeric numbers are missing, so they are stored empty
+        assertThat(episode.hasNumber).isFalse();
+        assertThat(episode.absoluteNumber).isEqualTo(0);
+        assertThat(episode.hasAbsoluteNumber).isFalse();
+        assertThat(episode.season).isEqualTo(0);
+        assertThat(episode.dvdNumber).isEqualTo(0);
+        assertThat(episode.hasDvdNumber).isFalse();
+        assertThat(episode.firstAiredMs).isEqualTo(ReleaseTimes.UNKNOWN_RELEASE);
+        assertThat(episode.title).isEmpty();
+        assertThat(episode.overview).isEmpty();
+        assertThat(episode.seasonId).isEqualTo(0);
+        assertThat(episode.showId).isEqualTo(42);
+        assertThat(episode.directors).isEmpty();
+        // missing elements are reset, not kept from the previous episode
+        assertThat(episode.guestStars).isEmpty();
+        assertThat(episode.writers).isEmpty();
+        assertThat(episode.image).isEmpty();
+        assertThat(episode.imdbId).isEmpty();
+        assertThat(episode.lastEdited).isEqualTo(0);
+
+        episode = episodes.get(2);
+        assertThat(episode.id).isEqualTo(1003);
+        assertThat(episode.number).isEqualTo(5);
+        assertThat(episode.hasNumber).isTrue();
+        assertThat(episode.hasAbsoluteNumber).isFalse();
+        assertThat(episode.hasDvdNumber).isFalse();
+        assertThat(episode.firstAiredMs).isEqualTo(ReleaseTimes.UNKNOWN_RELEASE);
+        assertThat(episode.showId).isEqualTo(0);
+
+        episode = episodes.get(3);
+        assertThat(episode.id).isEqualTo(1004);
+        assertThat(episode.firstAiredMs).isEqualTo(ReleaseTimes.UNKNOWN_RELEASE);
+    }
+
+    public void test_parseNoEpisodes() throws XmlPullParserException, IOException {
+        assertThat(parse("<Data></Data>")).isEmpty();
+        // episodes outside of the root element are ignored
+        assertThat(parse("<Other><Episode><id>1</id></Episode></Other>")).isEmpty();
+    }
+
+    private static List<TvdbEpisodeRecord> parse(String xml)
+            throws XmlPullParserException, IOException {
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setInput(new StringReader(xml));
+
+        final List<TvdbEpisodeRecord> episodes = new ArrayList<>();
+        TvdbEpisodeParser episodeParser = new TvdbEpisodeParser(
+                DateTimeZone.forID("America/New_York"), new LocalTime(20, 0), "us",
+                "Europe/Berlin");
+        episodeParser.parse(parser, new TvdbEpisodeParser.Callback() {
+            @Override
+            public void onEpisode(TvdbEpisodeRecord episode) {
+                // the record is reused, so copy it
+                TvdbEpisodeRecord copy = new TvdbEpisodeRecord();
+                copy.id = episode.id;
+                copy.number = episode.number;
+                copy.hasNumber = episode.hasNumber;
+                copy.absoluteNumber = episode.absoluteNumber;
+                copy.hasAbsoluteNumber = episode.hasAbsoluteNumber;
+                copy.season = episode.season;
+                copy.dvdNumber = episode.dvdNumber;
+                copy.hasDvdNumber = episode.hasDvdNumber;
+                copy.firstAiredMs = episode.firstAiredMs;
+                copy.title = episode.title;
+                copy.overview = episode.overview;
+                copy.seasonId = episode.seasonId;
+                copy.showId = episode.showId;
+                copy.directors = episode.directors;
+                copy.guestStars = episode.guestStars;
+                copy.writers = episode.writers;
+                copy.image = episode.image;
+                copy.imdbId = episode.imdbId;
+                copy.lastEdited = episode.lastEdited;
+                episodes.add(copy);
+            }
+        });
+        return episodes;
+    }
+}
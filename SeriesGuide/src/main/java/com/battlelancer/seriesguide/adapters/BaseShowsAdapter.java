@@ -25,7 +25,9 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import com.battlelancer.seriesguide.R;
+import com.battlelancer.seriesguide.settings.DisplaySettings;
 import com.battlelancer.seriesguide.util.ShowTools;
+import com.battlelancer.seriesguide.util.TimeFormatCache;
 import com.battlelancer.seriesguide.util.TimeTools;
 import com.battlelancer.seriesguide.util.Utils;
 import java.util.Date;
@@ -80,19 +82,31 @@ public abstract class BaseShowsAdapter extends CursorAdapter {
 
         // time
         if (time != -1) {
-            Date release = TimeTools.getShowReleaseDateTime(context,
-                    TimeTools.getShowReleaseTime(time), weekday, timeZone, country);
-            String dayString = TimeTools.formatToLocalDayOrDaily(context, release, weekday);
-            String timeString = TimeTools.formatToLocalTime(context, release);
+            // memoized, this is called for every bind
+            String dayAndTime = TimeFormatCache.getShowReleaseDayAndTime(context, time, weekday,
+                    timeZone, country);
             if (networkAndTime.length() > 0) {
                 networkAndTime.append(" / ");
             }
-            networkAndTime.append(dayString).append(" ").append(timeString);
+            networkAndTime.append(dayAndTime);
         }
 
         return networkAndTime.toString();
     }
 
+    /**
+     * Builds the release time string of the next episode formatted like "in 15 mins (Fri)", or if
+     * the user prefers exact dates like "Apr 2 (Mon)".
+     */
+    public static String buildNextReleaseString(Context context, long releaseTime) {
+        Date actualRelease = TimeTools.applyUserOffset(context, releaseTime);
+        String dateTime = DisplaySettings.isDisplayExactDate(context) ?
+                TimeTools.formatToLocalDateShort(context, actualRelease)
+                : TimeTools.formatToLocalRelativeTime(context, actualRelease);
+        return context.getString(R.string.release_date_and_day, dateTime,
+                TimeTools.formatToLocalDay(actualRelease));
+    }
+
     public static class ShowViewHolder {
 
         public TextView name;
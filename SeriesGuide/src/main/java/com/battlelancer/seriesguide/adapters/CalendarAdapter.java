@@ -26,11 +26,12 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import com.battlelancer.seriesguide.R;
-import com.battlelancer.seriesguide.adapters.model.HeaderData;
 import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.loaders.CalendarLoader;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract;
 import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
 import com.battlelancer.seriesguide.settings.DisplaySettings;
+import com.battlelancer.seriesguide.settings.SettingsSnapshot;
 import com.battlelancer.seriesguide.ui.CalendarFragment;
 import com.battlelancer.seriesguide.util.EpisodeTools;
 import com.battlelancer.seriesguide.util.TextTools;
@@ -39,12 +40,9 @@ import com.battlelancer.seriesguide.util.Utils;
 import com.battlelancer.seriesguide.widgets.WatchedBox;
 import com.tonicartos.widget.stickygridheaders.StickyGridHeadersBaseAdapter;
 import com.uwetrottmann.androidutils.CheatSheet;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 /**
  * Adapter for {@link CalendarFragment} with optimizations for image loading for smoother
@@ -54,8 +52,7 @@ public class CalendarAdapter extends CursorAdapter implements StickyGridHeadersB
 
     private LayoutInflater mLayoutInflater;
 
-    private List<HeaderData> mHeaders;
-    private boolean mIsShowingHeaders;
+    private CalendarLoader.CalendarCursor mHeaders;
 
     private Calendar mCalendar;
 
@@ -67,11 +64,17 @@ public class CalendarAdapter extends CursorAdapter implements StickyGridHeadersB
     }
 
     /**
-     * Whether to show episodes grouped by day with header. Disable headers for larger data sets as
-     * calculating them is expensive. Make sure to reload the data afterwards.
+     * Returns {@link Query#PROJECTION} plus the release day of each episode, see {@link
+     * Query#RELEASE_DAY}.
      */
-    public void setIsShowingHeaders(boolean isShowingHeaders) {
-        mIsShowingHeaders = isShowingHeaders;
+    public static String[] buildProjection(Context context) {
+        // the release day is determined by SQLite in the device time zone
+        int offsetSeconds = SettingsSnapshot.get(context).userOffset * 3600;
+        String[] projection = Arrays.copyOf(Query.PROJECTION, Query.PROJECTION.length + 1);
+        projection[Query.RELEASE_DAY] = "CAST(strftime('%Y%m%d',"
+                + SeriesGuideContract.Episodes.FIRSTAIREDMS + "/1000+" + offsetSeconds
+                + ",'unixepoch','localtime') AS INTEGER)";
+        return projection;
     }
 
     @Override
@@ -153,20 +156,6 @@ public class CalendarAdapter extends CursorAdapter implements StickyGridHeadersB
         return v;
     }
 
-    private long getHeaderId(int position) {
-        Object obj = getItem(position);
-        if (obj != null) {
-            /*
-             * Map all episodes releasing the same day to the same id (which
-             * equals the time midnight of their release day).
-             */
-            @SuppressWarnings("resource")
-            Cursor item = (Cursor) obj;
-            return getHeaderTime(item);
-        }
-        return 0;
-    }
-
     private long getHeaderTime(Cursor item) {
         long releaseTime = item.getLong(Query.RELEASE_TIME_MS);
         Date actualRelease = TimeTools.applyUserOffset(mContext, releaseTime);
@@ -185,7 +174,7 @@ public class CalendarAdapter extends CursorAdapter implements StickyGridHeadersB
     @Override
     public int getCountForHeader(int position) {
         if (mHeaders != null) {
-            return mHeaders.get(position).getCount();
+            return mHeaders.getCountForHeader(position);
         }
         return 0;
     }
@@ -193,7 +182,7 @@ public class CalendarAdapter extends CursorAdapter implements StickyGridHeadersB
     @Override
     public int getNumHeaders() {
         if (mHeaders != null) {
-            return mHeaders.size();
+            return mHeaders.getHeaderCount();
         }
         return 0;
     }
@@ -201,7 +190,7 @@ public class CalendarAdapter extends CursorAdapter implements StickyGridHeadersB
     @Override
     public View getHeaderView(int position, View convertView, ViewGroup parent) {
         // get header position for item position
-        position = mHeaders.get(position).getRefPosition();
+        position = mHeaders.getHeaderPosition(position);
 
         Object obj = getItem(position);
         if (obj == null) {
@@ -232,8 +221,11 @@ public class CalendarAdapter extends CursorAdapter implements StickyGridHeadersB
 
     @Override
     public void notifyDataSetChanged() {
-        // re-create headers before letting notifyDataSetChanged reach the AdapterView
-        mHeaders = generateHeaderList();
+        // update headers before letting notifyDataSetChanged reach the AdapterView
+        // headers are calculated by the loader off the UI thread
+        Cursor cursor = getCursor();
+        mHeaders = cursor instanceof CalendarLoader.CalendarCursor
+                ? (CalendarLoader.CalendarCursor) cursor : null;
         super.notifyDataSetChanged();
     }
 
@@ -244,28 +236,6 @@ public class CalendarAdapter extends CursorAdapter implements StickyGridHeadersB
         super.notifyDataSetInvalidated();
     }
 
-    protected List<HeaderData> generateHeaderList() {
-        if (getCount() == 0 || !mIsShowingHeaders) {
-            return null;
-        }
-
-        Map<Long, HeaderData> mapping = new HashMap<>();
-        List<HeaderData> headers = new ArrayList<>();
-
-        for (int i = 0; i < getCount(); i++) {
-            long headerId = getHeaderId(i);
-            HeaderData headerData = mapping.get(headerId);
-            if (headerData == null) {
-                headerData = new HeaderData(i);
-                headers.add(headerData);
-            }
-            headerData.incrementCount();
-            mapping.put(headerId, headerData);
-        }
-
-        return headers;
-    }
-
     public interface Query {
 
         String[] PROJECTION = new String[] {
@@ -309,6 +279,11 @@ public class CalendarAdapter extends CursorAdapter implements StickyGridHeadersB
         int SHOW_TITLE = 8;
         int SHOW_NETWORK = 9;
         int SHOW_POSTER = 10;
+        /**
+         * Only if using {@link #buildProjection(Context)}. The local release day (including the
+         * user offset) as an integer like 20161231.
+         */
+        int RELEASE_DAY = 11;
     }
 
     static class ViewHolder {
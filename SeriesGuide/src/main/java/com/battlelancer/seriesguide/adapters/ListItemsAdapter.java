@@ -85,8 +85,8 @@ public class ListItemsAdapter extends BaseShowsAdapter {
                     viewHolder.episode.setText("");
                 } else {
                     viewHolder.episode.setText(fieldValue);
-                    fieldValue = cursor.getString(Query.SHOW_NEXTAIRDATETEXT);
-                    viewHolder.episodeTime.setText(fieldValue);
+                    viewHolder.episodeTime.setText(buildNextReleaseString(context,
+                            cursor.getLong(Query.SHOW_NEXTAIRDATEMS)));
                 }
                 break;
             case 2:
@@ -174,7 +174,8 @@ public class ListItemsAdapter extends BaseShowsAdapter {
                 SeriesGuideContract.Shows.STATUS,
                 SeriesGuideContract.Shows.NEXTTEXT,
                 SeriesGuideContract.Shows.NEXTAIRDATETEXT,
-                SeriesGuideContract.Shows.FAVORITE // 16
+                SeriesGuideContract.Shows.FAVORITE,
+                SeriesGuideContract.Shows.NEXTAIRDATEMS // 17
         };
 
         int LIST_ITEM_ID = 1;
@@ -193,5 +194,6 @@ public class ListItemsAdapter extends BaseShowsAdapter {
         int SHOW_NEXTTEXT = 14;
         int SHOW_NEXTAIRDATETEXT = 15;
         int SHOW_FAVORITE = 16;
+        int SHOW_NEXTAIRDATEMS = 17;
     }
 }
@@ -57,8 +57,8 @@ public class ShowsAdapter extends BaseShowsAdapter {
             viewHolder.episode.setText("");
         } else {
             viewHolder.episode.setText(fieldValue);
-            fieldValue = cursor.getString(Query.NEXTAIRDATETEXT);
-            viewHolder.episodeTime.setText(fieldValue);
+            viewHolder.episodeTime.setText(
+                    buildNextReleaseString(context, cursor.getLong(Query.NEXTAIRDATEMS)));
         }
 
         // network, day and time
@@ -92,7 +92,7 @@ public class ShowsAdapter extends BaseShowsAdapter {
                 SeriesGuideContract.Shows.STATUS,
                 SeriesGuideContract.Shows.NEXTEPISODE,
                 SeriesGuideContract.Shows.NEXTTEXT, // 10
-                SeriesGuideContract.Shows.NEXTAIRDATETEXT,
+                SeriesGuideContract.Shows.NEXTAIRDATEMS,
                 SeriesGuideContract.Shows.FAVORITE,
                 SeriesGuideContract.Shows.HIDDEN // 13
         };
@@ -108,7 +108,7 @@ public class ShowsAdapter extends BaseShowsAdapter {
         int STATUS = 8;
         int NEXTEPISODE = 9;
         int NEXTTEXT = 10;
-        int NEXTAIRDATETEXT = 11;
+        int NEXTAIRDATEMS = 11;
         int FAVORITE = 12;
         int HIDDEN = 13;
     }
@@ -35,15 +35,13 @@ import com.battlelancer.seriesguide.settings.AdvancedSettings;
 import com.battlelancer.seriesguide.settings.DisplaySettings;
 import com.battlelancer.seriesguide.settings.ShowsDistillationSettings;
 import com.battlelancer.seriesguide.settings.WidgetSettings;
-import com.battlelancer.seriesguide.thetvdbapi.TheTVDB;
 import com.battlelancer.seriesguide.ui.EpisodesActivity;
 import com.battlelancer.seriesguide.util.DBUtils;
-import com.battlelancer.seriesguide.util.ServiceUtils;
 import com.battlelancer.seriesguide.util.TextTools;
 import com.battlelancer.seriesguide.util.TimeTools;
-import java.io.IOException;
 import java.util.Date;
-import timber.log.Timber;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public class ListWidgetService extends RemoteViewsService {
 
@@ -54,6 +52,9 @@ public class ListWidgetService extends RemoteViewsService {
 
     class ListRemoteViewsFactory implements RemoteViewsService.RemoteViewsFactory {
 
+        /** More rows than fit on a large widget, posters of other rows are loaded on demand. */
+        private static final int MAX_PREFETCH_ROWS = 30;
+
         private final Context context;
         private final int appWidgetId;
 
@@ -218,19 +219,10 @@ public class ListWidgetService extends RemoteViewsService {
             rv.setTextViewText(R.id.textViewWidgetShow, dataCursor.getString(isShowQuery ?
                     ShowsQuery.SHOW_TITLE : CalendarAdapter.Query.SHOW_TITLE));
 
-            // show poster
+            // show poster, usually already prefetched
             String posterPath = dataCursor.getString(isShowQuery
                     ? ShowsQuery.SHOW_POSTER : CalendarAdapter.Query.SHOW_POSTER);
-            Bitmap poster;
-            try {
-                poster = ServiceUtils.loadWithPicasso(context, TheTVDB.buildPosterUrl(posterPath))
-                        .centerCrop()
-                        .resizeDimen(R.dimen.widget_item_width, R.dimen.widget_item_height)
-                        .get();
-            } catch (IOException e) {
-                Timber.w(e, "getViewAt: Loading show poster for widget item failed");
-                poster = null;
-            }
+            Bitmap poster = WidgetPosterCache.get(context, posterPath);
             if (poster != null) {
                 rv.setImageViewBitmap(R.id.widgetPoster, poster);
             } else {
@@ -278,6 +270,28 @@ public class ListWidgetService extends RemoteViewsService {
             // in its current state while work is being done here, so you don't
             // need to worry about locking up the widget.
             onQueryForData();
+            prefetchPosters();
+        }
+
+        /**
+         * Loads the posters of the first rows in parallel, so {@link #getViewAt(int)} does not
+         * have to load them one after another.
+         */
+        private void prefetchPosters() {
+            Cursor cursor = dataCursor;
+            if (cursor == null || cursor.isClosed()) {
+                return;
+            }
+            int posterColumn = widgetType == WidgetSettings.Type.SHOWS
+                    ? ShowsQuery.SHOW_POSTER : CalendarAdapter.Query.SHOW_POSTER;
+            Set<String> posterPaths = new LinkedHashSet<>();
+            int count = Math.min(cursor.getCount(), MAX_PREFETCH_ROWS);
+            for (int position = 0; position < count; position++) {
+                if (cursor.moveToPosition(position)) {
+                    posterPaths.add(cursor.getString(posterColumn));
+                }
+            }
+            WidgetPosterCache.prefetch(context, posterPaths);
         }
     }
 
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.appwidget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import android.text.TextUtils;
+import com.battlelancer.seriesguide.R;
+import com.battlelancer.seriesguide.thetvdbapi.TheTVDB;
+import com.battlelancer.seriesguide.util.ServiceUtils;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import timber.log.Timber;
+
+/**
+ * Keeps show posters decoded at the size of a list widget item, so rows can be built without
+ * loading and scaling a poster each time a widget is refreshed. Posters can be loaded in parallel
+ * ahead of time using {@link #prefetch(Context, Collection)}.
+ */
+class WidgetPosterCache {
+
+    private static final int PREFETCH_THREADS = 4;
+
+    private static final LruCache<String, Bitmap> posters = new LruCache<String, Bitmap>(
+            (int) Math.min(Runtime.getRuntime().maxMemory() / 16, 8 * 1024 * 1024)) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getRowBytes() * value.getHeight();
+        }
+    };
+
+    private WidgetPosterCache() {
+    }
+
+    /**
+     * Returns the poster from the cache or loads (blocking) and caches it. Returns {@code null} if
+     * the poster could not be loaded.
+     */
+    @Nullable
+    static Bitmap get(Context context, @Nullable String posterPath) {
+        if (TextUtils.isEmpty(posterPath)) {
+            return null;
+        }
+        String key = buildKey(context, posterPath);
+        Bitmap poster = posters.get(key);
+        if (poster == null) {
+            poster = load(context, posterPath);
+            if (poster != null) {
+                posters.put(key, poster);
+            }
+        }
+        return poster;
+    }
+
+    /**
+     * Loads all posters not already cached in parallel and blocks until done.
+     */
+    static void prefetch(final Context context, Collection<String> posterPaths) {
+        List<Callable<Bitmap>> tasks = new ArrayList<>(posterPaths.size());
+        for (final String posterPath : posterPaths) {
+            if (TextUtils.isEmpty(posterPath)
+                    || posters.get(buildKey(context, posterPath)) != null) {
+                continue;
+            }
+            tasks.add(new Callable<Bitmap>() {
+                @Override
+                public Bitmap call() {
+                    return get(context, posterPath);
+                }
+            });
+        }
+        if (tasks.size() == 0) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(PREFETCH_THREADS, tasks.size()));
+        try {
+            List<Future<Bitmap>> results = executor.invokeAll(tasks);
+            for (Future<Bitmap> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Timber.e(e.getCause(), "prefetch: loading show posters for widget failed");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Nullable
+    private static Bitmap load(Context context, String posterPath) {
+        try {
+            return ServiceUtils.loadWithPicasso(context, TheTVDB.buildPosterUrl(posterPath))
+                    .centerCrop()
+                    .resizeDimen(R.dimen.widget_item_width, R.dimen.widget_item_height)
+                    .get();
+        } catch (IOException e) {
+            Timber.w(e, "load: Loading show poster for widget item failed");
+            return null;
+        }
+    }
+
+    /**
+     * Includes the size posters are scaled to, which changes e.g. with the display density.
+     */
+    private static String buildKey(Context context, String posterPath) {
+        return posterPath + "@"
+                + context.getResources().getDimensionPixelSize(R.dimen.widget_item_width) + "x"
+                + context.getResources().getDimensionPixelSize(R.dimen.widget_item_height);
+    }
+}
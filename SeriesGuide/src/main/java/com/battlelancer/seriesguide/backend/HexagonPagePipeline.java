@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.backend;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Downloads the pages of a Hexagon list request on a background thread while the calling thread
+ * writes previously downloaded pages, so network latency and database writes overlap. At most
+ * {@link #MAX_PREFETCHED_PAGES} downloaded pages wait to be written, then downloading pauses.
+ *
+ * <p>Pages are passed to the {@link PageWriter} in order and on the calling thread.
+ */
+public class HexagonPagePipeline<T> {
+
+    private static final int MAX_PREFETCHED_PAGES = 2;
+
+    public static class Page<T> {
+
+        @Nullable final List<T> items;
+        @Nullable final String nextCursor;
+
+        /**
+         * @param nextCursor The cursor to get the next page, or {@code null} if this is the last
+         * page.
+         */
+        public Page(@Nullable List<T> items, @Nullable String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    public interface PageLoader<T> {
+        /**
+         * Downloads the page for the given cursor. Called on a background thread.
+         *
+         * @param cursor {@code null} for the first page.
+         * @return {@code null} if there are no more pages.
+         */
+        @Nullable
+        Page<T> load(@Nullable String cursor) throws IOException;
+    }
+
+    public interface PageWriter<T> {
+        /**
+         * Writes the items of a page, called on the thread running the pipeline.
+         *
+         * @return {@code false} to stop downloading and fail the pipeline.
+         */
+        boolean write(@NonNull List<T> items);
+    }
+
+    /**
+     * A downloaded page, the end of the list or a download failure.
+     */
+    private static class Result<T> {
+
+        final List<T> items;
+        final Throwable error;
+
+        Result(List<T> items, Throwable error) {
+            this.items = items;
+            this.error = error;
+        }
+    }
+
+    private final PageLoader<T> loader;
+    private final PageWriter<T> writer;
+
+    public HexagonPagePipeline(PageLoader<T> loader, PageWriter<T> writer) {
+        this.loader = loader;
+        this.writer = writer;
+    }
+
+    /**
+     * Downloads and writes all pages. Blocks until done.
+     *
+     * @return {@code false} if writing a page failed or the calling thread was interrupted.
+     * @throws IOException If downloading a page failed. Pages before it were written. Other
+     * exceptions or errors thrown while downloading are re-thrown as well.
+     */
+    public boolean run() throws IOException {
+        final BlockingQueue<Result<T>> queue = new ArrayBlockingQueue<>(MAX_PREFETCHED_PAGES);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    download(queue);
+                }
+            });
+
+            while (true) {
+                Result<T> result = queue.take();
+                if (result.error instanceof IOException) {
+                    throw (IOException) result.error;
+                }
+                if (result.error instanceof RuntimeException) {
+                    throw (RuntimeException) result.error;
+                }
+                if (result.error instanceof Error) {
+                    throw (Error) result.error;
+                }
+                if (result.error != null) {
+                    throw new RuntimeException(result.error);
+                }
+                if (result.items == null) {
+                    return true; // no more pages
+                }
+                if (!writer.write(result.items)) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            // sync was cancelled
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            // stop downloading if writing failed
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Always ends by queueing a result without items, so the writer never waits forever.
+     */
+    private void download(BlockingQueue<Result<T>> queue) {
+        Throwable error = null;
+        try {
+            String cursor = null;
+            do {
+                Page<T> page = loader.load(cursor);
+                if (page == null || page.items == null || page.items.size() == 0) {
+                    // nothing more to do
+                    break;
+                }
+                // blocks if the writer is behind
+                queue.put(new Result<>(page.items, null));
+                cursor = page.nextCursor;
+            } while (cursor != null);
+        } catch (InterruptedException e) {
+            // writer is done
+            return;
+        } catch (Throwable e) {
+            // pass on to the writer thread, also errors like running out of memory
+            error = e;
+        }
+        try {
+            queue.put(new Result<T>(null, error));
+        } catch (InterruptedException ignored) {
+            // writer is done
+        }
+    }
+}
@@ -28,10 +28,10 @@ import com.battlelancer.seriesguide.provider.SeriesGuideContract;
 import com.battlelancer.seriesguide.sync.SgSyncAdapter;
 import com.battlelancer.seriesguide.util.EpisodeTools;
 import com.battlelancer.seriesguide.util.MovieTools;
+import com.battlelancer.seriesguide.util.ServiceUtils;
 import com.battlelancer.seriesguide.util.ShowTools;
 import com.battlelancer.seriesguide.util.TaskManager;
 import com.battlelancer.seriesguide.util.Utils;
-import com.google.api.client.extensions.android.http.AndroidHttp;
 import com.google.api.client.extensions.android.json.AndroidJsonFactory;
 import com.google.api.client.googleapis.extensions.android.gms.auth.GoogleAccountCredential;
 import com.google.api.client.http.HttpTransport;
@@ -54,7 +54,7 @@ import timber.log.Timber;
 public class HexagonTools {
 
     private static final JsonFactory JSON_FACTORY = new AndroidJsonFactory();
-    private static final HttpTransport HTTP_TRANSPORT = AndroidHttp.newCompatibleTransport();
+    private static HttpTransport httpTransport;
 
     private static GoogleAccountCredential credential;
 
@@ -62,6 +62,20 @@ public class HexagonTools {
     private static Episodes sEpisodesService;
     private static Movies sMoviesService;
 
+    /**
+     * Uses the shared HTTP client of the app, but without a response cache as hexagon responses
+     * are specific to the signed in user.
+     */
+    private static synchronized HttpTransport getHttpTransport(Context context) {
+        if (httpTransport == null) {
+            httpTransport = new OkHttpTransport(ServiceUtils.getCachingOkHttpClient(context)
+                    .newBuilder()
+                    .cache(null)
+                    .build());
+        }
+        return httpTransport;
+    }
+
     /**
      * Creates and returns a new instance for this hexagon service or null if not signed in.
      */
@@ -72,7 +86,7 @@ public class HexagonTools {
             return null;
         }
         Account.Builder builder = new Account.Builder(
-                HTTP_TRANSPORT, JSON_FACTORY, credential
+                getHttpTransport(context), JSON_FACTORY, credential
         );
         return CloudEndpointUtils.updateBuilder(builder).build();
     }
@@ -88,7 +102,7 @@ public class HexagonTools {
         }
         if (sShowsService == null) {
             Shows.Builder builder = new Shows.Builder(
-                    HTTP_TRANSPORT, JSON_FACTORY, credential
+                    getHttpTransport(context), JSON_FACTORY, credential
             );
             sShowsService = CloudEndpointUtils.updateBuilder(builder).build();
         }
@@ -106,7 +120,7 @@ public class HexagonTools {
         }
         if (sEpisodesService == null) {
             Episodes.Builder builder = new Episodes.Builder(
-                    HTTP_TRANSPORT, JSON_FACTORY, credential
+                    getHttpTransport(context), JSON_FACTORY, credential
             );
             sEpisodesService = CloudEndpointUtils.updateBuilder(builder).build();
         }
@@ -124,7 +138,7 @@ public class HexagonTools {
         }
         if (sMoviesService == null) {
             Movies.Builder builder = new Movies.Builder(
-                    HTTP_TRANSPORT, JSON_FACTORY, credential
+                    getHttpTransport(context), JSON_FACTORY, credential
             );
             sMoviesService = CloudEndpointUtils.updateBuilder(builder).build();
         }
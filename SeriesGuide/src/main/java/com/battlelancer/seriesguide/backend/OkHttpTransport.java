@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.backend;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.util.StreamingContent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+
+/**
+ * {@link HttpTransport} for the Google API client libraries which makes requests with an {@link
+ * OkHttpClient}, so Hexagon requests share connections with all other requests of the app.
+ */
+public class OkHttpTransport extends HttpTransport {
+
+    private final OkHttpClient client;
+
+    public OkHttpTransport(OkHttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public boolean supportsMethod(String method) {
+        return true;
+    }
+
+    @Override
+    protected LowLevelHttpRequest buildRequest(String method, String url) {
+        return new OkHttpRequest(client, method, url);
+    }
+
+    private static class OkHttpRequest extends LowLevelHttpRequest {
+
+        private final OkHttpClient client;
+        private final String method;
+        private final Request.Builder request;
+        private int connectTimeoutMillis;
+        private int readTimeoutMillis;
+
+        OkHttpRequest(OkHttpClient client, String method, String url) {
+            this.client = client;
+            this.method = method;
+            this.request = new Request.Builder().url(url);
+            this.connectTimeoutMillis = client.connectTimeoutMillis();
+            this.readTimeoutMillis = client.readTimeoutMillis();
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            request.addHeader(name, value);
+        }
+
+        @Override
+        public void setTimeout(int connectTimeout, int readTimeout) {
+            this.connectTimeoutMillis = connectTimeout;
+            this.readTimeoutMillis = readTimeout;
+        }
+
+        @Override
+        public LowLevelHttpResponse execute() throws IOException {
+            RequestBody body = null;
+            StreamingContent content = getStreamingContent();
+            if (content != null) {
+                Buffer buffer = new Buffer();
+                content.writeTo(buffer.outputStream());
+                String contentType = getContentType();
+                body = RequestBody.create(contentType == null ? null : MediaType.parse(contentType),
+                        buffer.readByteString());
+                if (getContentEncoding() != null) {
+                    request.header("Content-Encoding", getContentEncoding());
+                }
+            } else if (requiresRequestBody(method)) {
+                body = RequestBody.create(null, new byte[0]);
+            }
+            request.method(method, body);
+
+            OkHttpClient requestClient = client;
+            if (connectTimeoutMillis != client.connectTimeoutMillis()
+                    || readTimeoutMillis != client.readTimeoutMillis()) {
+                requestClient = client.newBuilder()
+                        .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .build();
+            }
+            return new OkHttpResponse(requestClient.newCall(request.build()).execute());
+        }
+
+        /**
+         * OkHttp rejects these methods without a body, so send an empty one instead.
+         */
+        private static boolean requiresRequestBody(String method) {
+            return "POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method);
+        }
+    }
+
+    private static class OkHttpResponse extends LowLevelHttpResponse {
+
+        private final Response response;
+        private final Headers headers;
+
+        OkHttpResponse(Response response) {
+            this.response = response;
+            this.headers = response.headers();
+        }
+
+        @Override
+        public InputStream getContent() {
+            return response.body().byteStream();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return response.header("Content-Encoding");
+        }
+
+        @Override
+        public long getContentLength() {
+            return response.body().contentLength();
+        }
+
+        @Override
+        public String getContentType() {
+            return response.header("Content-Type");
+        }
+
+        @Override
+        public String getStatusLine() {
+            return response.protocol().toString().toUpperCase() + " " + response.code() + " "
+                    + response.message();
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.code();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            return response.message();
+        }
+
+        @Override
+        public int getHeaderCount() {
+            return headers.size();
+        }
+
+        @Override
+        public String getHeaderName(int index) {
+            return headers.name(index);
+        }
+
+        @Override
+        public String getHeaderValue(int index) {
+            return headers.value(index);
+        }
+
+        @Override
+        public void disconnect() {
+            response.body().close();
+        }
+    }
+}
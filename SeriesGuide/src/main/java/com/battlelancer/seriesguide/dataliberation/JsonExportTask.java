@@ -27,15 +27,11 @@ import android.os.ParcelFileDescriptor;
 import android.preference.PreferenceManager;
 import android.support.annotation.IntDef;
 import android.support.annotation.Nullable;
-import android.text.TextUtils;
 import android.widget.Toast;
 import com.battlelancer.seriesguide.R;
-import com.battlelancer.seriesguide.dataliberation.model.Episode;
 import com.battlelancer.seriesguide.dataliberation.model.List;
 import com.battlelancer.seriesguide.dataliberation.model.ListItem;
 import com.battlelancer.seriesguide.dataliberation.model.Movie;
-import com.battlelancer.seriesguide.dataliberation.model.Season;
-import com.battlelancer.seriesguide.dataliberation.model.Show;
 import com.battlelancer.seriesguide.interfaces.OnTaskFinishedListener;
 import com.battlelancer.seriesguide.interfaces.OnTaskProgressListener;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract;
@@ -46,8 +42,6 @@ import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
 import com.battlelancer.seriesguide.settings.AdvancedSettings;
 import com.battlelancer.seriesguide.settings.BackupSettings;
-import com.battlelancer.seriesguide.settings.DisplaySettings;
-import com.battlelancer.seriesguide.util.EpisodeTools;
 import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 import com.google.gson.stream.JsonWriter;
@@ -241,6 +235,28 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
             return SUCCESS;
         }
 
+        // seasons and episodes of all shows are read with a single query each
+        Cursor seasons = null;
+        Cursor episodes = null;
+        if (type == BACKUP_SHOWS) {
+            seasons = context.getContentResolver().query(Seasons.CONTENT_URI,
+                    SeasonsQuery.PROJECTION, null, null, SeasonsQuery.SORT);
+            episodes = context.getContentResolver().query(Episodes.CONTENT_URI,
+                    isFullDump ? EpisodesQuery.PROJECTION_FULL : EpisodesQuery.PROJECTION, null,
+                    null, EpisodesQuery.SORT);
+            if (seasons == null || episodes == null) {
+                // query failed
+                data.close();
+                if (seasons != null) {
+                    seasons.close();
+                }
+                if (episodes != null) {
+                    episodes.close();
+                }
+                return ERROR;
+            }
+        }
+
         publishProgress(data.getCount(), 0);
 
         // try to export all data
@@ -257,7 +273,7 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
                 FileOutputStream out = new FileOutputStream(pfd.getFileDescriptor());
 
                 if (type == BACKUP_SHOWS) {
-                    writeJsonStreamShows(out, data);
+                    writeJsonStreamShows(out, data, seasons, episodes);
                 } else if (type == BACKUP_LISTS) {
                     writeJsonStreamLists(out, data);
                 } else if (type == BACKUP_MOVIES) {
@@ -280,7 +296,7 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
 
                 OutputStream out = new FileOutputStream(backupFile);
                 if (type == BACKUP_SHOWS) {
-                    writeJsonStreamShows(out, data);
+                    writeJsonStreamShows(out, data, seasons, episodes);
                 } else if (type == BACKUP_LISTS) {
                     writeJsonStreamLists(out, data);
                 } else {
@@ -300,6 +316,12 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
             return ERROR;
         } finally {
             data.close();
+            if (seasons != null) {
+                seasons.close();
+            }
+            if (episodes != null) {
+                episodes.close();
+            }
         }
 
         return SUCCESS;
@@ -363,12 +385,13 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
         }
     }
 
-    private void writeJsonStreamShows(OutputStream out, Cursor shows) throws IOException {
+    private void writeJsonStreamShows(OutputStream out, Cursor shows, Cursor seasons,
+            Cursor episodes) throws IOException {
         int numTotal = shows.getCount();
         int numExported = 0;
 
-        Gson gson = new Gson();
         JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, "UTF-8"));
+        JsonShowsWriter showsWriter = new JsonShowsWriter(writer, seasons, episodes, isFullDump);
         writer.beginArray();
 
         while (shows.moveToNext()) {
@@ -376,41 +399,7 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
                 break;
             }
 
-            Show show = new Show();
-            show.tvdbId = shows.getInt(ShowsQuery.ID);
-            show.title = shows.getString(ShowsQuery.TITLE);
-            show.favorite = shows.getInt(ShowsQuery.FAVORITE) == 1;
-            show.hidden = shows.getInt(ShowsQuery.HIDDEN) == 1;
-            show.language = shows.getString(ShowsQuery.LANGUAGE);
-            if (TextUtils.isEmpty(show.language)) {
-                show.language = DisplaySettings.LANGUAGE_EN;
-            }
-            show.release_time = shows.getInt(ShowsQuery.RELEASE_TIME);
-            show.release_weekday = shows.getInt(ShowsQuery.RELEASE_WEEKDAY);
-            show.release_timezone = shows.getString(ShowsQuery.RELEASE_TIMEZONE);
-            show.country = shows.getString(ShowsQuery.RELEASE_COUNTRY);
-            show.lastWatchedEpisode = shows.getInt(ShowsQuery.LASTWATCHEDID);
-            show.poster = shows.getString(ShowsQuery.POSTER);
-            show.contentRating = shows.getString(ShowsQuery.CONTENTRATING);
-            show.status = DataLiberationTools.decodeShowStatus(shows.getInt(ShowsQuery.STATUS));
-            show.runtime = shows.getInt(ShowsQuery.RUNTIME);
-            show.network = shows.getString(ShowsQuery.NETWORK);
-            show.imdbId = shows.getString(ShowsQuery.IMDBID);
-            show.traktId = shows.getInt(ShowsQuery.TRAKT_ID);
-            show.firstAired = shows.getString(ShowsQuery.FIRSTAIRED);
-            show.rating_user = shows.getInt(ShowsQuery.RATING_USER);
-            if (isFullDump) {
-                show.overview = shows.getString(ShowsQuery.OVERVIEW);
-                show.rating = shows.getDouble(ShowsQuery.RATING_GLOBAL);
-                show.rating_votes = shows.getInt(ShowsQuery.RATING_VOTES);
-                show.genres = shows.getString(ShowsQuery.GENRES);
-                show.lastUpdated = shows.getLong(ShowsQuery.LAST_UPDATED);
-                show.lastEdited = shows.getLong(ShowsQuery.LAST_EDITED);
-            }
-
-            addSeasons(show);
-
-            gson.toJson(show, Show.class, writer);
+            showsWriter.writeShow(shows);
 
             publishProgress(numTotal, ++numExported);
         }
@@ -419,75 +408,6 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
         writer.close();
     }
 
-    private void addSeasons(Show show) {
-        show.seasons = new ArrayList<>();
-        final Cursor seasonsCursor = context.getContentResolver().query(
-                Seasons.buildSeasonsOfShowUri(String.valueOf(show.tvdbId)),
-                new String[] {
-                        Seasons._ID,
-                        Seasons.COMBINED
-                }, null, null, null
-        );
-
-        if (seasonsCursor == null) {
-            return;
-        }
-
-        while (seasonsCursor.moveToNext()) {
-            Season season = new Season();
-            season.tvdbId = seasonsCursor.getInt(0);
-            season.season = seasonsCursor.getInt(1);
-
-            addEpisodes(season);
-
-            show.seasons.add(season);
-        }
-
-        seasonsCursor.close();
-    }
-
-    private void addEpisodes(Season season) {
-        season.episodes = new ArrayList<>();
-        final Cursor episodesCursor = context.getContentResolver().query(
-                Episodes.buildEpisodesOfSeasonUri(String.valueOf(season.tvdbId)),
-                isFullDump ? EpisodesQuery.PROJECTION_FULL : EpisodesQuery.PROJECTION, null, null,
-                EpisodesQuery.SORT);
-
-        if (episodesCursor == null) {
-            return;
-        }
-
-        while (episodesCursor.moveToNext()) {
-            Episode episode = new Episode();
-            episode.tvdbId = episodesCursor.getInt(EpisodesQuery.ID);
-            episode.episode = episodesCursor.getInt(EpisodesQuery.NUMBER);
-            episode.episodeAbsolute = episodesCursor.getInt(EpisodesQuery.NUMBER_ABSOLUTE);
-            episode.episodeDvd = episodesCursor.getDouble(EpisodesQuery.NUMBER_DVD);
-            int episodeFlag = episodesCursor.getInt(EpisodesQuery.WATCHED);
-            episode.watched = EpisodeTools.isWatched(episodeFlag);
-            episode.skipped = EpisodeTools.isSkipped(episodeFlag);
-            episode.collected = episodesCursor.getInt(EpisodesQuery.COLLECTED) == 1;
-            episode.title = episodesCursor.getString(EpisodesQuery.TITLE);
-            episode.firstAired = episodesCursor.getLong(EpisodesQuery.FIRSTAIRED);
-            episode.imdbId = episodesCursor.getString(EpisodesQuery.IMDBID);
-            episode.rating_user = episodesCursor.getInt(EpisodesQuery.RATING_USER);
-            if (isFullDump) {
-                episode.overview = episodesCursor.getString(EpisodesQuery.OVERVIEW);
-                episode.image = episodesCursor.getString(EpisodesQuery.IMAGE);
-                episode.writers = episodesCursor.getString(EpisodesQuery.WRITERS);
-                episode.gueststars = episodesCursor.getString(EpisodesQuery.GUESTSTARS);
-                episode.directors = episodesCursor.getString(EpisodesQuery.DIRECTORS);
-                episode.rating = episodesCursor.getDouble(EpisodesQuery.RATING_GLOBAL);
-                episode.rating_votes = episodesCursor.getInt(EpisodesQuery.RATING_VOTES);
-                episode.lastEdited = episodesCursor.getLong(EpisodesQuery.LAST_EDITED);
-            }
-
-            season.episodes.add(episode);
-        }
-
-        episodesCursor.close();
-    }
-
     private void writeJsonStreamLists(OutputStream out, Cursor lists) throws IOException {
         int numTotal = lists.getCount();
         int numExported = 0;
@@ -638,7 +558,11 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
                 Shows.LASTEDIT
         };
 
-        String SORT = Shows.TITLE + " COLLATE NOCASE ASC";
+        /**
+         * Same order as {@link SeasonsQuery#SORT} and {@link EpisodesQuery#SORT}, which sort by
+         * the show id stored as text.
+         */
+        String SORT = "CAST(" + Shows._ID + " AS TEXT) ASC";
 
         int ID = 0;
         int TITLE = 1;
@@ -668,6 +592,20 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
         int LAST_EDITED = 24;
     }
 
+    public interface SeasonsQuery {
+        String[] PROJECTION = new String[] {
+                Seasons._ID,
+                Seasons.COMBINED,
+                Shows.REF_SHOW_ID
+        };
+
+        String SORT = Shows.REF_SHOW_ID + " ASC," + Seasons.COMBINED + " ASC";
+
+        int ID = 0;
+        int COMBINED = 1;
+        int REF_SHOW_ID = 2;
+    }
+
     public interface EpisodesQuery {
         String[] PROJECTION = new String[] {
                 Episodes._ID,
@@ -679,7 +617,9 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
                 Episodes.FIRSTAIREDMS,
                 Episodes.IMDBID,
                 Episodes.DVDNUMBER,
-                Episodes.RATING_USER
+                Episodes.RATING_USER,
+                Shows.REF_SHOW_ID,
+                Episodes.SEASON
         };
         String[] PROJECTION_FULL = new String[] {
                 Episodes._ID,
@@ -692,6 +632,8 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
                 Episodes.IMDBID,
                 Episodes.DVDNUMBER,
                 Episodes.RATING_USER,
+                Shows.REF_SHOW_ID,
+                Episodes.SEASON,
                 // Full dump only
                 Episodes.OVERVIEW,
                 Episodes.IMAGE,
@@ -703,7 +645,8 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
                 Episodes.LAST_EDITED
         };
 
-        String SORT = Episodes.NUMBER + " ASC";
+        String SORT = Shows.REF_SHOW_ID + " ASC," + Episodes.SEASON + " ASC,"
+                + Episodes.NUMBER + " ASC";
 
         int ID = 0;
         int NUMBER = 1;
@@ -715,15 +658,17 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
         int IMDBID = 7;
         int NUMBER_DVD = 8;
         int RATING_USER = 9;
+        int REF_SHOW_ID = 10;
+        int SEASON = 11;
         // Full dump only
-        int OVERVIEW = 10;
-        int IMAGE = 11;
-        int WRITERS = 12;
-        int GUESTSTARS = 13;
-        int DIRECTORS = 14;
-        int RATING_GLOBAL = 15;
-        int RATING_VOTES = 16;
-        int LAST_EDITED = 17;
+        int OVERVIEW = 12;
+        int IMAGE = 13;
+        int WRITERS = 14;
+        int GUESTSTARS = 15;
+        int DIRECTORS = 16;
+        int RATING_GLOBAL = 17;
+        int RATING_VOTES = 18;
+        int LAST_EDITED = 19;
     }
 
     public interface ListsQuery {
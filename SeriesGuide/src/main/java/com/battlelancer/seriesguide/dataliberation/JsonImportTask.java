@@ -25,13 +25,9 @@ import android.support.annotation.Nullable;
 import android.widget.Toast;
 import com.battlelancer.seriesguide.R;
 import com.battlelancer.seriesguide.dataliberation.JsonExportTask.ListItemTypesExport;
-import com.battlelancer.seriesguide.dataliberation.model.Episode;
 import com.battlelancer.seriesguide.dataliberation.model.List;
 import com.battlelancer.seriesguide.dataliberation.model.ListItem;
 import com.battlelancer.seriesguide.dataliberation.model.Movie;
-import com.battlelancer.seriesguide.dataliberation.model.Season;
-import com.battlelancer.seriesguide.dataliberation.model.Show;
-import com.battlelancer.seriesguide.enums.EpisodeFlags;
 import com.battlelancer.seriesguide.interfaces.OnTaskFinishedListener;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.ListItemTypes;
@@ -43,6 +39,7 @@ import com.battlelancer.seriesguide.settings.BackupSettings;
 import com.battlelancer.seriesguide.sync.SgSyncAdapter;
 import com.battlelancer.seriesguide.util.DBUtils;
 import com.battlelancer.seriesguide.util.TaskManager;
+import com.battlelancer.seriesguide.util.TitleTools;
 import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 import com.google.gson.stream.JsonReader;
@@ -165,9 +162,6 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
             }
         }
 
-        // Renew search table
-        DBUtils.rebuildFtsTable(context);
-
         return SUCCESS;
     }
 
@@ -312,14 +306,21 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
             throws JsonParseException, IOException, IllegalArgumentException {
         Gson gson = new Gson();
         JsonReader reader = new JsonReader(new InputStreamReader(in, "UTF-8"));
-        reader.beginArray();
 
         if (type == JsonExportTask.BACKUP_SHOWS) {
-            while (reader.hasNext()) {
-                Show show = gson.fromJson(reader, Show.class);
-                addShowToDatabase(show);
-            }
-        } else if (type == JsonExportTask.BACKUP_LISTS) {
+            // stream shows, they may have thousands of episodes
+            int episodeCount = new JsonShowsReader(reader, new ShowsDatabase(context),
+                    languageCodes).readShows();
+            Timber.d("importFromJson: imported " + episodeCount + " episodes");
+            reader.close();
+            // backups do not contain season counts
+            DBUtils.updateUnwatchedCounts(context);
+            return;
+        }
+
+        reader.beginArray();
+
+        if (type == JsonExportTask.BACKUP_LISTS) {
             while (reader.hasNext()) {
                 List list = gson.fromJson(reader, List.class);
                 addListToDatabase(list);
@@ -335,179 +336,42 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
         reader.close();
     }
 
-    private void addShowToDatabase(Show show) {
-        if (show.tvdbId <= 0) {
-            // valid id required
-            return;
-        }
+    /**
+     * Writes each show in a single transaction through {@link
+     * com.battlelancer.seriesguide.provider.SeriesGuideProvider}.
+     */
+    private static class ShowsDatabase implements JsonShowsReader.Database {
 
-        // Insert the show
-        ContentValues showValues = new ContentValues();
-        showValues.put(Shows._ID, show.tvdbId);
-        showValues.put(Shows.TITLE, show.title == null ? "" : show.title);
-        showValues.put(Shows.TITLE_NOARTICLE, DBUtils.trimLeadingArticle(show.title));
-        showValues.put(Shows.FAVORITE, show.favorite);
-        showValues.put(Shows.HIDDEN, show.hidden);
-        // only add the language, if we support it
-        for (int i = 0, size = languageCodes.length; i < size; i++) {
-            if (languageCodes[i].equals(show.language)) {
-                showValues.put(Shows.LANGUAGE, show.language);
-                break;
-            }
-        }
-        showValues.put(Shows.RELEASE_TIME, show.release_time);
-        if (show.release_weekday < -1 || show.release_weekday > 7) {
-            show.release_weekday = -1;
-        }
-        showValues.put(Shows.RELEASE_WEEKDAY, show.release_weekday);
-        showValues.put(Shows.RELEASE_TIMEZONE, show.release_timezone);
-        showValues.put(Shows.RELEASE_COUNTRY, show.country);
-        showValues.put(Shows.LASTWATCHEDID, show.lastWatchedEpisode);
-        showValues.put(Shows.POSTER, show.poster);
-        showValues.put(Shows.CONTENTRATING, show.contentRating);
-        if (show.runtime < 0) {
-            show.runtime = 0;
-        }
-        showValues.put(Shows.RUNTIME, show.runtime);
-        showValues.put(Shows.NETWORK, show.network);
-        showValues.put(Shows.IMDBID, show.imdbId);
-        if (show.traktId != null && show.traktId > 0) {
-            showValues.put(Shows.TRAKT_ID, show.traktId);
-        }
-        showValues.put(Shows.FIRST_RELEASE, show.firstAired);
-        if (show.rating_user < 0 || show.rating_user > 10) {
-            show.rating_user = 0;
-        }
-        showValues.put(Shows.RATING_USER, show.rating_user);
-        showValues.put(Shows.STATUS, DataLiberationTools.encodeShowStatus(show.status));
-        // Full dump values
-        showValues.put(Shows.OVERVIEW, show.overview);
-        if (show.rating < 0 || show.rating > 10) {
-            show.rating = 0;
-        }
-        showValues.put(Shows.RATING_GLOBAL, show.rating);
-        if (show.rating_votes < 0) {
-            show.rating_votes = 0;
-        }
-        showValues.put(Shows.RATING_VOTES, show.rating_votes);
-        showValues.put(Shows.GENRES, show.genres);
-        if (show.lastUpdated > System.currentTimeMillis()) {
-            show.lastUpdated = 0;
-        }
-        showValues.put(Shows.LASTUPDATED, show.lastUpdated);
-        showValues.put(Shows.LASTEDIT, show.lastEdited);
+        private final Context context;
 
-        context.getContentResolver().insert(Shows.CONTENT_URI, showValues);
+        public ShowsDatabase(Context context) {
+            this.context = context;
+        }
 
-        if (show.seasons == null || show.seasons.isEmpty()) {
-            // no seasons (or episodes)
-            return;
+        @Override
+        public void beginShow() {
+            DBUtils.beginTransaction(context);
         }
 
-        ContentValues[][] seasonsAndEpisodes = buildSeasonAndEpisodeBatches(show);
-        if (seasonsAndEpisodes[0] != null && seasonsAndEpisodes[1] != null) {
-            // Insert all seasons
-            context.getContentResolver().bulkInsert(Seasons.CONTENT_URI, seasonsAndEpisodes[0]);
-            // Insert all episodes
-            context.getContentResolver().bulkInsert(Episodes.CONTENT_URI, seasonsAndEpisodes[1]);
+        @Override
+        public void insertShow(ContentValues values) {
+            context.getContentResolver().insert(Shows.CONTENT_URI, values);
         }
-    }
 
-    /**
-     * Returns all seasons and episodes of this show in neat {@link ContentValues} packages put into
-     * arrays. The first array returned includes all seasons, the second array all episodes.
-     */
-    private static ContentValues[][] buildSeasonAndEpisodeBatches(Show show) {
-        ArrayList<ContentValues> seasonBatch = new ArrayList<>();
-        ArrayList<ContentValues> episodeBatch = new ArrayList<>();
-
-        // Populate arrays...
-        for (Season season : show.seasons) {
-            if (season.tvdbId <= 0) {
-                // valid id is required
-                continue;
-            }
-            if (season.episodes == null || season.episodes.isEmpty()) {
-                // episodes required
-                continue;
-            }
+        @Override
+        public void insertSeasons(ContentValues[] values) {
+            context.getContentResolver().bulkInsert(Seasons.CONTENT_URI, values);
+        }
 
-            // add the season...
-            ContentValues seasonValues = new ContentValues();
-            seasonValues.put(Seasons._ID, season.tvdbId);
-            seasonValues.put(Shows.REF_SHOW_ID, show.tvdbId);
-            if (season.season < 0) {
-                season.season = 0;
-            }
-            seasonValues.put(Seasons.COMBINED, season.season);
-
-            seasonBatch.add(seasonValues);
-
-            // ...and its episodes
-            for (Episode episode : season.episodes) {
-                if (episode.tvdbId <= 0) {
-                    // valid id is required
-                    continue;
-                }
-
-                ContentValues episodeValues = new ContentValues();
-                episodeValues.put(Episodes._ID, episode.tvdbId);
-                episodeValues.put(Shows.REF_SHOW_ID, show.tvdbId);
-                episodeValues.put(Seasons.REF_SEASON_ID, season.tvdbId);
-                if (episode.episode < 0) {
-                    episode.episode = 0;
-                }
-                episodeValues.put(Episodes.NUMBER, episode.episode);
-                if (episode.episodeAbsolute < 0) {
-                    episode.episodeAbsolute = 0;
-                }
-                episodeValues.put(Episodes.ABSOLUTE_NUMBER, episode.episodeAbsolute);
-                episodeValues.put(Episodes.SEASON, season.season);
-                episodeValues.put(Episodes.TITLE, episode.title);
-                // watched/skipped represented internally in watched flag
-                if (episode.skipped) {
-                    episodeValues.put(Episodes.WATCHED, EpisodeFlags.SKIPPED);
-                } else {
-                    episodeValues.put(Episodes.WATCHED,
-                            episode.watched ? EpisodeFlags.WATCHED : EpisodeFlags.UNWATCHED);
-                }
-                episodeValues.put(Episodes.COLLECTED, episode.collected);
-                episodeValues.put(Episodes.FIRSTAIREDMS, episode.firstAired);
-                episodeValues.put(Episodes.IMDBID, episode.imdbId);
-                if (episode.rating_user < 0 || episode.rating_user > 10) {
-                    episode.rating_user = 0;
-                }
-                episodeValues.put(Episodes.RATING_USER, episode.rating_user);
-                // Full dump values
-                if (episode.episodeDvd < 0) {
-                    episode.episodeDvd = 0;
-                }
-                episodeValues.put(Episodes.DVDNUMBER, episode.episodeDvd);
-                episodeValues.put(Episodes.OVERVIEW, episode.overview);
-                episodeValues.put(Episodes.IMAGE, episode.image);
-                episodeValues.put(Episodes.WRITERS, episode.writers);
-                episodeValues.put(Episodes.GUESTSTARS, episode.gueststars);
-                episodeValues.put(Episodes.DIRECTORS, episode.directors);
-                if (episode.rating < 0 || episode.rating > 10) {
-                    episode.rating = 0;
-                }
-                episodeValues.put(Episodes.RATING_GLOBAL, episode.rating);
-                if (episode.rating_votes < 0) {
-                    episode.rating_votes = 0;
-                }
-                episodeValues.put(Episodes.RATING_VOTES, episode.rating_votes);
-                episodeValues.put(Episodes.LAST_EDITED, episode.lastEdited);
-
-                episodeBatch.add(episodeValues);
-            }
+        @Override
+        public void insertEpisodes(ContentValues[] values) {
+            context.getContentResolver().bulkInsert(Episodes.CONTENT_URI, values);
         }
 
-        return new ContentValues[][] {
-                seasonBatch.size() == 0 ? null
-                        : seasonBatch.toArray(new ContentValues[seasonBatch.size()]),
-                episodeBatch.size() == 0 ? null
-                        : episodeBatch.toArray(new ContentValues[episodeBatch.size()])
-        };
+        @Override
+        public void endShow(boolean isSuccessful) {
+            DBUtils.endTransaction(context, isSuccessful);
+        }
     }
 
     private int importLists(File importPath) {
@@ -619,7 +483,7 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
         values.put(Movies.TMDB_ID, movie.tmdbId);
         values.put(Movies.IMDB_ID, movie.imdbId);
         values.put(Movies.TITLE, movie.title);
-        values.put(Movies.TITLE_NOARTICLE, DBUtils.trimLeadingArticle(movie.title));
+        values.put(Movies.TITLE_NOARTICLE, TitleTools.trimLeadingArticle(movie.title));
         values.put(Movies.RELEASED_UTC_MS, movie.releasedUtcMs);
         values.put(Movies.RUNTIME_MIN, movie.runtimeMin);
         values.put(Movies.POSTER, movie.poster);
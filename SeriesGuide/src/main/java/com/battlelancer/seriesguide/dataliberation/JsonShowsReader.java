@@ -0,0 +1,439 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.dataliberation;
+
+import android.content.ContentValues;
+import com.battlelancer.seriesguide.dataliberation.model.Episode;
+import com.battlelancer.seriesguide.dataliberation.model.Season;
+import com.battlelancer.seriesguide.dataliberation.model.Show;
+import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.util.TitleTools;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads shows including their seasons and episodes from a {@link JsonReader} token by token and
+ * writes episodes to a {@link Database} in chunks of {@link #EPISODE_CHUNK_SIZE} as they are
+ * parsed, so memory use does not depend on the number of episodes of a show.
+ *
+ * <p> Files written by {@link JsonExportTask} list the ids of a show or season before its seasons
+ * or episodes. If a file does not, the seasons or episodes of that show or season are read into
+ * memory before writing them.
+ */
+public class JsonShowsReader {
+
+    /**
+     * Receives the rows of each show, all changes of a show should be applied in one transaction.
+     */
+    public interface Database {
+
+        void beginShow();
+
+        void insertShow(ContentValues values);
+
+        void insertSeasons(ContentValues[] values);
+
+        void insertEpisodes(ContentValues[] values);
+
+        /**
+         * @param isSuccessful If {@code false}, all changes of this show should be discarded.
+         */
+        void endShow(boolean isSuccessful);
+    }
+
+    public static final int EPISODE_CHUNK_SIZE = 250;
+
+    private static final String NAME_TVDB_ID = "tvdb_id";
+    private static final String NAME_SEASON = "season";
+    private static final String NAME_SEASONS = "seasons";
+    private static final String NAME_EPISODES = "episodes";
+
+    private static final Type SEASON_LIST_TYPE = new TypeToken<List<Season>>() {
+    }.getType();
+    private static final Type EPISODE_LIST_TYPE = new TypeToken<List<Episode>>() {
+    }.getType();
+
+    private final Gson gson = new Gson();
+    private final JsonReader reader;
+    private final Database database;
+    private final String[] languageCodes;
+
+    private final ArrayList<ContentValues> seasonBatch = new ArrayList<>();
+    private final ContentValues[] episodeChunk = new ContentValues[EPISODE_CHUNK_SIZE];
+    private int episodeChunkSize;
+    private int episodeCount;
+
+    /**
+     * @param languageCodes Supported show languages, other languages are not imported.
+     */
+    public JsonShowsReader(JsonReader reader, Database database, String[] languageCodes) {
+        this.reader = reader;
+        this.database = database;
+        this.languageCodes = languageCodes;
+    }
+
+    /**
+     * Reads the array of shows and writes each show to the database.
+     *
+     * @return The number of episodes written.
+     */
+    public int readShows() throws IOException {
+        episodeCount = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            boolean isSuccessful = false;
+            database.beginShow();
+            try {
+                readShow();
+                isSuccessful = true;
+            } finally {
+                seasonBatch.clear();
+                episodeChunkSize = 0;
+                database.endShow(isSuccessful);
+            }
+        }
+        reader.endArray();
+        return episodeCount;
+    }
+
+    private void readShow() throws IOException {
+        JsonObject properties = new JsonObject();
+        int showTvdbId = 0;
+        List<Season> bufferedSeasons = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (NAME_SEASONS.equals(name)) {
+                if (showTvdbId > 0) {
+                    readSeasons(showTvdbId);
+                } else if (properties.has(NAME_TVDB_ID)) {
+                    // invalid show, is not imported
+                    reader.skipValue();
+                } else {
+                    // show id is not known, yet
+                    bufferedSeasons = gson.fromJson(reader, SEASON_LIST_TYPE);
+                }
+            } else {
+                JsonElement value = gson.fromJson(reader, JsonElement.class);
+                properties.add(name, value);
+                if (NAME_TVDB_ID.equals(name) && value.isJsonPrimitive()) {
+                    showTvdbId = value.getAsInt();
+                }
+            }
+        }
+        reader.endObject();
+
+        Show show = gson.fromJson(properties, Show.class);
+        if (show.tvdbId <= 0) {
+            // valid id required
+            return;
+        }
+        database.insertShow(buildShowValues(show));
+
+        if (bufferedSeasons != null) {
+            for (Season season : bufferedSeasons) {
+                addSeason(show.tvdbId, season);
+            }
+        }
+        if (seasonBatch.size() > 0) {
+            database.insertSeasons(seasonBatch.toArray(new ContentValues[seasonBatch.size()]));
+        }
+        flushEpisodes();
+    }
+
+    private void readSeasons(int showTvdbId) throws IOException {
+        if (!beginArrayOrSkipNull()) {
+            return;
+        }
+        while (reader.hasNext()) {
+            readSeason(showTvdbId);
+        }
+        reader.endArray();
+    }
+
+    private void readSeason(int showTvdbId) throws IOException {
+        Season season = new Season();
+        boolean hasTvdbId = false;
+        boolean hasNumber = false;
+        boolean hasEpisodes = false;
+        boolean isInvalid = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (NAME_TVDB_ID.equals(name)) {
+                try {
+                    season.tvdbId = nextIntOrZero();
+                } catch (NumberFormatException e) {
+                    isInvalid = true;
+                }
+                hasTvdbId = true;
+            } else if (NAME_SEASON.equals(name)) {
+                try {
+                    season.season = Math.max(nextIntOrZero(), 0);
+                } catch (NumberFormatException e) {
+                    isInvalid = true;
+                }
+                hasNumber = true;
+            } else if (NAME_EPISODES.equals(name)) {
+                if (hasTvdbId && hasNumber) {
+                    if (season.tvdbId > 0 && !isInvalid) {
+                        hasEpisodes = readEpisodes(showTvdbId, season);
+                    } else {
+                        // invalid season, is not imported
+                        reader.skipValue();
+                    }
+                } else {
+                    // season id or number is not known, yet
+                    season.episodes = gson.fromJson(reader, EPISODE_LIST_TYPE);
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (isInvalid) {
+            // invalid season, is not imported
+            return;
+        }
+        if (season.episodes != null) {
+            addSeason(showTvdbId, season);
+        } else if (hasEpisodes) {
+            seasonBatch.add(buildSeasonValues(showTvdbId, season));
+        }
+    }
+
+    /**
+     * @return Whether the season has any episodes.
+     */
+    private boolean readEpisodes(int showTvdbId, Season season) throws IOException {
+        if (!beginArrayOrSkipNull()) {
+            return false;
+        }
+        boolean hasEpisodes = false;
+        while (reader.hasNext()) {
+            Episode episode = gson.fromJson(reader, Episode.class);
+            hasEpisodes = true;
+            addEpisode(showTvdbId, season, episode);
+        }
+        reader.endArray();
+        return hasEpisodes;
+    }
+
+    /**
+     * Reads an int value like {@link Gson} does for an int field, a null value is read as 0.
+     *
+     * @throws NumberFormatException If the value is not an int. The value is skipped.
+     */
+    private int nextIntOrZero() throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        try {
+            return reader.nextInt();
+        } catch (NumberFormatException e) {
+            reader.skipValue();
+            throw e;
+        }
+    }
+
+    private boolean beginArrayOrSkipNull() throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return false;
+        }
+        reader.beginArray();
+        return true;
+    }
+
+    /**
+     * Adds a season that was read into memory completely, including its episodes.
+     */
+    private void addSeason(int showTvdbId, Season season) {
+        if (season.tvdbId <= 0) {
+            // valid id is required
+            return;
+        }
+        if (season.episodes == null || season.episodes.isEmpty()) {
+            // episodes required
+            return;
+        }
+        if (season.season < 0) {
+            season.season = 0;
+        }
+        seasonBatch.add(buildSeasonValues(showTvdbId, season));
+        for (Episode episode : season.episodes) {
+            addEpisode(showTvdbId, season, episode);
+        }
+    }
+
+    private void addEpisode(int showTvdbId, Season season, Episode episode) {
+        if (episode.tvdbId <= 0) {
+            // valid id is required
+            return;
+        }
+        episodeChunk[episodeChunkSize++] = buildEpisodeValues(showTvdbId, season, episode);
+        if (episodeChunkSize == EPISODE_CHUNK_SIZE) {
+            flushEpisodes();
+        }
+    }
+
+    private void flushEpisodes() {
+        if (episodeChunkSize == 0) {
+            return;
+        }
+        ContentValues[] chunk = episodeChunkSize == EPISODE_CHUNK_SIZE
+                ? episodeChunk : Arrays.copyOf(episodeChunk, episodeChunkSize);
+        database.insertEpisodes(chunk);
+        episodeCount += episodeChunkSize;
+        Arrays.fill(episodeChunk, null);
+        episodeChunkSize = 0;
+    }
+
+    private ContentValues buildShowValues(Show show) {
+        ContentValues showValues = new ContentValues();
+        showValues.put(Shows._ID, show.tvdbId);
+        showValues.put(Shows.TITLE, show.title == null ? "" : show.title);
+        showValues.put(Shows.TITLE_NOARTICLE, TitleTools.trimLeadingArticle(show.title));
+        showValues.put(Shows.FAVORITE, show.favorite);
+        showValues.put(Shows.HIDDEN, show.hidden);
+        // only add the language, if we support it
+        for (int i = 0, size = languageCodes.length; i < size; i++) {
+            if (languageCodes[i].equals(show.language)) {
+                showValues.put(Shows.LANGUAGE, show.language);
+                break;
+            }
+        }
+        showValues.put(Shows.RELEASE_TIME, show.release_time);
+        if (show.release_weekday < -1 || show.release_weekday > 7) {
+            show.release_weekday = -1;
+        }
+        showValues.put(Shows.RELEASE_WEEKDAY, show.release_weekday);
+        showValues.put(Shows.RELEASE_TIMEZONE, show.release_timezone);
+        showValues.put(Shows.RELEASE_COUNTRY, show.country);
+        showValues.put(Shows.LASTWATCHEDID, show.lastWatchedEpisode);
+        showValues.put(Shows.POSTER, show.poster);
+        showValues.put(Shows.CONTENTRATING, show.contentRating);
+        if (show.runtime < 0) {
+            show.runtime = 0;
+        }
+        showValues.put(Shows.RUNTIME, show.runtime);
+        showValues.put(Shows.NETWORK, show.network);
+        showValues.put(Shows.IMDBID, show.imdbId);
+        if (show.traktId != null && show.traktId > 0) {
+            showValues.put(Shows.TRAKT_ID, show.traktId);
+        }
+        showValues.put(Shows.FIRST_RELEASE, show.firstAired);
+        if (show.rating_user < 0 || show.rating_user > 10) {
+            show.rating_user = 0;
+        }
+        showValues.put(Shows.RATING_USER, show.rating_user);
+        showValues.put(Shows.STATUS, DataLiberationTools.encodeShowStatus(show.status));
+        // Full dump values
+        showValues.put(Shows.OVERVIEW, show.overview);
+        if (show.rating < 0 || show.rating > 10) {
+            show.rating = 0;
+        }
+        showValues.put(Shows.RATING_GLOBAL, show.rating);
+        if (show.rating_votes < 0) {
+            show.rating_votes = 0;
+        }
+        showValues.put(Shows.RATING_VOTES, show.rating_votes);
+        showValues.put(Shows.GENRES, show.genres);
+        if (show.lastUpdated > System.currentTimeMillis()) {
+            show.lastUpdated = 0;
+        }
+        showValues.put(Shows.LASTUPDATED, show.lastUpdated);
+        showValues.put(Shows.LASTEDIT, show.lastEdited);
+        return showValues;
+    }
+
+    private static ContentValues buildSeasonValues(int showTvdbId, Season season) {
+        ContentValues seasonValues = new ContentValues();
+        seasonValues.put(Seasons._ID, season.tvdbId);
+        seasonValues.put(Shows.REF_SHOW_ID, showTvdbId);
+        seasonValues.put(Seasons.COMBINED, season.season);
+        return seasonValues;
+    }
+
+    private static ContentValues buildEpisodeValues(int showTvdbId, Season season,
+            Episode episode) {
+        ContentValues episodeValues = new ContentValues();
+        episodeValues.put(Episodes._ID, episode.tvdbId);
+        episodeValues.put(Shows.REF_SHOW_ID, showTvdbId);
+        episodeValues.put(Seasons.REF_SEASON_ID, season.tvdbId);
+        if (episode.episode < 0) {
+            episode.episode = 0;
+        }
+        episodeValues.put(Episodes.NUMBER, episode.episode);
+        if (episode.episodeAbsolute < 0) {
+            episode.episodeAbsolute = 0;
+        }
+        episodeValues.put(Episodes.ABSOLUTE_NUMBER, episode.episodeAbsolute);
+        episodeValues.put(Episodes.SEASON, season.season);
+        episodeValues.put(Episodes.TITLE, episode.title);
+        // watched/skipped represented internally in watched flag
+        if (episode.skipped) {
+            episodeValues.put(Episodes.WATCHED, EpisodeFlags.SKIPPED);
+        } else {
+            episodeValues.put(Episodes.WATCHED,
+                    episode.watched ? EpisodeFlags.WATCHED : EpisodeFlags.UNWATCHED);
+        }
+        episodeValues.put(Episodes.COLLECTED, episode.collected);
+        episodeValues.put(Episodes.FIRSTAIREDMS, episode.firstAired);
+        episodeValues.put(Episodes.IMDBID, episode.imdbId);
+        if (episode.rating_user < 0 || episode.rating_user > 10) {
+            episode.rating_user = 0;
+        }
+        episodeValues.put(Episodes.RATING_USER, episode.rating_user);
+        // Full dump values
+        if (episode.episodeDvd < 0) {
+            episode.episodeDvd = 0;
+        }
+        episodeValues.put(Episodes.DVDNUMBER, episode.episodeDvd);
+        episodeValues.put(Episodes.OVERVIEW, episode.overview);
+        episodeValues.put(Episodes.IMAGE, episode.image);
+        episodeValues.put(Episodes.WRITERS, episode.writers);
+        episodeValues.put(Episodes.GUESTSTARS, episode.gueststars);
+        episodeValues.put(Episodes.DIRECTORS, episode.directors);
+        if (episode.rating < 0 || episode.rating > 10) {
+            episode.rating = 0;
+        }
+        episodeValues.put(Episodes.RATING_GLOBAL, episode.rating);
+        if (episode.rating_votes < 0) {
+            episode.rating_votes = 0;
+        }
+        episodeValues.put(Episodes.RATING_VOTES, episode.rating_votes);
+        episodeValues.put(Episodes.LAST_EDITED, episode.lastEdited);
+        return episodeValues;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.dataliberation;
+
+import android.database.Cursor;
+import android.text.TextUtils;
+import com.battlelancer.seriesguide.dataliberation.JsonExportTask.EpisodesQuery;
+import com.battlelancer.seriesguide.dataliberation.JsonExportTask.SeasonsQuery;
+import com.battlelancer.seriesguide.dataliberation.JsonExportTask.ShowsQuery;
+import com.battlelancer.seriesguide.dataliberation.model.Episode;
+import com.battlelancer.seriesguide.dataliberation.model.Season;
+import com.battlelancer.seriesguide.dataliberation.model.Show;
+import com.battlelancer.seriesguide.settings.DisplaySettings;
+import com.battlelancer.seriesguide.util.EpisodeTools;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes shows including their seasons and episodes to a {@link JsonWriter} in a single pass over
+ * a shows, a seasons and an episodes cursor, each sorted by show TVDb id as text (see {@link
+ * ShowsQuery#SORT}, {@link SeasonsQuery#SORT} and {@link EpisodesQuery#SORT}). Only the show,
+ * season or episode currently written is held in memory, regardless of library size.
+ */
+public class JsonShowsWriter {
+
+    private static final String NAME_SEASONS = "seasons";
+    private static final String NAME_EPISODES = "episodes";
+
+    private final Gson gson = new Gson();
+    private final JsonWriter writer;
+    private final Cursor seasons;
+    private final Cursor episodes;
+    private final boolean isFullDump;
+
+    private final Show show = new Show();
+    private final Season season = new Season();
+    private final Episode episode = new Episode();
+
+    /**
+     * @param seasons Queried using {@link SeasonsQuery}.
+     * @param episodes Queried using {@link EpisodesQuery}, with the full projection if {@code
+     * isFullDump} is set.
+     */
+    public JsonShowsWriter(JsonWriter writer, Cursor seasons, Cursor episodes,
+            boolean isFullDump) {
+        this.writer = writer;
+        this.seasons = seasons;
+        this.episodes = episodes;
+        this.isFullDump = isFullDump;
+        seasons.moveToFirst();
+        episodes.moveToFirst();
+    }
+
+    /**
+     * Writes the show at the current position of the given cursor, queried using {@link
+     * ShowsQuery}, then advances the seasons and episodes cursors past all rows of this show.
+     * Shows must be written in the order of {@link ShowsQuery#SORT}.
+     */
+    public void writeShow(Cursor shows) throws IOException {
+        readShow(shows);
+        String showTvdbId = String.valueOf(show.tvdbId);
+
+        writer.beginObject();
+        writeProperties(gson.toJsonTree(show, Show.class));
+
+        writer.name(NAME_SEASONS);
+        writer.beginArray();
+        // skip seasons of shows that do not exist (any more)
+        while (!seasons.isAfterLast()
+                && compareShowId(seasons, SeasonsQuery.REF_SHOW_ID, showTvdbId) < 0) {
+            seasons.moveToNext();
+        }
+        while (!seasons.isAfterLast()
+                && compareShowId(seasons, SeasonsQuery.REF_SHOW_ID, showTvdbId) == 0) {
+            writeSeason(showTvdbId);
+            seasons.moveToNext();
+        }
+        writer.endArray();
+
+        writer.endObject();
+    }
+
+    private void writeSeason(String showTvdbId) throws IOException {
+        season.tvdbId = seasons.getInt(SeasonsQuery.ID);
+        season.season = seasons.getInt(SeasonsQuery.COMBINED);
+
+        writer.beginObject();
+        writeProperties(gson.toJsonTree(season, Season.class));
+
+        writer.name(NAME_EPISODES);
+        writer.beginArray();
+        // skip episodes of this show without a season, or of a show that does not exist (any more)
+        while (!episodes.isAfterLast() && (compareShowId(episodes, EpisodesQuery.REF_SHOW_ID,
+                showTvdbId) < 0 || (compareShowId(episodes, EpisodesQuery.REF_SHOW_ID,
+                showTvdbId) == 0 && episodes.getInt(EpisodesQuery.SEASON) < season.season))) {
+            episodes.moveToNext();
+        }
+        while (!episodes.isAfterLast()
+                && compareShowId(episodes, EpisodesQuery.REF_SHOW_ID, showTvdbId) == 0
+                && episodes.getInt(EpisodesQuery.SEASON) == season.season) {
+            readEpisode();
+            gson.toJson(episode, Episode.class, writer);
+            episodes.moveToNext();
+        }
+        writer.endArray();
+
+        writer.endObject();
+    }
+
+    /**
+     * Writes all properties of the given object without closing it, so nested arrays can be
+     * streamed afterwards.
+     */
+    private void writeProperties(JsonElement element) throws IOException {
+        JsonObject object = element.getAsJsonObject();
+        for (Map.Entry<String, JsonElement> property : object.entrySet()) {
+            writer.name(property.getKey());
+            gson.toJson(property.getValue(), writer);
+        }
+    }
+
+    /**
+     * Compares the show id of the current row with the given one, both as text. Rows without a
+     * show id are sorted first.
+     */
+    private static int compareShowId(Cursor cursor, int column, String showTvdbId) {
+        String rowShowTvdbId = cursor.getString(column);
+        return rowShowTvdbId == null ? -1 : rowShowTvdbId.compareTo(showTvdbId);
+    }
+
+    private void readShow(Cursor shows) {
+        show.tvdbId = shows.getInt(ShowsQuery.ID);
+        show.title = shows.getString(ShowsQuery.TITLE);
+        show.favorite = shows.getInt(ShowsQuery.FAVORITE) == 1;
+        show.hidden = shows.getInt(ShowsQuery.HIDDEN) == 1;
+        show.language = shows.getString(ShowsQuery.LANGUAGE);
+        if (TextUtils.isEmpty(show.language)) {
+            show.language = DisplaySettings.LANGUAGE_EN;
+        }
+        show.release_time = shows.getInt(ShowsQuery.RELEASE_TIME);
+        show.release_weekday = shows.getInt(ShowsQuery.RELEASE_WEEKDAY);
+        show.release_timezone = shows.getString(ShowsQuery.RELEASE_TIMEZONE);
+        show.country = shows.getString(ShowsQuery.RELEASE_COUNTRY);
+        show.lastWatchedEpisode = shows.getInt(ShowsQuery.LASTWATCHEDID);
+        show.poster = shows.getString(ShowsQuery.POSTER);
+        show.contentRating = shows.getString(ShowsQuery.CONTENTRATING);
+        show.status = DataLiberationTools.decodeShowStatus(shows.getInt(ShowsQuery.STATUS));
+        show.runtime = shows.getInt(ShowsQuery.RUNTIME);
+        show.network = shows.getString(ShowsQuery.NETWORK);
+        show.imdbId = shows.getString(ShowsQuery.IMDBID);
+        show.traktId = shows.getInt(ShowsQuery.TRAKT_ID);
+        show.firstAired = shows.getString(ShowsQuery.FIRSTAIRED);
+        show.rating_user = shows.getInt(ShowsQuery.RATING_USER);
+        if (isFullDump) {
+            show.overview = shows.getString(ShowsQuery.OVERVIEW);
+            show.rating = shows.getDouble(ShowsQuery.RATING_GLOBAL);
+            show.rating_votes = shows.getInt(ShowsQuery.RATING_VOTES);
+            show.genres = shows.getString(ShowsQuery.GENRES);
+            show.lastUpdated = shows.getLong(ShowsQuery.LAST_UPDATED);
+            show.lastEdited = shows.getLong(ShowsQuery.LAST_EDITED);
+        }
+    }
+
+    private void readEpisode() {
+        episode.tvdbId = episodes.getInt(EpisodesQuery.ID);
+        episode.episode = episodes.getInt(EpisodesQuery.NUMBER);
+        episode.episodeAbsolute = episodes.getInt(EpisodesQuery.NUMBER_ABSOLUTE);
+        episode.episodeDvd = episodes.getDouble(EpisodesQuery.NUMBER_DVD);
+        int episodeFlag = episodes.getInt(EpisodesQuery.WATCHED);
+        episode.watched = EpisodeTools.isWatched(episodeFlag);
+        episode.skipped = EpisodeTools.isSkipped(episodeFlag);
+        episode.collected = episodes.getInt(EpisodesQuery.COLLECTED) == 1;
+        episode.title = episodes.getString(EpisodesQuery.TITLE);
+        episode.firstAired = episodes.getLong(EpisodesQuery.FIRSTAIRED);
+        episode.imdbId = episodes.getString(EpisodesQuery.IMDBID);
+        episode.rating_user = episodes.getInt(EpisodesQuery.RATING_USER);
+        if (isFullDump) {
+            episode.overview = episodes.getString(EpisodesQuery.OVERVIEW);
+            episode.image = episodes.getString(EpisodesQuery.IMAGE);
+            episode.writers = episodes.getString(EpisodesQuery.WRITERS);
+            episode.gueststars = episodes.getString(EpisodesQuery.GUESTSTARS);
+            episode.directors = episodes.getString(EpisodesQuery.DIRECTORS);
+            episode.rating = episodes.getDouble(EpisodesQuery.RATING_GLOBAL);
+            episode.rating_votes = episodes.getInt(EpisodesQuery.RATING_VOTES);
+            episode.lastEdited = episodes.getLong(EpisodesQuery.LAST_EDITED);
+        }
+    }
+}
@@ -80,4 +80,10 @@ public class Show {
 
     @SerializedName("last_edited")
     public long lastEdited;
+
+    /**
+     * When the trakt id was last looked up, not backed up so it is looked up again after
+     * restoring.
+     */
+    public transient long traktIdVerified;
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.loaders;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.support.v4.content.CursorLoader;
+import com.battlelancer.seriesguide.adapters.CalendarAdapter;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.util.DBUtils;
+import java.util.Arrays;
+
+/**
+ * Loads upcoming or recent episodes using the projection of {@link CalendarAdapter.Query}. Also
+ * finds where each release day starts, so {@link CalendarAdapter} does not have to walk the
+ * cursor on the UI thread to show day headers.
+ */
+public class CalendarLoader extends CursorLoader {
+
+    /**
+     * @param numberOfDaysToInclude See {@link DBUtils#buildActivityQuery(Context, String, int)}.
+     */
+    public CalendarLoader(Context context, String type, int numberOfDaysToInclude) {
+        super(context);
+        String[][] queryArgs = DBUtils.buildActivityQuery(context, type, numberOfDaysToInclude);
+        setUri(Episodes.CONTENT_URI_WITHSHOW);
+        setProjection(CalendarAdapter.buildProjection(context));
+        setSelection(queryArgs[0][0]);
+        setSelectionArgs(queryArgs[1]);
+        setSortOrder(queryArgs[2][0]);
+    }
+
+    @Override
+    public Cursor loadInBackground() {
+        Cursor cursor = super.loadInBackground();
+        if (cursor == null) {
+            return null;
+        }
+
+        // rows are sorted by release time, so rows of the same day are next to each other
+        int[] headerPositions = new int[16];
+        int headerCount = 0;
+        int previousDay = 0;
+        while (cursor.moveToNext()) {
+            int day = cursor.getInt(CalendarAdapter.Query.RELEASE_DAY);
+            if (headerCount == 0 || day != previousDay) {
+                if (headerCount == headerPositions.length) {
+                    headerPositions = Arrays.copyOf(headerPositions, headerCount * 2);
+                }
+                headerPositions[headerCount++] = cursor.getPosition();
+                previousDay = day;
+            }
+        }
+        cursor.moveToPosition(-1);
+
+        return new CalendarCursor(cursor, Arrays.copyOf(headerPositions, headerCount));
+    }
+
+    /**
+     * Wraps the episodes cursor, also has the positions of the first episode of each day.
+     */
+    public static class CalendarCursor extends CursorWrapper {
+
+        private final int[] headerPositions;
+
+        CalendarCursor(Cursor cursor, int[] headerPositions) {
+            super(cursor);
+            this.headerPositions = headerPositions;
+        }
+
+        public int getHeaderCount() {
+            return headerPositions.length;
+        }
+
+        /**
+         * Returns the position of the first episode of the given day header.
+         */
+        public int getHeaderPosition(int header) {
+            return headerPositions[header];
+        }
+
+        /**
+         * Returns the number of episodes releasing on the day of the given header.
+         */
+        public int getCountForHeader(int header) {
+            int end = header + 1 < headerPositions.length
+                    ? headerPositions[header + 1] : getCount();
+            return end - headerPositions[header];
+        }
+    }
+}
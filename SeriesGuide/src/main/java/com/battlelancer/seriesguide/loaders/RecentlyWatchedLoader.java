@@ -33,6 +33,9 @@ import java.util.List;
  */
 public class RecentlyWatchedLoader extends GenericSimpleLoader<List<NowAdapter.NowItem>> {
 
+    /** Same as the number of trakt history items displayed. */
+    private static final int MAX_ITEMS = 25;
+
     public RecentlyWatchedLoader(Context context) {
         super(context);
     }
@@ -43,51 +46,27 @@ public class RecentlyWatchedLoader extends GenericSimpleLoader<List<NowAdapter.N
 
         // get activity of the last 24 hours with the latest one first
         Cursor query = getContext().getContentResolver()
-                .query(SeriesGuideContract.Activity.CONTENT_URI,
-                        new String[] { SeriesGuideContract.Activity.TIMESTAMP,
-                                SeriesGuideContract.Activity.EPISODE_TVDB_ID },
+                .query(SeriesGuideContract.Activity.buildActivityWithEpisodeUri(MAX_ITEMS),
+                        ActivityQuery.PROJECTION,
                         SeriesGuideContract.Activity.TIMESTAMP + ">" + timeDayAgo, null,
                         SeriesGuideContract.Activity.TIMESTAMP + " DESC");
         if (query == null) {
             return null;
         }
 
-        List<NowAdapter.NowItem> items = new ArrayList<>();
+        List<NowAdapter.NowItem> items = new ArrayList<>(query.getCount() + 1);
         while (query.moveToNext()) {
-            long timestamp = query.getLong(0);
-            int episodeTvdbId = query.getInt(1);
-
-            // get episode details
-            Cursor episodeQuery = getContext().getContentResolver().query(
-                    SeriesGuideContract.Episodes.buildEpisodeWithShowUri(episodeTvdbId),
-                    new String[] {
-                            SeriesGuideDatabase.Tables.EPISODES + "."
-                                    + SeriesGuideContract.Episodes._ID, // 0
-                            SeriesGuideContract.Episodes.TITLE,
-                            SeriesGuideContract.Episodes.NUMBER,
-                            SeriesGuideContract.Episodes.SEASON, // 3
-                            SeriesGuideContract.Episodes.FIRSTAIREDMS,
-                            SeriesGuideContract.Shows.REF_SHOW_ID,
-                            SeriesGuideContract.Shows.TITLE,
-                            SeriesGuideContract.Shows.POSTER // 7
-                    }, null, null, null);
-            if (episodeQuery == null) {
-                continue;
-            }
-
-            // add items
-            if (episodeQuery.moveToFirst()) {
-                NowAdapter.NowItem item = new NowAdapter.NowItem().displayData(
-                        timestamp,
-                        episodeQuery.getString(6),
-                        TextTools.getNextEpisodeString(getContext(), episodeQuery.getInt(3),
-                                episodeQuery.getInt(2), episodeQuery.getString(1)),
-                        episodeQuery.getString(7)
-                ).tvdbIds(episodeTvdbId, episodeQuery.getInt(5)).recentlyWatchedLocal();
-                items.add(item);
-            }
-
-            episodeQuery.close();
+            NowAdapter.NowItem item = new NowAdapter.NowItem().displayData(
+                    query.getLong(ActivityQuery.TIMESTAMP),
+                    query.getString(ActivityQuery.SHOW_TITLE),
+                    TextTools.getNextEpisodeString(getContext(),
+                            query.getInt(ActivityQuery.SEASON),
+                            query.getInt(ActivityQuery.NUMBER),
+                            query.getString(ActivityQuery.EPISODE_TITLE)),
+                    query.getString(ActivityQuery.SHOW_POSTER)
+            ).tvdbIds(query.getInt(ActivityQuery.EPISODE_TVDB_ID),
+                    query.getInt(ActivityQuery.SHOW_TVDB_ID)).recentlyWatchedLocal();
+            items.add(item);
         }
 
         query.close();
@@ -100,4 +79,27 @@ public class RecentlyWatchedLoader extends GenericSimpleLoader<List<NowAdapter.N
 
         return items;
     }
+
+    private interface ActivityQuery {
+
+        String[] PROJECTION = new String[] {
+                SeriesGuideContract.Activity.TIMESTAMP,
+                SeriesGuideDatabase.Qualified.EPISODES_ID,
+                SeriesGuideContract.Episodes.TITLE,
+                SeriesGuideContract.Episodes.NUMBER,
+                SeriesGuideContract.Episodes.SEASON,
+                SeriesGuideDatabase.Qualified.SHOWS_ID,
+                SeriesGuideContract.Shows.TITLE,
+                SeriesGuideContract.Shows.POSTER
+        };
+
+        int TIMESTAMP = 0;
+        int EPISODE_TVDB_ID = 1;
+        int EPISODE_TITLE = 2;
+        int NUMBER = 3;
+        int SEASON = 4;
+        int SHOW_TVDB_ID = 5;
+        int SHOW_TITLE = 6;
+        int SHOW_POSTER = 7;
+    }
 }
@@ -17,114 +17,64 @@
 package com.battlelancer.seriesguide.loaders;
 
 import android.content.Context;
-import android.text.TextUtils;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import com.battlelancer.seriesguide.R;
 import com.battlelancer.seriesguide.adapters.NowAdapter;
-import com.battlelancer.seriesguide.settings.TraktCredentials;
-import com.battlelancer.seriesguide.util.ServiceUtils;
+import com.battlelancer.seriesguide.util.TraktFriendsHistory;
 import com.uwetrottmann.androidutils.GenericSimpleLoader;
-import com.uwetrottmann.trakt.v2.TraktV2;
-import com.uwetrottmann.trakt.v2.entities.Friend;
 import com.uwetrottmann.trakt.v2.entities.HistoryEntry;
-import com.uwetrottmann.trakt.v2.entities.Username;
-import com.uwetrottmann.trakt.v2.enums.Extended;
 import com.uwetrottmann.trakt.v2.enums.HistoryType;
-import com.uwetrottmann.trakt.v2.exceptions.OAuthUnauthorizedException;
-import com.uwetrottmann.trakt.v2.services.Users;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import retrofit.RetrofitError;
-import timber.log.Timber;
 
 /**
- * Loads trakt friends, then returns the most recently watched movie for each friend.
+ * Loads trakt friends, then returns the most recently watched movie for each friend. See {@link
+ * TraktFriendsHistory} on how results are cached.
  */
 public class TraktFriendsMovieHistoryLoader extends GenericSimpleLoader<List<NowAdapter.NowItem>> {
 
-    public TraktFriendsMovieHistoryLoader(Context context) {
+    private final boolean forceRefresh;
+
+    /**
+     * @param forceRefresh Load from trakt even if there is a recent cached result, e.g. if the
+     * user explicitly asked to refresh.
+     */
+    public TraktFriendsMovieHistoryLoader(Context context, boolean forceRefresh) {
         super(context);
+        this.forceRefresh = forceRefresh;
     }
 
     @Override
     public List<NowAdapter.NowItem> loadInBackground() {
-        TraktV2 trakt = ServiceUtils.getTraktV2WithAuth(getContext());
-        if (trakt == null) {
-            return null;
-        }
-        Users traktUsers = trakt.users();
-
-        // get all trakt friends
-        List<Friend> friends;
-        try {
-            friends = traktUsers.friends(Username.ME, Extended.IMAGES);
-        } catch (RetrofitError e) {
-            Timber.e(e, "Failed to load trakt friends");
-            return null;
-        } catch (OAuthUnauthorizedException e) {
-            TraktCredentials.get(getContext()).setCredentialsInvalid();
-            return null;
-        }
-
-        if (friends == null) {
-            return null;
-        }
+        List<NowAdapter.NowItem> items = TraktFriendsHistory.get(getContext(),
+                HistoryType.MOVIES, itemBuilder, forceRefresh);
 
-        int size = friends.size();
-        if (size == 0) {
-            return null;
+        // no friends or no history? return nothing
+        if (items == null || items.size() == 0) {
+            return items;
         }
 
-        // estimate list size
-        List<NowAdapter.NowItem> items = new ArrayList<>(size + 1);
-
         // add header
-        items.add(
+        items.add(0,
                 new NowAdapter.NowItem().header(getContext().getString(R.string.friends_recently)));
 
-        // add last watched movie for each friend
-        for (int i = 0; i < size; i++) {
-            Friend friend = friends.get(i);
-
-            // at least need a username
-            if (friend.user == null) {
-                continue;
-            }
-            String username = friend.user.username;
-            if (TextUtils.isEmpty(username)) {
-                continue;
-            }
-
-            // get last watched episode
-            List<HistoryEntry> history;
-            try {
-                history = traktUsers.history(new Username(username), HistoryType.MOVIES,
-                        1, 1, Extended.IMAGES);
-            } catch (RetrofitError e) {
-                // abort, either lost connection or server error or other error
-                Timber.e(e, "Failed to load friend movie history");
-                return null;
-            } catch (OAuthUnauthorizedException ignored) {
-                // friend might have revoked friendship just now :(
-                continue;
-            }
-
-            if (history == null || history.size() == 0) {
-                // no history
-                continue;
-            }
+        return items;
+    }
 
-            HistoryEntry entry = history.get(0);
+    private final TraktFriendsHistory.ItemBuilder itemBuilder
+            = new TraktFriendsHistory.ItemBuilder() {
+        @Nullable
+        @Override
+        public NowAdapter.NowItem build(@NonNull String username, @Nullable String avatar,
+                @NonNull HistoryEntry entry) {
             if (entry.watched_at == null || entry.movie == null) {
                 // missing required values
-                continue;
+                return null;
             }
 
             String poster = (entry.movie.images == null || entry.movie.images.poster == null) ? null
                     : entry.movie.images.poster.thumb;
-            String avatar = (friend.user.images == null || friend.user.images.avatar == null)
-                    ? null : friend.user.images.avatar.full;
-            NowAdapter.NowItem nowItem = new NowAdapter.NowItem().
+            return new NowAdapter.NowItem().
                     displayData(
                             entry.watched_at.getMillis(),
                             "",
@@ -133,14 +83,6 @@ public class TraktFriendsMovieHistoryLoader extends GenericSimpleLoader<List<Now
                     )
                     .tmdbId(entry.movie.ids == null ? null : entry.movie.ids.tmdb)
                     .friend(username, avatar, entry.action);
-            items.add(nowItem);
         }
-
-        // only have a header? return nothing
-        if (items.size() == 1) {
-            return Collections.emptyList();
-        }
-
-        return items;
-    }
+    };
 }
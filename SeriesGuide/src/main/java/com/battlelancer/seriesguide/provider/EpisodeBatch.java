@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.provider;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteException;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import com.battlelancer.seriesguide.thetvdbapi.TvdbEpisodeRecord;
+import com.battlelancer.seriesguide.util.DBUtils;
+import java.util.Arrays;
+import timber.log.Timber;
+
+/**
+ * Compact list of downloaded episodes to insert or update, stored as one primitive array per
+ * column instead of one {@link android.content.ContentValues} per episode. Applied by {@link
+ * SeriesGuideProvider} with a compiled insert and update statement in a single transaction.
+ */
+public class EpisodeBatch {
+
+    private static final String KEY_SIZE = "size";
+    private static final String KEY_IS_NEW = "isNew";
+    private static final String KEY_IDS = "ids";
+    private static final String KEY_NUMBERS = "numbers";
+    private static final String KEY_HAS_NUMBERS = "hasNumbers";
+    private static final String KEY_ABSOLUTE_NUMBERS = "absoluteNumbers";
+    private static final String KEY_HAS_ABSOLUTE_NUMBERS = "hasAbsoluteNumbers";
+    private static final String KEY_SEASONS = "seasons";
+    private static final String KEY_DVD_NUMBERS = "dvdNumbers";
+    private static final String KEY_HAS_DVD_NUMBERS = "hasDvdNumbers";
+    private static final String KEY_FIRST_AIRED = "firstAired";
+    private static final String KEY_TITLES = "titles";
+    private static final String KEY_OVERVIEWS = "overviews";
+    private static final String KEY_SEASON_IDS = "seasonIds";
+    private static final String KEY_SHOW_IDS = "showIds";
+    private static final String KEY_DIRECTORS = "directors";
+    private static final String KEY_GUEST_STARS = "guestStars";
+    private static final String KEY_WRITERS = "writers";
+    private static final String KEY_IMAGES = "images";
+    private static final String KEY_IMDB_IDS = "imdbIds";
+    private static final String KEY_LAST_EDITED = "lastEdited";
+
+    int size;
+    boolean[] isNew;
+    int[] ids;
+    int[] numbers;
+    boolean[] hasNumbers;
+    int[] absoluteNumbers;
+    boolean[] hasAbsoluteNumbers;
+    int[] seasons;
+    double[] dvdNumbers;
+    boolean[] hasDvdNumbers;
+    long[] firstAired;
+    String[] titles;
+    String[] overviews;
+    int[] seasonIds;
+    int[] showIds;
+    String[] directors;
+    String[] guestStars;
+    String[] writers;
+    String[] images;
+    String[] imdbIds;
+    long[] lastEdited;
+
+    public EpisodeBatch() {
+        this(16);
+    }
+
+    public EpisodeBatch(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        isNew = new boolean[capacity];
+        ids = new int[capacity];
+        numbers = new int[capacity];
+        hasNumbers = new boolean[capacity];
+        absoluteNumbers = new int[capacity];
+        hasAbsoluteNumbers = new boolean[capacity];
+        seasons = new int[capacity];
+        dvdNumbers = new double[capacity];
+        hasDvdNumbers = new boolean[capacity];
+        firstAired = new long[capacity];
+        titles = new String[capacity];
+        overviews = new String[capacity];
+        seasonIds = new int[capacity];
+        showIds = new int[capacity];
+        directors = new String[capacity];
+        guestStars = new String[capacity];
+        writers = new String[capacity];
+        images = new String[capacity];
+        imdbIds = new String[capacity];
+        lastEdited = new long[capacity];
+    }
+
+    /**
+     * Copies the values of the given episode.
+     *
+     * @param isNew If the episode should be inserted, otherwise the existing episode with the same
+     * id is updated.
+     */
+    public EpisodeBatch add(TvdbEpisodeRecord episode, boolean isNew) {
+        if (size == ids.length) {
+            grow(size * 2);
+        }
+        this.isNew[size] = isNew;
+        ids[size] = episode.id;
+        numbers[size] = episode.number;
+        hasNumbers[size] = episode.hasNumber;
+        absoluteNumbers[size] = episode.absoluteNumber;
+        hasAbsoluteNumbers[size] = episode.hasAbsoluteNumber;
+        seasons[size] = episode.season;
+        dvdNumbers[size] = episode.dvdNumber;
+        hasDvdNumbers[size] = episode.hasDvdNumber;
+        firstAired[size] = episode.firstAiredMs;
+        titles[size] = episode.title;
+        overviews[size] = episode.overview;
+        seasonIds[size] = episode.seasonId;
+        showIds[size] = episode.showId;
+        directors[size] = episode.directors;
+        guestStars[size] = episode.guestStars;
+        writers[size] = episode.writers;
+        images[size] = episode.image;
+        imdbIds[size] = episode.imdbId;
+        lastEdited[size] = episode.lastEdited;
+        size++;
+        return this;
+    }
+
+    private void grow(int capacity) {
+        isNew = Arrays.copyOf(isNew, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        numbers = Arrays.copyOf(numbers, capacity);
+        hasNumbers = Arrays.copyOf(hasNumbers, capacity);
+        absoluteNumbers = Arrays.copyOf(absoluteNumbers, capacity);
+        hasAbsoluteNumbers = Arrays.copyOf(hasAbsoluteNumbers, capacity);
+        seasons = Arrays.copyOf(seasons, capacity);
+        dvdNumbers = Arrays.copyOf(dvdNumbers, capacity);
+        hasDvdNumbers = Arrays.copyOf(hasDvdNumbers, capacity);
+        firstAired = Arrays.copyOf(firstAired, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        overviews = Arrays.copyOf(overviews, capacity);
+        seasonIds = Arrays.copyOf(seasonIds, capacity);
+        showIds = Arrays.copyOf(showIds, capacity);
+        directors = Arrays.copyOf(directors, capacity);
+        guestStars = Arrays.copyOf(guestStars, capacity);
+        writers = Arrays.copyOf(writers, capacity);
+        images = Arrays.copyOf(images, capacity);
+        imdbIds = Arrays.copyOf(imdbIds, capacity);
+        lastEdited = Arrays.copyOf(lastEdited, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Writes all episodes through {@link SeriesGuideProvider}. If the calling thread holds a
+     * transaction, see {@link DBUtils#beginTransaction(Context)}, the episodes are written as part
+     * of it.
+     *
+     * @return Whether all episodes were written to the database.
+     */
+    public boolean apply(Context context) {
+        if (isEmpty()) {
+            return true;
+        }
+        try {
+            Bundle result = context.getContentResolver().call(
+                    SeriesGuideContract.Episodes.CONTENT_URI,
+                    SeriesGuideContract.METHOD_APPLY_EPISODES, null, toBundle());
+            return result != null;
+        } catch (SQLiteException e) {
+            Timber.e(e, "apply: failed, database error.");
+            DBUtils.postDatabaseError(e);
+            return false;
+        }
+    }
+
+    @NonNull
+    Bundle toBundle() {
+        Bundle extras = new Bundle();
+        extras.putInt(KEY_SIZE, size);
+        extras.putBooleanArray(KEY_IS_NEW, isNew);
+        extras.putIntArray(KEY_IDS, ids);
+        extras.putIntArray(KEY_NUMBERS, numbers);
+        extras.putBooleanArray(KEY_HAS_NUMBERS, hasNumbers);
+        extras.putIntArray(KEY_ABSOLUTE_NUMBERS, absoluteNumbers);
+        extras.putBooleanArray(KEY_HAS_ABSOLUTE_NUMBERS, hasAbsoluteNumbers);
+        extras.putIntArray(KEY_SEASONS, seasons);
+        extras.putDoubleArray(KEY_DVD_NUMBERS, dvdNumbers);
+        extras.putBooleanArray(KEY_HAS_DVD_NUMBERS, hasDvdNumbers);
+        extras.putLongArray(KEY_FIRST_AIRED, firstAired);
+        extras.putStringArray(KEY_TITLES, titles);
+        extras.putStringArray(KEY_OVERVIEWS, overviews);
+        extras.putIntArray(KEY_SEASON_IDS, seasonIds);
+        extras.putIntArray(KEY_SHOW_IDS, showIds);
+        extras.putStringArray(KEY_DIRECTORS, directors);
+        extras.putStringArray(KEY_GUEST_STARS, guestStars);
+        extras.putStringArray(KEY_WRITERS, writers);
+        extras.putStringArray(KEY_IMAGES, images);
+        extras.putStringArray(KEY_IMDB_IDS, imdbIds);
+        extras.putLongArray(KEY_LAST_EDITED, lastEdited);
+        return extras;
+    }
+
+    @NonNull
+    static EpisodeBatch fromBundle(@NonNull Bundle extras) {
+        EpisodeBatch batch = new EpisodeBatch(1);
+        batch.size = extras.getInt(KEY_SIZE);
+        batch.isNew = extras.getBooleanArray(KEY_IS_NEW);
+        batch.ids = extras.getIntArray(KEY_IDS);
+        batch.numbers = extras.getIntArray(KEY_NUMBERS);
+        batch.hasNumbers = extras.getBooleanArray(KEY_HAS_NUMBERS);
+        batch.absoluteNumbers = extras.getIntArray(KEY_ABSOLUTE_NUMBERS);
+        batch.hasAbsoluteNumbers = extras.getBooleanArray(KEY_HAS_ABSOLUTE_NUMBERS);
+        batch.seasons = extras.getIntArray(KEY_SEASONS);
+        batch.dvdNumbers = extras.getDoubleArray(KEY_DVD_NUMBERS);
+        batch.hasDvdNumbers = extras.getBooleanArray(KEY_HAS_DVD_NUMBERS);
+        batch.firstAired = extras.getLongArray(KEY_FIRST_AIRED);
+        batch.titles = extras.getStringArray(KEY_TITLES);
+        batch.overviews = extras.getStringArray(KEY_OVERVIEWS);
+        batch.seasonIds = extras.getIntArray(KEY_SEASON_IDS);
+        batch.showIds = extras.getIntArray(KEY_SHOW_IDS);
+        batch.directors = extras.getStringArray(KEY_DIRECTORS);
+        batch.guestStars = extras.getStringArray(KEY_GUEST_STARS);
+        batch.writers = extras.getStringArray(KEY_WRITERS);
+        batch.images = extras.getStringArray(KEY_IMAGES);
+        batch.imdbIds = extras.getStringArray(KEY_IMDB_IDS);
+        batch.lastEdited = extras.getLongArray(KEY_LAST_EDITED);
+        if (batch.isNew == null || batch.ids == null || batch.numbers == null
+                || batch.hasNumbers == null || batch.absoluteNumbers == null
+                || batch.hasAbsoluteNumbers == null || batch.seasons == null
+                || batch.dvdNumbers == null || batch.hasDvdNumbers == null
+                || batch.firstAired == null || batch.titles == null
+                || batch.overviews == null || batch.seasonIds == null || batch.showIds == null
+                || batch.directors == null || batch.guestStars == null || batch.writers == null
+                || batch.images == null || batch.imdbIds == null || batch.lastEdited == null) {
+            throw new IllegalArgumentException("Incomplete episode batch");
+        }
+        int size = batch.size;
+        if (size < 0 || batch.isNew.length < size || batch.ids.length < size
+                || batch.numbers.length < size || batch.hasNumbers.length < size
+                || batch.absoluteNumbers.length < size || batch.hasAbsoluteNumbers.length < size
+                || batch.seasons.length < size || batch.dvdNumbers.length < size
+                || batch.hasDvdNumbers.length < size || batch.firstAired.length < size
+                || batch.titles.length < size || batch.overviews.length < size
+                || batch.seasonIds.length < size || batch.showIds.length < size
+                || batch.directors.length < size || batch.guestStars.length < size
+                || batch.writers.length < size || batch.images.length < size
+                || batch.imdbIds.length < size || batch.lastEdited.length < size) {
+            throw new IllegalArgumentException("Episode batch size " + size
+                    + " exceeds its values");
+        }
+        return batch;
+    }
+}
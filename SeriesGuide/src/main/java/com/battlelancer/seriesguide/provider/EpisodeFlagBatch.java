@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.provider;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteException;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import com.battlelancer.seriesguide.util.DBUtils;
+import java.util.Arrays;
+import timber.log.Timber;
+
+/**
+ * Compact list of episode flag changes identified by show TVDb id, season and episode number.
+ * Applied by {@link SeriesGuideProvider} with a few set-based statements in a single transaction,
+ * instead of one update statement per episode.
+ */
+public class EpisodeFlagBatch {
+
+    /**
+     * Use as watched or collected value to keep the current value of an episode.
+     */
+    public static final int NO_CHANGE = -1;
+
+    private static final String KEY_SIZE = "size";
+    private static final String KEY_SHOW_TVDB_IDS = "showTvdbIds";
+    private static final String KEY_SEASONS = "seasons";
+    private static final String KEY_NUMBERS = "numbers";
+    private static final String KEY_WATCHED = "watched";
+    private static final String KEY_COLLECTED = "collected";
+    private static final String KEY_CLEAR_SHOW_TVDB_ID = "clearShowTvdbId";
+    private static final String KEY_CLEAR_WATCHED = "clearWatched";
+    private static final String KEY_CLEAR_COLLECTED = "clearCollected";
+
+    int size;
+    int[] showTvdbIds;
+    int[] seasons;
+    int[] numbers;
+    int[] watched;
+    int[] collected;
+
+    int clearShowTvdbId;
+    boolean clearWatched;
+    boolean clearCollected;
+
+    public EpisodeFlagBatch() {
+        this(16);
+    }
+
+    public EpisodeFlagBatch(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        showTvdbIds = new int[capacity];
+        seasons = new int[capacity];
+        numbers = new int[capacity];
+        watched = new int[capacity];
+        collected = new int[capacity];
+    }
+
+    /**
+     * Adds a change for a single episode.
+     *
+     * @param watchedFlag One of {@link com.battlelancer.seriesguide.enums.EpisodeFlags} or {@link
+     * #NO_CHANGE}.
+     * @param collectedFlag 1 if collected, 0 if not or {@link #NO_CHANGE}.
+     */
+    public EpisodeFlagBatch add(int showTvdbId, int season, int number, int watchedFlag,
+            int collectedFlag) {
+        if (size == showTvdbIds.length) {
+            int capacity = size * 2;
+            showTvdbIds = Arrays.copyOf(showTvdbIds, capacity);
+            seasons = Arrays.copyOf(seasons, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+            watched = Arrays.copyOf(watched, capacity);
+            collected = Arrays.copyOf(collected, capacity);
+        }
+        showTvdbIds[size] = showTvdbId;
+        seasons[size] = season;
+        numbers[size] = number;
+        watched[size] = watchedFlag;
+        collected[size] = collectedFlag;
+        size++;
+        return this;
+    }
+
+    /**
+     * Before applying any changes, removes the watched flag (not skipped) and/or the collected
+     * flag from all episodes of the given show. Both happen in the same transaction.
+     */
+    public EpisodeFlagBatch clearFlagsOfShow(int showTvdbId, boolean watched, boolean collected) {
+        this.clearShowTvdbId = showTvdbId;
+        this.clearWatched = watched;
+        this.clearCollected = collected;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0 && clearShowTvdbId == 0;
+    }
+
+    /**
+     * Applies all changes through {@link SeriesGuideProvider}.
+     *
+     * @return Whether all changes were written to the database.
+     */
+    public boolean apply(Context context) {
+        if (isEmpty()) {
+            return true;
+        }
+        try {
+            Bundle result = context.getContentResolver().call(
+                    SeriesGuideContract.Episodes.CONTENT_URI,
+                    SeriesGuideContract.METHOD_APPLY_EPISODE_FLAGS, null, toBundle());
+            return result != null;
+        } catch (SQLiteException e) {
+            Timber.e(e, "apply: failed, database error.");
+            DBUtils.postDatabaseError(e);
+            return false;
+        }
+    }
+
+    @NonNull
+    Bundle toBundle() {
+        Bundle extras = new Bundle();
+        extras.putInt(KEY_SIZE, size);
+        extras.putIntArray(KEY_SHOW_TVDB_IDS, showTvdbIds);
+        extras.putIntArray(KEY_SEASONS, seasons);
+        extras.putIntArray(KEY_NUMBERS, numbers);
+        extras.putIntArray(KEY_WATCHED, watched);
+        extras.putIntArray(KEY_COLLECTED, collected);
+        extras.putInt(KEY_CLEAR_SHOW_TVDB_ID, clearShowTvdbId);
+        extras.putBoolean(KEY_CLEAR_WATCHED, clearWatched);
+        extras.putBoolean(KEY_CLEAR_COLLECTED, clearCollected);
+        return extras;
+    }
+
+    @NonNull
+    static EpisodeFlagBatch fromBundle(@NonNull Bundle extras) {
+        EpisodeFlagBatch batch = new EpisodeFlagBatch(1);
+        batch.size = extras.getInt(KEY_SIZE);
+        batch.showTvdbIds = extras.getIntArray(KEY_SHOW_TVDB_IDS);
+        batch.seasons = extras.getIntArray(KEY_SEASONS);
+        batch.numbers = extras.getIntArray(KEY_NUMBERS);
+        batch.watched = extras.getIntArray(KEY_WATCHED);
+        batch.collected = extras.getIntArray(KEY_COLLECTED);
+        batch.clearShowTvdbId = extras.getInt(KEY_CLEAR_SHOW_TVDB_ID);
+        batch.clearWatched = extras.getBoolean(KEY_CLEAR_WATCHED);
+        batch.clearCollected = extras.getBoolean(KEY_CLEAR_COLLECTED);
+        if (batch.showTvdbIds == null || batch.seasons == null || batch.numbers == null
+                || batch.watched == null || batch.collected == null) {
+            throw new IllegalArgumentException("Incomplete episode flag batch");
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.provider;
+
+import android.net.Uri;
+import android.text.TextUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Collects change notification URIs while notifications are held by {@link SeriesGuideProvider},
+ * e.g. during a batch operation or a sync. Holds may be nested, only releasing the outermost one
+ * sends notifications.
+ */
+class PendingNotifications {
+
+    private static final Comparator<Uri> BY_PATH_LENGTH = new Comparator<Uri>() {
+        @Override
+        public int compare(Uri lhs, Uri rhs) {
+            int lhsSize = lhs.getPathSegments().size();
+            int rhsSize = rhs.getPathSegments().size();
+            return lhsSize < rhsSize ? -1 : (lhsSize == rhsSize ? 0 : 1);
+        }
+    };
+
+    private final LinkedHashSet<Uri> uris = new LinkedHashSet<>();
+    private int holdCount;
+
+    void hold() {
+        holdCount++;
+    }
+
+    /**
+     * @return {@code true} if this released the outermost hold.
+     */
+    boolean release() {
+        if (holdCount > 0) {
+            holdCount--;
+        }
+        return holdCount == 0;
+    }
+
+    void add(Uri uri) {
+        uris.add(uri);
+    }
+
+    /**
+     * Returns the collected URIs without duplicates and without any URI that is already covered
+     * by one of its parent URIs. Notifying a parent URI also notifies observers of its
+     * descendants.
+     */
+    List<Uri> coalesce() {
+        List<Uri> sorted = new ArrayList<>(uris);
+        Collections.sort(sorted, BY_PATH_LENGTH);
+
+        List<Uri> result = new ArrayList<>(sorted.size());
+        for (Uri uri : sorted) {
+            boolean isCovered = false;
+            for (Uri parent : result) {
+                if (isParentOrSame(parent, uri)) {
+                    isCovered = true;
+                    break;
+                }
+            }
+            if (!isCovered) {
+                result.add(uri);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isParentOrSame(Uri parent, Uri uri) {
+        if (!TextUtils.equals(parent.getScheme(), uri.getScheme())
+                || !TextUtils.equals(parent.getAuthority(), uri.getAuthority())) {
+            return false;
+        }
+        List<String> parentSegments = parent.getPathSegments();
+        List<String> segments = uri.getPathSegments();
+        if (parentSegments.size() > segments.size()) {
+            return false;
+        }
+        for (int i = 0; i < parentSegments.size(); i++) {
+            if (!parentSegments.get(i).equals(segments.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -145,6 +145,17 @@ public class SeriesGuideContract {
          */
         String RELEASE_COUNTRY = "series_airtime";
 
+        /**
+         * The device time zone used to calculate the release times of all episodes when they were
+         * last written, see {@link com.battlelancer.seriesguide.util.TimeTools}.
+         *
+         * <pre>
+         * Example: "America/Los_Angeles"
+         * Default: "" (unknown)
+         * </pre>
+         */
+        String RELEASE_DEVICE_TIMEZONE = "series_device_timezone";
+
         /**
          * @deprecated Cast information is fetched from TMDB.
          */
@@ -163,6 +174,17 @@ public class SeriesGuideContract {
          */
         String TRAKT_ID = "series_trakt_id";
 
+        /**
+         * When {@link #TRAKT_ID} was last looked up on trakt by the TVDb id of this show, also if
+         * the show was not found on trakt.
+         *
+         * <pre>
+         * Range:   long (ms)
+         * Default: 0 (never)
+         * </pre>
+         */
+        String TRAKT_ID_VERIFIED = "series_trakt_id_verified";
+
         /**
          * Whether this show has been favorited.
          */
@@ -221,12 +243,7 @@ public class SeriesGuideContract {
         String NEXTAIRDATEMS = "series_nextairdate";
 
         /**
-         * Next episode release time formatted as text.
-         *
-         * <pre>
-         * Example: "Apr 2 (Mon)"
-         * Default: ""
-         * </pre>
+         * @deprecated No longer written, format {@link #NEXTAIRDATEMS} when displaying instead.
          */
         String NEXTAIRDATETEXT = "series_nextairdatetext";
 
@@ -526,6 +543,78 @@ public class SeriesGuideContract {
         String SHOW_TVDB_ID = "activity_show";
     }
 
+    interface EpisodeFlagOutboxColumns {
+
+        String EPISODE_TVDB_ID = "outbox_episode";
+
+        String SHOW_TVDB_ID = "outbox_show";
+
+        String SEASON = "outbox_season";
+
+        String NUMBER = "outbox_number";
+
+        /**
+         * One of {@link EpisodeFlagOutbox#TYPE_WATCHED} or {@link
+         * EpisodeFlagOutbox#TYPE_COLLECTED}.
+         */
+        String TYPE = "outbox_type";
+
+        /**
+         * The flag to upload.
+         */
+        String VALUE = "outbox_value";
+
+        /**
+         * The flag last sent to (or received from) Hexagon or trakt. If a change sets {@link
+         * #VALUE} back to this, there is nothing to upload and the row is removed.
+         */
+        String VALUE_SYNCED = "outbox_value_synced";
+
+        /**
+         * Number of failed uploads since the last change.
+         */
+        String ATTEMPTS = "outbox_attempts";
+
+        /**
+         * Time in ms before which no upload should be tried again.
+         */
+        String RETRY_AT = "outbox_retry_at";
+
+        /**
+         * Set to 1 while the change is being uploaded. Such a change is not removed if {@link
+         * #VALUE} is set back to {@link #VALUE_SYNCED}, as the upload may still change the value on
+         * the server.
+         */
+        String UPLOADING = "outbox_uploading";
+    }
+
+    interface SyncHistoryColumns {
+
+        /**
+         * Time in ms when the sync started.
+         */
+        String START_TIME = "sync_start";
+
+        String TYPE = "sync_type";
+
+        String RESULT = "sync_result";
+
+        /**
+         * Wall time of the sync in ms.
+         */
+        String DURATION = "sync_duration";
+
+        /**
+         * Version name of the app which ran the sync.
+         */
+        String APP_VERSION = "sync_app_version";
+
+        /**
+         * Statistics of each phase and show of the sync encoded as JSON.
+         */
+        String DETAILS = "sync_details";
+    }
+
     private static final Uri BASE_CONTENT_URI = Uri.parse("content://"
             + SeriesGuideApplication.CONTENT_AUTHORITY);
 
@@ -545,6 +634,113 @@ public class SeriesGuideContract {
 
     public static final String PATH_RENEWFTSTABLE = "renewftstable";
 
+    /**
+     * Provider method to apply an {@link EpisodeFlagBatch}, see {@link EpisodeFlagBatch#apply}.
+     */
+    public static final String METHOD_APPLY_EPISODE_FLAGS = "applyEpisodeFlags";
+
+    /**
+     * Provider method to insert or update the episodes of an {@link EpisodeBatch}, see {@link
+     * EpisodeBatch#apply}.
+     */
+    public static final String METHOD_APPLY_EPISODES = "applyEpisodes";
+
+    /**
+     * Provider method to update the next episode of all shows, or of the show with the TVDb id
+     * given as argument. Expects {@link #EXTRA_HIDE_SPECIALS}, {@link #EXTRA_NO_RELEASED_EPISODES},
+     * {@link #EXTRA_CURRENT_TIME} and {@link #EXTRA_NUMBER_FORMAT}. If a show was given, returns
+     * the TVDb id of its next episode with {@link #EXTRA_NEXT_EPISODE}.
+     */
+    public static final String METHOD_UPDATE_NEXT_EPISODES = "updateNextEpisodes";
+
+    /**
+     * Provider method to recount the episodes of all seasons, of all seasons of the show given
+     * with {@link #EXTRA_SHOW_TVDB_ID} or of the season given with {@link #EXTRA_SEASON_TVDB_ID}.
+     * Expects {@link #EXTRA_CURRENT_TIME}.
+     */
+    public static final String METHOD_UPDATE_SEASON_COUNTS = "updateSeasonCounts";
+
+    public static final String EXTRA_SHOW_TVDB_ID = "showTvdbId";
+
+    public static final String EXTRA_SEASON_TVDB_ID = "seasonTvdbId";
+
+    public static final String EXTRA_HIDE_SPECIALS = "hideSpecials";
+
+    public static final String EXTRA_NO_RELEASED_EPISODES = "noReleasedEpisodes";
+
+    public static final String EXTRA_CURRENT_TIME = "currentTime";
+
+    public static final String EXTRA_NUMBER_FORMAT = "numberFormat";
+
+    public static final String EXTRA_NEXT_EPISODE = "nextEpisode";
+
+    /**
+     * Provider method to count shows, episodes and movies and sum up their runtime, see the
+     * {@code EXTRA_STATS_*} result keys. Runtimes are in minutes. Expects {@link
+     * #EXTRA_HIDE_SPECIALS}.
+     */
+    public static final String METHOD_GET_STATS = "getStats";
+
+    public static final String EXTRA_STATS_SHOWS = "statsShows";
+
+    public static final String EXTRA_STATS_SHOWS_CONTINUING = "statsShowsContinuing";
+
+    public static final String EXTRA_STATS_SHOWS_WITH_NEXT = "statsShowsWithNext";
+
+    public static final String EXTRA_STATS_EPISODES = "statsEpisodes";
+
+    public static final String EXTRA_STATS_EPISODES_WATCHED = "statsEpisodesWatched";
+
+    public static final String EXTRA_STATS_EPISODES_WATCHED_RUNTIME = "statsEpisodesWatchedRuntime";
+
+    public static final String EXTRA_STATS_MOVIES = "statsMovies";
+
+    public static final String EXTRA_STATS_MOVIES_WATCHLIST = "statsMoviesWatchlist";
+
+    public static final String EXTRA_STATS_MOVIES_WATCHLIST_RUNTIME
+            = "statsMoviesWatchlistRuntime";
+
+    /**
+     * Provider method to set the flag given with {@link #EXTRA_FLAG_TYPE} and {@link
+     * #EXTRA_FLAG_VALUE} of all episodes matching the selection given as argument. If {@link
+     * #EXTRA_QUEUE_UPLOAD} is set, also adds the changes to the {@link EpisodeFlagOutbox}. Only
+     * supported for callers in the same process.
+     */
+    public static final String METHOD_UPDATE_EPISODE_FLAGS = "updateEpisodeFlags";
+
+    public static final String EXTRA_FLAG_TYPE = "flagType";
+
+    public static final String EXTRA_FLAG_VALUE = "flagValue";
+
+    public static final String EXTRA_QUEUE_UPLOAD = "queueUpload";
+
+    /**
+     * Provider method to hold back change notifications of the calling thread until {@link
+     * #METHOD_RELEASE_NOTIFICATIONS} is called. Only supported for callers in the same process.
+     */
+    public static final String METHOD_HOLD_NOTIFICATIONS = "holdNotifications";
+
+    /**
+     * Provider method to send all change notifications held back since {@link
+     * #METHOD_HOLD_NOTIFICATIONS}.
+     */
+    public static final String METHOD_RELEASE_NOTIFICATIONS = "releaseNotifications";
+
+    /**
+     * Provider method to begin a transaction on the calling thread, which includes all following
+     * changes of this thread until {@link #METHOD_END_TRANSACTION} is called. Also holds back
+     * change notifications. Only supported for callers in the same process.
+     */
+    public static final String METHOD_BEGIN_TRANSACTION = "beginTransaction";
+
+    /**
+     * Provider method to end a transaction started with {@link #METHOD_BEGIN_TRANSACTION}. Commits
+     * if the argument is {@link #ARG_SUCCESSFUL}, otherwise rolls back.
+     */
+    public static final String METHOD_END_TRANSACTION = "endTransaction";
+
+    public static final String ARG_SUCCESSFUL = "successful";
+
     public static final String PATH_SEARCH = "search";
 
     public static final String PATH_FILTER = "filter";
@@ -565,6 +761,17 @@ public class SeriesGuideContract {
 
     public static final String PATH_ACTIVITY = "activity";
 
+    public static final String PATH_WITH_EPISODE = "with_episode";
+
+    /**
+     * Query parameter limiting the number of rows returned, e.g. "?limit=10".
+     */
+    public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+    public static final String PATH_EPISODE_FLAG_OUTBOX = "episode_flag_outbox";
+
+    public static final String PATH_SYNC_HISTORY = "sync_history";
+
     public static class Shows implements ShowsColumns, BaseColumns {
 
         public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
@@ -925,6 +1132,14 @@ public class SeriesGuideContract {
                 .appendPath(PATH_ACTIVITY)
                 .build();
 
+        /**
+         * Activity joined with the episode and its show. Activity of episodes no longer in the
+         * database is excluded.
+         */
+        public static final Uri CONTENT_URI_WITH_EPISODE = CONTENT_URI.buildUpon()
+                .appendPath(PATH_WITH_EPISODE)
+                .build();
+
         /**
          * Use if multiple items get returned
          */
@@ -933,6 +1148,61 @@ public class SeriesGuideContract {
         public static Uri buildActivityUri(String episodeTvdbId) {
             return CONTENT_URI.buildUpon().appendPath(episodeTvdbId).build();
         }
+
+        /**
+         * See {@link #CONTENT_URI_WITH_EPISODE}, returns at most the given number of rows.
+         */
+        public static Uri buildActivityWithEpisodeUri(int limit) {
+            return CONTENT_URI_WITH_EPISODE.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_LIMIT, String.valueOf(limit))
+                    .build();
+        }
+    }
+
+    /**
+     * Episode flag changes not yet uploaded to Hexagon or trakt, at most one per episode and
+     * {@link #TYPE}.
+     */
+    public static class EpisodeFlagOutbox implements EpisodeFlagOutboxColumns, BaseColumns {
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_EPISODE_FLAG_OUTBOX)
+                .build();
+
+        /**
+         * Use if multiple items get returned
+         */
+        public static final String CONTENT_TYPE
+                = "vnd.android.cursor.dir/vnd.seriesguide.episodeflagoutbox";
+
+        /**
+         * The watched flag, see {@link com.battlelancer.seriesguide.enums.EpisodeFlags}.
+         */
+        public static final int TYPE_WATCHED = 0;
+
+        /**
+         * The collected flag, 1 if collected, 0 if not.
+         */
+        public static final int TYPE_COLLECTED = 1;
+    }
+
+    /**
+     * Statistics of the most recent sync runs, see {@link
+     * com.battlelancer.seriesguide.sync.SyncProfiler}.
+     */
+    public static class SyncHistory implements SyncHistoryColumns, BaseColumns {
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_SYNC_HISTORY)
+                .build();
+
+        /**
+         * Use if multiple items get returned
+         */
+        public static final String CONTENT_TYPE
+                = "vnd.android.cursor.dir/vnd.seriesguide.synchistory";
+
+        public static final String SORT_LATEST_FIRST = _ID + " DESC";
     }
 
     private SeriesGuideContract() {
@@ -20,11 +20,18 @@ import android.app.SearchManager;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Bundle;
 import android.provider.BaseColumns;
 import android.support.annotation.Nullable;
+import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.enums.SeasonTags;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeFlagOutbox;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeFlagOutboxColumns;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeSearch;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeSearchColumns;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
@@ -36,8 +43,11 @@ import com.battlelancer.seriesguide.provider.SeriesGuideContract.MoviesColumns;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.SeasonsColumns;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.ShowsColumns;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.SyncHistoryColumns;
+import com.battlelancer.seriesguide.settings.DisplaySettings;
 import com.battlelancer.seriesguide.util.DBUtils;
 import com.battlelancer.seriesguide.util.TimeTools;
+import com.battlelancer.seriesguide.util.TitleTools;
 import java.util.Calendar;
 import java.util.TimeZone;
 import org.joda.time.DateTimeZone;
@@ -148,7 +158,42 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
      */
     private static final int DBVER_38_SHOW_TRAKT_ID = 38;
 
-    public static final int DATABASE_VERSION = DBVER_38_SHOW_TRAKT_ID;
+    /**
+     * Added indexes on episodes, seasons and list items tables for frequently filtered columns.
+     */
+    private static final int DBVER_39_INDEXES = 39;
+
+    /**
+     * Added triggers to keep the episode search table up to date instead of rebuilding it.
+     */
+    private static final int DBVER_40_SEARCH_TRIGGERS = 40;
+
+    /**
+     * Added column to shows table storing the device time zone used for episode release times.
+     */
+    private static final int DBVER_41_RELEASE_DEVICE_TIMEZONE = 41;
+
+    /**
+     * Added outbox table for episode flag changes not yet uploaded.
+     */
+    private static final int DBVER_42_EPISODE_FLAG_OUTBOX = 42;
+
+    /**
+     * Added column to shows table storing when the trakt id was last looked up.
+     */
+    private static final int DBVER_43_TRAKT_ID_VERIFIED = 43;
+
+    /**
+     * Added index on activity time.
+     */
+    private static final int DBVER_44_ACTIVITY_INDEX = 44;
+
+    /**
+     * Added table storing statistics of the last sync runs.
+     */
+    private static final int DBVER_45_SYNC_HISTORY = 45;
+
+    public static final int DATABASE_VERSION = DBVER_45_SYNC_HISTORY;
 
     /**
      * Qualifies column names by prefixing their {@link Tables} name.
@@ -160,6 +205,7 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
         String SHOWS_NEXT_EPISODE = Tables.SHOWS + "." + Shows.NEXTEPISODE;
         String EPISODES_ID = Tables.EPISODES + "." + Episodes._ID;
         String EPISODES_SHOW_ID = Tables.EPISODES + "." + Shows.REF_SHOW_ID;
+        String ACTIVITY_EPISODE = Tables.ACTIVITY + "." + ActivityColumns.EPISODE_TVDB_ID;
         String SEASONS_ID = Tables.SEASONS + "." + Seasons._ID;
         String SEASONS_SHOW_ID = Tables.SEASONS + "." + Shows.REF_SHOW_ID;
         String LIST_ITEMS_REF_ID = Tables.LIST_ITEMS + "." + ListItems.ITEM_REF_ID;
@@ -219,6 +265,76 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
         String MOVIES = "movies";
 
         String ACTIVITY = "activity";
+
+        /**
+         * Only activity of episodes (and their shows) that still exist.
+         */
+        String ACTIVITY_JOIN_EPISODES_JOIN_SHOWS = ACTIVITY
+                + " JOIN " + EPISODES + " ON " + Qualified.ACTIVITY_EPISODE + "="
+                + Qualified.EPISODES_ID
+                + " JOIN " + SHOWS + " ON " + Qualified.EPISODES_SHOW_ID + "="
+                + Qualified.SHOWS_ID;
+
+        String EPISODE_FLAG_OUTBOX = "episode_flag_outbox";
+
+        String SYNC_HISTORY = "sync_history";
+
+        /**
+         * Temporary table used to apply an {@link EpisodeFlagBatch}.
+         */
+        String EPISODE_FLAGS_TEMP = "temp.episode_flags";
+
+        /**
+         * Temporary table used to update the next episode of shows, see {@link
+         * #updateNextEpisodes}.
+         */
+        String NEXT_EPISODES_TEMP = "temp.next_episodes";
+
+        /**
+         * Temporary table used to update episode counts of seasons, see {@link
+         * #updateSeasonCounts}.
+         */
+        String SEASON_COUNTS_TEMP = "temp.season_counts";
+    }
+
+    public interface Indexes {
+
+        /**
+         * Episodes of a show, also lookups of a single episode by show, season and number (e.g.
+         * when applying flags downloaded from trakt or hexagon).
+         */
+        String EPISODES_SHOW_SEASON_NUMBER = "index_episodes_show_season_number";
+
+        String EPISODES_SEASON = "index_episodes_season";
+
+        /**
+         * Calendar, next episode and notification queries filtering by release time.
+         */
+        String EPISODES_RELEASE_TIME = "index_episodes_release_time";
+
+        String SEASONS_SHOW = "index_seasons_show";
+
+        String LIST_ITEMS_LIST = "index_list_items_list";
+
+        /**
+         * Recently watched queries and removing outdated activity.
+         */
+        String ACTIVITY_TIME = "index_activity_time";
+    }
+
+    /**
+     * Triggers keeping {@link Tables#EPISODES_SEARCH} in sync with {@link Tables#EPISODES}.
+     */
+    public interface Triggers {
+
+        String EPISODES_SEARCH_INSERT = "trigger_episodes_search_insert";
+
+        /**
+         * Only runs if the title or overview changes, not for example for flag changes.
+         */
+        String EPISODES_SEARCH_UPDATE = "trigger_episodes_search_update";
+
+        String EPISODES_SEARCH_DELETE = "trigger_episodes_search_delete";
     }
 
     private interface Selections {
@@ -362,7 +478,11 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
 
             + ShowsColumns.LASTWATCHEDID + " INTEGER DEFAULT 0,"
 
-            + ShowsColumns.LANGUAGE + " TEXT DEFAULT ''"
+            + ShowsColumns.LANGUAGE + " TEXT DEFAULT '',"
+
+            + ShowsColumns.RELEASE_DEVICE_TIMEZONE + " TEXT DEFAULT '',"
+
+            + ShowsColumns.TRAKT_ID_VERIFIED + " INTEGER DEFAULT 0"
 
             + ");";
 
@@ -443,6 +563,31 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
 
             + ");";
 
+    private static final String INSERT_SEARCH_ROW = "INSERT INTO " + Tables.EPISODES_SEARCH
+            + "(" + EpisodeSearchColumns._DOCID + "," + EpisodeSearchColumns.TITLE + ","
+            + EpisodeSearchColumns.OVERVIEW + ")"
+            + " VALUES (new." + Episodes._ID + ",new." + Episodes.TITLE + ",new."
+            + Episodes.OVERVIEW + ");";
+
+    private static final String DELETE_SEARCH_ROW = "DELETE FROM " + Tables.EPISODES_SEARCH
+            + " WHERE " + EpisodeSearchColumns._DOCID + "=old." + Episodes._ID + ";";
+
+    private static final String CREATE_TRIGGER_EPISODES_SEARCH_INSERT =
+            "CREATE TRIGGER IF NOT EXISTS " + Triggers.EPISODES_SEARCH_INSERT
+                    + " AFTER INSERT ON " + Tables.EPISODES
+                    + " BEGIN " + INSERT_SEARCH_ROW + " END;";
+
+    private static final String CREATE_TRIGGER_EPISODES_SEARCH_UPDATE =
+            "CREATE TRIGGER IF NOT EXISTS " + Triggers.EPISODES_SEARCH_UPDATE
+                    + " AFTER UPDATE OF " + Episodes._ID + "," + Episodes.TITLE + ","
+                    + Episodes.OVERVIEW + " ON " + Tables.EPISODES
+                    + " BEGIN " + DELETE_SEARCH_ROW + INSERT_SEARCH_ROW + " END;";
+
+    private static final String CREATE_TRIGGER_EPISODES_SEARCH_DELETE =
+            "CREATE TRIGGER IF NOT EXISTS " + Triggers.EPISODES_SEARCH_DELETE
+                    + " AFTER DELETE ON " + Tables.EPISODES
+                    + " BEGIN " + DELETE_SEARCH_ROW + " END;";
+
     private static final String CREATE_LISTS_TABLE = "CREATE TABLE " + Tables.LISTS
             + " ("
 
@@ -535,6 +680,72 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
             + "UNIQUE (" + ActivityColumns.EPISODE_TVDB_ID + ") ON CONFLICT REPLACE"
             + ");";
 
+    private static final String CREATE_EPISODE_FLAG_OUTBOX_TABLE = "CREATE TABLE "
+            + Tables.EPISODE_FLAG_OUTBOX + " ("
+            + BaseColumns._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + EpisodeFlagOutboxColumns.EPISODE_TVDB_ID + " INTEGER NOT NULL,"
+            + EpisodeFlagOutboxColumns.SHOW_TVDB_ID + " INTEGER NOT NULL,"
+            + EpisodeFlagOutboxColumns.SEASON + " INTEGER NOT NULL,"
+            + EpisodeFlagOutboxColumns.NUMBER + " INTEGER NOT NULL,"
+            + EpisodeFlagOutboxColumns.TYPE + " INTEGER NOT NULL,"
+            + EpisodeFlagOutboxColumns.VALUE + " INTEGER NOT NULL,"
+            + EpisodeFlagOutboxColumns.VALUE_SYNCED + " INTEGER NOT NULL,"
+            + EpisodeFlagOutboxColumns.ATTEMPTS + " INTEGER DEFAULT 0,"
+            + EpisodeFlagOutboxColumns.RETRY_AT + " INTEGER DEFAULT 0,"
+            + EpisodeFlagOutboxColumns.UPLOADING + " INTEGER DEFAULT 0,"
+            + "UNIQUE (" + EpisodeFlagOutboxColumns.EPISODE_TVDB_ID + ","
+            + EpisodeFlagOutboxColumns.TYPE + ")"
+            + ");";
+
+    private static final String CREATE_SYNC_HISTORY_TABLE = "CREATE TABLE "
+            + Tables.SYNC_HISTORY + " ("
+            + BaseColumns._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + SyncHistoryColumns.START_TIME + " INTEGER NOT NULL,"
+            + SyncHistoryColumns.TYPE + " TEXT NOT NULL,"
+            + SyncHistoryColumns.RESULT + " TEXT NOT NULL,"
+            + SyncHistoryColumns.DURATION + " INTEGER NOT NULL,"
+            + SyncHistoryColumns.APP_VERSION + " TEXT,"
+            + SyncHistoryColumns.DETAILS + " TEXT"
+            + ");";
+
+    private static final String CREATE_INDEX_EPISODES_SHOW_SEASON_NUMBER =
+            "CREATE INDEX IF NOT EXISTS " + Indexes.EPISODES_SHOW_SEASON_NUMBER
+                    + " ON " + Tables.EPISODES + " ("
+                    + ShowsColumns.REF_SHOW_ID + ","
+                    + EpisodesColumns.SEASON + ","
+                    + EpisodesColumns.NUMBER
+                    + ");";
+
+    private static final String CREATE_INDEX_EPISODES_SEASON =
+            "CREATE INDEX IF NOT EXISTS " + Indexes.EPISODES_SEASON
+                    + " ON " + Tables.EPISODES + " ("
+                    + SeasonsColumns.REF_SEASON_ID
+                    + ");";
+
+    private static final String CREATE_INDEX_EPISODES_RELEASE_TIME =
+            "CREATE INDEX IF NOT EXISTS " + Indexes.EPISODES_RELEASE_TIME
+                    + " ON " + Tables.EPISODES + " ("
+                    + EpisodesColumns.FIRSTAIREDMS
+                    + ");";
+
+    private static final String CREATE_INDEX_SEASONS_SHOW =
+            "CREATE INDEX IF NOT EXISTS " + Indexes.SEASONS_SHOW
+                    + " ON " + Tables.SEASONS + " ("
+                    + ShowsColumns.REF_SHOW_ID
+                    + ");";
+
+    private static final String CREATE_INDEX_LIST_ITEMS_LIST =
+            "CREATE INDEX IF NOT EXISTS " + Indexes.LIST_ITEMS_LIST
+                    + " ON " + Tables.LIST_ITEMS + " ("
+                    + ListsColumns.LIST_ID
+                    + ");";
+
+    private static final String CREATE_INDEX_ACTIVITY_TIME =
+            "CREATE INDEX IF NOT EXISTS " + Indexes.ACTIVITY_TIME
+                    + " ON " + Tables.ACTIVITY + " ("
+                    + ActivityColumns.TIMESTAMP
+                    + ");";
+
     public SeriesGuideDatabase(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
@@ -556,6 +767,35 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
         db.execSQL(CREATE_MOVIES_TABLE);
 
         db.execSQL(CREATE_ACTIVITY_TABLE);
+
+        db.execSQL(CREATE_EPISODE_FLAG_OUTBOX_TABLE);
+
+        db.execSQL(CREATE_SYNC_HISTORY_TABLE);
+
+        createIndexes(db);
+
+        createSearchTriggers(db);
+    }
+
+    private static void createSearchTriggers(SQLiteDatabase db) {
+        db.execSQL(CREATE_TRIGGER_EPISODES_SEARCH_INSERT);
+        db.execSQL(CREATE_TRIGGER_EPISODES_SEARCH_UPDATE);
+        db.execSQL(CREATE_TRIGGER_EPISODES_SEARCH_DELETE);
+    }
+
+    private static void dropSearchTriggers(SQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.EPISODES_SEARCH_INSERT);
+        db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.EPISODES_SEARCH_UPDATE);
+        db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.EPISODES_SEARCH_DELETE);
+    }
+
+    private static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(CREATE_INDEX_EPISODES_SHOW_SEASON_NUMBER);
+        db.execSQL(CREATE_INDEX_EPISODES_SEASON);
+        db.execSQL(CREATE_INDEX_EPISODES_RELEASE_TIME);
+        db.execSQL(CREATE_INDEX_SEASONS_SHOW);
+        db.execSQL(CREATE_INDEX_LIST_ITEMS_LIST);
+        db.execSQL(CREATE_INDEX_ACTIVITY_TIME);
     }
 
     @Override
@@ -615,7 +855,21 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
                 upgradeToThirtySeven(db);
             case DBVER_37_LANGUAGE_PER_SERIES:
                 upgradeToThirtyEight(db);
-                version = DBVER_38_SHOW_TRAKT_ID;
+            case DBVER_38_SHOW_TRAKT_ID:
+                upgradeToThirtyNine(db);
+            case DBVER_39_INDEXES:
+                upgradeToForty(db);
+            case DBVER_40_SEARCH_TRIGGERS:
+                upgradeToFortyOne(db);
+            case DBVER_41_RELEASE_DEVICE_TIMEZONE:
+                upgradeToFortyTwo(db);
+            case DBVER_42_EPISODE_FLAG_OUTBOX:
+                upgradeToFortyThree(db);
+            case DBVER_43_TRAKT_ID_VERIFIED:
+                upgradeToFortyFour(db);
+            case DBVER_44_ACTIVITY_INDEX:
+                upgradeToFortyFive(db);
+                version = DBVER_45_SYNC_HISTORY;
         }
 
         // drop all tables if version is not right
@@ -637,12 +891,83 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
         db.execSQL("DROP TABLE IF EXISTS " + Tables.LIST_ITEMS);
         db.execSQL("DROP TABLE IF EXISTS " + Tables.MOVIES);
         db.execSQL("DROP TABLE IF EXISTS " + Tables.ACTIVITY);
+        db.execSQL("DROP TABLE IF EXISTS " + Tables.EPISODE_FLAG_OUTBOX);
+        db.execSQL("DROP TABLE IF EXISTS " + Tables.SYNC_HISTORY);
 
         db.execSQL("DROP TABLE IF EXISTS " + Tables.EPISODES_SEARCH);
 
         onCreate(db);
     }
 
+    /**
+     * See {@link #DBVER_45_SYNC_HISTORY}.
+     */
+    private static void upgradeToFortyFive(SQLiteDatabase db) {
+        db.execSQL(CREATE_SYNC_HISTORY_TABLE);
+    }
+
+    /**
+     * See {@link #DBVER_44_ACTIVITY_INDEX}.
+     */
+    private static void upgradeToFortyFour(SQLiteDatabase db) {
+        db.execSQL(CREATE_INDEX_ACTIVITY_TIME);
+    }
+
+    /**
+     * See {@link #DBVER_43_TRAKT_ID_VERIFIED}.
+     */
+    private static void upgradeToFortyThree(SQLiteDatabase db) {
+        if (isTableColumnMissing(db, Tables.SHOWS, Shows.TRAKT_ID_VERIFIED)) {
+            db.execSQL("ALTER TABLE " + Tables.SHOWS + " ADD COLUMN "
+                    + Shows.TRAKT_ID_VERIFIED + " INTEGER DEFAULT 0;");
+        }
+    }
+
+    /**
+     * See {@link #DBVER_42_EPISODE_FLAG_OUTBOX}.
+     */
+    private static void upgradeToFortyTwo(SQLiteDatabase db) {
+        db.execSQL(CREATE_EPISODE_FLAG_OUTBOX_TABLE);
+    }
+
+    /**
+     * See {@link #DBVER_41_RELEASE_DEVICE_TIMEZONE}.
+     */
+    private static void upgradeToFortyOne(SQLiteDatabase db) {
+        if (isTableColumnMissing(db, Tables.SHOWS, Shows.RELEASE_DEVICE_TIMEZONE)) {
+            db.execSQL("ALTER TABLE " + Tables.SHOWS + " ADD COLUMN "
+                    + Shows.RELEASE_DEVICE_TIMEZONE + " TEXT DEFAULT '';");
+        }
+    }
+
+    /**
+     * See {@link #DBVER_40_SEARCH_TRIGGERS}.
+     */
+    private static void upgradeToForty(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            createSearchTriggers(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        // from now on the triggers keep it up to date, so rebuild once to start clean
+        rebuildFtsTable(db);
+    }
+
+    /**
+     * See {@link #DBVER_39_INDEXES}.
+     */
+    private static void upgradeToThirtyNine(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            createIndexes(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
     /**
      * See {@link #DBVER_38_SHOW_TRAKT_ID}.
      */
@@ -790,7 +1115,7 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
                 while (shows.moveToNext()) {
                     // put overwrites previous value
                     newTitleValues.put(Shows.TITLE_NOARTICLE,
-                            DBUtils.trimLeadingArticle(shows.getString(1)));
+                            TitleTools.trimLeadingArticle(shows.getString(1)));
                     db.update(Tables.SHOWS, newTitleValues, Shows._ID + "=" + shows.getInt(0),
                             null);
                 }
@@ -813,7 +1138,7 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
                 while (movies.moveToNext()) {
                     // put overwrites previous value
                     newTitleValues.put(Movies.TITLE_NOARTICLE,
-                            DBUtils.trimLeadingArticle(movies.getString(1)));
+                            TitleTools.trimLeadingArticle(movies.getString(1)));
                     db.update(Tables.MOVIES, newTitleValues, Movies._ID + "=" + movies.getInt(0),
                             null);
                 }
@@ -1078,11 +1403,78 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
                 + " INTEGER DEFAULT 0;");
     }
 
+    /**
+     * The {@link Triggers} write to {@link Tables#EPISODES_SEARCH}, so if it is broken adding,
+     * changing or removing episodes fails, too. If so and not called within a transaction, rebuilds
+     * the search table.
+     *
+     * @return {@code true} if the search table was rebuilt and a failed change of episodes should
+     * be tried again.
+     */
+    public static boolean repairSearchTable(SQLiteDatabase db) {
+        if (db.inTransaction()) {
+            // the failed change has to be rolled back first
+            return false;
+        }
+        if (!hasSearchTriggers(db) || isSearchTableWritable(db)) {
+            // episode changes did not fail because of the search table
+            return false;
+        }
+        Timber.e("repairSearchTable: search table is broken, rebuilding.");
+        rebuildFtsTable(db);
+        return true;
+    }
+
+    private static boolean hasSearchTriggers(SQLiteDatabase db) {
+        return DatabaseUtils.queryNumEntries(db, "sqlite_master", "type='trigger' AND name=?",
+                new String[] { Triggers.EPISODES_SEARCH_INSERT }) > 0;
+    }
+
+    /**
+     * Inserts and removes a row of {@link Tables#EPISODES_SEARCH}. Does not use a transaction, if
+     * it failed it would roll back a transaction of the caller, like the one of {@link
+     * #onUpgrade}.
+     */
+    private static boolean isSearchTableWritable(SQLiteDatabase db) {
+        try {
+            db.execSQL("INSERT INTO " + Tables.EPISODES_SEARCH
+                    + "(" + EpisodeSearchColumns._DOCID + "," + EpisodeSearchColumns.TITLE + ","
+                    + EpisodeSearchColumns.OVERVIEW + ") VALUES (-1,'','');");
+            db.execSQL("DELETE FROM " + Tables.EPISODES_SEARCH
+                    + " WHERE " + EpisodeSearchColumns._DOCID + "=-1;");
+            return true;
+        } catch (SQLiteException e) {
+            Timber.e(e, "isSearchTableWritable: failed.");
+            return false;
+        }
+    }
+
     /**
      * Drops the current {@link Tables#EPISODES_SEARCH} table and re-creates it with current data
-     * from {@link Tables#EPISODES}.
+     * from {@link Tables#EPISODES}. Only required to repair the table, the {@link Triggers} keep it
+     * up to date. If the re-created table can not be written to, the triggers are not added back
+     * so adding or changing episodes does not fail.
      */
     public static void rebuildFtsTable(SQLiteDatabase db) {
+        try {
+            dropSearchTriggers(db);
+        } catch (SQLiteException e) {
+            Timber.e(e, "rebuildFtsTable: failed to drop triggers.");
+            return;
+        }
+
+        populateFtsTable(db);
+
+        if (isSearchTableWritable(db)) {
+            try {
+                createSearchTriggers(db);
+            } catch (SQLiteException e) {
+                Timber.e(e, "rebuildFtsTable: failed to create triggers.");
+            }
+        }
+    }
+
+    private static void populateFtsTable(SQLiteDatabase db) {
         if (!recreateFtsTable(db)) {
             return;
         }
@@ -1101,7 +1493,7 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
                 db.endTransaction();
             }
         } catch (SQLiteException e) {
-            Timber.e(e, "rebuildFtsTable: failed to populate table.");
+            Timber.e(e, "populateFtsTable: failed to populate table.");
             // try to build a basic table with only episode titles
             rebuildBasicFtsTable(db);
         }
@@ -1125,7 +1517,7 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
     }
 
     /**
-     * Similar to {@link #rebuildFtsTable(SQLiteDatabase)}. However only inserts the episode title,
+     * Similar to {@link #populateFtsTable(SQLiteDatabase)}. However only inserts the episode title,
      * not the overviews to conserve space.
      */
     private static void rebuildBasicFtsTable(SQLiteDatabase db) {
@@ -1150,6 +1542,636 @@ public class SeriesGuideDatabase extends SQLiteOpenHelper {
         }
     }
 
+    private static final String CREATE_EPISODE_FLAGS_TEMP_TABLE = "CREATE TEMP TABLE IF NOT EXISTS "
+            + Tables.EPISODE_FLAGS_TEMP + " ("
+            + ShowsColumns.REF_SHOW_ID + " TEXT NOT NULL,"
+            + EpisodesColumns.SEASON + " INTEGER NOT NULL,"
+            + EpisodesColumns.NUMBER + " INTEGER NOT NULL,"
+            + EpisodesColumns.WATCHED + " INTEGER,"
+            + EpisodesColumns.COLLECTED + " INTEGER,"
+            + "PRIMARY KEY (" + ShowsColumns.REF_SHOW_ID + "," + EpisodesColumns.SEASON + ","
+            + EpisodesColumns.NUMBER + ") ON CONFLICT REPLACE"
+            + ");";
+
+    private static final String INSERT_EPISODE_FLAG = "INSERT INTO "
+            + Tables.EPISODE_FLAGS_TEMP + " VALUES (?,?,?,?,?);";
+
+    private static final String EPISODE_FLAGS_MATCH = "WHERE "
+            + Tables.EPISODE_FLAGS_TEMP + "." + Shows.REF_SHOW_ID + "="
+            + Tables.EPISODES + "." + Shows.REF_SHOW_ID
+            + " AND " + Tables.EPISODE_FLAGS_TEMP + "." + Episodes.SEASON + "="
+            + Tables.EPISODES + "." + Episodes.SEASON
+            + " AND " + Tables.EPISODE_FLAGS_TEMP + "." + Episodes.NUMBER + "="
+            + Tables.EPISODES + "." + Episodes.NUMBER;
+
+    /**
+     * Matches episodes with a change of the given flag type queued in {@link
+     * Tables#EPISODE_FLAG_OUTBOX}.
+     */
+    private static String episodeFlagQueued(int type) {
+        return Tables.EPISODES + "." + Episodes._ID + " IN (SELECT "
+                + EpisodeFlagOutbox.EPISODE_TVDB_ID + " FROM " + Tables.EPISODE_FLAG_OUTBOX
+                + " WHERE " + EpisodeFlagOutbox.TYPE + "=" + type + ")";
+    }
+
+    /**
+     * Keeps the current value if the flag table has no value for a column, or if a change of the
+     * flag is queued for upload (it would be reverted otherwise).
+     */
+    private static String episodeFlagValue(String column, int type) {
+        return column + "=CASE WHEN " + episodeFlagQueued(type) + " THEN " + column
+                + " ELSE IFNULL((SELECT " + Tables.EPISODE_FLAGS_TEMP + "." + column
+                + " FROM " + Tables.EPISODE_FLAGS_TEMP + " " + EPISODE_FLAGS_MATCH + "),"
+                + column + ") END";
+    }
+
+    private static final String UPDATE_EPISODE_FLAGS = "UPDATE " + Tables.EPISODES + " SET "
+            + episodeFlagValue(Episodes.WATCHED, EpisodeFlagOutbox.TYPE_WATCHED) + ","
+            + episodeFlagValue(Episodes.COLLECTED, EpisodeFlagOutbox.TYPE_COLLECTED)
+            + " WHERE " + Episodes._ID + " IN ("
+            + "SELECT " + Qualified.EPISODES_ID + " FROM " + Tables.EPISODE_FLAGS_TEMP
+            + " JOIN " + Tables.EPISODES + " ON "
+            + EPISODE_FLAGS_MATCH.substring("WHERE ".length())
+            + ");";
+
+    /**
+     * Applies all changes of the given {@link EpisodeFlagBatch} in a single transaction. The
+     * changes are bulk inserted into a temporary table using a single compiled statement, then
+     * applied to {@link Tables#EPISODES} using a single update statement.
+     *
+     * <p> Flags with a change queued in {@link Tables#EPISODE_FLAG_OUTBOX} are not touched, so
+     * downloading flags before the change is uploaded does not revert it.
+     *
+     * @return The number of changes in the batch.
+     */
+    public static int applyEpisodeFlags(SQLiteDatabase db, EpisodeFlagBatch batch) {
+        db.beginTransaction();
+        try {
+            if (batch.clearShowTvdbId != 0) {
+                String[] showArg = new String[] { String.valueOf(batch.clearShowTvdbId) };
+                if (batch.clearWatched) {
+                    // do not remove flags of skipped episodes, only of watched ones
+                    db.execSQL("UPDATE " + Tables.EPISODES
+                            + " SET " + Episodes.WATCHED + "=" + EpisodeFlags.UNWATCHED
+                            + " WHERE " + Shows.REF_SHOW_ID + "=?"
+                            + " AND " + Episodes.SELECTION_WATCHED
+                            + " AND NOT " + episodeFlagQueued(EpisodeFlagOutbox.TYPE_WATCHED),
+                            showArg);
+                }
+                if (batch.clearCollected) {
+                    db.execSQL("UPDATE " + Tables.EPISODES
+                            + " SET " + Episodes.COLLECTED + "=0"
+                            + " WHERE " + Shows.REF_SHOW_ID + "=?"
+                            + " AND " + Episodes.SELECTION_COLLECTED
+                            + " AND NOT " + episodeFlagQueued(EpisodeFlagOutbox.TYPE_COLLECTED),
+                            showArg);
+                }
+            }
+
+            if (batch.size > 0) {
+                db.execSQL(CREATE_EPISODE_FLAGS_TEMP_TABLE);
+                db.execSQL("DELETE FROM " + Tables.EPISODE_FLAGS_TEMP);
+
+                SQLiteStatement insert = db.compileStatement(INSERT_EPISODE_FLAG);
+                try {
+                    for (int i = 0; i < batch.size; i++) {
+                        insert.bindString(1, String.valueOf(batch.showTvdbIds[i]));
+                        insert.bindLong(2, batch.seasons[i]);
+                        insert.bindLong(3, batch.numbers[i]);
+                        bindFlag(insert, 4, batch.watched[i]);
+                        bindFlag(insert, 5, batch.collected[i]);
+                        insert.executeInsert();
+                    }
+                } finally {
+                    insert.close();
+                }
+
+                db.execSQL(UPDATE_EPISODE_FLAGS);
+                db.execSQL("DELETE FROM " + Tables.EPISODE_FLAGS_TEMP);
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return batch.size;
+    }
+
+    private static void bindFlag(SQLiteStatement statement, int index, int flag) {
+        if (flag == EpisodeFlagBatch.NO_CHANGE) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, flag);
+        }
+    }
+
+    /**
+     * Columns written by {@link #applyEpisodes}, in the order of the statement parameters. The
+     * episode id is bound last.
+     */
+    private static final String[] EPISODE_BATCH_COLUMNS = new String[] {
+            Episodes.NUMBER,
+            Episodes.ABSOLUTE_NUMBER,
+            Episodes.SEASON,
+            Episodes.DVDNUMBER,
+            Episodes.FIRSTAIREDMS,
+            Episodes.TITLE,
+            Episodes.OVERVIEW,
+            Seasons.REF_SEASON_ID,
+            Shows.REF_SHOW_ID,
+            Episodes.DIRECTORS,
+            Episodes.GUESTSTARS,
+            Episodes.WRITERS,
+            Episodes.IMAGE,
+            Episodes.IMDBID,
+            Episodes.LAST_EDITED
+    };
+
+    private static String buildInsertEpisodeStatement() {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (String column : EPISODE_BATCH_COLUMNS) {
+            columns.append(column).append(',');
+            values.append("?,");
+        }
+        // like SQLiteDatabase.insert, skip episodes that already exist
+        return "INSERT OR IGNORE INTO " + Tables.EPISODES
+                + " (" + columns + Episodes._ID + ") VALUES (" + values + "?);";
+    }
+
+    private static String buildUpdateEpisodeStatement() {
+        StringBuilder columns = new StringBuilder();
+        for (String column : EPISODE_BATCH_COLUMNS) {
+            if (columns.length() > 0) {
+                columns.append(',');
+            }
+            columns.append(column).append("=?");
+        }
+        return "UPDATE " + Tables.EPISODES + " SET " + columns
+                + " WHERE " + Episodes._ID + "=?;";
+    }
+
+    private static final String INSERT_EPISODE = buildInsertEpisodeStatement();
+
+    private static final String UPDATE_EPISODE = buildUpdateEpisodeStatement();
+
+    /**
+     * Inserts or updates all episodes of the given {@link EpisodeBatch} in a single transaction,
+     * re-using one compiled insert and one compiled update statement for all episodes.
+     *
+     * @return The number of episodes inserted or updated.
+     */
+    public static int applyEpisodes(SQLiteDatabase db, EpisodeBatch batch) {
+        int count = 0;
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = db.compileStatement(INSERT_EPISODE);
+            SQLiteStatement update = db.compileStatement(UPDATE_EPISODE);
+            try {
+                for (int i = 0; i < batch.size; i++) {
+                    if (batch.isNew[i]) {
+                        bindEpisode(insert, batch, i);
+                        if (insert.executeInsert() != -1) {
+                            count++;
+                        }
+                    } else {
+                        bindEpisode(update, batch, i);
+                        count += update.executeUpdateDelete();
+                    }
+                }
+            } finally {
+                insert.close();
+                update.close();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return count;
+    }
+
+    private static void bindEpisode(SQLiteStatement statement, EpisodeBatch batch, int i) {
+        // store missing numbers as empty text like TVDb sends them, so they sort after all numbers
+        if (batch.hasNumbers[i]) {
+            statement.bindLong(1, batch.numbers[i]);
+        } else {
+            statement.bindString(1, "");
+        }
+        if (batch.hasAbsoluteNumbers[i]) {
+            statement.bindLong(2, batch.absoluteNumbers[i]);
+        } else {
+            statement.bindString(2, "");
+        }
+        statement.bindLong(3, batch.seasons[i]);
+        if (batch.hasDvdNumbers[i]) {
+            statement.bindDouble(4, batch.dvdNumbers[i]);
+        } else {
+            statement.bindString(4, "");
+        }
+        statement.bindLong(5, batch.firstAired[i]);
+        statement.bindString(6, batch.titles[i]);
+        statement.bindString(7, batch.overviews[i]);
+        // id columns have TEXT affinity, SQLite stores bound numbers as text
+        statement.bindLong(8, batch.seasonIds[i]);
+        statement.bindLong(9, batch.showIds[i]);
+        statement.bindString(10, batch.directors[i]);
+        statement.bindString(11, batch.guestStars[i]);
+        statement.bindString(12, batch.writers[i]);
+        statement.bindString(13, batch.images[i]);
+        statement.bindString(14, batch.imdbIds[i]);
+        statement.bindLong(15, batch.lastEdited[i]);
+        statement.bindLong(16, batch.ids[i]);
+    }
+
+    private static final String CREATE_NEXT_EPISODES_TEMP_TABLE = "CREATE TEMP TABLE IF NOT EXISTS "
+            + Tables.NEXT_EPISODES_TEMP + " ("
+            + BaseColumns._ID + " INTEGER PRIMARY KEY,"
+            + ShowsColumns.NEXTEPISODE + " TEXT,"
+            + ShowsColumns.NEXTAIRDATEMS + " INTEGER,"
+            + ShowsColumns.NEXTTEXT + " TEXT"
+            + ");";
+
+    /**
+     * Looks up the value of the given column in the next episodes table for the show of the
+     * current row.
+     */
+    private static String nextEpisodeValue(String column) {
+        return column + "=(SELECT " + Tables.NEXT_EPISODES_TEMP + "." + column
+                + " FROM " + Tables.NEXT_EPISODES_TEMP
+                + " WHERE " + Tables.NEXT_EPISODES_TEMP + "." + BaseColumns._ID + "="
+                + Qualified.SHOWS_ID + ")";
+    }
+
+    private static final String UPDATE_NEXT_EPISODES = "UPDATE " + Tables.SHOWS + " SET "
+            + nextEpisodeValue(Shows.NEXTEPISODE) + ","
+            + nextEpisodeValue(Shows.NEXTAIRDATEMS) + ","
+            + nextEpisodeValue(Shows.NEXTTEXT)
+            // only write shows where a value has changed
+            + " WHERE EXISTS (SELECT 1 FROM " + Tables.NEXT_EPISODES_TEMP + " n"
+            + " WHERE n." + BaseColumns._ID + "=" + Qualified.SHOWS_ID
+            + " AND (n." + Shows.NEXTEPISODE + " IS NOT " + Qualified.SHOWS_NEXT_EPISODE
+            + " OR n." + Shows.NEXTAIRDATEMS + " IS NOT "
+            + Tables.SHOWS + "." + Shows.NEXTAIRDATEMS
+            + " OR n." + Shows.NEXTTEXT + " IS NOT " + Tables.SHOWS + "." + Shows.NEXTTEXT
+            + "));";
+
+    /**
+     * Finds the next episode to watch of all shows, or only of the given show, and stores its id,
+     * release time and text ({@link Shows#NEXTEPISODE}, {@link Shows#NEXTAIRDATEMS} and {@link
+     * Shows#NEXTTEXT}) with the show. The next episode is the first not watched episode released
+     * after or at the same time as the last watched episode, see {@link Shows#LASTWATCHEDID}.
+     *
+     * <p> Instead of one query per show all next episodes are found with a single statement into a
+     * temporary table, which is then written to {@link Tables#SHOWS} using a single update
+     * statement. Shows where nothing has changed are not written.
+     *
+     * @param showTvdbId The show to update, or 0 to update all shows.
+     * @param currentTime Only used if {@code isNoReleasedEpisodes} is set.
+     * @param numberFormat One of the {@link DisplaySettings} number formats.
+     * @return If a show was given, the TVDb id of its next episode, or 0 if there is none.
+     * Otherwise -1.
+     */
+    public static int updateNextEpisodes(SQLiteDatabase db, int showTvdbId,
+            boolean isHidingSpecials, boolean isNoReleasedEpisodes, long currentTime,
+            String numberFormat) {
+        String insert = buildNextEpisodesInsert(showTvdbId, isHidingSpecials,
+                isNoReleasedEpisodes, currentTime, numberFormat);
+
+        int nextEpisodeTvdbId = -1;
+        db.beginTransaction();
+        try {
+            db.execSQL(CREATE_NEXT_EPISODES_TEMP_TABLE);
+            db.execSQL("DELETE FROM " + Tables.NEXT_EPISODES_TEMP);
+            db.execSQL(insert);
+            db.execSQL(UPDATE_NEXT_EPISODES);
+
+            if (showTvdbId != 0) {
+                Cursor next = db.query(Tables.NEXT_EPISODES_TEMP,
+                        new String[] { Shows.NEXTEPISODE }, null, null, null, null, null);
+                nextEpisodeTvdbId = next.moveToFirst() ? next.getInt(0) : 0;
+                next.close();
+            }
+
+            db.execSQL("DELETE FROM " + Tables.NEXT_EPISODES_TEMP);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return nextEpisodeTvdbId;
+    }
+
+    /**
+     * Builds the statement used by {@link #updateNextEpisodes} to find next episodes. Exposed so
+     * tests can inspect its query plan, the temporary table it inserts into exists once {@link
+     * #updateNextEpisodes} ran.
+     */
+    public static String buildNextEpisodesInsert(int showTvdbId, boolean isHidingSpecials,
+            boolean isNoReleasedEpisodes, long currentTime, String numberFormat) {
+        // for each show find the first episode in release time, season and number order that
+        // comes after its last watched episode; if there is none, all episodes are candidates
+        StringBuilder nextEpisode = new StringBuilder();
+        nextEpisode.append("SELECT e.").append(Episodes._ID)
+                .append(" FROM ").append(Tables.EPISODES).append(" e")
+                // compare as text to use the episodes by show index
+                .append(" WHERE e.").append(Shows.REF_SHOW_ID)
+                .append("=CAST(s.").append(Shows._ID).append(" AS TEXT)")
+                .append(" AND e.").append(Episodes.WATCHED).append("=0")
+                .append(" AND (l.").append(Episodes.SEASON).append(" IS NULL")
+                .append(" OR l.").append(Episodes.NUMBER).append(" IS NULL")
+                .append(" OR l.").append(Episodes.FIRSTAIREDMS).append(" IS NULL")
+                .append(" OR (e.").append(Episodes.FIRSTAIREDMS)
+                .append("=l.").append(Episodes.FIRSTAIREDMS)
+                .append(" AND (e.").append(Episodes.NUMBER)
+                .append("!=l.").append(Episodes.NUMBER)
+                .append(" OR e.").append(Episodes.SEASON)
+                .append("!=l.").append(Episodes.SEASON).append("))")
+                .append(" OR e.").append(Episodes.FIRSTAIREDMS)
+                .append(">l.").append(Episodes.FIRSTAIREDMS).append(")");
+        if (isHidingSpecials) {
+            nextEpisode.append(" AND e.").append(Episodes.SEASON).append("!=0");
+        }
+        if (isNoReleasedEpisodes) {
+            nextEpisode.append(" AND e.").append(Episodes.FIRSTAIREDMS).append(">=")
+                    .append(currentTime);
+        } else {
+            nextEpisode.append(" AND e.").append(Episodes.FIRSTAIREDMS).append("!=-1");
+        }
+        nextEpisode.append(" ORDER BY e.").append(Episodes.FIRSTAIREDMS)
+                .append(" ASC,e.").append(Episodes.SEASON)
+                .append(" ASC,e.").append(Episodes.NUMBER).append(" ASC LIMIT 1");
+
+        StringBuilder insert = new StringBuilder();
+        insert.append("INSERT INTO ").append(Tables.NEXT_EPISODES_TEMP)
+                .append(" SELECT n.").append(Shows._ID)
+                .append(",IFNULL(e.").append(Episodes._ID).append(",'')")
+                .append(",IFNULL(e.").append(Episodes.FIRSTAIREDMS).append(",")
+                .append(DBUtils.UNKNOWN_NEXT_RELEASE_DATE).append(")")
+                .append(",IFNULL(").append(nextEpisodeText(numberFormat)).append(",'')")
+                .append(" FROM (SELECT s.").append(Shows._ID)
+                .append(",(").append(nextEpisode).append(") AS next_id")
+                .append(" FROM ").append(Tables.SHOWS).append(" s")
+                .append(" LEFT JOIN ").append(Tables.EPISODES).append(" l")
+                .append(" ON l.").append(Episodes._ID)
+                .append("=s.").append(Shows.LASTWATCHEDID);
+        if (showTvdbId != 0) {
+            insert.append(" WHERE s.").append(Shows._ID).append("=").append(showTvdbId);
+        }
+        insert.append(") n")
+                .append(" LEFT JOIN ").append(Tables.EPISODES).append(" e")
+                .append(" ON e.").append(Episodes._ID).append("=n.next_id;");
+        return insert.toString();
+    }
+
+    /**
+     * Builds an expression for the text of next episode {@code e}, like {@link
+     * com.battlelancer.seriesguide.util.TextTools#getNextEpisodeString}. Is NULL if there is no
+     * next episode.
+     */
+    private static String nextEpisodeText(String numberFormat) {
+        String season = "e." + Episodes.SEASON;
+        String number = "e." + Episodes.NUMBER;
+        String seasonText;
+        if (DisplaySettings.NUMBERFORMAT_DEFAULT.equals(numberFormat)) {
+            // 1x01 format
+            seasonText = season + "||'x'";
+        } else {
+            // S01E01 format
+            boolean isLower = DisplaySettings.NUMBERFORMAT_ENGLISHLOWER.equals(numberFormat);
+            seasonText = "'" + (isLower ? "s" : "S") + "'"
+                    + "||(CASE WHEN " + season + "<10 THEN '0' ELSE '' END)||" + season
+                    + "||'" + (isLower ? "e" : "E") + "'";
+        }
+        String numberText = "(CASE WHEN " + number + "=-1 THEN ''"
+                + " WHEN " + number + "<10 THEN '0'||" + number
+                + " ELSE " + number + " END)";
+        return seasonText + "||" + numberText + "||' '||IFNULL(e." + Episodes.TITLE + ",'')";
+    }
+
+    private static final String CREATE_SEASON_COUNTS_TEMP_TABLE = "CREATE TEMP TABLE IF NOT EXISTS "
+            + Tables.SEASON_COUNTS_TEMP + " ("
+            + BaseColumns._ID + " INTEGER PRIMARY KEY,"
+            + SeasonsColumns.WATCHCOUNT + " INTEGER,"
+            + SeasonsColumns.UNAIREDCOUNT + " INTEGER,"
+            + SeasonsColumns.NOAIRDATECOUNT + " INTEGER,"
+            + SeasonsColumns.TAGS + " TEXT,"
+            + SeasonsColumns.TOTALCOUNT + " INTEGER"
+            + ");";
+
+    /**
+     * Looks up the value of the given column in the season counts table for the season of the
+     * current row.
+     */
+    private static String seasonCountValue(String column) {
+        return column + "=(SELECT " + Tables.SEASON_COUNTS_TEMP + "." + column
+                + " FROM " + Tables.SEASON_COUNTS_TEMP
+                + " WHERE " + Tables.SEASON_COUNTS_TEMP + "." + BaseColumns._ID + "="
+                + Qualified.SEASONS_ID + ")";
+    }
+
+    private static String seasonCountChanged(String column) {
+        return "c." + column + " IS NOT " + Tables.SEASONS + "." + column;
+    }
+
+    private static final String UPDATE_SEASON_COUNTS = "UPDATE " + Tables.SEASONS + " SET "
+            + seasonCountValue(Seasons.WATCHCOUNT) + ","
+            + seasonCountValue(Seasons.UNAIREDCOUNT) + ","
+            + seasonCountValue(Seasons.NOAIRDATECOUNT) + ","
+            + seasonCountValue(Seasons.TAGS) + ","
+            + seasonCountValue(Seasons.TOTALCOUNT)
+            // only write seasons where a count has changed
+            + " WHERE EXISTS (SELECT 1 FROM " + Tables.SEASON_COUNTS_TEMP + " c"
+            + " WHERE c." + BaseColumns._ID + "=" + Qualified.SEASONS_ID
+            + " AND (" + seasonCountChanged(Seasons.WATCHCOUNT)
+            + " OR " + seasonCountChanged(Seasons.UNAIREDCOUNT)
+            + " OR " + seasonCountChanged(Seasons.NOAIRDATECOUNT)
+            + " OR " + seasonCountChanged(Seasons.TAGS)
+            + " OR " + seasonCountChanged(Seasons.TOTALCOUNT)
+            + "));";
+
+    /**
+     * Counts the episodes of a season matching the given condition on episode {@code e}.
+     */
+    private static String countEpisodes(String condition) {
+        return "SUM(CASE WHEN " + condition + " THEN 1 ELSE 0 END)";
+    }
+
+    /**
+     * Recounts the released, but not watched ({@link Seasons#WATCHCOUNT}), not yet released
+     * ({@link Seasons#UNAIREDCOUNT}), not watched without release date ({@link
+     * Seasons#NOAIRDATECOUNT}) and all episodes ({@link Seasons#TOTALCOUNT}) of a season, and tags
+     * it if any episode was skipped ({@link Seasons#TAGS}).
+     *
+     * <p> All counts are computed with a single aggregate query over the episodes of each season
+     * into a temporary table, which is then written to {@link Tables#SEASONS} using a single update
+     * statement. Seasons where nothing has changed are not written.
+     *
+     * @param showTvdbId If not 0, only recounts seasons of this show.
+     * @param seasonTvdbId If not 0, only recounts this season.
+     */
+    public static void updateSeasonCounts(SQLiteDatabase db, int showTvdbId, int seasonTvdbId,
+            long currentTime) {
+        String unwatched = "e." + Episodes.WATCHED + "=" + EpisodeFlags.UNWATCHED;
+        String releaseTime = "e." + Episodes.FIRSTAIREDMS;
+
+        StringBuilder insert = new StringBuilder();
+        insert.append("INSERT INTO ").append(Tables.SEASON_COUNTS_TEMP)
+                .append(" SELECT s.").append(Seasons._ID)
+                .append(",").append(countEpisodes(unwatched
+                        + " AND " + releaseTime + "!=-1 AND " + releaseTime + "<=" + currentTime))
+                .append(",").append(countEpisodes(unwatched
+                        + " AND " + releaseTime + ">" + currentTime))
+                .append(",").append(countEpisodes(unwatched + " AND " + releaseTime + "=-1"))
+                .append(",CASE WHEN ").append(countEpisodes(
+                        "e." + Episodes.WATCHED + "=" + EpisodeFlags.SKIPPED))
+                .append(">0 THEN '").append(SeasonTags.SKIPPED)
+                .append("' ELSE '").append(SeasonTags.NONE).append("' END")
+                .append(",COUNT(e.").append(Episodes._ID).append(")")
+                .append(" FROM ").append(Tables.SEASONS).append(" s")
+                .append(" LEFT JOIN ").append(Tables.EPISODES).append(" e")
+                // compare as text to use the episodes by season index
+                .append(" ON e.").append(Seasons.REF_SEASON_ID)
+                .append("=CAST(s.").append(Seasons._ID).append(" AS TEXT)");
+        if (seasonTvdbId != 0) {
+            insert.append(" WHERE s.").append(Seasons._ID).append("=").append(seasonTvdbId);
+        } else if (showTvdbId != 0) {
+            insert.append(" WHERE s.").append(Shows.REF_SHOW_ID)
+                    .append("='").append(showTvdbId).append("'");
+        }
+        insert.append(" GROUP BY s.").append(Seasons._ID).append(";");
+
+        db.beginTransaction();
+        try {
+            db.execSQL(CREATE_SEASON_COUNTS_TEMP_TABLE);
+            db.execSQL("DELETE FROM " + Tables.SEASON_COUNTS_TEMP);
+            db.execSQL(insert.toString());
+            db.execSQL(UPDATE_SEASON_COUNTS);
+            db.execSQL("DELETE FROM " + Tables.SEASON_COUNTS_TEMP);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Counts shows, episodes and movies and sums up the runtime of watched episodes and movies on
+     * the watchlist with one aggregate query each, see {@link
+     * SeriesGuideContract#METHOD_GET_STATS}.
+     *
+     * @param isHidingSpecials If set, does not include special episodes.
+     */
+    public static Bundle getStats(SQLiteDatabase db, boolean isHidingSpecials) {
+        Bundle stats = new Bundle();
+
+        Cursor shows = db.rawQuery("SELECT COUNT(*),"
+                + "SUM(CASE WHEN " + Shows.STATUS + "=1 THEN 1 ELSE 0 END),"
+                // next episode is stored as text, might be empty
+                + "SUM(CASE WHEN CAST(" + Shows.NEXTEPISODE + " AS INTEGER)!=0 THEN 1 ELSE 0 END)"
+                + " FROM " + Tables.SHOWS, null);
+        if (shows.moveToFirst()) {
+            stats.putInt(SeriesGuideContract.EXTRA_STATS_SHOWS, shows.getInt(0));
+            stats.putInt(SeriesGuideContract.EXTRA_STATS_SHOWS_CONTINUING, shows.getInt(1));
+            stats.putInt(SeriesGuideContract.EXTRA_STATS_SHOWS_WITH_NEXT, shows.getInt(2));
+        }
+        shows.close();
+
+        String watched = "e." + Episodes.WATCHED + "=" + EpisodeFlags.WATCHED;
+        Cursor episodes = db.rawQuery("SELECT COUNT(*),"
+                + countEpisodes(watched) + ","
+                // runtime of shows is stored as text
+                + "SUM(CASE WHEN " + watched + " THEN CAST(s." + Shows.RUNTIME
+                + " AS INTEGER) ELSE 0 END)"
+                + " FROM " + Tables.EPISODES + " e"
+                + " LEFT JOIN " + Tables.SHOWS + " s"
+                + " ON e." + Shows.REF_SHOW_ID + "=s." + Shows._ID
+                + (isHidingSpecials ? " WHERE e." + Episodes.SELECTION_NO_SPECIALS : ""), null);
+        if (episodes.moveToFirst()) {
+            stats.putInt(SeriesGuideContract.EXTRA_STATS_EPISODES, episodes.getInt(0));
+            stats.putInt(SeriesGuideContract.EXTRA_STATS_EPISODES_WATCHED, episodes.getInt(1));
+            stats.putLong(SeriesGuideContract.EXTRA_STATS_EPISODES_WATCHED_RUNTIME,
+                    episodes.getLong(2));
+        }
+        episodes.close();
+
+        Cursor movies = db.rawQuery("SELECT COUNT(*),"
+                + "SUM(CASE WHEN " + Movies.SELECTION_WATCHLIST + " THEN 1 ELSE 0 END),"
+                + "SUM(CASE WHEN " + Movies.SELECTION_WATCHLIST + " THEN "
+                + Movies.RUNTIME_MIN + " ELSE 0 END)"
+                + " FROM " + Tables.MOVIES, null);
+        if (movies.moveToFirst()) {
+            stats.putInt(SeriesGuideContract.EXTRA_STATS_MOVIES, movies.getInt(0));
+            stats.putInt(SeriesGuideContract.EXTRA_STATS_MOVIES_WATCHLIST, movies.getInt(1));
+            stats.putLong(SeriesGuideContract.EXTRA_STATS_MOVIES_WATCHLIST_RUNTIME,
+                    movies.getLong(2));
+        }
+        movies.close();
+
+        return stats;
+    }
+
+    /**
+     * Sets the watched or collected flag of all episodes matching the given selection (on {@link
+     * Tables#EPISODES}) in a single transaction.
+     *
+     * <p> If queueing an upload, for each episode adds a row to {@link Tables#EPISODE_FLAG_OUTBOX}
+     * remembering its current flag, unless there already is one. Then sets the new flag on all
+     * rows. Rows where the new flag equals the remembered one are removed, so e.g. setting an
+     * episode watched, then unwatched again uploads nothing. Rows currently being uploaded are
+     * kept, once the upload completes they remember the uploaded flag and upload the new one.
+     *
+     * @param type One of {@link EpisodeFlagOutbox#TYPE_WATCHED} or {@link
+     * EpisodeFlagOutbox#TYPE_COLLECTED}.
+     * @return The number of episodes matching the selection.
+     */
+    public static int updateEpisodeFlags(SQLiteDatabase db, String selection, int type,
+            int value, boolean isQueueingUpload) {
+        String column = type == EpisodeFlagOutbox.TYPE_WATCHED
+                ? Episodes.WATCHED : Episodes.COLLECTED;
+        String ofType = EpisodeFlagOutbox.TYPE + "=" + type;
+
+        ContentValues values = new ContentValues();
+        values.put(column, value);
+
+        int count;
+        db.beginTransaction();
+        try {
+            if (isQueueingUpload) {
+                // queue before updating, the selection may depend on the current flag
+                db.execSQL("INSERT OR IGNORE INTO " + Tables.EPISODE_FLAG_OUTBOX + " ("
+                        + EpisodeFlagOutbox.EPISODE_TVDB_ID + ","
+                        + EpisodeFlagOutbox.SHOW_TVDB_ID + ","
+                        + EpisodeFlagOutbox.SEASON + ","
+                        + EpisodeFlagOutbox.NUMBER + ","
+                        + EpisodeFlagOutbox.TYPE + ","
+                        + EpisodeFlagOutbox.VALUE + ","
+                        + EpisodeFlagOutbox.VALUE_SYNCED + ")"
+                        + " SELECT " + Episodes._ID + "," + Shows.REF_SHOW_ID + ","
+                        + Episodes.SEASON + "," + Episodes.NUMBER + "," + type + ","
+                        + column + "," + column
+                        + " FROM " + Tables.EPISODES + " WHERE " + selection);
+                db.execSQL("UPDATE " + Tables.EPISODE_FLAG_OUTBOX
+                        + " SET " + EpisodeFlagOutbox.VALUE + "=" + value + ","
+                        + EpisodeFlagOutbox.ATTEMPTS + "=0,"
+                        + EpisodeFlagOutbox.RETRY_AT + "=0"
+                        + " WHERE " + ofType + " AND " + EpisodeFlagOutbox.EPISODE_TVDB_ID
+                        + " IN (SELECT " + Episodes._ID + " FROM " + Tables.EPISODES
+                        + " WHERE " + selection + ")");
+            }
+
+            count = db.update(Tables.EPISODES, values, selection, null);
+
+            if (isQueueingUpload) {
+                db.delete(Tables.EPISODE_FLAG_OUTBOX, ofType + " AND "
+                        + EpisodeFlagOutbox.VALUE + "=" + EpisodeFlagOutbox.VALUE_SYNCED
+                        + " AND " + EpisodeFlagOutbox.UPLOADING + "=0", null);
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return count;
+    }
+
     @Nullable
     public static Cursor search(String selection, String[] selectionArgs, SQLiteDatabase db) {
         // select
@@ -31,6 +31,9 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.net.Uri;
+import android.os.Binder;
+import android.os.Bundle;
+import android.os.Process;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
 import com.battlelancer.seriesguide.SeriesGuideApplication;
@@ -38,9 +41,11 @@ import com.battlelancer.seriesguide.ui.SeriesGuidePreferences;
 import com.battlelancer.seriesguide.util.SelectionBuilder;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import timber.log.Timber;
 
 import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Activity;
+import static com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeFlagOutbox;
 import static com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeSearch;
 import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
 import static com.battlelancer.seriesguide.provider.SeriesGuideContract.ListItems;
@@ -48,6 +53,7 @@ import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Lists;
 import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Movies;
 import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
 import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import static com.battlelancer.seriesguide.provider.SeriesGuideContract.SyncHistory;
 import static com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
 
 public class SeriesGuideProvider extends ContentProvider {
@@ -108,10 +114,16 @@ public class SeriesGuideProvider extends ContentProvider {
 
     private static final int ACTIVITY = 800;
 
+    private static final int ACTIVITY_WITH_EPISODE = 801;
+
     private static final int SEARCH_SUGGEST = 900;
 
     private static final int RENEW_FTSTABLE = 1000;
 
+    private static final int EPISODE_FLAG_OUTBOX = 1100;
+
+    private static final int SYNC_HISTORY = 1200;
+
     /**
      * Build and return a {@link UriMatcher} that catches all {@link Uri} variations supported by
      * this {@link ContentProvider}.
@@ -176,6 +188,15 @@ public class SeriesGuideProvider extends ContentProvider {
 
         // Activity
         matcher.addURI(authority, SeriesGuideContract.PATH_ACTIVITY, ACTIVITY);
+        matcher.addURI(authority, SeriesGuideContract.PATH_ACTIVITY + "/"
+                + SeriesGuideContract.PATH_WITH_EPISODE, ACTIVITY_WITH_EPISODE);
+
+        // Episode flag outbox
+        matcher.addURI(authority, SeriesGuideContract.PATH_EPISODE_FLAG_OUTBOX,
+                EPISODE_FLAG_OUTBOX);
+
+        // Sync history
+        matcher.addURI(authority, SeriesGuideContract.PATH_SYNC_HISTORY, SYNC_HISTORY);
 
         // Search
         matcher.addURI(authority, SeriesGuideContract.PATH_EPISODESEARCH + "/"
@@ -192,8 +213,24 @@ public class SeriesGuideProvider extends ContentProvider {
         return matcher;
     }
 
+    /**
+     * Number of rows inserted, updated or deleted through this provider by each thread, see {@link
+     * #getRowsWritten()}.
+     */
+    private static final ThreadLocal<long[]> sRowsWritten = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
     private final ThreadLocal<Boolean> mApplyingBatch = new ThreadLocal<>();
 
+    /**
+     * Change notifications held back on the current thread, see {@link #holdNotifications()}.
+     */
+    private final ThreadLocal<PendingNotifications> mPendingNotifications = new ThreadLocal<>();
+
     private SeriesGuideDatabase mDbHelper;
 
     protected SQLiteDatabase mDb;
@@ -276,7 +313,9 @@ public class SeriesGuideProvider extends ContentProvider {
                 try {
                     query = builder
                             .where(selection, selectionArgs)
-                            .query(db, projection, sortOrder);
+                            .query(db, projection, null, null, sortOrder,
+                                    uri.getQueryParameter(
+                                            SeriesGuideContract.QUERY_PARAMETER_LIMIT));
                 } catch (SQLiteException e) {
                     Timber.e(e, "Failed to query with uri=" + uri);
                 }
@@ -329,7 +368,12 @@ public class SeriesGuideProvider extends ContentProvider {
             case MOVIES_ID:
                 return Movies.CONTENT_ITEM_TYPE;
             case ACTIVITY:
+            case ACTIVITY_WITH_EPISODE:
                 return Activity.CONTENT_TYPE;
+            case EPISODE_FLAG_OUTBOX:
+                return EpisodeFlagOutbox.CONTENT_TYPE;
+            case SYNC_HISTORY:
+                return SyncHistory.CONTENT_TYPE;
             case SEARCH_SUGGEST:
                 return SearchManager.SUGGEST_MIME_TYPE;
             case RENEW_FTSTABLE:
@@ -357,8 +401,8 @@ public class SeriesGuideProvider extends ContentProvider {
         }
 
         if (newItemUri != null) {
-            //noinspection ConstantConditions
-            getContext().getContentResolver().notifyChange(uri, null);
+            countRowsWritten(1);
+            notifyChange(uri);
         }
 
         return newItemUri;
@@ -367,27 +411,34 @@ public class SeriesGuideProvider extends ContentProvider {
     @Override
     public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
         int numValues = values.length;
-        boolean notifyChange = false;
+        int numInserted = 0;
 
         final SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        // can not yield if the calling thread holds a transaction, e.g. during import
+        final boolean canYield = !db.inTransaction();
+        boolean isSuccessful = false;
+        holdNotifications();
         db.beginTransaction();
         try {
             //noinspection ForLoopReplaceableByForEach
             for (int i = 0; i < numValues; i++) {
                 Uri result = insertInTransaction(db, uri, values[i]);
                 if (result != null) {
-                    notifyChange = true;
+                    numInserted++;
+                }
+                if (canYield) {
+                    db.yieldIfContendedSafely();
                 }
-                db.yieldIfContendedSafely();
             }
             db.setTransactionSuccessful();
+            isSuccessful = true;
         } finally {
             db.endTransaction();
-        }
-
-        if (notifyChange) {
-            //noinspection ConstantConditions
-            getContext().getContentResolver().notifyChange(uri, null);
+            if (isSuccessful && numInserted > 0) {
+                countRowsWritten(numInserted);
+                notifyChange(uri);
+            }
+            releaseNotifications(isSuccessful);
         }
 
         return numValues;
@@ -457,6 +508,14 @@ public class SeriesGuideProvider extends ContentProvider {
                 notifyUri = Activity.buildActivityUri(values.getAsString(Activity.EPISODE_TVDB_ID));
                 break;
             }
+            case SYNC_HISTORY: {
+                long id = db.insert(Tables.SYNC_HISTORY, null, values);
+                if (id < 0) {
+                    break;
+                }
+                notifyUri = SyncHistory.CONTENT_URI;
+                break;
+            }
             default: {
                 throw new IllegalArgumentException("Unknown uri: " + uri);
             }
@@ -478,14 +537,13 @@ public class SeriesGuideProvider extends ContentProvider {
 
         if (!applyingBatch()) {
             final SQLiteDatabase db = mDbHelper.getWritableDatabase();
-            db.beginTransaction();
             try {
-                count = buildSelection(uri, sUriMatcher.match(uri))
-                        .where(selection, selectionArgs)
-                        .update(db, values);
-                db.setTransactionSuccessful();
-            } finally {
-                db.endTransaction();
+                count = updateInTransaction(db, uri, values, selection, selectionArgs);
+            } catch (SQLiteException e) {
+                if (!SeriesGuideDatabase.repairSearchTable(db)) {
+                    throw e;
+                }
+                count = updateInTransaction(db, uri, values, selection, selectionArgs);
             }
         } else {
             mDb = mDbHelper.getWritableDatabase();
@@ -495,13 +553,27 @@ public class SeriesGuideProvider extends ContentProvider {
         }
 
         if (count > 0) {
-            //noinspection ConstantConditions
-            getContext().getContentResolver().notifyChange(uri, null);
+            countRowsWritten(count);
+            notifyChange(uri);
         }
 
         return count;
     }
 
+    private int updateInTransaction(SQLiteDatabase db, Uri uri, ContentValues values,
+            String selection, String[] selectionArgs) {
+        db.beginTransaction();
+        try {
+            int count = buildSelection(uri, sUriMatcher.match(uri))
+                    .where(selection, selectionArgs)
+                    .update(db, values);
+            db.setTransactionSuccessful();
+            return count;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -514,14 +586,13 @@ public class SeriesGuideProvider extends ContentProvider {
 
         if (!applyingBatch()) {
             final SQLiteDatabase db = mDbHelper.getWritableDatabase();
-            db.beginTransaction();
             try {
-                count = buildSelection(uri, sUriMatcher.match(uri))
-                        .where(selection, selectionArgs)
-                        .delete(db);
-                db.setTransactionSuccessful();
-            } finally {
-                db.endTransaction();
+                count = deleteInTransaction(db, uri, selection, selectionArgs);
+            } catch (SQLiteException e) {
+                if (!SeriesGuideDatabase.repairSearchTable(db)) {
+                    throw e;
+                }
+                count = deleteInTransaction(db, uri, selection, selectionArgs);
             }
         } else {
             mDb = mDbHelper.getWritableDatabase();
@@ -531,16 +602,196 @@ public class SeriesGuideProvider extends ContentProvider {
         }
 
         if (count > 0) {
-            //noinspection ConstantConditions
-            getContext().getContentResolver().notifyChange(uri, null);
+            countRowsWritten(count);
+            notifyChange(uri);
         }
 
         return count;
     }
 
+    private int deleteInTransaction(SQLiteDatabase db, Uri uri, String selection,
+            String[] selectionArgs) {
+        db.beginTransaction();
+        try {
+            int count = buildSelection(uri, sUriMatcher.match(uri))
+                    .where(selection, selectionArgs)
+                    .delete(db);
+            db.setTransactionSuccessful();
+            return count;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Supports {@link SeriesGuideContract#METHOD_APPLY_EPISODE_FLAGS}, see {@link
+     * EpisodeFlagBatch}, {@link SeriesGuideContract#METHOD_APPLY_EPISODES}, see {@link
+     * EpisodeBatch}, {@link SeriesGuideContract#METHOD_UPDATE_EPISODE_FLAGS}, {@link
+     * SeriesGuideContract#METHOD_UPDATE_NEXT_EPISODES} and {@link
+     * SeriesGuideContract#METHOD_UPDATE_SEASON_COUNTS}.
+     */
+    @Override
+    public Bundle call(@NonNull String method, String arg, Bundle extras) {
+        if (SeriesGuideContract.METHOD_APPLY_EPISODE_FLAGS.equals(method)) {
+            if (extras == null) {
+                throw new IllegalArgumentException("extras must be provided for " + method);
+            }
+            EpisodeFlagBatch batch = EpisodeFlagBatch.fromBundle(extras);
+            if (LOGV) {
+                Timber.v("call(method=" + method + ", size=" + batch.size() + ")");
+            }
+            SeriesGuideDatabase.applyEpisodeFlags(mDbHelper.getWritableDatabase(), batch);
+
+            notifyChange(Episodes.CONTENT_URI);
+
+            return Bundle.EMPTY;
+        }
+        if (SeriesGuideContract.METHOD_APPLY_EPISODES.equals(method)) {
+            // the batch is only checked to be complete, so only allow callers of this app
+            if (!isCalledFromOwnProcess()) {
+                throw new SecurityException(method + " is only supported in the same process");
+            }
+            if (extras == null) {
+                throw new IllegalArgumentException("extras must be provided for " + method);
+            }
+            EpisodeBatch batch = EpisodeBatch.fromBundle(extras);
+            if (LOGV) {
+                Timber.v("call(method=" + method + ", size=" + batch.size() + ")");
+            }
+            SQLiteDatabase db = mDbHelper.getWritableDatabase();
+            int count;
+            try {
+                count = SeriesGuideDatabase.applyEpisodes(db, batch);
+            } catch (SQLiteException e) {
+                if (!SeriesGuideDatabase.repairSearchTable(db)) {
+                    throw e;
+                }
+                count = SeriesGuideDatabase.applyEpisodes(db, batch);
+            }
+            countRowsWritten(count);
+
+            notifyChange(Episodes.CONTENT_URI);
+
+            return Bundle.EMPTY;
+        }
+        if (SeriesGuideContract.METHOD_UPDATE_EPISODE_FLAGS.equals(method)) {
+            // the selection is not checked, so only allow callers of this app
+            if (!isCalledFromOwnProcess()) {
+                throw new SecurityException(method + " is only supported in the same process");
+            }
+            if (arg == null || extras == null) {
+                throw new IllegalArgumentException(
+                        "selection and extras must be provided for " + method);
+            }
+            if (LOGV) {
+                Timber.v("call(method=" + method + ", arg=" + arg + ")");
+            }
+            SeriesGuideDatabase.updateEpisodeFlags(mDbHelper.getWritableDatabase(), arg,
+                    extras.getInt(SeriesGuideContract.EXTRA_FLAG_TYPE),
+                    extras.getInt(SeriesGuideContract.EXTRA_FLAG_VALUE),
+                    extras.getBoolean(SeriesGuideContract.EXTRA_QUEUE_UPLOAD));
+
+            notifyChange(Episodes.CONTENT_URI);
+            notifyChange(ListItems.CONTENT_WITH_DETAILS_URI);
+
+            return Bundle.EMPTY;
+        }
+        if (SeriesGuideContract.METHOD_UPDATE_NEXT_EPISODES.equals(method)) {
+            if (extras == null) {
+                throw new IllegalArgumentException("extras must be provided for " + method);
+            }
+            if (LOGV) {
+                Timber.v("call(method=" + method + ", arg=" + arg + ")");
+            }
+            int nextEpisodeTvdbId = SeriesGuideDatabase.updateNextEpisodes(
+                    mDbHelper.getWritableDatabase(),
+                    arg == null ? 0 : Integer.parseInt(arg),
+                    extras.getBoolean(SeriesGuideContract.EXTRA_HIDE_SPECIALS),
+                    extras.getBoolean(SeriesGuideContract.EXTRA_NO_RELEASED_EPISODES),
+                    extras.getLong(SeriesGuideContract.EXTRA_CURRENT_TIME),
+                    extras.getString(SeriesGuideContract.EXTRA_NUMBER_FORMAT));
+
+            notifyChange(Shows.CONTENT_URI);
+            // list items with details include the next episode, but have a different uri
+            notifyChange(ListItems.CONTENT_WITH_DETAILS_URI);
+
+            Bundle result = new Bundle();
+            result.putInt(SeriesGuideContract.EXTRA_NEXT_EPISODE, nextEpisodeTvdbId);
+            return result;
+        }
+        if (SeriesGuideContract.METHOD_GET_STATS.equals(method)) {
+            if (extras == null) {
+                throw new IllegalArgumentException("extras must be provided for " + method);
+            }
+            if (LOGV) {
+                Timber.v("call(method=" + method + ")");
+            }
+            return SeriesGuideDatabase.getStats(mDbHelper.getReadableDatabase(),
+                    extras.getBoolean(SeriesGuideContract.EXTRA_HIDE_SPECIALS));
+        }
+        if (SeriesGuideContract.METHOD_UPDATE_SEASON_COUNTS.equals(method)) {
+            if (extras == null) {
+                throw new IllegalArgumentException("extras must be provided for " + method);
+            }
+            if (LOGV) {
+                Timber.v("call(method=" + method + ")");
+            }
+            SeriesGuideDatabase.updateSeasonCounts(mDbHelper.getWritableDatabase(),
+                    extras.getInt(SeriesGuideContract.EXTRA_SHOW_TVDB_ID),
+                    extras.getInt(SeriesGuideContract.EXTRA_SEASON_TVDB_ID),
+                    extras.getLong(SeriesGuideContract.EXTRA_CURRENT_TIME));
+
+            notifyChange(Seasons.CONTENT_URI);
+
+            return Bundle.EMPTY;
+        }
+        if (SeriesGuideContract.METHOD_HOLD_NOTIFICATIONS.equals(method)) {
+            if (isCalledFromOwnProcess()) {
+                holdNotifications();
+            }
+            return Bundle.EMPTY;
+        }
+        if (SeriesGuideContract.METHOD_RELEASE_NOTIFICATIONS.equals(method)) {
+            if (isCalledFromOwnProcess()) {
+                releaseNotifications(true);
+            }
+            return Bundle.EMPTY;
+        }
+        if (SeriesGuideContract.METHOD_BEGIN_TRANSACTION.equals(method)) {
+            if (!isCalledFromOwnProcess()) {
+                throw new SecurityException(method + " is only supported in the same process");
+            }
+            SQLiteDatabase db = mDbHelper.getWritableDatabase();
+            // changes within the transaction can not be tried again, so repair before
+            SeriesGuideDatabase.repairSearchTable(db);
+            holdNotifications();
+            db.beginTransaction();
+            return Bundle.EMPTY;
+        }
+        if (SeriesGuideContract.METHOD_END_TRANSACTION.equals(method)) {
+            if (!isCalledFromOwnProcess()) {
+                throw new SecurityException(method + " is only supported in the same process");
+            }
+            boolean isSuccessful = SeriesGuideContract.ARG_SUCCESSFUL.equals(arg);
+            SQLiteDatabase db = mDbHelper.getWritableDatabase();
+            try {
+                if (isSuccessful) {
+                    db.setTransactionSuccessful();
+                }
+            } finally {
+                db.endTransaction();
+                releaseNotifications(isSuccessful);
+            }
+            return Bundle.EMPTY;
+        }
+        return super.call(method, arg, extras);
+    }
+
     /**
      * Apply the given set of {@link ContentProviderOperation}, executing inside a {@link
-     * SQLiteDatabase} transaction. All changes will be rolled back if any single one fails.
+     * SQLiteDatabase} transaction. All changes will be rolled back if any single one fails. If
+     * one failed because the search table is broken, see {@link
+     * SeriesGuideDatabase#repairSearchTable}, applies all operations again.
      */
     @NonNull
     @Override
@@ -552,6 +803,22 @@ public class SeriesGuideProvider extends ContentProvider {
             return new ContentProviderResult[0];
         }
 
+        try {
+            return applyBatchInTransaction(operations);
+        } catch (SQLiteException e) {
+            if (!SeriesGuideDatabase.repairSearchTable(mDbHelper.getWritableDatabase())) {
+                throw e;
+            }
+            return applyBatchInTransaction(operations);
+        }
+    }
+
+    private ContentProviderResult[] applyBatchInTransaction(
+            ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        final int numOperations = operations.size();
+        boolean isSuccessful = false;
+        holdNotifications();
         mDb = mDbHelper.getWritableDatabase();
         mDb.beginTransaction();
         try {
@@ -565,17 +832,105 @@ public class SeriesGuideProvider extends ContentProvider {
                 results[i] = operation.apply(this, results, i);
             }
             mDb.setTransactionSuccessful();
+            isSuccessful = true;
             return results;
         } finally {
             mApplyingBatch.set(false);
             mDb.endTransaction();
+            releaseNotifications(isSuccessful);
         }
     }
 
+    /**
+     * Returns the number of rows inserted, updated or deleted through this provider by the calling
+     * thread. Calls from the same process run on the calling thread, so this does not include
+     * changes made by other parts of the app at the same time. Of the {@link #call} methods only
+     * includes episodes written with {@link SeriesGuideContract#METHOD_APPLY_EPISODES}.
+     */
+    public static long getRowsWritten() {
+        return sRowsWritten.get()[0];
+    }
+
+    private static void countRowsWritten(long count) {
+        sRowsWritten.get()[0] += count;
+    }
+
     private boolean applyingBatch() {
         return mApplyingBatch.get() != null && mApplyingBatch.get();
     }
 
+    /**
+     * Sends a change notification for the given {@link Uri}, or if notifications are held on this
+     * thread, queues it until they are released.
+     */
+    private void notifyChange(Uri uri) {
+        PendingNotifications pending = mPendingNotifications.get();
+        if (pending != null) {
+            pending.add(uri);
+        } else {
+            //noinspection ConstantConditions
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+    }
+
+    /**
+     * Queues change notifications of the current thread until a matching call to {@link
+     * #releaseNotifications(boolean)}. May be nested.
+     */
+    private void holdNotifications() {
+        PendingNotifications pending = mPendingNotifications.get();
+        if (pending == null) {
+            pending = new PendingNotifications();
+            mPendingNotifications.set(pending);
+        }
+        pending.hold();
+    }
+
+    /**
+     * If this releases the outermost hold, sends a single notification for each queued {@link
+     * Uri} not already covered by a parent {@link Uri}.
+     *
+     * @param notify If {@code false} and this releases the outermost hold, drops all queued
+     * notifications, e.g. because the transaction was rolled back.
+     */
+    private void releaseNotifications(boolean notify) {
+        PendingNotifications pending = mPendingNotifications.get();
+        if (pending == null || !pending.release()) {
+            return;
+        }
+        mPendingNotifications.remove();
+        if (!notify) {
+            return;
+        }
+        List<Uri> uris = pending.coalesce();
+        if (LOGV) {
+            Timber.v("releaseNotifications: notifying " + uris.size() + " uris");
+        }
+        for (Uri uri : uris) {
+            //noinspection ConstantConditions
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+    }
+
+    /**
+     * Notifications are held per thread, so only allow callers of this process to hold them.
+     * Remote calls are dispatched on a pool of binder threads.
+     */
+    private static boolean isCalledFromOwnProcess() {
+        return Binder.getCallingPid() == Process.myPid();
+    }
+
+    /**
+     * Builds the {@link SelectionBuilder} used for the given {@link Uri}. Exposed so tests can
+     * inspect the resulting queries, e.g. their query plan.
+     */
+    public static SelectionBuilder buildSelection(Uri uri) {
+        if (sUriMatcher == null) {
+            sUriMatcher = buildUriMatcher();
+        }
+        return buildSelection(uri, sUriMatcher.match(uri));
+    }
+
     /**
      * Builds selection using a {@link SelectionBuilder} to match the requested {@link Uri}.
      */
@@ -692,6 +1047,16 @@ public class SeriesGuideProvider extends ContentProvider {
             case ACTIVITY: {
                 return builder.table(Tables.ACTIVITY);
             }
+            case ACTIVITY_WITH_EPISODE: {
+                return builder.table(Tables.ACTIVITY_JOIN_EPISODES_JOIN_SHOWS)
+                        .mapToTable(Activity._ID, Tables.ACTIVITY);
+            }
+            case EPISODE_FLAG_OUTBOX: {
+                return builder.table(Tables.EPISODE_FLAG_OUTBOX);
+            }
+            case SYNC_HISTORY: {
+                return builder.table(Tables.SYNC_HISTORY);
+            }
             default: {
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
             }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.service;
+
+import android.app.AlarmManager;
+import android.app.IntentService;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.format.DateUtils;
+import com.battlelancer.seriesguide.util.EpisodeTools;
+import com.uwetrottmann.androidutils.AndroidUtils;
+
+/**
+ * Uploads episode flag changes queued in the outbox, see {@link
+ * EpisodeTools.Upload#flagsFromOutbox(android.content.Context)}. Changes still queued afterwards
+ * are tried again once due, see {@link #scheduleRetry(Context, long)}, or with the next sync (e.g.
+ * when offline).
+ */
+public class EpisodeFlagUploadService extends IntentService {
+
+    /**
+     * Wait this long after the last change, so e.g. flagging several episodes in a row is
+     * uploaded together.
+     */
+    private static final long UPLOAD_DELAY_MS = 5 * DateUtils.SECOND_IN_MILLIS;
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static Runnable pendingStart;
+
+    /**
+     * Starts the service once no further change was scheduled for {@link #UPLOAD_DELAY_MS}. Call
+     * from the main thread.
+     */
+    public static void schedule(Context context) {
+        final Context appContext = context.getApplicationContext();
+        if (pendingStart != null) {
+            handler.removeCallbacks(pendingStart);
+        }
+        pendingStart = new Runnable() {
+            @Override
+            public void run() {
+                pendingStart = null;
+                appContext.startService(new Intent(appContext, EpisodeFlagUploadService.class));
+            }
+        };
+        handler.postDelayed(pendingStart, UPLOAD_DELAY_MS);
+    }
+
+    /**
+     * Starts the service at the given time to try again to upload changes that failed to upload.
+     * Replaces a previously scheduled retry. Does not wake up the device, if asleep the service
+     * starts once it wakes up.
+     */
+    public static void scheduleRetry(Context context, long retryAtMs) {
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        am.set(AlarmManager.RTC, retryAtMs, buildRetryIntent(context));
+    }
+
+    /**
+     * Cancels a retry scheduled with {@link #scheduleRetry(Context, long)}.
+     */
+    public static void cancelRetry(Context context) {
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        am.cancel(buildRetryIntent(context));
+    }
+
+    private static PendingIntent buildRetryIntent(Context context) {
+        Context appContext = context.getApplicationContext();
+        Intent i = new Intent(appContext, EpisodeFlagUploadService.class);
+        return PendingIntent.getService(appContext, 0, i, 0);
+    }
+
+    public EpisodeFlagUploadService() {
+        super("Episode Flag Upload Service");
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        if (!AndroidUtils.isNetworkConnected(this)) {
+            // try again with the next sync
+            return;
+        }
+        EpisodeTools.Upload.flagsFromOutbox(this);
+    }
+}
@@ -18,7 +18,6 @@
 package com.battlelancer.seriesguide.settings;
 
 import android.content.Context;
-import android.preference.PreferenceManager;
 
 /**
  * Access settings specifically related to the calendar views, e.g. upcoming and recent episodes.
@@ -35,17 +34,13 @@ public class CalendarSettings {
      * Whether the calendar should be infinite or limited to a number of days.
      */
     public static boolean isInfiniteScrolling(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context).getBoolean(
-                KEY_INFINITE_SCROLLING,
-                false);
+        return SettingsSnapshot.get(context).isCalendarInfiniteScrolling;
     }
 
     /**
      * Whether the calendar should only include episodes from favorite shows.
      */
     public static boolean isOnlyFavorites(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context).getBoolean(
-                KEY_ONLY_FAVORITE_SHOWS,
-                false);
+        return SettingsSnapshot.get(context).isCalendarOnlyFavorites;
     }
 }
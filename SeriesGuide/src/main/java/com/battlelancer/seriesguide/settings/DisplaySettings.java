@@ -110,8 +110,7 @@ public class DisplaySettings {
     }
 
     public static String getNumberFormat(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context)
-                .getString(KEY_NUMBERFORMAT, NUMBERFORMAT_DEFAULT);
+        return SettingsSnapshot.get(context).numberFormat;
     }
 
     public static Constants.EpisodeSorting getEpisodeSortOrder(Context context) {
@@ -127,13 +126,11 @@ public class DisplaySettings {
     }
 
     public static boolean isNoReleasedEpisodes(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context)
-                .getBoolean(KEY_NO_RELEASED_EPISODES, false);
+        return SettingsSnapshot.get(context).isNoReleasedEpisodes;
     }
 
     public static boolean isNoWatchedEpisodes(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context)
-                .getBoolean(KEY_NO_WATCHED_EPISODES, false);
+        return SettingsSnapshot.get(context).isNoWatchedEpisodes;
     }
 
     /**
@@ -141,16 +138,14 @@ public class DisplaySettings {
      * episode lists of a show).
      */
     public static boolean isHidingSpecials(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context).getBoolean(
-                KEY_HIDE_SPECIALS, false);
+        return SettingsSnapshot.get(context).isHidingSpecials;
     }
 
     /**
      * Whether shows and movies sorted by title should ignore the leading article.
      */
     public static boolean isSortOrderIgnoringArticles(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context)
-                .getBoolean(KEY_SORT_IGNORE_ARTICLE, false);
+        return SettingsSnapshot.get(context).isSortIgnoringArticles;
     }
 
     /**
@@ -166,7 +161,6 @@ public class DisplaySettings {
      * days).
      */
     public static boolean isDisplayExactDate(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context).getBoolean(
-                KEY_DISPLAY_EXACT_DATE, false);
+        return SettingsSnapshot.get(context).isDisplayExactDate;
     }
 }
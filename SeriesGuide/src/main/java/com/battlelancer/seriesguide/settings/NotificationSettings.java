@@ -49,31 +49,21 @@ public class NotificationSettings {
 
     public static final String KEY_VIBRATE = "com.battlelancer.seriesguide.notifications.vibrate";
 
-    private static final String THRESHOLD_DEFAULT_MIN = "60";
+    static final String THRESHOLD_DEFAULT_MIN = "60";
 
     public static boolean isNotificationsEnabled(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context)
-                .getBoolean(KEY_ENABLED, true);
+        return SettingsSnapshot.get(context).isNotificationsEnabled;
     }
 
     public static boolean isNotifyAboutFavoritesOnly(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context)
-                .getBoolean(KEY_FAVONLY, false);
+        return SettingsSnapshot.get(context).isNotifyAboutFavoritesOnly;
     }
 
     /**
      * How far into the future to include upcoming episodes in minutes.
      */
     public static int getLatestToIncludeTreshold(Context context) {
-        int threshold = 60;
-
-        try {
-            threshold = Integer.parseInt(PreferenceManager.getDefaultSharedPreferences(context)
-                    .getString(KEY_THRESHOLD, THRESHOLD_DEFAULT_MIN));
-        } catch (NumberFormatException ignored) {
-        }
-
-        return threshold;
+        return SettingsSnapshot.get(context).notificationThreshold;
     }
 
     /**
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.settings;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.support.annotation.NonNull;
+import com.battlelancer.seriesguide.ui.SeriesGuidePreferences;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable copy of settings read on hot paths, like when binding list items or building
+ * queries. Loaded once, then replaced whenever one of its settings changes. Use {@link
+ * #get(Context)} and read the fields directly.
+ *
+ * <p>Note: other preference change listeners may be called before the snapshot is replaced, so
+ * they should read the changed value from the preferences they are given instead, or call {@link
+ * #update(SharedPreferences, String)} first.
+ */
+public class SettingsSnapshot {
+
+    private static final Set<String> KEYS = new HashSet<>(Arrays.asList(
+            SeriesGuidePreferences.KEY_OFFSET,
+            DisplaySettings.KEY_NUMBERFORMAT,
+            DisplaySettings.KEY_NO_RELEASED_EPISODES,
+            DisplaySettings.KEY_NO_WATCHED_EPISODES,
+            DisplaySettings.KEY_HIDE_SPECIALS,
+            DisplaySettings.KEY_SORT_IGNORE_ARTICLE,
+            DisplaySettings.KEY_DISPLAY_EXACT_DATE,
+            CalendarSettings.KEY_INFINITE_SCROLLING,
+            CalendarSettings.KEY_ONLY_FAVORITE_SHOWS,
+            NotificationSettings.KEY_ENABLED,
+            NotificationSettings.KEY_FAVONLY,
+            NotificationSettings.KEY_THRESHOLD,
+            ShowsDistillationSettings.KEY_SORT_ORDER,
+            ShowsDistillationSettings.KEY_SORT_FAVORITES_FIRST,
+            ShowsDistillationSettings.KEY_FILTER_FAVORITES,
+            ShowsDistillationSettings.KEY_FILTER_UNWATCHED,
+            ShowsDistillationSettings.KEY_FILTER_UPCOMING,
+            ShowsDistillationSettings.KEY_FILTER_HIDDEN
+    ));
+
+    private static volatile SettingsSnapshot current;
+
+    /** Strong reference, the preferences only keep a weak one. */
+    private static final SharedPreferences.OnSharedPreferenceChangeListener listener
+            = new SharedPreferences.OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+            update(prefs, key);
+        }
+    };
+
+    /** User-defined release time offset in hours. */
+    public final int userOffset;
+
+    public final String numberFormat;
+    public final boolean isNoReleasedEpisodes;
+    public final boolean isNoWatchedEpisodes;
+    public final boolean isHidingSpecials;
+    public final boolean isSortIgnoringArticles;
+    public final boolean isDisplayExactDate;
+
+    public final boolean isCalendarInfiniteScrolling;
+    public final boolean isCalendarOnlyFavorites;
+
+    public final boolean isNotificationsEnabled;
+    public final boolean isNotifyAboutFavoritesOnly;
+    /** In minutes. */
+    public final int notificationThreshold;
+
+    public final int showsSortOrderId;
+    public final boolean isShowsSortFavoritesFirst;
+    public final boolean isShowsFilteringFavorites;
+    public final boolean isShowsFilteringUnwatched;
+    public final boolean isShowsFilteringUpcoming;
+    public final boolean isShowsFilteringHidden;
+
+    private SettingsSnapshot(SharedPreferences prefs) {
+        userOffset = parseInt(prefs.getString(SeriesGuidePreferences.KEY_OFFSET, "0"), 0);
+
+        numberFormat = prefs.getString(DisplaySettings.KEY_NUMBERFORMAT,
+                DisplaySettings.NUMBERFORMAT_DEFAULT);
+        isNoReleasedEpisodes = prefs.getBoolean(DisplaySettings.KEY_NO_RELEASED_EPISODES, false);
+        isNoWatchedEpisodes = prefs.getBoolean(DisplaySettings.KEY_NO_WATCHED_EPISODES, false);
+        isHidingSpecials = prefs.getBoolean(DisplaySettings.KEY_HIDE_SPECIALS, false);
+        isSortIgnoringArticles = prefs.getBoolean(DisplaySettings.KEY_SORT_IGNORE_ARTICLE, false);
+        isDisplayExactDate = prefs.getBoolean(DisplaySettings.KEY_DISPLAY_EXACT_DATE, false);
+
+        isCalendarInfiniteScrolling = prefs.getBoolean(CalendarSettings.KEY_INFINITE_SCROLLING,
+                false);
+        isCalendarOnlyFavorites = prefs.getBoolean(CalendarSettings.KEY_ONLY_FAVORITE_SHOWS,
+                false);
+
+        isNotificationsEnabled = prefs.getBoolean(NotificationSettings.KEY_ENABLED, true);
+        isNotifyAboutFavoritesOnly = prefs.getBoolean(NotificationSettings.KEY_FAVONLY, false);
+        notificationThreshold = parseInt(prefs.getString(NotificationSettings.KEY_THRESHOLD,
+                NotificationSettings.THRESHOLD_DEFAULT_MIN), 60);
+
+        showsSortOrderId = prefs.getInt(ShowsDistillationSettings.KEY_SORT_ORDER, 0);
+        isShowsSortFavoritesFirst = prefs.getBoolean(
+                ShowsDistillationSettings.KEY_SORT_FAVORITES_FIRST, true);
+        isShowsFilteringFavorites = prefs.getBoolean(
+                ShowsDistillationSettings.KEY_FILTER_FAVORITES, false);
+        isShowsFilteringUnwatched = prefs.getBoolean(
+                ShowsDistillationSettings.KEY_FILTER_UNWATCHED, false);
+        isShowsFilteringUpcoming = prefs.getBoolean(
+                ShowsDistillationSettings.KEY_FILTER_UPCOMING, false);
+        isShowsFilteringHidden = prefs.getBoolean(
+                ShowsDistillationSettings.KEY_FILTER_HIDDEN, false);
+    }
+
+    /**
+     * Returns the current settings, loads them and starts listening for changes on first use.
+     */
+    @NonNull
+    public static SettingsSnapshot get(Context context) {
+        SettingsSnapshot snapshot = current;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (SettingsSnapshot.class) {
+            if (current == null) {
+                SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(
+                        context.getApplicationContext());
+                prefs.registerOnSharedPreferenceChangeListener(listener);
+                current = new SettingsSnapshot(prefs);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Replaces the snapshot if the changed setting is part of it. Preference change listeners
+     * reading the snapshot (e.g. when restarting a loader) should call this first, as the
+     * snapshot's own listener may not have been called, yet.
+     */
+    public static void update(SharedPreferences prefs, String key) {
+        if (KEYS.contains(key)) {
+            synchronized (SettingsSnapshot.class) {
+                current = new SettingsSnapshot(prefs);
+            }
+        }
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
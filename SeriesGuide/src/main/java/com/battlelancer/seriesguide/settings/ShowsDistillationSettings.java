@@ -17,7 +17,6 @@
 package com.battlelancer.seriesguide.settings;
 
 import android.content.Context;
-import android.preference.PreferenceManager;
 
 import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
 
@@ -67,32 +66,27 @@ public class ShowsDistillationSettings {
      * of the current show sort order.
      */
     public static int getSortOrderId(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context).getInt(KEY_SORT_ORDER, 0);
+        return SettingsSnapshot.get(context).showsSortOrderId;
     }
 
     public static boolean isSortFavoritesFirst(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context)
-                .getBoolean(KEY_SORT_FAVORITES_FIRST, true);
+        return SettingsSnapshot.get(context).isShowsSortFavoritesFirst;
     }
 
     public static boolean isFilteringFavorites(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context)
-                .getBoolean(KEY_FILTER_FAVORITES, false);
+        return SettingsSnapshot.get(context).isShowsFilteringFavorites;
     }
 
     public static boolean isFilteringUnwatched(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context)
-                .getBoolean(KEY_FILTER_UNWATCHED, false);
+        return SettingsSnapshot.get(context).isShowsFilteringUnwatched;
     }
 
     public static boolean isFilteringUpcoming(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context)
-                .getBoolean(KEY_FILTER_UPCOMING, false);
+        return SettingsSnapshot.get(context).isShowsFilteringUpcoming;
     }
 
     public static boolean isFilteringHidden(Context context) {
-        return PreferenceManager.getDefaultSharedPreferences(context)
-                .getBoolean(KEY_FILTER_HIDDEN, false);
+        return SettingsSnapshot.get(context).isShowsFilteringHidden;
     }
 
     /**
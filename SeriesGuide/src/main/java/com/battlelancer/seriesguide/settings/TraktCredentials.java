@@ -35,6 +35,7 @@ import com.battlelancer.seriesguide.ui.BaseOAuthActivity;
 import com.battlelancer.seriesguide.ui.ConnectTraktActivity;
 import com.battlelancer.seriesguide.ui.ShowsActivity;
 import com.battlelancer.seriesguide.util.ServiceUtils;
+import com.battlelancer.seriesguide.util.TraktFriendsHistory;
 import com.uwetrottmann.trakt.v2.TraktV2;
 import android.support.annotation.NonNull;
 import org.apache.oltu.oauth2.client.response.OAuthAccessTokenResponse;
@@ -134,6 +135,9 @@ public class TraktCredentials {
     public synchronized void removeCredentials() {
         removeAccessToken();
         setUsername(null);
+
+        // do not keep the history of friends of this user
+        TraktFriendsHistory.clear(mContext);
     }
 
     /**
@@ -68,6 +68,11 @@ public class TraktSettings {
     public static final String KEY_QUICK_CHECKIN
             = "com.battlelancer.seriesguide.trakt.quickcheckin";
 
+    public static final String KEY_SHOW_TRAKT_ID_MAX_AGE_DAYS
+            = "com.battlelancer.seriesguide.trakt.showidmaxage";
+
+    private static final int SHOW_TRAKT_ID_MAX_AGE_DAYS_DEFAULT = 30;
+
     private static final long FULL_SYNC_INTERVAL_MILLIS = 24 * DateUtils.HOUR_IN_MILLIS;
 
     /**
@@ -207,6 +212,16 @@ public class TraktSettings {
         return (currentTime - previousUpdateTime) > FULL_SYNC_INTERVAL_MILLIS;
     }
 
+    /**
+     * How long the trakt id of a show is used before looking it up by its TVDb id again, see
+     * {@link com.battlelancer.seriesguide.util.TraktShowIdCache}. By default 30 days.
+     */
+    public static long getShowTraktIdMaxAge(Context context) {
+        int days = PreferenceManager.getDefaultSharedPreferences(context)
+                .getInt(KEY_SHOW_TRAKT_ID_MAX_AGE_DAYS, SHOW_TRAKT_ID_MAX_AGE_DAYS_DEFAULT);
+        return days * DateUtils.DAY_IN_MILLIS;
+    }
+
     /**
      * Whether the check-in dialog should not wait for the user to enter a message, but immediately
      * start the check-in.
@@ -31,6 +31,12 @@ public class UpdateSettings {
 
     public static final String KEY_FAILED_COUNTER = "com.battlelancer.seriesguide.failedcounter";
 
+    public static final String KEY_SHOW_UPDATE_CONCURRENCY
+            = "com.battlelancer.seriesguide.showupdateconcurrency";
+
+    private static final int SHOW_UPDATE_CONCURRENCY_DEFAULT = 3;
+    private static final int SHOW_UPDATE_CONCURRENCY_MAX = 8;
+
     /**
      * Whether the user wants us to download larger chunks of data (e.g. images) only over a Wi-Fi
      * connection.
@@ -60,4 +66,14 @@ public class UpdateSettings {
         return PreferenceManager.getDefaultSharedPreferences(context).getInt(KEY_FAILED_COUNTER, 0);
     }
 
+    /**
+     * Returns how many shows may be downloaded from TVDb in parallel during a sync. At least 1,
+     * at most 8.
+     */
+    public static int getShowUpdateConcurrency(Context context) {
+        int concurrency = PreferenceManager.getDefaultSharedPreferences(context)
+                .getInt(KEY_SHOW_UPDATE_CONCURRENCY, SHOW_UPDATE_CONCURRENCY_DEFAULT);
+        return Math.max(1, Math.min(concurrency, SHOW_UPDATE_CONCURRENCY_MAX));
+    }
+
 }
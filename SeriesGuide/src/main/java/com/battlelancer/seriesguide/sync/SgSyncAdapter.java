@@ -27,7 +27,9 @@ import android.content.SharedPreferences;
 import android.content.SyncResult;
 import android.database.Cursor;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
 import android.widget.Toast;
@@ -35,7 +37,6 @@ import com.battlelancer.seriesguide.R;
 import com.battlelancer.seriesguide.SeriesGuideApplication;
 import com.battlelancer.seriesguide.backend.HexagonTools;
 import com.battlelancer.seriesguide.items.SearchResult;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
 import com.battlelancer.seriesguide.settings.TmdbSettings;
 import com.battlelancer.seriesguide.settings.TraktCredentials;
@@ -43,11 +44,15 @@ import com.battlelancer.seriesguide.settings.TraktSettings;
 import com.battlelancer.seriesguide.settings.UpdateSettings;
 import com.battlelancer.seriesguide.thetvdbapi.TheTVDB;
 import com.battlelancer.seriesguide.thetvdbapi.TvdbException;
+import com.battlelancer.seriesguide.util.ActivityTools;
 import com.battlelancer.seriesguide.util.DBUtils;
+import com.battlelancer.seriesguide.util.EpisodeTools;
+import com.battlelancer.seriesguide.util.HttpMetrics;
 import com.battlelancer.seriesguide.util.MovieTools;
 import com.battlelancer.seriesguide.util.ServiceUtils;
 import com.battlelancer.seriesguide.util.ShowTools;
 import com.battlelancer.seriesguide.util.TaskManager;
+import com.battlelancer.seriesguide.util.TraktShowIdCache;
 import com.battlelancer.seriesguide.util.TraktTools;
 import com.battlelancer.seriesguide.util.Utils;
 import com.uwetrottmann.androidutils.AndroidUtils;
@@ -60,7 +65,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import retrofit.RetrofitError;
 import timber.log.Timber;
 
@@ -286,122 +295,272 @@ public class SgSyncAdapter extends AbstractThreadedSyncAdapter {
             showsToUpdate = getShowsToUpdate(syncType, currentTime);
         }
 
-        // from here on we need more sophisticated abort handling, so keep track of errors
-        UpdateResult resultCode = UpdateResult.SUCCESS;
+        SyncProfiler profiler = new SyncProfiler(syncType.toString()
+                + (syncImmediately ? "_IMMEDIATE" : "_REGULAR"));
 
-        // loop through shows and download latest data from TVDb
-        Timber.d("Syncing...TVDb");
-        final AtomicInteger updateCount = new AtomicInteger();
-        final ContentResolver resolver = getContext().getContentResolver();
-        for (int i = updateCount.get(); i < showsToUpdate.length; i++) {
-            int id = showsToUpdate[i];
-
-            // stop sync if connectivity is lost
-            if (!AndroidUtils.isNetworkConnected(getContext())) {
-                resultCode = UpdateResult.INCOMPLETE;
-                break;
-            }
+        // hold back change notifications until done, so loaders do not re-query for every change
+        UpdateResult resultCode;
+        DBUtils.holdNotifications(getContext());
+        try {
+            // download latest data from TVDb
+            // from here on we need more sophisticated abort handling, so keep track of errors
+            Timber.d("Syncing...TVDb");
+            TraktShowIdCache.resetStats();
+            profiler.beginPhase(SyncProfiler.PHASE_TVDB);
+            resultCode = updateShows(showsToUpdate, profiler);
+            Timber.d("Syncing...TVDb trakt id cache " + TraktShowIdCache.getStats());
+
+            // do some more things if this is not a quick update
+            if (syncType != SyncType.SINGLE) {
+                final SharedPreferences prefs = PreferenceManager
+                        .getDefaultSharedPreferences(getContext());
+
+                // get latest TMDb configuration
+                Timber.d("Syncing...TMDb config");
+                profiler.beginPhase(SyncProfiler.PHASE_TMDB_CONFIG);
+                if (!getTmdbConfiguration(getContext(), prefs)) {
+                    profiler.recordError("Downloading TMDb config failed");
+                }
 
-            try {
-                TheTVDB.updateShow(getContext(), id);
+                // sync with Hexagon or trakt
+                final HashSet<Integer> showsExisting = ShowTools.getShowTvdbIdsAsSet(getContext());
+                final HashMap<Integer, SearchResult> showsNew = new HashMap<>();
+                // upload queued episode flag changes first, those still queued (e.g. failed to
+                // upload) are not reverted by downloading flags
+                Timber.d("Syncing...episode flag outbox");
+                profiler.beginPhase(SyncProfiler.PHASE_EPISODE_FLAG_OUTBOX);
+                if (!EpisodeTools.Upload.flagsFromOutbox(getContext())) {
+                    profiler.recordError("Uploading queued episode flags failed");
+                    resultCode = UpdateResult.INCOMPLETE;
+                }
+                if (showsExisting == null) {
+                    profiler.recordError("Querying shows failed");
+                    resultCode = UpdateResult.INCOMPLETE;
+                } else {
+                    if (HexagonTools.isSignedIn(getContext())) {
+                        // sync with hexagon...
+                        profiler.beginPhase(SyncProfiler.PHASE_HEXAGON);
+                        boolean success = HexagonTools.syncWithHexagon(getContext(), showsExisting,
+                                showsNew);
+                        if (!success) {
+                            profiler.recordError("Hexagon sync incomplete");
+                        }
+                        // don't overwrite failure
+                        if (resultCode == UpdateResult.SUCCESS) {
+                            resultCode = success ? UpdateResult.SUCCESS : UpdateResult.INCOMPLETE;
+                        }
+                    } else {
+                        // ...OR sync with trakt
+                        profiler.beginPhase(SyncProfiler.PHASE_TRAKT);
+                        UpdateResult resultTrakt = performTraktSync(getContext(), showsExisting,
+                                currentTime);
+                        if (resultTrakt != UpdateResult.SUCCESS) {
+                            profiler.recordError("trakt sync incomplete");
+                        }
+                        // don't overwrite failure
+                        if (resultCode == UpdateResult.SUCCESS) {
+                            resultCode = resultTrakt;
+                        }
+
+                        // add shows newly discovered on trakt
+                        if (showsNew.size() > 0) {
+                            List<SearchResult> showsNewList = new LinkedList<>(showsNew.values());
+                            TaskManager.getInstance(getContext())
+                                    .performAddTask(showsNewList, true, false);
+                        }
+                    }
+                }
 
-                // make sure other loaders (activity, overview, details) are notified
-                resolver.notifyChange(Episodes.CONTENT_URI_WITHSHOW, null);
-            } catch (TvdbException e) {
-                // failed, continue with other shows
-                resultCode = UpdateResult.INCOMPLETE;
-                Timber.e(e, "Updating show failed");
+                // update next episodes for all shows, a single statement so run it right here
+                profiler.beginPhase(SyncProfiler.PHASE_NEXT_EPISODES);
+                DBUtils.updateLatestEpisode(getContext(), null);
+
+                // keep the activity table (recently watched episodes) small
+                profiler.beginPhase(SyncProfiler.PHASE_ACTIVITY_CLEANUP);
+                ActivityTools.removeOutdatedActivity(getContext());
+                profiler.endPhase();
+
+                // store time of update, set retry counter on failure
+                if (resultCode == UpdateResult.SUCCESS) {
+                    // we were successful, reset failed counter
+                    prefs.edit().putLong(UpdateSettings.KEY_LASTUPDATE, currentTime)
+                            .putInt(UpdateSettings.KEY_FAILED_COUNTER, 0).commit();
+                } else {
+                    int failed = UpdateSettings.getFailedNumberOfUpdates(getContext());
+
+                    /*
+                     * Back off by 2**(failure + 2) * minutes. Purposely set a fake
+                     * last update time, because the next update will be triggered
+                     * UPDATE_INTERVAL minutes after the last update time. This way
+                     * we can trigger it earlier (4min up to 32min).
+                     */
+                    long fakeLastUpdateTime;
+                    if (failed < 4) {
+                        fakeLastUpdateTime = currentTime
+                                - ((DEFAULT_SYNC_INTERVAL_MINUTES - (int) Math.pow(2, failed + 2))
+                                * DateUtils.MINUTE_IN_MILLIS);
+                    } else {
+                        fakeLastUpdateTime = currentTime;
+                    }
+
+                    failed += 1;
+                    prefs.edit()
+                            .putLong(UpdateSettings.KEY_LASTUPDATE, fakeLastUpdateTime)
+                            .putInt(UpdateSettings.KEY_FAILED_COUNTER, failed).commit();
+                }
             }
 
-            updateCount.incrementAndGet();
+            // episodes, their flags or release times may have changed, so recount seasons
+            Timber.d("Syncing...season counts");
+            profiler.beginPhase(SyncProfiler.PHASE_SEASON_COUNTS);
+            if (syncType == SyncType.SINGLE) {
+                DBUtils.updateUnwatchedCountsOfShow(getContext(), showsToUpdate[0]);
+            } else {
+                DBUtils.updateUnwatchedCounts(getContext());
+            }
+        } finally {
+            DBUtils.releaseNotifications(getContext());
         }
 
-        // do some more things if this is not a quick update
-        if (syncType != SyncType.SINGLE) {
-            final SharedPreferences prefs = PreferenceManager
-                    .getDefaultSharedPreferences(getContext());
+        profiler.finish(getContext(), resultCode);
+
+        // There could have been new episodes added after an update
+        Utils.runNotificationService(getContext());
 
-            // get latest TMDb configuration
-            Timber.d("Syncing...TMDb config");
-            getTmdbConfiguration(getContext(), prefs);
+        Timber.i("Syncing..." + resultCode.toString());
+    }
 
-            // sync with Hexagon or trakt
-            final HashSet<Integer> showsExisting = ShowTools.getShowTvdbIdsAsSet(getContext());
-            final HashMap<Integer, SearchResult> showsNew = new HashMap<>();
-            if (showsExisting == null) {
-                resultCode = UpdateResult.INCOMPLETE;
-            } else {
-                if (HexagonTools.isSignedIn(getContext())) {
-                    // sync with hexagon...
-                    boolean success = HexagonTools.syncWithHexagon(getContext(), showsExisting,
-                            showsNew);
-                    // don't overwrite failure
-                    if (resultCode == UpdateResult.SUCCESS) {
-                        resultCode = success ? UpdateResult.SUCCESS : UpdateResult.INCOMPLETE;
+    /**
+     * Downloads and parses shows on a bounded pool of worker threads, while the calling thread
+     * writes finished shows to the database in the order given. At most twice as many shows as
+     * there are workers are held in memory at any time.
+     *
+     * <p> Continues with other shows if a show fails to update. Stops if connectivity is lost.
+     * Records statistics of each show with the given profiler.
+     */
+    private UpdateResult updateShows(int[] showsToUpdate, SyncProfiler profiler) {
+        if (showsToUpdate.length == 0) {
+            return UpdateResult.SUCCESS;
+        }
+
+        final Context context = getContext();
+        int concurrency = Math.min(UpdateSettings.getShowUpdateConcurrency(context),
+                showsToUpdate.length);
+        int maxPendingShows = concurrency * 2;
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        LinkedList<Future<FetchedShow>> pendingShows = new LinkedList<>();
+        int nextShow = 0;
+        UpdateResult resultCode = UpdateResult.SUCCESS;
+        try {
+            while (nextShow < showsToUpdate.length || !pendingShows.isEmpty()) {
+                // stop sync if connectivity is lost
+                if (!AndroidUtils.isNetworkConnected(context)) {
+                    resultCode = UpdateResult.INCOMPLETE;
+                    break;
+                }
+
+                // keep workers busy downloading upcoming shows
+                while (nextShow < showsToUpdate.length && pendingShows.size() < maxPendingShows) {
+                    pendingShows.add(executor.submit(
+                            new FetchShowCallable(context, showsToUpdate[nextShow])));
+                    nextShow++;
+                }
+
+                // write the oldest show once it is downloaded
+                Future<FetchedShow> pendingShow = pendingShows.removeFirst();
+                try {
+                    FetchedShow fetched = pendingShow.get();
+                    if (fetched.error != null) {
+                        // failed, continue with other shows
+                        resultCode = UpdateResult.INCOMPLETE;
+                        Timber.e(fetched.error, "Updating show failed");
+                        profiler.recordShow(fetched.showTvdbId, fetched.fetchMillis, 0,
+                                fetched.bytes, 0, fetched.error.getMessage());
+                        continue;
                     }
-                } else {
-                    // ...OR sync with trakt
-                    UpdateResult resultTrakt = performTraktSync(getContext(), showsExisting,
-                            currentTime);
-                    // don't overwrite failure
-                    if (resultCode == UpdateResult.SUCCESS) {
-                        resultCode = resultTrakt;
+                    if (fetched.update == null) {
+                        profiler.recordShow(fetched.showTvdbId, fetched.fetchMillis, 0,
+                                fetched.bytes, 0, null);
+                        continue;
                     }
 
-                    // add shows newly discovered on trakt
-                    if (showsNew.size() > 0) {
-                        List<SearchResult> showsNewList = new LinkedList<>(showsNew.values());
-                        TaskManager.getInstance(getContext())
-                                .performAddTask(showsNewList, true, false);
+                    long writeStart = SystemClock.elapsedRealtime();
+                    int rowsWritten = 0;
+                    String error = null;
+                    try {
+                        rowsWritten = TheTVDB.applyShowUpdate(context, fetched.update);
+                    } catch (TvdbException e) {
+                        // failed, continue with other shows
+                        resultCode = UpdateResult.INCOMPLETE;
+                        Timber.e(e, "Updating show failed");
+                        error = e.getMessage();
                     }
+                    profiler.recordShow(fetched.showTvdbId, fetched.fetchMillis,
+                            SystemClock.elapsedRealtime() - writeStart, fetched.bytes,
+                            rowsWritten, error);
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                } catch (InterruptedException e) {
+                    // sync was cancelled
+                    resultCode = UpdateResult.INCOMPLETE;
+                    Thread.currentThread().interrupt();
+                    break;
                 }
-
-                // make sure other loaders (activity, overview, details) are notified of changes
-                resolver.notifyChange(Episodes.CONTENT_URI_WITHSHOW, null);
             }
+        } finally {
+            executor.shutdownNow();
+        }
 
-            // renew search table if shows were updated and it will not be renewed by add task
-            if (updateCount.get() > 0 && showsToUpdate.length > 0 && showsNew.size() == 0) {
-                DBUtils.rebuildFtsTable(getContext());
-            }
+        return resultCode;
+    }
 
-            // update next episodes for all shows
-            TaskManager.getInstance(getContext()).tryNextEpisodeUpdateTask();
+    /**
+     * Result of a {@link FetchShowCallable}, with the time and bytes it took to download.
+     */
+    private static class FetchedShow {
+
+        final int showTvdbId;
+        @Nullable final TheTVDB.ShowUpdate update;
+        @Nullable final TvdbException error;
+        final long fetchMillis;
+        final long bytes;
+
+        FetchedShow(int showTvdbId, @Nullable TheTVDB.ShowUpdate update,
+                @Nullable TvdbException error, long fetchMillis, long bytes) {
+            this.showTvdbId = showTvdbId;
+            this.update = update;
+            this.error = error;
+            this.fetchMillis = fetchMillis;
+            this.bytes = bytes;
+        }
+    }
 
-            // store time of update, set retry counter on failure
-            if (resultCode == UpdateResult.SUCCESS) {
-                // we were successful, reset failed counter
-                prefs.edit().putLong(UpdateSettings.KEY_LASTUPDATE, currentTime)
-                        .putInt(UpdateSettings.KEY_FAILED_COUNTER, 0).commit();
-            } else {
-                int failed = UpdateSettings.getFailedNumberOfUpdates(getContext());
-
-                /*
-                 * Back off by 2**(failure + 2) * minutes. Purposely set a fake
-                 * last update time, because the next update will be triggered
-                 * UPDATE_INTERVAL minutes after the last update time. This way
-                 * we can trigger it earlier (4min up to 32min).
-                 */
-                long fakeLastUpdateTime;
-                if (failed < 4) {
-                    fakeLastUpdateTime = currentTime
-                            - ((DEFAULT_SYNC_INTERVAL_MINUTES - (int) Math.pow(2, failed + 2))
-                            * DateUtils.MINUTE_IN_MILLIS);
-                } else {
-                    fakeLastUpdateTime = currentTime;
-                }
+    private static class FetchShowCallable implements Callable<FetchedShow> {
 
-                failed += 1;
-                prefs.edit()
-                        .putLong(UpdateSettings.KEY_LASTUPDATE, fakeLastUpdateTime)
-                        .putInt(UpdateSettings.KEY_FAILED_COUNTER, failed).commit();
-            }
-        }
+        private final Context context;
+        private final int showTvdbId;
 
-        // There could have been new episodes added after an update
-        Utils.runNotificationService(getContext());
+        public FetchShowCallable(Context context, int showTvdbId) {
+            this.context = context;
+            this.showTvdbId = showTvdbId;
+        }
 
-        Timber.i("Syncing..." + resultCode.toString());
+        @Override
+        public FetchedShow call() {
+            long start = SystemClock.elapsedRealtime();
+            long bytesBefore = HttpMetrics.getBytesOnCurrentThread();
+            TheTVDB.ShowUpdate update = null;
+            TvdbException error = null;
+            try {
+                update = TheTVDB.fetchShowUpdate(context, showTvdbId);
+            } catch (TvdbException e) {
+                error = e;
+            }
+            return new FetchedShow(showTvdbId, update, error,
+                    SystemClock.elapsedRealtime() - start,
+                    HttpMetrics.getBytesOnCurrentThread() - bytesBefore);
+        }
     }
 
     /**
@@ -436,8 +595,10 @@ public class SgSyncAdapter extends AbstractThreadedSyncAdapter {
 
     /**
      * Downloads and stores the latest image url configuration from themoviedb.org.
+     *
+     * @return {@code false} if the download failed.
      */
-    private static void getTmdbConfiguration(Context context, SharedPreferences prefs) {
+    private static boolean getTmdbConfiguration(Context context, SharedPreferences prefs) {
         try {
             Configuration config = ServiceUtils.getTmdb(context)
                     .configurationService().configuration();
@@ -447,8 +608,10 @@ public class SgSyncAdapter extends AbstractThreadedSyncAdapter {
                         .putString(TmdbSettings.KEY_TMDB_BASE_URL, config.images.secure_base_url)
                         .apply();
             }
+            return true;
         } catch (RetrofitError e) {
             Timber.e(e, "Downloading TMDb config failed");
+            return false;
         }
     }
 
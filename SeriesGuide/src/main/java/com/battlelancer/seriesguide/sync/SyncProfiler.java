@@ -0,0 +1,302 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.sync;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.format.DateUtils;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.SyncHistory;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.battlelancer.seriesguide.provider.SeriesGuideProvider;
+import com.battlelancer.seriesguide.util.HttpMetrics;
+import com.battlelancer.seriesguide.util.Utils;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.util.ArrayList;
+import java.util.List;
+import timber.log.Timber;
+
+/**
+ * Records wall time, downloaded bytes, written database rows and errors of each phase and each
+ * show of a sync run. Finished runs are stored in {@link SyncHistory}, which only keeps the last
+ * {@link #MAX_HISTORY} runs.
+ *
+ * <p>Bytes of a phase are measured as the difference of a process-wide counter, see {@link
+ * HttpMetrics#getTotalBytes()}, so they include anything else the app downloads at the same time.
+ * Rows of a phase only include those written by the sync thread, see {@link
+ * SeriesGuideProvider#getRowsWritten()}.
+ *
+ * <p>Not thread-safe, only use from the sync thread.
+ */
+public class SyncProfiler {
+
+    public static final int MAX_HISTORY = 10;
+
+    public static final String PHASE_TVDB = "tvdb";
+    public static final String PHASE_TMDB_CONFIG = "tmdb_config";
+    public static final String PHASE_EPISODE_FLAG_OUTBOX = "episode_flag_outbox";
+    public static final String PHASE_HEXAGON = "hexagon";
+    public static final String PHASE_TRAKT = "trakt";
+    public static final String PHASE_NEXT_EPISODES = "next_episodes";
+    public static final String PHASE_ACTIVITY_CLEANUP = "activity_cleanup";
+    public static final String PHASE_SEASON_COUNTS = "season_counts";
+
+    public static class Phase {
+        public String name;
+        public long durationMillis;
+        public long bytes;
+        public long rowsWritten;
+        public int errors;
+        public String lastError;
+    }
+
+    public static class ShowStats {
+        public int showTvdbId;
+        /** Time to download and parse the show on a worker thread. */
+        public long fetchMillis;
+        /** Time to write the show to the database on the sync thread. */
+        public long writeMillis;
+        public long bytes;
+        public long rowsWritten;
+        public String error;
+    }
+
+    public static class SyncRun {
+        public long startTime;
+        public String type;
+        public String result;
+        public long durationMillis;
+        public String appVersion;
+        public List<Phase> phases;
+        public List<ShowStats> shows;
+    }
+
+    /**
+     * Part of a {@link SyncRun} stored as JSON in {@link SyncHistory#DETAILS}.
+     */
+    private static class Details {
+        List<Phase> phases;
+        List<ShowStats> shows;
+    }
+
+    private final String type;
+    private final long startTime;
+    private final long startElapsed;
+    private final List<Phase> phases = new ArrayList<>();
+    private final List<ShowStats> shows = new ArrayList<>();
+
+    private Phase currentPhase;
+    private long phaseStartElapsed;
+    private long phaseStartBytes;
+    private long phaseStartRows;
+
+    public SyncProfiler(String type) {
+        this.type = type;
+        this.startTime = System.currentTimeMillis();
+        this.startElapsed = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Starts measuring a new phase, ends the current phase if there is one.
+     */
+    public void beginPhase(String name) {
+        endPhase();
+        currentPhase = new Phase();
+        currentPhase.name = name;
+        phaseStartElapsed = SystemClock.elapsedRealtime();
+        phaseStartBytes = HttpMetrics.getTotalBytes();
+        phaseStartRows = SeriesGuideProvider.getRowsWritten();
+    }
+
+    /**
+     * Ends the current phase, if there is one.
+     */
+    public void endPhase() {
+        if (currentPhase == null) {
+            return;
+        }
+        currentPhase.durationMillis = SystemClock.elapsedRealtime() - phaseStartElapsed;
+        currentPhase.bytes = HttpMetrics.getTotalBytes() - phaseStartBytes;
+        currentPhase.rowsWritten = SeriesGuideProvider.getRowsWritten() - phaseStartRows;
+        phases.add(currentPhase);
+        currentPhase = null;
+    }
+
+    /**
+     * Counts an error for the current phase.
+     */
+    public void recordError(@Nullable String message) {
+        if (currentPhase == null) {
+            return;
+        }
+        currentPhase.errors++;
+        currentPhase.lastError = message;
+    }
+
+    /**
+     * Adds statistics of a single show, also counts an error for the current phase if the show
+     * failed.
+     */
+    public void recordShow(int showTvdbId, long fetchMillis, long writeMillis, long bytes,
+            long rowsWritten, @Nullable String error) {
+        ShowStats stats = new ShowStats();
+        stats.showTvdbId = showTvdbId;
+        stats.fetchMillis = fetchMillis;
+        stats.writeMillis = writeMillis;
+        stats.bytes = bytes;
+        stats.rowsWritten = rowsWritten;
+        stats.error = error;
+        shows.add(stats);
+        if (error != null) {
+            recordError(error);
+        }
+    }
+
+    /**
+     * Ends the current phase and stores the run, removing the oldest runs if there are more than
+     * {@link #MAX_HISTORY}.
+     */
+    public SyncRun finish(Context context, SgSyncAdapter.UpdateResult result) {
+        endPhase();
+
+        SyncRun run = new SyncRun();
+        run.startTime = startTime;
+        run.type = type;
+        run.result = result.toString();
+        run.durationMillis = SystemClock.elapsedRealtime() - startElapsed;
+        run.appVersion = Utils.getVersion(context);
+        run.phases = phases;
+        run.shows = shows;
+
+        StringBuilder summary = new StringBuilder("Sync took " + run.durationMillis + " ms:");
+        for (Phase phase : phases) {
+            summary.append(' ').append(phase.name).append('=').append(phase.durationMillis)
+                    .append("ms/").append(phase.bytes / 1024).append("KB/")
+                    .append(phase.rowsWritten).append("rows");
+            if (phase.errors > 0) {
+                summary.append('/').append(phase.errors).append("errors");
+            }
+        }
+        Timber.i(summary.toString());
+
+        Details details = new Details();
+        details.phases = phases;
+        details.shows = shows;
+
+        ContentValues values = new ContentValues();
+        values.put(SyncHistory.START_TIME, run.startTime);
+        values.put(SyncHistory.TYPE, run.type);
+        values.put(SyncHistory.RESULT, run.result);
+        values.put(SyncHistory.DURATION, run.durationMillis);
+        values.put(SyncHistory.APP_VERSION, run.appVersion);
+        values.put(SyncHistory.DETAILS, new Gson().toJson(details));
+        context.getContentResolver().insert(SyncHistory.CONTENT_URI, values);
+
+        // only keep the most recent runs
+        context.getContentResolver().delete(SyncHistory.CONTENT_URI,
+                SyncHistory._ID + " NOT IN (SELECT " + SyncHistory._ID + " FROM "
+                        + Tables.SYNC_HISTORY + " ORDER BY " + SyncHistory._ID + " DESC LIMIT "
+                        + MAX_HISTORY + ")", null);
+
+        return run;
+    }
+
+    /**
+     * Returns the stored sync runs, the latest first.
+     */
+    @NonNull
+    public static List<SyncRun> getHistory(Context context) {
+        List<SyncRun> runs = new ArrayList<>();
+        Cursor query = context.getContentResolver().query(SyncHistory.CONTENT_URI,
+                HistoryQuery.PROJECTION, null, null, SyncHistory.SORT_LATEST_FIRST);
+        if (query == null) {
+            return runs;
+        }
+        Gson gson = new Gson();
+        while (query.moveToNext()) {
+            SyncRun run = new SyncRun();
+            run.startTime = query.getLong(HistoryQuery.START_TIME);
+            run.type = query.getString(HistoryQuery.TYPE);
+            run.result = query.getString(HistoryQuery.RESULT);
+            run.durationMillis = query.getLong(HistoryQuery.DURATION);
+            run.appVersion = query.getString(HistoryQuery.APP_VERSION);
+            try {
+                Details details = gson.fromJson(query.getString(HistoryQuery.DETAILS),
+                        Details.class);
+                if (details != null) {
+                    run.phases = details.phases;
+                    run.shows = details.shows;
+                }
+            } catch (JsonParseException e) {
+                Timber.e(e, "getHistory: failed to parse details");
+            }
+            runs.add(run);
+        }
+        query.close();
+        return runs;
+    }
+
+    /**
+     * Returns the stored sync runs as JSON, e.g. to compare syncs across releases and devices.
+     */
+    public static String exportHistory(Context context) {
+        return new GsonBuilder().setPrettyPrinting().create().toJson(getHistory(context));
+    }
+
+    /**
+     * Returns one line per stored sync run, the latest first.
+     */
+    public static String buildSummary(Context context) {
+        StringBuilder summary = new StringBuilder();
+        for (SyncRun run : getHistory(context)) {
+            if (summary.length() > 0) {
+                summary.append('\n');
+            }
+            int showCount = run.shows == null ? 0 : run.shows.size();
+            summary.append(DateUtils.formatDateTime(context, run.startTime,
+                    DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_TIME))
+                    .append(": ").append(run.type).append(' ').append(run.result)
+                    .append(", ").append(run.durationMillis).append(" ms, ")
+                    .append(showCount).append(" shows");
+        }
+        return summary.toString();
+    }
+
+    private interface HistoryQuery {
+
+        String[] PROJECTION = new String[] {
+                SyncHistory.START_TIME,
+                SyncHistory.TYPE,
+                SyncHistory.RESULT,
+                SyncHistory.DURATION,
+                SyncHistory.APP_VERSION,
+                SyncHistory.DETAILS
+        };
+
+        int START_TIME = 0;
+        int TYPE = 1;
+        int RESULT = 2;
+        int DURATION = 3;
+        int APP_VERSION = 4;
+        int DETAILS = 5;
+    }
+}
@@ -22,7 +22,6 @@ import com.battlelancer.seriesguide.BuildConfig;
 import com.battlelancer.seriesguide.util.ServiceUtils;
 import com.uwetrottmann.thetvdb.TheTvdb;
 import java.io.File;
-import java.util.concurrent.TimeUnit;
 import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 
@@ -63,10 +62,10 @@ public class SgTheTvdb extends TheTvdb {
     @Override
     protected synchronized OkHttpClient okHttpClient() {
         if (cachingHttpClient == null) {
-            OkHttpClient.Builder builder = new OkHttpClient.Builder();
+            // share connections with other API clients, but use a separate cache
+            OkHttpClient.Builder builder = ServiceUtils.getCachingOkHttpClient(context)
+                    .newBuilder();
             setOkHttpClientDefaults(builder);
-            builder.connectTimeout(ServiceUtils.CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-            builder.readTimeout(ServiceUtils.READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
             File cacheDir = ServiceUtils.createApiCacheDir(context, CACHE_DIRECTORY);
             builder.cache(new Cache(cacheDir, ServiceUtils.calculateApiDiskCacheSize(cacheDir)));
             cachingHttpClient = builder.build();
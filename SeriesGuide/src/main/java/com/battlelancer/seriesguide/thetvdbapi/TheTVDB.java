@@ -36,17 +36,19 @@ import com.battlelancer.seriesguide.backend.HexagonTools;
 import com.battlelancer.seriesguide.dataliberation.JsonExportTask.ShowStatusExport;
 import com.battlelancer.seriesguide.dataliberation.model.Show;
 import com.battlelancer.seriesguide.items.SearchResult;
+import com.battlelancer.seriesguide.provider.EpisodeBatch;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
 import com.battlelancer.seriesguide.settings.AppSettings;
 import com.battlelancer.seriesguide.settings.DisplaySettings;
 import com.battlelancer.seriesguide.util.DBUtils;
 import com.battlelancer.seriesguide.util.EpisodeTools;
+import com.battlelancer.seriesguide.util.IntLongMap;
 import com.battlelancer.seriesguide.util.ServiceUtils;
 import com.battlelancer.seriesguide.util.ShowTools;
 import com.battlelancer.seriesguide.util.TextTools;
 import com.battlelancer.seriesguide.util.TimeTools;
+import com.battlelancer.seriesguide.util.TraktShowIdCache;
 import com.battlelancer.seriesguide.util.TraktTools;
 import com.battlelancer.seriesguide.util.Utils;
 import com.uwetrottmann.thetvdb.TheTvdb;
@@ -58,12 +60,12 @@ import com.uwetrottmann.trakt.v2.TraktV2;
 import com.uwetrottmann.trakt.v2.entities.BaseShow;
 import com.uwetrottmann.trakt.v2.enums.Extended;
 import com.uwetrottmann.trakt.v2.exceptions.OAuthUnauthorizedException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.TimeZone;
@@ -71,10 +73,10 @@ import java.util.zip.ZipInputStream;
 import javax.annotation.Nonnull;
 import okhttp3.Request;
 import okhttp3.Response;
-import org.joda.time.DateTimeZone;
-import org.joda.time.LocalTime;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 import retrofit.RetrofitError;
 import timber.log.Timber;
 
@@ -100,6 +102,10 @@ public class TheTVDB {
     private static final String TVDB_EXTENSION_COMPRESSED = ".zip";
     private static final String TVDB_FILE_DEFAULT = "en" + TVDB_EXTENSION_COMPRESSED;
     private static final String[] LANGUAGE_QUERY_PROJECTION = new String[] { Shows.LANGUAGE };
+    private static final String[] EPISODES_STATE_PROJECTION = new String[] {
+            Shows.LASTEDIT, Shows.RELEASE_TIME, Shows.RELEASE_TIMEZONE, Shows.RELEASE_COUNTRY,
+            Shows.RELEASE_DEVICE_TIMEZONE
+    };
 
     /**
      * Builds a full url for a TVDb show poster using the given image path.
@@ -190,8 +196,9 @@ public class TheTVDB {
             storeTraktFlags(context, traktCollection, showTvdbId, false);
         }
 
-        // calculate next episode
+        // calculate next episode and season counts
         DBUtils.updateLatestEpisode(context, showTvdbId);
+        DBUtils.updateUnwatchedCountsOfShow(context, showTvdbId);
 
         return true;
     }
@@ -222,10 +229,46 @@ public class TheTVDB {
      * Updates a show. Adds new, updates changed and removes orphaned episodes.
      */
     public static void updateShow(@NonNull Context context, int showTvdbId) throws TvdbException {
+        ShowUpdate update = fetchShowUpdate(context, showTvdbId);
+        if (update != null) {
+            applyShowUpdate(context, update);
+        }
+    }
+
+    /**
+     * Downloaded details and episodes of a show, ready to be written to the database with {@link
+     * #applyShowUpdate(Context, ShowUpdate)}.
+     */
+    public static class ShowUpdate {
+
+        public final int showTvdbId;
+        private final ArrayList<ContentProviderOperation> batch;
+        private final EpisodeBatch episodes;
+        private final long bytesDownloaded;
+
+        private ShowUpdate(int showTvdbId, ArrayList<ContentProviderOperation> batch,
+                EpisodeBatch episodes, long bytesDownloaded) {
+            this.showTvdbId = showTvdbId;
+            this.batch = batch;
+            this.episodes = episodes;
+            this.bytesDownloaded = bytesDownloaded;
+        }
+    }
+
+    /**
+     * Downloads show details and episodes and builds the database ops required to update the
+     * show, but does not write to the database. Safe to run for multiple shows in parallel.
+     *
+     * @return {@code null} if the show language could not be determined, e.g. the show does not
+     * exist.
+     */
+    @Nullable
+    public static ShowUpdate fetchShowUpdate(@NonNull Context context, int showTvdbId)
+            throws TvdbException {
         // determine which translation to get
         String language = getShowLanguage(context, showTvdbId);
         if (language == null) {
-            return;
+            return null;
         }
 
         final ArrayList<ContentProviderOperation> batch = new ArrayList<>();
@@ -235,7 +278,38 @@ public class TheTVDB {
 
         // get episodes in the language as returned in the TVDB show entry
         // the show might not be available in the desired language
-        getEpisodesAndUpdateDatabase(context, show, show.language, batch);
+        return fetchShowEpisodes(context, show, show.language, batch);
+    }
+
+    /**
+     * Writes a show update downloaded with {@link #fetchShowUpdate(Context, int)} to the database
+     * in a single transaction, so the last edit time of the show is only stored together with its
+     * episodes.
+     *
+     * @return The number of rows written.
+     */
+    public static int applyShowUpdate(@NonNull Context context, @NonNull ShowUpdate update)
+            throws TvdbException {
+        boolean isSuccessful = false;
+        DBUtils.beginTransaction(context);
+        try {
+            DBUtils.applyInSmallBatches(context, update.batch);
+            // insert and update all changed episodes with compiled statements
+            if (!update.episodes.apply(context)) {
+                throw new TvdbException("Problem writing episodes for " + update.showTvdbId);
+            }
+            isSuccessful = true;
+        } catch (OperationApplicationException e) {
+            throw new TvdbException("Problem applying batch operation for " + update.showTvdbId,
+                    e);
+        } finally {
+            DBUtils.endTransaction(context, isSuccessful);
+        }
+
+        int rowsWritten = update.batch.size() + update.episodes.size();
+        Timber.d("applyShowUpdate: show " + update.showTvdbId + ", downloaded "
+                + update.bytesDownloaded + " bytes, wrote " + rowsWritten + " rows");
+        return rowsWritten;
     }
 
     private static String getShowLanguage(Context context, int showTvdbId) {
@@ -412,20 +486,65 @@ public class TheTVDB {
     private static void getEpisodesAndUpdateDatabase(Context context, Show show,
             String language, final ArrayList<ContentProviderOperation> batch)
             throws TvdbException {
-        // get ops for episodes of this show
-        ArrayList<ContentValues> importShowEpisodes = fetchEpisodes(batch, show, language,
-                context);
-        ContentValues[] newEpisodesValues = new ContentValues[importShowEpisodes.size()];
-        newEpisodesValues = importShowEpisodes.toArray(newEpisodesValues);
+        applyShowUpdate(context, fetchShowEpisodes(context, show, language, batch));
+    }
 
-        try {
-            DBUtils.applyInSmallBatches(context, batch);
-        } catch (OperationApplicationException e) {
-            throw new TvdbException("Problem applying batch operation for " + show.tvdbId, e);
+    /**
+     * Fetches episodes for the given show from TVDb, adds database ops for them to the given
+     * batch.
+     *
+     * <p> Skips downloading episodes if TVDb reports no change since the last update of the show,
+     * see {@link #isEpisodesUnchanged}.
+     */
+    private static ShowUpdate fetchShowEpisodes(Context context, Show show, String language,
+            final ArrayList<ContentProviderOperation> batch) throws TvdbException {
+        // release times of stored episodes change if the show release time or the device time
+        // zone (see TimeTools) has changed
+        String deviceTimeZone = TimeZone.getDefault().getID();
+        long lastEditedLocal = 0;
+        boolean isReleaseTimeChanged = true;
+        Cursor showQuery = context.getContentResolver().query(Shows.buildShowUri(show.tvdbId),
+                EPISODES_STATE_PROJECTION, null, null, null);
+        if (showQuery != null) {
+            if (showQuery.moveToFirst()) {
+                lastEditedLocal = showQuery.getLong(0);
+                isReleaseTimeChanged = show.release_time != showQuery.getInt(1)
+                        || !TextUtils.equals(show.release_timezone, showQuery.getString(2))
+                        || !TextUtils.equals(show.country, showQuery.getString(3))
+                        || !TextUtils.equals(deviceTimeZone, showQuery.getString(4));
+            }
+            showQuery.close();
+        }
+
+        IntLongMap localEpisodes = DBUtils.getEpisodeMapForShow(context, show.tvdbId);
+        if (!isReleaseTimeChanged
+                && isEpisodesUnchanged(show.lastEdited, lastEditedLocal, localEpisodes)) {
+            return new ShowUpdate(show.tvdbId, batch, new EpisodeBatch(0), 0);
         }
 
-        // insert all new episodes in bulk
-        context.getContentResolver().bulkInsert(Episodes.CONTENT_URI, newEpisodesValues);
+        // get ops for episodes of this show
+        EpisodeBatch episodes = new EpisodeBatch();
+        long bytesDownloaded = fetchEpisodes(batch, episodes, show, language, context,
+                localEpisodes, isReleaseTimeChanged, deviceTimeZone);
+        if (isReleaseTimeChanged) {
+            // all episodes were written, remember for which device time zone
+            batch.add(ContentProviderOperation.newUpdate(Shows.buildShowUri(show.tvdbId))
+                    .withValue(Shows.RELEASE_DEVICE_TIMEZONE, deviceTimeZone)
+                    .build());
+        }
+
+        return new ShowUpdate(show.tvdbId, batch, episodes, bytesDownloaded);
+    }
+
+    /**
+     * Returns whether nothing has changed on TVDb since the episodes of a show were last
+     * downloaded, based on the last edit time of the series. Not if any episode was flagged as
+     * outdated, e.g. after changing the show language, by resetting its last edit time.
+     */
+    private static boolean isEpisodesUnchanged(long lastEditedRemote, long lastEditedLocal,
+            IntLongMap localEpisodes) {
+        return lastEditedLocal != 0 && lastEditedLocal == lastEditedRemote
+                && localEpisodes.size() > 0 && localEpisodes.indexOfValue(0) < 0;
     }
 
     /**
@@ -480,16 +599,28 @@ public class TheTVDB {
             @Nullable String language) throws TvdbException {
         // try to get some details from trakt
         com.uwetrottmann.trakt.v2.entities.Show traktShow = null;
+        TraktShowIdCache.Mapping traktIdMapping = null;
         try {
-            // always look up the trakt id based on the TVDb id
+            // look up the trakt id based on the TVDb id once it is too old
             // e.g. a TVDb id might be linked against the wrong trakt entry, then get fixed
-            String showTraktId = TraktTools.lookupShowTraktId(context, showTvdbId);
-            if (showTraktId != null) {
+            traktIdMapping = TraktShowIdCache.get(context, showTvdbId);
+            if (traktIdMapping.traktId != null) {
                 // fetch details
                 TraktV2 trakt = ServiceUtils.getTraktV2(context);
-                traktShow = trakt.shows().summary(showTraktId, Extended.FULL);
-            } else {
-                traktShow = null;
+                try {
+                    traktShow = trakt.shows()
+                            .summary(String.valueOf(traktIdMapping.traktId), Extended.FULL);
+                } catch (RetrofitError e) {
+                    if (!traktIdMapping.isFromCache || !TraktShowIdCache.isNotFound(e)) {
+                        throw e;
+                    }
+                    // stored trakt id is no longer valid, look it up again
+                    traktIdMapping = TraktShowIdCache.lookUp(context, showTvdbId);
+                    if (traktIdMapping.traktId != null) {
+                        traktShow = trakt.shows()
+                                .summary(String.valueOf(traktIdMapping.traktId), Extended.FULL);
+                    }
+                }
             }
         } catch (RetrofitError e) {
             Timber.e(e, "Loading trakt show info failed");
@@ -503,6 +634,7 @@ public class TheTVDB {
             if (traktShow.ids != null && traktShow.ids.trakt != null) {
                 show.traktId = traktShow.ids.trakt;
             }
+            show.traktIdVerified = traktIdMapping.verifiedAt;
             if (traktShow.airs != null) {
                 show.release_time = TimeTools.parseShowReleaseTime(traktShow.airs.time);
                 show.release_weekday = TimeTools.parseShowReleaseWeekDay(traktShow.airs.day);
@@ -514,6 +646,11 @@ public class TheTVDB {
         } else {
             // keep any pre-existing trakt id (e.g. trakt call above might have failed temporarily)
             show.traktId = ShowTools.getShowTraktId(context, showTvdbId);
+            // only remember the look up if it agrees with the kept trakt id
+            if (traktIdMapping != null && (traktIdMapping.traktId == null
+                    ? show.traktId == null : traktIdMapping.traktId.equals(show.traktId))) {
+                show.traktIdVerified = traktIdMapping.verifiedAt;
+            }
             // set default values
             show.release_time = -1;
             show.release_weekday = -1;
@@ -623,193 +760,138 @@ public class TheTVDB {
         return posters.get(highestRatedIndex).fileName;
     }
 
-    private static ArrayList<ContentValues> fetchEpisodes(
-            ArrayList<ContentProviderOperation> batch, Show show, String language, Context context)
-            throws TvdbException {
+    /**
+     * @return The number of bytes downloaded.
+     */
+    private static long fetchEpisodes(ArrayList<ContentProviderOperation> batch,
+            EpisodeBatch episodes, Show show, String language,
+            Context context, IntLongMap localEpisodeIds, boolean isReleaseTimeChanged,
+            String deviceTimeZone) throws TvdbException {
         String url = TVDB_API_SERIES + show.tvdbId + "/" + TVDB_PATH_ALL
                 + (language != null ? language + TVDB_EXTENSION_COMPRESSED : TVDB_FILE_DEFAULT);
 
-        return parseEpisodes(batch, url, show, context);
+        return parseEpisodes(batch, episodes, url, show, context, localEpisodeIds,
+                isReleaseTimeChanged, deviceTimeZone);
     }
 
     /**
-     * Loads the given zipped XML and parses containing episodes to create an array of {@link
-     * ContentValues} for new episodes.<br> Adds update ops for updated episodes and delete ops for
-     * local orphaned episodes to the given {@link ContentProviderOperation} batch.
+     * Loads the given zipped XML and parses containing episodes. Adds new episodes, episodes
+     * edited on TVDb since stored (or all if release times have changed) to the given
+     * {@link EpisodeBatch}.<br> Adds delete ops for local orphaned episodes to the given {@link
+     * ContentProviderOperation} batch. Adds season ops only for new seasons or seasons with new or
+     * updated episodes.
+     *
+     * @param localEpisodeIds See {@link DBUtils#getEpisodeMapForShow(Context, int)}.
+     * @return The number of bytes downloaded.
      */
-    private static ArrayList<ContentValues> parseEpisodes(
-            final ArrayList<ContentProviderOperation> batch, String url, final Show show,
-            Context context) throws TvdbException {
-        final long dateLastMonthEpoch = (System.currentTimeMillis()
-                - (DateUtils.DAY_IN_MILLIS * 30)) / 1000;
-        final DateTimeZone showTimeZone = TimeTools.getDateTimeZone(show.release_timezone);
-        final LocalTime showReleaseTime = TimeTools.getShowReleaseTime(show.release_time);
-        final String deviceTimeZone = TimeZone.getDefault().getID();
-
-        RootElement root = new RootElement("Data");
-        Element episode = root.getChild("Episode");
-
-        final ArrayList<ContentValues> newEpisodesValues = new ArrayList<>();
-
-        final HashMap<Integer, Long> localEpisodeIds = DBUtils
-                .getEpisodeMapForShow(context, show.tvdbId);
-        final HashMap<Integer, Long> removableEpisodeIds = new HashMap<>(
-                localEpisodeIds); // just copy episodes list, then remove valid ones
+    private static long parseEpisodes(final ArrayList<ContentProviderOperation> batch,
+            final EpisodeBatch episodes, String url, final Show show, Context context,
+            final IntLongMap localEpisodeIds, final boolean isReleaseTimeChanged,
+            String deviceTimeZone) throws TvdbException {
+        final TvdbEpisodeParser episodeParser = new TvdbEpisodeParser(
+                TimeTools.getDateTimeZone(show.release_timezone),
+                TimeTools.getShowReleaseTime(show.release_time), show.country,
+                deviceTimeZone);
+
+        // mark episodes also on TVDb, remove the others
+        final boolean[] isValidEpisode = new boolean[localEpisodeIds.size()];
         final HashSet<Integer> localSeasonIds = DBUtils.getSeasonIdsOfShow(context, show.tvdbId);
         // store updated seasons to avoid duplicate ops
         final HashSet<Integer> seasonIdsToUpdate = new HashSet<>();
-        final ContentValues values = new ContentValues();
 
-        // set handlers for elements we want to react to
-        episode.setEndElementListener(new EndElementListener() {
-            public void end() {
-                Integer episodeId = values.getAsInteger(Episodes._ID);
-                if (episodeId == null || episodeId <= 0) {
+        final TvdbEpisodeParser.Callback callback = new TvdbEpisodeParser.Callback() {
+            @Override
+            public void onEpisode(TvdbEpisodeRecord episode) {
+                if (episode.id <= 0) {
                     // invalid id, skip
                     return;
                 }
 
-                // don't clean up this episode
-                removableEpisodeIds.remove(episodeId);
-
                 // decide whether to insert or update
-                if (localEpisodeIds.containsKey(episodeId)) {
+                boolean isChanged;
+                int localIndex = localEpisodeIds.indexOfKey(episode.id);
+                if (localIndex >= 0) {
+                    // don't clean up this episode
+                    isValidEpisode[localIndex] = true;
                     /*
-                     * Update uses provider ops which take a long time. Only
-                     * update if episode was edited on TVDb or is not older than
-                     * a month (ensures show air time changes get stored).
+                     * Only update if episode was edited on TVDb or the show release
+                     * time has changed (ensures release times are correct).
                      */
-                    Long lastEditEpoch = localEpisodeIds.get(episodeId);
-                    Long lastEditEpochNew = values.getAsLong(Episodes.LAST_EDITED);
-                    if (lastEditEpoch != null && lastEditEpochNew != null
-                            && (lastEditEpoch < lastEditEpochNew
-                            || dateLastMonthEpoch < lastEditEpoch)) {
-                        // complete update op for episode
-                        batch.add(DBUtils.buildEpisodeUpdateOp(values));
+                    long lastEditEpoch = localEpisodeIds.valueAt(localIndex);
+                    isChanged = lastEditEpoch < episode.lastEdited || isReleaseTimeChanged;
+                    if (isChanged) {
+                        episodes.add(episode, false);
                     }
                 } else {
                     // episode does not exist, yet
-                    newEpisodesValues.add(new ContentValues(values));
+                    isChanged = true;
+                    episodes.add(episode, true);
                 }
 
-                Integer seasonId = values.getAsInteger(Seasons.REF_SEASON_ID);
-                if (seasonId != null && !seasonIdsToUpdate.contains(seasonId)) {
+                int seasonId = episode.seasonId;
+                if (seasonId > 0 && !seasonIdsToUpdate.contains(seasonId)
+                        && (isChanged || !localSeasonIds.contains(seasonId))) {
                     // add insert/update op for season
-                    batch.add(DBUtils.buildSeasonOp(values, !localSeasonIds.contains(seasonId)));
-                    seasonIdsToUpdate.add(values.getAsInteger(Seasons.REF_SEASON_ID));
+                    batch.add(DBUtils.buildSeasonOp(seasonId, episode.season, episode.showId,
+                            !localSeasonIds.contains(seasonId)));
+                    seasonIdsToUpdate.add(seasonId);
                 }
-
-                values.clear();
-            }
-        });
-        episode.getChild("id").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Episodes._ID, body.trim());
-            }
-        });
-        episode.getChild("EpisodeNumber").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Episodes.NUMBER, body.trim());
             }
-        });
-        episode.getChild("absolute_number").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Episodes.ABSOLUTE_NUMBER, body.trim());
-            }
-        });
-        episode.getChild("SeasonNumber").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Episodes.SEASON, body.trim());
-            }
-        });
-        episode.getChild("DVD_episodenumber").setEndTextElementListener(
-                new EndTextElementListener() {
-                    public void end(String body) {
-                        values.put(Episodes.DVDNUMBER, body.trim());
-                    }
-                }
-        );
-        episode.getChild("FirstAired").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String releaseDate) {
-                long releaseDateTime = TimeTools.parseEpisodeReleaseDate(showTimeZone, releaseDate,
-                        showReleaseTime, show.country, deviceTimeZone);
-                values.put(Episodes.FIRSTAIREDMS, releaseDateTime);
-            }
-        });
-        episode.getChild("EpisodeName").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Episodes.TITLE, body.trim());
-            }
-        });
-        episode.getChild("Overview").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Episodes.OVERVIEW, body.trim());
-            }
-        });
-        episode.getChild("seasonid").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Seasons.REF_SEASON_ID, body.trim());
-            }
-        });
-        episode.getChild("seriesid").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Shows.REF_SHOW_ID, body.trim());
-            }
-        });
-        episode.getChild("Director").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Episodes.DIRECTORS, body.trim());
-            }
-        });
-        episode.getChild("GuestStars").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Episodes.GUESTSTARS, body.trim());
-            }
-        });
-        episode.getChild("Writer").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Episodes.WRITERS, body.trim());
-            }
-        });
-        episode.getChild("filename").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Episodes.IMAGE, body.trim());
-            }
-        });
-        episode.getChild("IMDB_ID").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                values.put(Episodes.IMDBID, body.trim());
-            }
-        });
-        episode.getChild("lastupdated").setEndTextElementListener(new EndTextElementListener() {
-            public void end(String body) {
-                // system populated field, trimming not necessary
-                try {
-                    values.put(Episodes.LAST_EDITED, Long.valueOf(body));
-                } catch (NumberFormatException e) {
-                    values.put(Episodes.LAST_EDITED, 0);
-                }
+        };
+
+        long bytesDownloaded = downloadAndParse(context, url, true, new StreamParser() {
+            @Override
+            public void parse(InputStream input) throws IOException, XmlPullParserException {
+                XmlPullParser parser = Xml.newPullParser();
+                parser.setInput(input, "UTF-8");
+                episodeParser.parse(parser, callback);
             }
         });
 
-        downloadAndParse(context, root.getContentHandler(), url, true);
-
         // add delete ops for leftover episodeIds in our db
-        for (Integer episodeId : removableEpisodeIds.keySet()) {
-            batch.add(ContentProviderOperation.newDelete(Episodes.buildEpisodeUri(episodeId))
-                    .build());
+        for (int i = 0; i < isValidEpisode.length; i++) {
+            if (!isValidEpisode[i]) {
+                batch.add(ContentProviderOperation
+                        .newDelete(Episodes.buildEpisodeUri(localEpisodeIds.keyAt(i)))
+                        .build());
+            }
         }
 
-        return newEpisodesValues;
+        return bytesDownloaded;
+    }
+
+    /**
+     * Parses a downloaded XML document.
+     */
+    private interface StreamParser {
+        void parse(InputStream input) throws IOException, SAXException, XmlPullParserException;
+    }
+
+    /**
+     * Like {@link #downloadAndParse(Context, String, boolean, StreamParser)}, passing a valid
+     * response to {@link Xml#parse(InputStream, android.util.Xml.Encoding, ContentHandler)} using
+     * the given {@link ContentHandler}.
+     *
+     * @return The number of bytes downloaded.
+     */
+    private static long downloadAndParse(Context context, final ContentHandler handler,
+            String urlString, boolean isZipFile) throws TvdbException {
+        return downloadAndParse(context, urlString, isZipFile, new StreamParser() {
+            @Override
+            public void parse(InputStream input) throws IOException, SAXException {
+                Xml.parse(input, Xml.Encoding.UTF_8, handler);
+            }
+        });
     }
 
     /**
-     * Downloads the XML or ZIP file from the given URL, passing a valid response to {@link
-     * Xml#parse(InputStream, android.util.Xml.Encoding, ContentHandler)} using the given {@link
-     * ContentHandler}.
+     * Downloads the XML or ZIP file from the given URL, passing a valid response to the given
+     * {@link StreamParser}.
+     *
+     * @return The number of bytes downloaded.
      */
-    private static void downloadAndParse(Context context, ContentHandler handler, String urlString,
-            boolean isZipFile) throws TvdbException {
+    private static long downloadAndParse(Context context, String urlString, boolean isZipFile,
+            StreamParser parser) throws TvdbException {
         Request request = new Request.Builder().url(urlString).build();
 
         Response response;
@@ -830,29 +912,65 @@ public class TheTVDB {
 
         ensureSuccessfulResponse(response);
 
+        final CountingInputStream input = new CountingInputStream(response.body().byteStream());
         try {
-            final InputStream input = response.body().byteStream();
             if (isZipFile) {
                 // We downloaded the compressed file from TheTVDB
                 final ZipInputStream zipin = new ZipInputStream(input);
                 zipin.getNextEntry();
                 try {
-                    Xml.parse(zipin, Xml.Encoding.UTF_8, handler);
+                    parser.parse(zipin);
                 } finally {
                     zipin.close();
                 }
             } else {
                 try {
-                    Xml.parse(input, Xml.Encoding.UTF_8, handler);
+                    parser.parse(input);
                 } finally {
-                    if (input != null) {
-                        input.close();
-                    }
+                    input.close();
                 }
             }
-        } catch (SAXException | IOException | AssertionError e) {
+        } catch (SAXException | XmlPullParserException | IOException | AssertionError e) {
             throw new TvdbException(e.getMessage() + " " + urlString, e);
         }
+        return input.count;
+    }
+
+    /**
+     * Counts the bytes read from the wrapped stream.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long byteCount) throws IOException {
+            long skipped = super.skip(byteCount);
+            count += skipped;
+            return skipped;
+        }
     }
 
     private static void ensureSuccessfulResponse(Response response)
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.thetvdbapi;
+
+import com.battlelancer.seriesguide.util.ReleaseTimes;
+import java.io.IOException;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Pull parser for TVDb episode XML files ({@code <Data><Episode>...</Episode></Data>}). Reads
+ * numbers and dates directly from the character buffer of the parser and reports each episode
+ * with the same reused {@link TvdbEpisodeRecord}, so besides the text values no objects are
+ * created per episode.
+ *
+ * <p>Only depends on the XmlPullParser API and Joda-Time, not on Android, so the benchmark module
+ * can run it on a plain JVM.
+ */
+public class TvdbEpisodeParser {
+
+    public interface Callback {
+        /**
+         * Called for each episode. The record is reused for the next episode once this returns.
+         */
+        void onEpisode(TvdbEpisodeRecord episode);
+    }
+
+    private static final String ELEMENT_ROOT = "Data";
+    private static final String ELEMENT_EPISODE = "Episode";
+
+    private static final String ID = "id";
+    private static final String EPISODE_NUMBER = "EpisodeNumber";
+    private static final String ABSOLUTE_NUMBER = "absolute_number";
+    private static final String SEASON_NUMBER = "SeasonNumber";
+    private static final String DVD_EPISODE_NUMBER = "DVD_episodenumber";
+    private static final String FIRST_AIRED = "FirstAired";
+    private static final String EPISODE_NAME = "EpisodeName";
+    private static final String OVERVIEW = "Overview";
+    private static final String SEASON_ID = "seasonid";
+    private static final String SERIES_ID = "seriesid";
+    private static final String DIRECTOR = "Director";
+    private static final String GUEST_STARS = "GuestStars";
+    private static final String WRITER = "Writer";
+    private static final String FILENAME = "filename";
+    private static final String IMDB_ID = "IMDB_ID";
+    private static final String LAST_UPDATED = "lastupdated";
+
+    private static final int DEPTH_ROOT = 1;
+    private static final int DEPTH_EPISODE = 2;
+    private static final int DEPTH_EPISODE_ELEMENT = 3;
+
+    private final DateTimeZone showTimeZone;
+    private final LocalTime showReleaseTime;
+    private final String showCountry;
+    private final String deviceTimeZone;
+
+    private final TvdbEpisodeRecord episode = new TvdbEpisodeRecord();
+    private final int[] textRange = new int[2];
+
+    /**
+     * The show properties are used to calculate episode release times, see {@link
+     * ReleaseTimes#parseEpisodeReleaseDate}.
+     */
+    public TvdbEpisodeParser(DateTimeZone showTimeZone, LocalTime showReleaseTime,
+            String showCountry, String deviceTimeZone) {
+        this.showTimeZone = showTimeZone;
+        this.showReleaseTime = showReleaseTime;
+        this.showCountry = showCountry;
+        this.deviceTimeZone = deviceTimeZone;
+    }
+
+    /**
+     * Reads the document from the given parser, which must have its input set, and reports all
+     * episodes to the callback.
+     */
+    public void parse(XmlPullParser parser, Callback callback)
+            throws XmlPullParserException, IOException {
+        int depth = 0;
+        boolean isInRoot = false;
+        boolean isInEpisode = false;
+        String element = null;
+
+        int eventType = parser.getEventType();
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.START_TAG) {
+                depth++;
+                if (depth == DEPTH_ROOT) {
+                    isInRoot = ELEMENT_ROOT.equals(parser.getName());
+                } else if (depth == DEPTH_EPISODE) {
+                    isInEpisode = isInRoot && ELEMENT_EPISODE.equals(parser.getName());
+                    if (isInEpisode) {
+                        episode.reset();
+                    }
+                } else if (depth == DEPTH_EPISODE_ELEMENT && isInEpisode) {
+                    element = parser.getName();
+                }
+            } else if (eventType == XmlPullParser.TEXT) {
+                // next() reports all text of an element as a single event
+                if (element != null) {
+                    char[] text = parser.getTextCharacters(textRange);
+                    onEpisodeElement(element, text, textRange[0], textRange[1]);
+                }
+            } else if (eventType == XmlPullParser.END_TAG) {
+                if (depth == DEPTH_EPISODE_ELEMENT) {
+                    element = null;
+                } else if (depth == DEPTH_EPISODE && isInEpisode) {
+                    isInEpisode = false;
+                    callback.onEpisode(episode);
+                }
+                depth--;
+            }
+            eventType = parser.next();
+        }
+    }
+
+    private void onEpisodeElement(String element, char[] text, int start, int length) {
+        // trim
+        int end = start + length;
+        while (start < end && text[start] <= ' ') {
+            start++;
+        }
+        while (end > start && text[end - 1] <= ' ') {
+            end--;
+        }
+        length = end - start;
+        if (length == 0) {
+            return;
+        }
+
+        switch (element) {
+            case ID:
+                episode.id = parseInt(text, start, end);
+                break;
+            case EPISODE_NUMBER:
+                if (isInt(text, start, end)) {
+                    episode.number = parseInt(text, start, end);
+                    episode.hasNumber = true;
+                }
+                break;
+            case ABSOLUTE_NUMBER:
+                if (isInt(text, start, end)) {
+                    episode.absoluteNumber = parseInt(text, start, end);
+                    episode.hasAbsoluteNumber = true;
+                }
+                break;
+            case SEASON_NUMBER:
+                episode.season = parseInt(text, start, end);
+                break;
+            case DVD_EPISODE_NUMBER:
+                try {
+                    episode.dvdNumber = Double.parseDouble(new String(text, start, length));
+                    episode.hasDvdNumber = true;
+                } catch (NumberFormatException ignored) {
+                }
+                break;
+            case FIRST_AIRED:
+                episode.firstAiredMs = parseReleaseDate(text, start, end);
+                break;
+            case EPISODE_NAME:
+                episode.title = new String(text, start, length);
+                break;
+            case OVERVIEW:
+                episode.overview = new String(text, start, length);
+                break;
+            case SEASON_ID:
+                episode.seasonId = parseInt(text, start, end);
+                break;
+            case SERIES_ID:
+                episode.showId = parseInt(text, start, end);
+                break;
+            case DIRECTOR:
+                episode.directors = new String(text, start, length);
+                break;
+            case GUEST_STARS:
+                episode.guestStars = new String(text, start, length);
+                break;
+            case WRITER:
+                episode.writers = new String(text, start, length);
+                break;
+            case FILENAME:
+                episode.image = new String(text, start, length);
+                break;
+            case IMDB_ID:
+                episode.imdbId = new String(text, start, length);
+                break;
+            case LAST_UPDATED:
+                episode.lastEdited = parseLong(text, start, end);
+                break;
+        }
+    }
+
+    /**
+     * Parses dates in the format TVDb uses (yyyy-MM-dd) without creating a string, falls back to
+     * {@link ReleaseTimes#parseEpisodeReleaseDate} for anything else.
+     */
+    private long parseReleaseDate(char[] text, int start, int end) {
+        if (end - start == 10 && text[start + 4] == '-' && text[start + 7] == '-') {
+            int year = parseInt(text, start, start + 4);
+            int month = parseInt(text, start + 5, start + 7);
+            int day = parseInt(text, start + 8, end);
+            LocalDate localDate;
+            try {
+                localDate = new LocalDate(year, month, day);
+            } catch (IllegalArgumentException e) {
+                return ReleaseTimes.UNKNOWN_RELEASE;
+            }
+            return ReleaseTimes.getEpisodeReleaseTime(showTimeZone, localDate, showReleaseTime,
+                    showCountry, deviceTimeZone);
+        }
+        return ReleaseTimes.parseEpisodeReleaseDate(showTimeZone,
+                new String(text, start, end - start), showReleaseTime, showCountry,
+                deviceTimeZone);
+    }
+
+    /**
+     * Whether the text is a number of at most 9 digits, so it can be parsed as an int.
+     */
+    private static boolean isInt(char[] text, int start, int end) {
+        if (start < end && text[start] == '-') {
+            start++;
+        }
+        if (start == end || end - start > 9) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (text[i] < '0' || text[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 0 if the text is not a valid number.
+     */
+    private static int parseInt(char[] text, int start, int end) {
+        long value = parseLong(text, start, end);
+        return value > Integer.MAX_VALUE || value < Integer.MIN_VALUE ? 0 : (int) value;
+    }
+
+    /**
+     * @return 0 if the text is not a valid number, or has more than 18 digits.
+     */
+    private static long parseLong(char[] text, int start, int end) {
+        boolean isNegative = start < end && text[start] == '-';
+        if (isNegative) {
+            start++;
+        }
+        if (start == end || end - start > 18) {
+            return 0;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text[i];
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return isNegative ? -value : value;
+    }
+}
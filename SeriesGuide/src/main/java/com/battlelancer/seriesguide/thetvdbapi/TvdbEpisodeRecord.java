@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.thetvdbapi;
+
+import com.battlelancer.seriesguide.util.ReleaseTimes;
+
+/**
+ * Values of a single episode parsed by {@link TvdbEpisodeParser}. The parser reuses one instance
+ * for all episodes of a file, so copy the values to keep them.
+ *
+ * <p>Elements missing in the XML keep their default value, see {@link #reset()}.
+ */
+public class TvdbEpisodeRecord {
+
+    public int id;
+    public int number;
+    /** If {@link #number} was given, like the other flags below. */
+    public boolean hasNumber;
+    public int absoluteNumber;
+    public boolean hasAbsoluteNumber;
+    public int season;
+    public double dvdNumber;
+    public boolean hasDvdNumber;
+    /** See {@link ReleaseTimes#parseEpisodeReleaseDate}. */
+    public long firstAiredMs;
+    public String title;
+    public String overview;
+    public int seasonId;
+    public int showId;
+    public String directors;
+    public String guestStars;
+    public String writers;
+    public String image;
+    public String imdbId;
+    public long lastEdited;
+
+    public TvdbEpisodeRecord() {
+        reset();
+    }
+
+    public void reset() {
+        id = 0;
+        number = 0;
+        hasNumber = false;
+        absoluteNumber = 0;
+        hasAbsoluteNumber = false;
+        season = 0;
+        dvdNumber = 0;
+        hasDvdNumber = false;
+        firstAiredMs = ReleaseTimes.UNKNOWN_RELEASE;
+        title = "";
+        overview = "";
+        seasonId = 0;
+        showId = 0;
+        directors = "";
+        guestStars = "";
+        writers = "";
+        image = "";
+        imdbId = "";
+        lastEdited = 0;
+    }
+}
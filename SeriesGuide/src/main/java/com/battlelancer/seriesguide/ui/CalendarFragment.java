@@ -28,7 +28,6 @@ import android.support.v4.app.ActivityCompat;
 import android.support.v4.app.ActivityOptionsCompat;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
 import android.support.v4.view.ViewCompat;
 import android.text.format.DateUtils;
@@ -45,11 +44,11 @@ import android.widget.TextView;
 import com.battlelancer.seriesguide.R;
 import com.battlelancer.seriesguide.adapters.CalendarAdapter;
 import com.battlelancer.seriesguide.enums.EpisodeFlags;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.loaders.CalendarLoader;
 import com.battlelancer.seriesguide.settings.CalendarSettings;
 import com.battlelancer.seriesguide.settings.DisplaySettings;
+import com.battlelancer.seriesguide.settings.SettingsSnapshot;
 import com.battlelancer.seriesguide.ui.dialogs.CheckInDialogFragment;
-import com.battlelancer.seriesguide.util.DBUtils;
 import com.battlelancer.seriesguide.util.EpisodeTools;
 import com.battlelancer.seriesguide.util.Utils;
 import com.tonicartos.widget.stickygridheaders.StickyGridHeadersGridView;
@@ -125,7 +124,6 @@ public class CalendarFragment extends Fragment implements
         // setup adapter
         mAdapter = new CalendarAdapter(getActivity());
         boolean infiniteScrolling = CalendarSettings.isInfiniteScrolling(getActivity());
-        mAdapter.setIsShowingHeaders(!infiniteScrolling);
 
         // setup grid view
         mGridView.setAdapter(mAdapter);
@@ -330,15 +328,11 @@ public class CalendarFragment extends Fragment implements
         String type = getArguments().getString(InitBundle.TYPE);
         boolean isInfiniteScrolling = CalendarSettings.isInfiniteScrolling(getActivity());
 
-        // infinite or 30 days activity stream
-        String[][] queryArgs = DBUtils.buildActivityQuery(getActivity(), type,
-                isInfiniteScrolling ? -1 : 30);
-
         // prevent upcoming/recent episodes from becoming stale
         schedulePeriodicDataRefresh(true);
 
-        return new CursorLoader(getActivity(), Episodes.CONTENT_URI_WITHSHOW,
-                CalendarAdapter.Query.PROJECTION, queryArgs[0][0], queryArgs[1], queryArgs[2][0]);
+        // infinite or 30 days activity stream
+        return new CalendarLoader(getActivity(), type, isInfiniteScrolling ? -1 : 30);
     }
 
     public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
@@ -370,10 +364,10 @@ public class CalendarFragment extends Fragment implements
 
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        // settings snapshot might not be updated, yet, but the loader reads from it
+        SettingsSnapshot.update(sharedPreferences, key);
         if (CalendarSettings.KEY_INFINITE_SCROLLING.equals(key)) {
-            boolean infiniteScrolling = CalendarSettings.isInfiniteScrolling(getActivity());
-            mAdapter.setIsShowingHeaders(!infiniteScrolling);
-            mGridView.setFastScrollEnabled(infiniteScrolling);
+            mGridView.setFastScrollEnabled(CalendarSettings.isInfiniteScrolling(getActivity()));
         }
         if (CalendarSettings.KEY_ONLY_FAVORITE_SHOWS.equals(key)
                 || DisplaySettings.KEY_HIDE_SPECIALS.equals(key)
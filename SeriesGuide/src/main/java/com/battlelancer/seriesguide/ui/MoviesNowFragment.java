@@ -55,6 +55,8 @@ import java.util.List;
  */
 public class MoviesNowFragment extends Fragment {
 
+    private static final String ARG_FORCE_REFRESH = "force_refresh";
+
     @Bind(R.id.swipeRefreshLayoutNow) EmptyViewSwipeRefreshLayout swipeRefreshLayout;
 
     @Bind(R.id.recyclerViewNow) RecyclerView recyclerView;
@@ -210,7 +212,9 @@ public class MoviesNowFragment extends Fragment {
             getLoaderManager().restartLoader(MoviesActivity.NOW_TRAKT_USER_LOADER_ID, null,
                     recentlyTraktCallbacks);
             isLoadingFriends = true;
-            getLoaderManager().restartLoader(ShowsActivity.NOW_TRAKT_FRIENDS_LOADER_ID, null,
+            Bundle args = new Bundle();
+            args.putBoolean(ARG_FORCE_REFRESH, true);
+            getLoaderManager().restartLoader(ShowsActivity.NOW_TRAKT_FRIENDS_LOADER_ID, args,
                     traktFriendsHistoryCallbacks);
         } else {
             // destroy trakt loaders and remove any shown error message
@@ -324,7 +328,8 @@ public class MoviesNowFragment extends Fragment {
             = new LoaderManager.LoaderCallbacks<List<NowAdapter.NowItem>>() {
         @Override
         public Loader<List<NowAdapter.NowItem>> onCreateLoader(int id, Bundle args) {
-            return new TraktFriendsMovieHistoryLoader(getActivity());
+            boolean forceRefresh = args != null && args.getBoolean(ARG_FORCE_REFRESH);
+            return new TraktFriendsMovieHistoryLoader(getActivity(), forceRefresh);
         }
 
         @Override
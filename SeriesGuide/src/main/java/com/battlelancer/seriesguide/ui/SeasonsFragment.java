@@ -26,7 +26,6 @@ import android.preference.PreferenceManager;
 import android.provider.BaseColumns;
 import android.support.v4.app.ActivityCompat;
 import android.support.v4.app.ActivityOptionsCompat;
-import android.support.v4.app.FragmentActivity;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.ListFragment;
 import android.support.v4.app.LoaderManager;
@@ -55,7 +54,6 @@ import com.battlelancer.seriesguide.ui.dialogs.ManageListsDialogFragment;
 import com.battlelancer.seriesguide.ui.dialogs.SingleChoiceDialogFragment;
 import com.battlelancer.seriesguide.util.DBUtils;
 import com.battlelancer.seriesguide.util.EpisodeTools;
-import com.battlelancer.seriesguide.util.EpisodeTools.SeasonWatchedType;
 import com.battlelancer.seriesguide.util.Utils;
 import de.greenrobot.event.EventBus;
 
@@ -233,7 +231,6 @@ public class SeasonsFragment extends ListFragment implements
     public void onResume() {
         super.onResume();
         getPreferences();
-        updateUnwatchedCounts();
         onLoadRemainingCounter();
         EventBus.getDefault().register(this);
     }
@@ -371,68 +368,6 @@ public class SeasonsFragment extends ListFragment implements
         EpisodeTools.showCollected(getActivity(), getShowId(), isCollected);
     }
 
-    /**
-     * Update unwatched stats for all seasons of this fragments show. Requeries the list
-     * afterwards.
-     */
-    protected void updateUnwatchedCounts() {
-        Thread t = new UpdateUnwatchThread(String.valueOf(getShowId()));
-        t.start();
-    }
-
-    private class UpdateUnwatchThread extends Thread {
-
-        private String mSeasonId;
-
-        private String mShowId;
-
-        public UpdateUnwatchThread(String showId, String seasonid) {
-            this(showId);
-            mSeasonId = seasonid;
-        }
-
-        public UpdateUnwatchThread(String showId) {
-            mShowId = showId;
-            this.setName("UpdateWatchStatsThread");
-        }
-
-        public void run() {
-            final FragmentActivity context = getActivity();
-            if (context == null) {
-                return;
-            }
-
-            if (mSeasonId != null) {
-                // update one season
-                DBUtils.updateUnwatchedCount(context, mSeasonId);
-            } else {
-                // update all seasons of this show, start with the most recent
-                // one
-                final Cursor seasons = context.getContentResolver().query(
-                        Seasons.buildSeasonsOfShowUri(mShowId), new String[] {
-                                Seasons._ID
-                        }, null, null, Seasons.COMBINED + " DESC"
-                );
-                if (seasons == null) {
-                    return;
-                }
-                while (seasons.moveToNext()) {
-                    String seasonId = seasons.getString(0);
-                    DBUtils.updateUnwatchedCount(context, seasonId);
-
-                    notifyContentProvider(context);
-                }
-                seasons.close();
-            }
-
-            notifyContentProvider(context);
-        }
-
-        private void notifyContentProvider(final FragmentActivity context) {
-            context.getContentResolver().notifyChange(Seasons.buildSeasonsOfShowUri(mShowId), null);
-        }
-    }
-
     private void getPreferences() {
         mSorting = DisplaySettings.getSeasonSortOrder(getActivity());
     }
@@ -556,20 +491,11 @@ public class SeasonsFragment extends ListFragment implements
     @SuppressWarnings("unused")
     public void onEvent(EpisodeTools.EpisodeActionCompletedEvent event) {
         /**
-         * Updates the total remaining episodes counter, updates season
-         * counters.
+         * Updates the total remaining episodes counter. Season counters are updated along with
+         * the episode flags, the seasons loader picks them up.
          */
         if (isAdded()) {
             onLoadRemainingCounter();
-            if (event.mType instanceof EpisodeTools.SeasonWatchedType) {
-                // If we can narrow it down to just one season...
-                EpisodeTools.SeasonWatchedType seasonWatchedType = (SeasonWatchedType) event.mType;
-                Thread t = new UpdateUnwatchThread(String.valueOf(getShowId()),
-                        String.valueOf(seasonWatchedType.getSeasonTvdbId()));
-                t.start();
-            } else {
-                updateUnwatchedCounts();
-            }
         }
     }
 
@@ -27,6 +27,7 @@ import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 import android.media.RingtoneManager;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.preference.CheckBoxPreference;
 import android.preference.ListPreference;
@@ -42,11 +43,13 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StyleRes;
 import android.support.v4.app.TaskStackBuilder;
+import android.support.v4.os.AsyncTaskCompat;
 import android.support.v7.app.ActionBar;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
 import android.text.TextUtils;
 import android.view.MenuItem;
+import com.battlelancer.seriesguide.BuildConfig;
 import com.battlelancer.seriesguide.R;
 import com.battlelancer.seriesguide.appwidget.ListWidgetProvider;
 import com.battlelancer.seriesguide.backend.HexagonTools;
@@ -61,6 +64,9 @@ import com.battlelancer.seriesguide.settings.NotificationSettings;
 import com.battlelancer.seriesguide.settings.TraktCredentials;
 import com.battlelancer.seriesguide.settings.UpdateSettings;
 import com.battlelancer.seriesguide.sync.SgSyncAdapter;
+import com.battlelancer.seriesguide.sync.SyncProfiler;
+import com.battlelancer.seriesguide.util.HttpMetrics;
+import com.battlelancer.seriesguide.util.ShareUtils;
 import com.battlelancer.seriesguide.util.ThemeUtils;
 import com.battlelancer.seriesguide.util.Utils;
 import com.google.android.gms.analytics.GoogleAnalytics;
@@ -413,6 +419,60 @@ public class SeriesGuidePreferences extends AppCompatActivity {
                             return false;
                         }
                     });
+
+            if (BuildConfig.DEBUG) {
+                // network metrics of this process, tap to refresh
+                Preference httpMetrics = new Preference(getActivity());
+                httpMetrics.setTitle("Network statistics");
+                httpMetrics.setSummary(HttpMetrics.buildSummary());
+                httpMetrics.setOnPreferenceClickListener(new OnPreferenceClickListener() {
+                    @Override
+                    public boolean onPreferenceClick(Preference preference) {
+                        preference.setSummary(HttpMetrics.buildSummary());
+                        return true;
+                    }
+                });
+                getPreferenceScreen().addPreference(httpMetrics);
+
+                // statistics of the last sync runs, tap to load and export as JSON
+                Preference syncHistory = new Preference(getActivity());
+                syncHistory.setTitle("Sync history");
+                syncHistory.setSummary("Tap to load and share");
+                syncHistory.setOnPreferenceClickListener(new OnPreferenceClickListener() {
+                    @Override
+                    public boolean onPreferenceClick(Preference preference) {
+                        onLoadSyncHistory(preference);
+                        return true;
+                    }
+                });
+                getPreferenceScreen().addPreference(syncHistory);
+            }
+        }
+
+        /**
+         * Reads the sync history off the main thread, then shows a summary and shares it.
+         */
+        private void onLoadSyncHistory(final Preference preference) {
+            final Context context = getActivity().getApplicationContext();
+            AsyncTask<Void, Void, String[]> task = new AsyncTask<Void, Void, String[]>() {
+                @Override
+                protected String[] doInBackground(Void... params) {
+                    return new String[] {
+                            SyncProfiler.buildSummary(context),
+                            SyncProfiler.exportHistory(context)
+                    };
+                }
+
+                @Override
+                protected void onPostExecute(String[] result) {
+                    if (isAdded()) {
+                        preference.setSummary(result[0]);
+                        ShareUtils.startShareIntentChooser(getActivity(), result[1],
+                                R.string.share);
+                    }
+                }
+            };
+            AsyncTaskCompat.executeParallel(task);
         }
 
         @Override
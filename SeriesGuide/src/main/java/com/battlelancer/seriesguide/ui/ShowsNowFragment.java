@@ -63,6 +63,8 @@ import java.util.List;
  */
 public class ShowsNowFragment extends Fragment {
 
+    private static final String ARG_FORCE_REFRESH = "force_refresh";
+
     @Bind(R.id.swipeRefreshLayoutNow) EmptyViewSwipeRefreshLayout swipeRefreshLayout;
 
     @Bind(R.id.recyclerViewNow) RecyclerView recyclerView;
@@ -279,7 +281,9 @@ public class ShowsNowFragment extends Fragment {
             getLoaderManager().restartLoader(ShowsActivity.NOW_TRAKT_USER_LOADER_ID, null,
                     recentlyTraktCallbacks);
             isLoadingFriends = true;
-            getLoaderManager().restartLoader(ShowsActivity.NOW_TRAKT_FRIENDS_LOADER_ID, null,
+            Bundle args = new Bundle();
+            args.putBoolean(ARG_FORCE_REFRESH, true);
+            getLoaderManager().restartLoader(ShowsActivity.NOW_TRAKT_FRIENDS_LOADER_ID, args,
                     traktFriendsHistoryCallbacks);
         } else {
             // destroy trakt loaders and remove any shown error message
@@ -490,7 +494,8 @@ public class ShowsNowFragment extends Fragment {
             = new LoaderManager.LoaderCallbacks<List<NowAdapter.NowItem>>() {
         @Override
         public Loader<List<NowAdapter.NowItem>> onCreateLoader(int id, Bundle args) {
-            return new TraktFriendsEpisodeHistoryLoader(getActivity());
+            boolean forceRefresh = args != null && args.getBoolean(ARG_FORCE_REFRESH);
+            return new TraktFriendsEpisodeHistoryLoader(getActivity(), forceRefresh);
         }
 
         @Override
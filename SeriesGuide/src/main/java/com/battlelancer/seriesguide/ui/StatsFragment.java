@@ -16,9 +16,7 @@
 
 package com.battlelancer.seriesguide.ui;
 
-import android.content.ContentResolver;
 import android.content.Context;
-import android.database.Cursor;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
@@ -36,11 +34,10 @@ import android.widget.TextView;
 import butterknife.Bind;
 import butterknife.ButterKnife;
 import com.battlelancer.seriesguide.R;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
 import com.battlelancer.seriesguide.settings.DisplaySettings;
 import com.battlelancer.seriesguide.util.ShareUtils;
+import com.battlelancer.seriesguide.util.StatsTools;
+import com.battlelancer.seriesguide.util.StatsTools.Stats;
 import de.greenrobot.event.EventBus;
 import java.util.Locale;
 
@@ -179,49 +176,42 @@ public class StatsFragment extends Fragment {
 
     private void updateStats(Stats stats) {
         // all shows
-        mShowCount.setText(String.valueOf(stats.shows()));
+        mShowCount.setText(String.valueOf(stats.shows));
 
         // shows with next episodes
-        mProgressShowsWithNextEpisode.setMax(stats.shows());
-        mProgressShowsWithNextEpisode.setProgress(stats.showsWithNextEpisodes());
+        mProgressShowsWithNextEpisode.setMax(stats.shows);
+        mProgressShowsWithNextEpisode.setProgress(stats.showsWithNextEpisodes);
         mProgressShowsWithNextEpisode.setVisibility(View.VISIBLE);
 
         mShowsWithNextEpisode.setText(getString(R.string.shows_with_next,
-                stats.showsWithNextEpisodes()).toUpperCase(Locale.getDefault()));
+                stats.showsWithNextEpisodes).toUpperCase(Locale.getDefault()));
         mShowsWithNextEpisode.setVisibility(View.VISIBLE);
 
         // continuing shows
-        mProgressShowsContinuing.setMax(stats.shows());
-        mProgressShowsContinuing.setProgress(stats.showsContinuing());
+        mProgressShowsContinuing.setMax(stats.shows);
+        mProgressShowsContinuing.setProgress(stats.showsContinuing);
         mProgressShowsContinuing.setVisibility(View.VISIBLE);
 
         mShowsContinuing.setText(getString(R.string.shows_continuing,
-                stats.showsContinuing()).toUpperCase(Locale.getDefault()));
+                stats.showsContinuing).toUpperCase(Locale.getDefault()));
         mShowsContinuing.setVisibility(View.VISIBLE);
 
         // all episodes
-        mEpisodeCount.setText(String.valueOf(stats.episodes()));
+        mEpisodeCount.setText(String.valueOf(stats.episodes));
 
         // watched episodes
-        mProgressEpisodesWatched.setMax(stats.episodes());
-        mProgressEpisodesWatched.setProgress(stats.episodesWatched());
+        mProgressEpisodesWatched.setMax(stats.episodes);
+        mProgressEpisodesWatched.setProgress(stats.episodesWatched);
         mProgressEpisodesWatched.setVisibility(View.VISIBLE);
 
         mEpisodesWatched.setText(getString(R.string.episodes_watched,
-                stats.episodesWatched()).toUpperCase(Locale.getDefault()));
+                stats.episodesWatched).toUpperCase(Locale.getDefault()));
         mEpisodesWatched.setVisibility(View.VISIBLE);
 
         // episode runtime
-        String watchedDuration = getTimeDuration(stats.episodesWatchedRuntime());
-        if (!stats.hasFinalValues) {
-            // showing minimum (= not the final value)
-            watchedDuration = "> " + watchedDuration;
-        }
-        mEpisodesRuntime.setText(watchedDuration);
+        mEpisodesRuntime.setText(getTimeDuration(stats.episodesWatchedRuntime));
         mEpisodesRuntime.setVisibility(View.VISIBLE);
-        if (stats.hasFinalValues) {
-            mProgressEpisodesRuntime.setVisibility(View.GONE);
-        }
+        mProgressEpisodesRuntime.setVisibility(View.GONE);
 
         // movies
         mMovieCount.setText(String.valueOf(stats.movies));
@@ -283,29 +273,24 @@ public class StatsFragment extends Fragment {
         statsString.append("\n");
         statsString.append("\n");
         // shows
-        statsString.append(currentStats.shows())
+        statsString.append(currentStats.shows)
                 .append(" ")
                 .append(getString(R.string.statistics_shows));
         statsString.append("\n");
         statsString.append(
-                getString(R.string.shows_with_next, currentStats.showsWithNextEpisodes()));
+                getString(R.string.shows_with_next, currentStats.showsWithNextEpisodes));
         statsString.append("\n");
-        statsString.append(getString(R.string.shows_continuing, currentStats.showsContinuing()));
+        statsString.append(getString(R.string.shows_continuing, currentStats.showsContinuing));
         statsString.append("\n");
         statsString.append("\n");
         // episodes
-        statsString.append(currentStats.episodes()).append(" ").append(
+        statsString.append(currentStats.episodes).append(" ").append(
                 getString(R.string.statistics_episodes));
         statsString.append("\n");
-        statsString.append(getString(R.string.episodes_watched, currentStats.episodesWatched()));
+        statsString.append(getString(R.string.episodes_watched, currentStats.episodesWatched));
         statsString.append("\n");
-        if (currentStats.episodesWatchedRuntime() != 0) {
-            String watchedDuration = getTimeDuration(currentStats.episodesWatchedRuntime());
-            if (!currentStats.hasFinalValues) {
-                // showing minimum (= not the final value)
-                watchedDuration = "> " + watchedDuration;
-            }
-            statsString.append(watchedDuration)
+        if (currentStats.episodesWatchedRuntime != 0) {
+            statsString.append(getTimeDuration(currentStats.episodesWatchedRuntime))
                     .append(" ")
                     .append(getString(R.string.runtime_all_episodes));
             statsString.append("\n");
@@ -325,13 +310,12 @@ public class StatsFragment extends Fragment {
         ShareUtils.startShareIntentChooser(getActivity(), statsString.toString(), R.string.share);
     }
 
-    private static class StatsTask extends AsyncTask<Void, Stats, Stats> {
+    private static class StatsTask extends AsyncTask<Void, Void, Stats> {
 
         public class StatsUpdateEvent {
             public final Stats stats;
 
-            public StatsUpdateEvent(Stats stats, boolean hasFinalValues) {
-                stats.hasFinalValues = hasFinalValues;
+            public StatsUpdateEvent(Stats stats) {
                 this.stats = stats;
             }
         }
@@ -344,203 +328,14 @@ public class StatsFragment extends Fragment {
 
         @Override
         protected Stats doInBackground(Void... params) {
-            Stats stats = new Stats();
-            ContentResolver resolver = context.getContentResolver();
-
-            // number of...
-            // ...movies (count, in watchlist, runtime of watchlist)
-            final Cursor movies = resolver.query(SeriesGuideContract.Movies.CONTENT_URI,
-                    new String[] { SeriesGuideContract.Movies._ID,
-                            SeriesGuideContract.Movies.IN_WATCHLIST,
-                            SeriesGuideContract.Movies.RUNTIME_MIN }, null, null, null
-            );
-            if (movies != null) {
-                stats.movies = movies.getCount();
-
-                int inWatchlist = 0;
-                long watchlistRuntime = 0;
-                while (movies.moveToNext()) {
-                    if (movies.getInt(1) == 1) {
-                        inWatchlist++;
-                        watchlistRuntime += movies.getInt(2) * DateUtils.MINUTE_IN_MILLIS;
-                    }
-                }
-                movies.close();
-
-                stats.moviesWatchlist = inWatchlist;
-                stats.moviesWatchlistRuntime = watchlistRuntime;
-            }
-
-            if (isCancelled()) {
-                return stats;
-            }
-
-            // ...all shows
-            final Cursor shows = resolver.query(Shows.CONTENT_URI,
-                    new String[] {
-                            Shows._ID, Shows.STATUS, Shows.NEXTEPISODE, Shows.RUNTIME
-                    }, null, null, null
-            );
-            if (shows != null) {
-                int continuing = 0;
-                int withnext = 0;
-                while (shows.moveToNext()) {
-                    // ...continuing shows
-                    if (shows.getInt(1) == 1) {
-                        continuing++;
-                    }
-                    // ...shows with next episodes
-                    if (shows.getInt(2) != 0) {
-                        withnext++;
-                    }
-                }
-                stats.shows(shows.getCount()).showsContinuing(continuing)
-                        .showsWithNextEpisodes(withnext);
-
-                boolean includeSpecials = !DisplaySettings.isHidingSpecials(context);
-
-                // ...all episodes
-                final Cursor episodes = resolver.query(Episodes.CONTENT_URI,
-                        new String[] { Episodes._ID },
-                        includeSpecials ? null : Episodes.SELECTION_NO_SPECIALS,
-                        null, null);
-                if (episodes != null) {
-                    stats.episodes(episodes.getCount());
-                    episodes.close();
-                }
-
-                // ...watched episodes
-                final Cursor episodesWatched = resolver.query(Episodes.CONTENT_URI,
-                        new String[] { Episodes._ID },
-                        Episodes.SELECTION_WATCHED
-                                + (includeSpecials ? "" : " AND " + Episodes.SELECTION_NO_SPECIALS),
-                        null, null
-                );
-                if (episodesWatched != null) {
-                    stats.episodesWatched(episodesWatched.getCount());
-                    episodesWatched.close();
-                }
-
-                if (isCancelled()) {
-                    shows.close();
-                    return stats;
-                }
-
-                // report intermediate results before longer running op
-                publishProgress(stats);
-
-                // calculate runtime of watched episodes per show
-                shows.moveToPosition(-1);
-                long totalRuntime = 0;
-                int count = 0;
-                while (shows.moveToNext()) {
-                    final Cursor episodesWatchedOfShow = resolver.query(
-                            Episodes.buildEpisodesOfShowUri(shows.getString(0)),
-                            new String[] { Episodes._ID },
-                            Episodes.SELECTION_WATCHED
-                                    + (includeSpecials
-                                    ? "" : " AND " + Episodes.SELECTION_NO_SPECIALS),
-                            null, null
-                    );
-                    if (episodesWatchedOfShow == null) {
-                        continue;
-                    }
-                    long runtimeOfShow = shows.getInt(3) * DateUtils.MINUTE_IN_MILLIS;
-                    long runtimeOfEpisodes = episodesWatchedOfShow.getCount() * runtimeOfShow;
-                    totalRuntime += runtimeOfEpisodes;
-
-                    episodesWatchedOfShow.close();
-                    count++;
-                    // post regular update of minimum
-                    if (count == 25) {
-                        count = 0;
-                        stats.episodesWatchedRuntime(totalRuntime);
-                        publishProgress(stats);
-                    }
-                }
-                stats.episodesWatchedRuntime(totalRuntime);
-
-                shows.close();
-            }
-
-            return stats;
-        }
-
-        @Override
-        protected void onProgressUpdate(Stats... values) {
-            EventBus.getDefault().post(new StatsUpdateEvent(values[0], false));
+            return StatsTools.getStats(context);
         }
 
         @Override
         protected void onPostExecute(Stats stats) {
-            EventBus.getDefault().post(new StatsUpdateEvent(stats, true));
-        }
-    }
-
-    private static class Stats {
-        public boolean hasFinalValues;
-        private int mShows;
-        private int mShowsContinuing;
-        private int mShowsWithNext;
-        private int mEpisodes;
-        private int mEpisodesWatched;
-        private long mEpisodesWatchedRuntime;
-        public int movies;
-        public int moviesWatchlist;
-        public long moviesWatchlistRuntime;
-
-        public int shows() {
-            return mShows;
-        }
-
-        public Stats shows(int number) {
-            mShows = number;
-            return this;
-        }
-
-        public int showsWithNextEpisodes() {
-            return mShowsWithNext;
-        }
-
-        public Stats showsWithNextEpisodes(int number) {
-            mShowsWithNext = number;
-            return this;
-        }
-
-        public int showsContinuing() {
-            return mShowsContinuing;
-        }
-
-        public Stats showsContinuing(int number) {
-            mShowsContinuing = number;
-            return this;
-        }
-
-        public int episodes() {
-            return mEpisodes;
-        }
-
-        public Stats episodes(int number) {
-            mEpisodes = number;
-            return this;
-        }
-
-        public long episodesWatchedRuntime() {
-            return mEpisodesWatchedRuntime;
-        }
-
-        public Stats episodesWatchedRuntime(long runtime) {
-            mEpisodesWatchedRuntime = runtime;
-            return this;
-        }
-
-        public int episodesWatched() {
-            return mEpisodesWatched;
-        }
-
-        public Stats episodesWatched(int number) {
-            mEpisodesWatched = number;
-            return this;
+            if (stats != null) {
+                EventBus.getDefault().post(new StatsUpdateEvent(stats));
+            }
         }
     }
 }
@@ -34,17 +34,9 @@ public class ActivityTools {
      * Adds an activity entry for the given episode with the current time as timestamp. If an entry
      * already exists it is replaced.
      *
-     * <p>Also cleans up old entries.
+     * <p>Old entries are removed by {@link #removeOutdatedActivity(Context)}.
      */
     public static void addActivity(Context context, int episodeTvdbId, int showTvdbId) {
-        long timeMonthAgo = System.currentTimeMillis() - HISTORY_THRESHOLD;
-
-        // delete all entries older than 30 days
-        int deleted = context.getContentResolver()
-                .delete(SeriesGuideContract.Activity.CONTENT_URI,
-                        SeriesGuideContract.Activity.TIMESTAMP + "<" + timeMonthAgo, null);
-        Timber.d("addActivity: removed " + deleted + " outdated activities");
-
         // add new entry
         ContentValues values = new ContentValues();
         values.put(SeriesGuideContract.Activity.EPISODE_TVDB_ID, episodeTvdbId);
@@ -56,6 +48,17 @@ public class ActivityTools {
         Timber.d("addActivity: episode: " + episodeTvdbId + " timestamp: " + currentTime);
     }
 
+    /**
+     * Removes all entries older than 30 days. Run in the background, e.g. during sync.
+     */
+    public static void removeOutdatedActivity(Context context) {
+        long timeMonthAgo = System.currentTimeMillis() - HISTORY_THRESHOLD;
+        int deleted = context.getContentResolver()
+                .delete(SeriesGuideContract.Activity.CONTENT_URI,
+                        SeriesGuideContract.Activity.TIMESTAMP + "<" + timeMonthAgo, null);
+        Timber.d("removeOutdatedActivity: removed " + deleted + " outdated activities");
+    }
+
     /**
      * Tries to remove any activity with the given episode TheTVDB id.
      */
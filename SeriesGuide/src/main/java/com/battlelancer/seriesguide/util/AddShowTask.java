@@ -204,10 +204,6 @@ public class AddShowTask extends AsyncTask<Void, Integer, Void> {
                     .putLong(TraktSettings.KEY_LAST_SHOWS_RATED_AT, 0)
                     .putLong(TraktSettings.KEY_LAST_EPISODES_RATED_AT, 0)
                     .commit();
-
-            // renew FTS3 table
-            Timber.d("Renewing search table.");
-            DBUtils.rebuildFtsTable(context);
         }
 
         Timber.d("Finished adding shows.");
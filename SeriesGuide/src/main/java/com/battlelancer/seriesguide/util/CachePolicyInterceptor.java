@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.util;
+
+import android.text.format.DateUtils;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Network interceptor which overrides the cache lifetime of responses of some endpoints, as their
+ * servers either do not allow caching or only for a short time, although the data rarely changes.
+ *
+ * <p>ETag and Last-Modified headers are kept, so once a response is stale the cache revalidates
+ * it with a conditional request (If-None-Match or If-Modified-Since) instead of downloading it
+ * again if it has not changed.
+ */
+public class CachePolicyInterceptor implements Interceptor {
+
+    public static class Rule {
+
+        private final String hostSuffix;
+        private final Pattern path;
+        private final long maxAgeSeconds;
+
+        /**
+         * @param hostSuffix Applies to hosts ending with this, e.g. "trakt.tv".
+         * @param pathRegex Applies to paths completely matching this.
+         */
+        public Rule(String hostSuffix, String pathRegex, long maxAgeMillis) {
+            this.hostSuffix = hostSuffix;
+            this.path = Pattern.compile(pathRegex);
+            this.maxAgeSeconds = maxAgeMillis / DateUtils.SECOND_IN_MILLIS;
+        }
+
+        boolean matches(HttpUrl url) {
+            return url.host().endsWith(hostSuffix) && path.matcher(url.encodedPath()).matches();
+        }
+    }
+
+    /**
+     * trakt show and movie summaries, but not lists like /shows/trending or /movies/popular which
+     * change often.
+     */
+    public static final String PATH_TRAKT_SUMMARY = "/(shows|movies)/"
+            + "(?!(trending|popular|played|watched|collected|anticipated|boxoffice|updates)$)[^/]+";
+
+    public static final List<Rule> DEFAULT_RULES = Arrays.asList(
+            // TMDb image url configuration, changes very rarely
+            new Rule("themoviedb.org", "/3/configuration", DateUtils.DAY_IN_MILLIS),
+            new Rule("trakt.tv", PATH_TRAKT_SUMMARY, DateUtils.HOUR_IN_MILLIS),
+            // TVDb posters and other images, never change for a path
+            new Rule("thetvdb.com", "/banners/.+", 30 * DateUtils.DAY_IN_MILLIS)
+    );
+
+    private final List<Rule> rules;
+
+    public CachePolicyInterceptor(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        // also rewrite 304 responses, their headers update the cached response
+        if (!"GET".equals(request.method())
+                || !(response.isSuccessful() || response.code() == 304)) {
+            return response;
+        }
+        for (int i = 0, size = rules.size(); i < size; i++) {
+            Rule rule = rules.get(i);
+            if (rule.matches(request.url())) {
+                return response.newBuilder()
+                        .removeHeader("Pragma")
+                        .header("Cache-Control", "public, max-age=" + rule.maxAgeSeconds)
+                        .build();
+            }
+        }
+        return response;
+    }
+}
@@ -17,16 +17,14 @@
 package com.battlelancer.seriesguide.util;
 
 import android.content.ContentProviderOperation;
-import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteException;
-import android.net.Uri;
+import android.os.Bundle;
 import android.os.RemoteException;
 import android.support.annotation.Nullable;
-import android.text.TextUtils;
 import android.text.format.DateUtils;
 import android.widget.Toast;
 import com.battlelancer.seriesguide.R;
@@ -35,24 +33,20 @@ import com.battlelancer.seriesguide.adapters.CalendarAdapter;
 import com.battlelancer.seriesguide.dataliberation.DataLiberationTools;
 import com.battlelancer.seriesguide.dataliberation.model.Show;
 import com.battlelancer.seriesguide.enums.EpisodeFlags;
-import com.battlelancer.seriesguide.enums.SeasonTags;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeFlagOutbox;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase;
 import com.battlelancer.seriesguide.settings.CalendarSettings;
 import com.battlelancer.seriesguide.settings.DisplaySettings;
 import com.battlelancer.seriesguide.ui.CalendarFragment.CalendarType;
 import de.greenrobot.event.EventBus;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import timber.log.Timber;
 
-import static com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Qualified;
-
 public class DBUtils {
 
     /**
@@ -103,7 +97,8 @@ public class DBUtils {
     }
 
     /**
-     * Triggers the rebuilding of the episode search table.
+     * Triggers the rebuilding of the episode search table. Only required to repair the table, it
+     * is kept up to date by database triggers.
      */
     public static void rebuildFtsTable(Context context) {
         Timber.d("Query to renew FTS table");
@@ -112,6 +107,45 @@ public class DBUtils {
                         null, null);
     }
 
+    /**
+     * Holds back all change notifications caused by database changes on the current thread until
+     * {@link #releaseNotifications(Context)} is called, then sends them once. Calls may be nested.
+     * Make sure to always release, e.g. in a finally block.
+     */
+    public static void holdNotifications(Context context) {
+        context.getContentResolver().call(SeriesGuideContract.Shows.CONTENT_URI,
+                SeriesGuideContract.METHOD_HOLD_NOTIFICATIONS, null, null);
+    }
+
+    /**
+     * See {@link #holdNotifications(Context)}.
+     */
+    public static void releaseNotifications(Context context) {
+        context.getContentResolver().call(SeriesGuideContract.Shows.CONTENT_URI,
+                SeriesGuideContract.METHOD_RELEASE_NOTIFICATIONS, null, null);
+    }
+
+    /**
+     * Begins a database transaction which includes all following changes made through the content
+     * provider on the current thread. Must be followed by {@link #endTransaction(Context,
+     * boolean)} on the same thread, e.g. in a finally block.
+     */
+    public static void beginTransaction(Context context) {
+        context.getContentResolver().call(SeriesGuideContract.Shows.CONTENT_URI,
+                SeriesGuideContract.METHOD_BEGIN_TRANSACTION, null, null);
+    }
+
+    /**
+     * Ends a transaction started with {@link #beginTransaction(Context)}.
+     *
+     * @param isSuccessful If {@code false}, rolls back all changes of this transaction.
+     */
+    public static void endTransaction(Context context, boolean isSuccessful) {
+        context.getContentResolver().call(SeriesGuideContract.Shows.CONTENT_URI,
+                SeriesGuideContract.METHOD_END_TRANSACTION,
+                isSuccessful ? SeriesGuideContract.ARG_SUCCESSFUL : null, null);
+    }
+
     interface UnwatchedQuery {
 
         String[] PROJECTION = new String[] {
@@ -120,84 +154,67 @@ public class DBUtils {
 
         String AIRED_SELECTION = Episodes.WATCHED + "=0 AND " + Episodes.FIRSTAIREDMS
                 + " !=-1 AND " + Episodes.FIRSTAIREDMS + "<=?";
+    }
 
-        String FUTURE_SELECTION = Episodes.WATCHED + "=0 AND " + Episodes.FIRSTAIREDMS
-                + ">?";
-
-        String NOAIRDATE_SELECTION = Episodes.WATCHED + "=0 AND "
-                + Episodes.FIRSTAIREDMS + "=-1";
-
-        String SKIPPED_SELECTION = Episodes.WATCHED + "=" + EpisodeFlags.SKIPPED;
+    /**
+     * Sets the watched or collected flag of all episodes matching the given selection, optionally
+     * queueing the changes for upload to Hexagon or trakt, see {@link
+     * SeriesGuideDatabase#updateEpisodeFlags}.
+     *
+     * @param type One of {@link EpisodeFlagOutbox#TYPE_WATCHED} or {@link
+     * EpisodeFlagOutbox#TYPE_COLLECTED}.
+     */
+    public static void updateEpisodeFlags(Context context, String selection, int type, int value,
+            boolean isQueueingUpload) {
+        Bundle extras = new Bundle();
+        extras.putInt(SeriesGuideContract.EXTRA_FLAG_TYPE, type);
+        extras.putInt(SeriesGuideContract.EXTRA_FLAG_VALUE, value);
+        extras.putBoolean(SeriesGuideContract.EXTRA_QUEUE_UPLOAD, isQueueingUpload);
+        try {
+            context.getContentResolver().call(Episodes.CONTENT_URI,
+                    SeriesGuideContract.METHOD_UPDATE_EPISODE_FLAGS, selection, extras);
+        } catch (SQLiteException e) {
+            Timber.e(e, "updateEpisodeFlags: failed.");
+            postDatabaseError(e);
+        }
     }
 
     /**
-     * Looks up the episodes of a given season and stores the count of already aired, but not
-     * watched ones in the seasons watchcount.
+     * Recounts the episodes of the given season, see {@link
+     * SeriesGuideDatabase#updateSeasonCounts}.
      */
-    public static void updateUnwatchedCount(Context context, String seasonid) {
-        final ContentResolver resolver = context.getContentResolver();
-        final String customCurrentTime = String.valueOf(TimeTools.getCurrentTime(context));
-        final Uri episodesOfSeasonUri = Episodes.buildEpisodesOfSeasonUri(seasonid);
+    public static void updateUnwatchedCountsOfSeason(Context context, int seasonTvdbId) {
+        Bundle extras = new Bundle();
+        extras.putInt(SeriesGuideContract.EXTRA_SEASON_TVDB_ID, seasonTvdbId);
+        updateUnwatchedCounts(context, extras);
+    }
 
-        // all a seasons episodes
-        final Cursor total = resolver.query(episodesOfSeasonUri, new String[] {
-                Episodes._ID
-        }, null, null, null);
-        if (total == null) {
-            return;
-        }
-        final int totalCount = total.getCount();
-        total.close();
+    /**
+     * Recounts the episodes of all seasons of the given show, see {@link
+     * SeriesGuideDatabase#updateSeasonCounts}.
+     */
+    public static void updateUnwatchedCountsOfShow(Context context, int showTvdbId) {
+        Bundle extras = new Bundle();
+        extras.putInt(SeriesGuideContract.EXTRA_SHOW_TVDB_ID, showTvdbId);
+        updateUnwatchedCounts(context, extras);
+    }
 
-        // unwatched, aired episodes
-        final Cursor unwatched = resolver.query(episodesOfSeasonUri, UnwatchedQuery.PROJECTION,
-                UnwatchedQuery.AIRED_SELECTION, new String[] {
-                        customCurrentTime
-                }, null
-        );
-        if (unwatched == null) {
-            return;
-        }
-        final int count = unwatched.getCount();
-        unwatched.close();
+    /**
+     * Recounts the episodes of all seasons, see {@link SeriesGuideDatabase#updateSeasonCounts}.
+     */
+    public static void updateUnwatchedCounts(Context context) {
+        updateUnwatchedCounts(context, new Bundle());
+    }
 
-        // unwatched, aired in the future episodes
-        final Cursor unAired = resolver.query(episodesOfSeasonUri, UnwatchedQuery.PROJECTION,
-                UnwatchedQuery.FUTURE_SELECTION, new String[] {
-                        customCurrentTime
-                }, null
-        );
-        if (unAired == null) {
-            return;
-        }
-        final int unairedCount = unAired.getCount();
-        unAired.close();
-
-        // unwatched, no airdate
-        final Cursor noAirDate = resolver.query(episodesOfSeasonUri, UnwatchedQuery.PROJECTION,
-                UnwatchedQuery.NOAIRDATE_SELECTION, null, null);
-        if (noAirDate == null) {
-            return;
-        }
-        final int noAirDateCount = noAirDate.getCount();
-        noAirDate.close();
-
-        // any skipped episodes
-        final Cursor skipped = resolver.query(episodesOfSeasonUri, UnwatchedQuery.PROJECTION,
-                UnwatchedQuery.SKIPPED_SELECTION, null, null);
-        if (skipped == null) {
-            return;
+    private static void updateUnwatchedCounts(Context context, Bundle extras) {
+        extras.putLong(SeriesGuideContract.EXTRA_CURRENT_TIME, TimeTools.getCurrentTime(context));
+        try {
+            context.getContentResolver().call(Seasons.CONTENT_URI,
+                    SeriesGuideContract.METHOD_UPDATE_SEASON_COUNTS, null, extras);
+        } catch (SQLiteException e) {
+            Timber.e(e, "updateUnwatchedCounts: failed.");
+            postDatabaseError(e);
         }
-        boolean hasSkippedEpisodes = skipped.getCount() > 0;
-        skipped.close();
-
-        final ContentValues update = new ContentValues();
-        update.put(Seasons.WATCHCOUNT, count);
-        update.put(Seasons.UNAIREDCOUNT, unairedCount);
-        update.put(Seasons.NOAIRDATECOUNT, noAirDateCount);
-        update.put(Seasons.TAGS, hasSkippedEpisodes ? SeasonTags.SKIPPED : SeasonTags.NONE);
-        update.put(Seasons.TOTALCOUNT, totalCount);
-        resolver.update(Seasons.buildSeasonUri(seasonid), update, null, null);
     }
 
     /**
@@ -453,7 +470,7 @@ public class DBUtils {
 
         // values for new and existing shows
         values.put(Shows.TITLE, show.title);
-        values.put(Shows.TITLE_NOARTICLE, trimLeadingArticle(show.title));
+        values.put(Shows.TITLE_NOARTICLE, TitleTools.trimLeadingArticle(show.title));
         values.put(Shows.OVERVIEW, show.overview);
         values.put(Shows.POSTER, show.poster);
         values.put(Shows.CONTENTRATING, show.contentRating);
@@ -469,6 +486,7 @@ public class DBUtils {
         values.put(Shows.RELEASE_COUNTRY, show.country);
         values.put(Shows.IMDBID, show.imdbId);
         values.put(Shows.TRAKT_ID, show.traktId);
+        values.put(Shows.TRAKT_ID_VERIFIED, show.traktIdVerified);
         values.put(Shows.LASTUPDATED, System.currentTimeMillis());
         values.put(Shows.LASTEDIT, show.lastEdited);
 
@@ -498,23 +516,25 @@ public class DBUtils {
 
     /**
      * Returns the episode IDs and their last edit time for a given show as a efficiently searchable
-     * HashMap.
+     * map, without boxing any ids or times.
      *
-     * @return HashMap containing the shows existing episodes
+     * @return Map containing the shows existing episodes
      */
-    public static HashMap<Integer, Long> getEpisodeMapForShow(Context context, int showTvdbId) {
+    public static IntLongMap getEpisodeMapForShow(Context context, int showTvdbId) {
         Cursor episodes = context.getContentResolver().query(
                 Episodes.buildEpisodesOfShowUri(showTvdbId), new String[] {
                         Episodes._ID, Episodes.LAST_EDITED
-                }, null, null, null
+                }, null, null, Episodes._ID + " ASC"
         );
-        HashMap<Integer, Long> episodeMap = new HashMap<>();
-        if (episodes != null) {
-            while (episodes.moveToNext()) {
-                episodeMap.put(episodes.getInt(0), episodes.getLong(1));
-            }
-            episodes.close();
+        if (episodes == null) {
+            return new IntLongMap(0);
         }
+        // sorted by id, so episodes are appended in order
+        IntLongMap episodeMap = new IntLongMap(episodes.getCount());
+        while (episodes.moveToNext()) {
+            episodeMap.put(episodes.getInt(0), episodes.getLong(1));
+        }
+        episodes.close();
         return episodeMap;
     }
 
@@ -541,252 +561,60 @@ public class DBUtils {
     }
 
     /**
-     * Creates an update {@link ContentProviderOperation} for the given episode values.
-     */
-    public static ContentProviderOperation buildEpisodeUpdateOp(ContentValues values) {
-        final String episodeId = values.getAsString(Episodes._ID);
-        return ContentProviderOperation
-                .newUpdate(Episodes.buildEpisodeUri(episodeId))
-                .withValues(values).build();
-    }
-
-    /**
-     * Creates a {@link ContentProviderOperation} for insert if isNew, or update instead for with
-     * the given season values.
+     * Creates a {@link ContentProviderOperation} for insert if isNew, or update instead for the
+     * given season.
      */
-    public static ContentProviderOperation buildSeasonOp(ContentValues values, boolean isNew) {
+    public static ContentProviderOperation buildSeasonOp(int seasonTvdbId, int season,
+            int showTvdbId, boolean isNew) {
         ContentProviderOperation op;
-        final String seasonId = values.getAsString(Seasons.REF_SEASON_ID);
         final ContentValues seasonValues = new ContentValues();
-        seasonValues.put(Seasons.COMBINED, values.getAsString(Episodes.SEASON));
+        seasonValues.put(Seasons.COMBINED, season);
 
         if (isNew) {
-            seasonValues.put(Seasons._ID, seasonId);
-            seasonValues.put(Shows.REF_SHOW_ID, values.getAsString(Shows.REF_SHOW_ID));
+            seasonValues.put(Seasons._ID, seasonTvdbId);
+            seasonValues.put(Shows.REF_SHOW_ID, String.valueOf(showTvdbId));
             op = ContentProviderOperation.newInsert(Seasons.CONTENT_URI).withValues(seasonValues)
                     .build();
         } else {
-            op = ContentProviderOperation.newUpdate(Seasons.buildSeasonUri(seasonId))
+            op = ContentProviderOperation.newUpdate(Seasons.buildSeasonUri(seasonTvdbId))
                     .withValues(seasonValues).build();
         }
         return op;
     }
 
-    private interface LastWatchedEpisodeQuery {
-        String[] PROJECTION = new String[] {
-                Qualified.SHOWS_ID,
-                Shows.LASTWATCHEDID,
-                Episodes.SEASON,
-                Episodes.NUMBER,
-                Episodes.FIRSTAIREDMS
-        };
-
-        int SHOW_TVDB_ID = 0;
-        int LAST_EPISODE_TVDB_ID = 1;
-        int LAST_EPISODE_SEASON = 2;
-        int LAST_EPISODE_NUMBER = 3;
-        int LAST_EPISODE_FIRST_RELEASE_MS = 4;
-    }
-
-    private interface NextEpisodesQuery {
-        String[] PROJECTION = new String[] {
-                Episodes._ID,
-                Episodes.SEASON,
-                Episodes.NUMBER,
-                Episodes.FIRSTAIREDMS,
-                Episodes.TITLE
-        };
-
-        /**
-         * Unwatched, airing later or has a different number or season if airing the same time.
-         */
-        String SELECT_NEXT = Episodes.WATCHED + "=0 AND ("
-                + "(" + Episodes.FIRSTAIREDMS + "=? AND "
-                + "(" + Episodes.NUMBER + "!=? OR " + Episodes.SEASON + "!=?)) "
-                + "OR " + Episodes.FIRSTAIREDMS + ">?)";
-
-        String SELECT_WITHAIRDATE = " AND " + Episodes.FIRSTAIREDMS + "!=-1";
-
-        String SELECT_ONLYFUTURE = " AND " + Episodes.FIRSTAIREDMS + ">=?";
-
-        /**
-         * Air time, then lowest season, or if identical lowest episode number.
-         */
-        String SORTORDER = Episodes.FIRSTAIREDMS + " ASC," + Episodes.SEASON + " ASC,"
-                + Episodes.NUMBER + " ASC";
-
-        int ID = 0;
-        int SEASON = 1;
-        int NUMBER = 2;
-        int FIRST_RELEASE_MS = 3;
-        int TITLE = 4;
-    }
-
     /**
      * Update next episode field of the given show. If no show id is passed, will update next
-     * episodes for all shows.
+     * episodes for all shows. See {@link SeriesGuideDatabase#updateNextEpisodes}.
      *
      * @return If only one show was passed, the TVDb id of the new next episode. Otherwise -1.
      */
     public static long updateLatestEpisode(Context context, Integer showTvdbIdToUpdate) {
-        // get a list of shows and their last watched episodes
-        Cursor shows;
+        Bundle extras = new Bundle();
+        extras.putBoolean(SeriesGuideContract.EXTRA_HIDE_SPECIALS,
+                DisplaySettings.isHidingSpecials(context));
+        extras.putBoolean(SeriesGuideContract.EXTRA_NO_RELEASED_EPISODES,
+                DisplaySettings.isNoReleasedEpisodes(context));
+        extras.putLong(SeriesGuideContract.EXTRA_CURRENT_TIME, TimeTools.getCurrentTime(context));
+        extras.putString(SeriesGuideContract.EXTRA_NUMBER_FORMAT,
+                DisplaySettings.getNumberFormat(context));
+
+        Bundle result;
         try {
-            shows = context.getContentResolver().query(Shows.CONTENT_URI_WITH_LAST_EPISODE,
-                    LastWatchedEpisodeQuery.PROJECTION,
-                    showTvdbIdToUpdate != null ?
-                            Qualified.SHOWS_ID + "=" + showTvdbIdToUpdate : null,
-                    null, null
-            );
+            result = context.getContentResolver().call(Shows.CONTENT_URI,
+                    SeriesGuideContract.METHOD_UPDATE_NEXT_EPISODES,
+                    showTvdbIdToUpdate != null ? String.valueOf(showTvdbIdToUpdate) : null,
+                    extras);
         } catch (SQLiteException e) {
-            shows = null;
-            Timber.e(e, "updateLatestEpisode: show query failed.");
+            result = null;
+            Timber.e(e, "updateLatestEpisode: update failed.");
             postDatabaseError(e);
         }
-        if (shows == null) {
-            // abort completely on query failure
+        if (result == null) {
             Timber.e("Failed to update next episode values");
             return -1;
         }
-        final List<String[]> showsLastEpisodes = new ArrayList<>();
-        while (shows.moveToNext()) {
-            showsLastEpisodes.add(
-                    new String[] {
-                            shows.getString(LastWatchedEpisodeQuery.SHOW_TVDB_ID), // 0
-                            shows.getString(LastWatchedEpisodeQuery.LAST_EPISODE_TVDB_ID), // 1
-                            shows.getString(LastWatchedEpisodeQuery.LAST_EPISODE_SEASON), // 2
-                            shows.getString(LastWatchedEpisodeQuery.LAST_EPISODE_NUMBER), // 3
-                            shows.getString(LastWatchedEpisodeQuery.LAST_EPISODE_FIRST_RELEASE_MS)
-                            // 4
-                    }
-            );
-        }
-        shows.close();
-
-        // pre-build next episode selection
-        final boolean isNoReleasedEpisodes = DisplaySettings.isNoReleasedEpisodes(context);
-        final String nextEpisodeSelection = buildNextEpisodeSelection(
-                DisplaySettings.isHidingSpecials(context), isNoReleasedEpisodes);
-
-        // build updated next episode values for each show
-        int nextEpisodeTvdbId = -1;
-        final ContentValues newShowValues = new ContentValues();
-        final ArrayList<ContentProviderOperation> batch = new ArrayList<>();
-        final String currentTime = String.valueOf(TimeTools.getCurrentTime(context));
-        final boolean displayExactDate = DisplaySettings.isDisplayExactDate(context);
-        for (String[] show : showsLastEpisodes) {
-            // STEP 1: get last watched episode details
-            final String showTvdbId = show[0];
-            final String lastEpisodeTvdbId = show[1];
-            String season = show[2];
-            String number = show[3];
-            String releaseTime = show[4];
-            if (TextUtils.isEmpty(lastEpisodeTvdbId)
-                    || season == null || number == null || releaseTime == null) {
-                // by default: no watched episodes, include all starting with special 0
-                season = "-1";
-                number = "-1";
-                releaseTime = String.valueOf(Long.MIN_VALUE);
-            }
-
-            // STEP 2: get episode released closest afterwards; or at the same time,
-            // but with a higher number
-            final String[] selectionArgs;
-            if (isNoReleasedEpisodes) {
-                // restrict to episodes with future release date
-                selectionArgs = new String[] {
-                        releaseTime, number, season, releaseTime, currentTime
-                };
-            } else {
-                // restrict to episodes with any valid air date
-                selectionArgs = new String[] {
-                        releaseTime, number, season, releaseTime
-                };
-            }
-            Cursor next;
-            try {
-                next = context.getContentResolver()
-                        .query(Episodes.buildEpisodesOfShowUri(showTvdbId),
-                                NextEpisodesQuery.PROJECTION, nextEpisodeSelection, selectionArgs,
-                                NextEpisodesQuery.SORTORDER);
-            } catch (SQLiteException e) {
-                next = null;
-                Timber.e(e, "updateLatestEpisode: next episode query failed.");
-                postDatabaseError(e);
-            }
-            if (next == null) {
-                // abort completely on query failure
-                Timber.e("Failed to update next episode values");
-                return -1;
-            }
-
-            // STEP 3: build updated next episode values
-            if (next.moveToFirst()) {
-                // next episode text, e.g. '0x12 Episode Name'
-                final String nextEpisodeString = TextTools.getNextEpisodeString(context,
-                        next.getInt(NextEpisodesQuery.SEASON),
-                        next.getInt(NextEpisodesQuery.NUMBER),
-                        next.getString(NextEpisodesQuery.TITLE));
-
-                // next release date text, e.g. "in 15 mins (Fri)"
-                long releaseTimeNext = next.getLong(NextEpisodesQuery.FIRST_RELEASE_MS);
-                Date actualRelease = TimeTools.applyUserOffset(context, releaseTimeNext);
-                String dateTime = displayExactDate ?
-                        TimeTools.formatToLocalDateShort(context, actualRelease)
-                        : TimeTools.formatToLocalRelativeTime(context, actualRelease);
-                final String nextReleaseDateString = context.getString(
-                        R.string.release_date_and_day,
-                        dateTime,
-                        TimeTools.formatToLocalDay(actualRelease));
-
-                nextEpisodeTvdbId = next.getInt(NextEpisodesQuery.ID);
-                newShowValues.put(Shows.NEXTEPISODE, nextEpisodeTvdbId);
-                newShowValues.put(Shows.NEXTAIRDATEMS, releaseTimeNext);
-                newShowValues.put(Shows.NEXTTEXT, nextEpisodeString);
-                newShowValues.put(Shows.NEXTAIRDATETEXT, nextReleaseDateString);
-            } else {
-                // no next episode, set empty values
-                nextEpisodeTvdbId = 0;
-                newShowValues.put(Shows.NEXTEPISODE, "");
-                newShowValues.put(Shows.NEXTAIRDATEMS, UNKNOWN_NEXT_RELEASE_DATE);
-                newShowValues.put(Shows.NEXTTEXT, "");
-                newShowValues.put(Shows.NEXTAIRDATETEXT, "");
-            }
-            next.close();
-
-            // update the show with the new next episode values
-            batch.add(ContentProviderOperation.newUpdate(Shows.buildShowUri(showTvdbId))
-                    .withValues(newShowValues)
-                    .build());
-            newShowValues.clear();
-        }
-
-        try {
-            DBUtils.applyInSmallBatches(context, batch);
-        } catch (OperationApplicationException e) {
-            Timber.e(e, "Failed to update next episode values");
-            return -1;
-        }
 
-        return nextEpisodeTvdbId;
-    }
-
-    private static String buildNextEpisodeSelection(boolean isHidingSpecials,
-            boolean isNoReleasedEpisodes) {
-        StringBuilder nextEpisodeSelectionBuilder = new StringBuilder(
-                NextEpisodesQuery.SELECT_NEXT);
-        if (isHidingSpecials) {
-            // do not take specials into account
-            nextEpisodeSelectionBuilder.append(" AND ").append(Episodes.SELECTION_NO_SPECIALS);
-        }
-        if (isNoReleasedEpisodes) {
-            // restrict to episodes with future release date
-            nextEpisodeSelectionBuilder.append(NextEpisodesQuery.SELECT_ONLYFUTURE);
-        } else {
-            // restrict to episodes with any valid air date
-            nextEpisodeSelectionBuilder.append(NextEpisodesQuery.SELECT_WITHAIRDATE);
-        }
-        return nextEpisodeSelectionBuilder.toString();
+        return result.getInt(SeriesGuideContract.EXTRA_NEXT_EPISODE, -1);
     }
 
     /**
@@ -836,29 +664,4 @@ public class DBUtils {
             postDatabaseError(e);
         }
     }
-
-    /**
-     * Removes a leading article from the given string (including the first whitespace that
-     * follows). <p> <em>Currently only supports English articles (the, a and an).</em>
-     */
-    public static String trimLeadingArticle(String title) {
-        if (TextUtils.isEmpty(title)) {
-            return title;
-        }
-
-        if (title.length() > 4 &&
-                (title.startsWith("The ") || title.startsWith("the "))) {
-            return title.substring(4);
-        }
-        if (title.length() > 2 &&
-                (title.startsWith("A ") || title.startsWith("a "))) {
-            return title.substring(2);
-        }
-        if (title.length() > 3 &&
-                (title.startsWith("An ") || title.startsWith("an "))) {
-            return title.substring(3);
-        }
-
-        return title;
-    }
 }
@@ -16,27 +16,26 @@
 
 package com.battlelancer.seriesguide.util;
 
-import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
-import android.content.OperationApplicationException;
 import android.database.Cursor;
-import android.net.Uri;
 import android.os.AsyncTask;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.os.AsyncTaskCompat;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
-import android.widget.Toast;
-import com.battlelancer.seriesguide.R;
 import com.battlelancer.seriesguide.appwidget.ListWidgetProvider;
+import com.battlelancer.seriesguide.backend.HexagonPagePipeline;
 import com.battlelancer.seriesguide.backend.HexagonTools;
 import com.battlelancer.seriesguide.backend.settings.HexagonSettings;
 import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.provider.EpisodeFlagBatch;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeFlagOutbox;
+import com.battlelancer.seriesguide.service.EpisodeFlagUploadService;
 import com.battlelancer.seriesguide.settings.TraktCredentials;
 import com.battlelancer.seriesguide.ui.dialogs.RateDialogFragment;
 import com.battlelancer.seriesguide.util.tasks.RateEpisodeTask;
@@ -240,7 +239,8 @@ public class EpisodeTools {
     }
 
     /**
-     * Sent once sending to services and the database ops are finished.
+     * Sent once the database ops are finished. Uploading to services happens later, see {@link
+     * Upload#flagsFromOutbox(Context)}.
      */
     public static class EpisodeActionCompletedEvent {
 
@@ -266,125 +266,38 @@ public class EpisodeTools {
             mShowTvdbId = showTvdbId;
         }
 
-        public abstract Uri getUri();
-
-        public abstract String getSelection();
-
         /**
-         * Builds a list of episodes ready to upload to hexagon. However, the show TVDb id is not
-         * set. It should be set in a wrapping {@link com.uwetrottmann.seriesguide.backend.episodes.model.EpisodeList}.
+         * Returns a selection on the episodes table of all episodes this may change, e.g. all
+         * episodes of a season. See {@link #getSelection()} to narrow it down.
          */
-        public List<Episode> getEpisodesForHexagon() {
-            List<Episode> episodes = new ArrayList<>();
+        protected abstract String getScopeSelection();
 
-            // determine uri
-            Uri uri = getUri();
-            String selection = getSelection();
-
-            // query and add episodes to list
-            final Cursor episodeCursor = mContext.getContentResolver().query(
-                    uri,
-                    new String[] {
-                            SeriesGuideContract.Episodes.SEASON, SeriesGuideContract.Episodes.NUMBER
-                    }, selection, null, null
-            );
-            if (episodeCursor != null) {
-                while (episodeCursor.moveToNext()) {
-                    Episode episode = new Episode();
-                    setEpisodeProperties(episode);
-                    episode.setSeasonNumber(episodeCursor.getInt(0));
-                    episode.setEpisodeNumber(episodeCursor.getInt(1));
-                    episodes.add(episode);
-                }
-                episodeCursor.close();
-            }
-
-            return episodes;
-        }
-
-        @Nullable
-        public abstract List<SyncSeason> getEpisodesForTrakt();
+        public abstract String getSelection();
 
         public int getShowTvdbId() {
             return mShowTvdbId;
         }
 
         /**
-         * Set any additional properties besides show id, season or episode number.
+         * Return the flag which should get updated, either {@link EpisodeFlagOutbox#TYPE_WATCHED}
+         * or {@link EpisodeFlagOutbox#TYPE_COLLECTED}.
          */
-        protected abstract void setEpisodeProperties(Episode episode);
+        protected abstract int getFlagType();
 
         /**
-         * Builds a list of {@link com.uwetrottmann.trakt.v2.entities.SyncSeason} objects to submit
-         * to trakt.
+         * Flags episodes in the local database. If queueing an upload, also adds the changes to
+         * the {@link EpisodeFlagOutbox}, see {@link
+         * Upload#flagsFromOutbox(Context)}.
          */
-        protected List<SyncSeason> buildTraktEpisodeList() {
-            List<SyncSeason> seasons = new ArrayList<>();
-
-            // determine uri
-            Uri uri = getUri();
+        public void updateDatabase(boolean isQueueingUpload) {
             String selection = getSelection();
-
-            // query and add episodes to list
-            // sort ascending by season, then number for trakt
-            final Cursor episodeCursor = mContext.getContentResolver().query(
-                    uri,
-                    new String[] {
-                            SeriesGuideContract.Episodes.SEASON, SeriesGuideContract.Episodes.NUMBER
-                    },
-                    selection,
-                    null,
-                    SeriesGuideContract.Episodes.SORT_SEASON_ASC + ", "
-                            + SeriesGuideContract.Episodes.SORT_NUMBER_ASC
-            );
-            if (episodeCursor != null) {
-                SyncSeason currentSeason = null;
-                while (episodeCursor.moveToNext()) {
-                    int seasonNumber = episodeCursor.getInt(0);
-
-                    // start new season?
-                    if (currentSeason == null || seasonNumber > currentSeason.number) {
-                        currentSeason = new SyncSeason().number(seasonNumber);
-                        currentSeason.episodes = new LinkedList<>();
-                        seasons.add(currentSeason);
-                    }
-
-                    // add episode
-                    currentSeason.episodes.add(new SyncEpisode().number(episodeCursor.getInt(1)));
-                }
-                episodeCursor.close();
-            }
-
-            return seasons;
-        }
-
-        /**
-         * Return the column which should get updated, either {@link com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes}
-         * .WATCHED or {@link com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes}.COLLECTED.
-         */
-        protected abstract String getColumn();
-
-        protected abstract ContentValues getContentValues();
-
-        /**
-         * Builds and executes the database op required to flag episodes in the local database.
-         */
-        public void updateDatabase() {
-            // determine query uri
-            Uri uri = getUri();
-            if (uri == null) {
-                return;
+            if (selection == null) {
+                selection = getScopeSelection();
+            } else {
+                selection = getScopeSelection() + " AND (" + selection + ")";
             }
-
-            // build and execute query
-            ContentValues values = getContentValues();
-            mContext.getContentResolver().update(uri, values, getSelection(), null);
-
-            // notify the content provider for udpates
-            mContext.getContentResolver()
-                    .notifyChange(SeriesGuideContract.Episodes.CONTENT_URI, null);
-            mContext.getContentResolver()
-                    .notifyChange(SeriesGuideContract.ListItems.CONTENT_WITH_DETAILS_URI, null);
+            DBUtils.updateEpisodeFlags(mContext, selection, getFlagType(), mEpisodeFlag,
+                    isQueueingUpload);
         }
 
         /**
@@ -409,16 +322,18 @@ public class EpisodeTools {
         }
 
         /**
-         * Will be called after {@link #updateDatabase()} and {@link #storeLastEpisode()}. Do any
-         * additional operations here.
+         * Recounts the episodes of seasons affected by this change, see {@link
+         * DBUtils#updateUnwatchedCountsOfShow}. By default all seasons of the show.
          */
-        protected abstract void onPostExecute();
+        protected void updateUnwatchedCounts() {
+            DBUtils.updateUnwatchedCountsOfShow(mContext, mShowTvdbId);
+        }
 
         /**
-         * Returns the text which should be prepended to the submission status message. Tells e.g.
-         * which episode was flagged watched.
+         * Will be called after {@link #updateDatabase(boolean)}, {@link #storeLastEpisode()} and
+         * {@link #updateUnwatchedCounts()}. Do any additional operations here.
          */
-        public abstract String getNotificationText();
+        protected abstract void onPostExecute();
     }
 
     /**
@@ -442,43 +357,14 @@ public class EpisodeTools {
         }
 
         @Override
-        public Uri getUri() {
-            return SeriesGuideContract.Episodes.buildEpisodeUri(String.valueOf(mEpisodeTvdbId));
+        protected String getScopeSelection() {
+            return SeriesGuideContract.Episodes._ID + "=" + mEpisodeTvdbId;
         }
 
         @Override
         public String getSelection() {
             return null;
         }
-
-        @Override
-        protected ContentValues getContentValues() {
-            ContentValues values = new ContentValues();
-            values.put(getColumn(), mEpisodeFlag);
-            return values;
-        }
-
-        @Override
-        public List<Episode> getEpisodesForHexagon() {
-            List<Episode> episodes = new ArrayList<>();
-
-            Episode episode = new Episode();
-            setEpisodeProperties(episode);
-            episode.setSeasonNumber(mSeason);
-            episode.setEpisodeNumber(mEpisode);
-            episodes.add(episode);
-
-            return episodes;
-        }
-
-        @Override
-        public List<SyncSeason> getEpisodesForTrakt() {
-            // flag a single episode
-            List<SyncSeason> seasons = new LinkedList<>();
-            seasons.add(new SyncSeason().number(mSeason)
-                    .episodes(new SyncEpisode().number(mEpisode)));
-            return seasons;
-        }
     }
 
     public static class EpisodeWatchedType extends EpisodeType {
@@ -490,13 +376,8 @@ public class EpisodeTools {
         }
 
         @Override
-        protected void setEpisodeProperties(Episode episode) {
-            episode.setWatchedFlag(mEpisodeFlag);
-        }
-
-        @Override
-        protected String getColumn() {
-            return SeriesGuideContract.Episodes.WATCHED;
+        protected int getFlagType() {
+            return EpisodeFlagOutbox.TYPE_WATCHED;
         }
 
         @Override
@@ -566,22 +447,6 @@ public class EpisodeTools {
             }
             ListWidgetProvider.notifyAllAppWidgetsViewDataChanged(mContext);
         }
-
-        @Override
-        public String getNotificationText() {
-            if (isSkipped(mEpisodeFlag)) {
-                // skipping is not sent to trakt, no need for a message
-                return null;
-            }
-
-            // show episode seen/unseen message
-            String number = TextTools.getEpisodeNumber(mContext, mSeason, mEpisode);
-            return mContext.getString(
-                    isWatched(mEpisodeFlag) ? R.string.trakt_seen
-                            : R.string.trakt_notseen,
-                    number
-            );
-        }
     }
 
     public static class EpisodeCollectedType extends EpisodeType {
@@ -593,13 +458,13 @@ public class EpisodeTools {
         }
 
         @Override
-        protected void setEpisodeProperties(Episode episode) {
-            episode.setIsInCollection(isCollected(mEpisodeFlag));
+        protected int getFlagType() {
+            return EpisodeFlagOutbox.TYPE_COLLECTED;
         }
 
         @Override
-        protected String getColumn() {
-            return SeriesGuideContract.Episodes.COLLECTED;
+        protected void updateUnwatchedCounts() {
+            // collected flags are not counted
         }
 
         @Override
@@ -612,13 +477,6 @@ public class EpisodeTools {
         protected void onPostExecute() {
             // do nothing
         }
-
-        @Override
-        public String getNotificationText() {
-            String number = TextTools.getEpisodeNumber(mContext, mSeason, mEpisode);
-            return mContext.getString(mEpisodeFlag == 1 ? R.string.trakt_collected
-                    : R.string.trakt_notcollected, number);
-        }
     }
 
     /**
@@ -643,16 +501,13 @@ public class EpisodeTools {
         }
 
         @Override
-        public Uri getUri() {
-            return SeriesGuideContract.Episodes.buildEpisodesOfSeasonUri(
-                    String.valueOf(mSeasonTvdbId));
+        protected void updateUnwatchedCounts() {
+            DBUtils.updateUnwatchedCountsOfSeason(mContext, mSeasonTvdbId);
         }
 
         @Override
-        protected ContentValues getContentValues() {
-            ContentValues values = new ContentValues();
-            values.put(getColumn(), mEpisodeFlag);
-            return values;
+        protected String getScopeSelection() {
+            return SeriesGuideContract.Seasons.REF_SEASON_ID + "=" + mSeasonTvdbId;
         }
 
         @Override
@@ -690,13 +545,8 @@ public class EpisodeTools {
         }
 
         @Override
-        protected void setEpisodeProperties(Episode episode) {
-            episode.setWatchedFlag(mEpisodeFlag);
-        }
-
-        @Override
-        protected String getColumn() {
-            return SeriesGuideContract.Episodes.WATCHED;
+        protected int getFlagType() {
+            return EpisodeFlagOutbox.TYPE_WATCHED;
         }
 
         @Override
@@ -730,30 +580,10 @@ public class EpisodeTools {
             }
         }
 
-        @Override
-        public List<SyncSeason> getEpisodesForTrakt() {
-            return buildTraktEpisodeList();
-        }
-
         @Override
         protected void onPostExecute() {
             ListWidgetProvider.notifyAllAppWidgetsViewDataChanged(mContext);
         }
-
-        @Override
-        public String getNotificationText() {
-            if (isSkipped(mEpisodeFlag)) {
-                // skipping is not sent to trakt, no need for a message
-                return null;
-            }
-
-            String number = TextTools.getEpisodeNumber(mContext, mSeason, -1);
-            return mContext.getString(
-                    isWatched(mEpisodeFlag) ? R.string.trakt_seen
-                            : R.string.trakt_notseen,
-                    number
-            );
-        }
     }
 
     public static class SeasonCollectedType extends SeasonType {
@@ -771,34 +601,19 @@ public class EpisodeTools {
         }
 
         @Override
-        protected void setEpisodeProperties(Episode episode) {
-            episode.setIsInCollection(isCollected(mEpisodeFlag));
+        protected int getFlagType() {
+            return EpisodeFlagOutbox.TYPE_COLLECTED;
         }
 
         @Override
-        protected String getColumn() {
-            return SeriesGuideContract.Episodes.COLLECTED;
+        protected void updateUnwatchedCounts() {
+            // collected flags are not counted
         }
 
         @Override
         protected int getLastWatchedEpisodeTvdbId() {
             return -1;
         }
-
-        @Override
-        public List<SyncSeason> getEpisodesForTrakt() {
-            // flag the whole season
-            List<SyncSeason> seasons = new LinkedList<>();
-            seasons.add(new SyncSeason().number(mSeason));
-            return seasons;
-        }
-
-        @Override
-        public String getNotificationText() {
-            String number = TextTools.getEpisodeNumber(mContext, mSeason, -1);
-            return mContext.getString(mEpisodeFlag == 1 ? R.string.trakt_collected
-                    : R.string.trakt_notcollected, number);
-        }
     }
 
     public static abstract class ShowType extends FlagType {
@@ -809,26 +624,14 @@ public class EpisodeTools {
         }
 
         @Override
-        public Uri getUri() {
-            return SeriesGuideContract.Episodes.buildEpisodesOfShowUri(String.valueOf(mShowTvdbId));
-        }
-
-        @Override
-        protected ContentValues getContentValues() {
-            ContentValues values = new ContentValues();
-            values.put(getColumn(), mEpisodeFlag);
-            return values;
+        protected String getScopeSelection() {
+            return SeriesGuideContract.Shows.REF_SHOW_ID + "=" + mShowTvdbId;
         }
 
         @Override
         protected void onPostExecute() {
             // do nothing
         }
-
-        @Override
-        public String getNotificationText() {
-            return null;
-        }
     }
 
     public static class ShowWatchedType extends ShowType {
@@ -861,13 +664,8 @@ public class EpisodeTools {
         }
 
         @Override
-        protected void setEpisodeProperties(Episode episode) {
-            episode.setWatchedFlag(mEpisodeFlag);
-        }
-
-        @Override
-        protected String getColumn() {
-            return SeriesGuideContract.Episodes.WATCHED;
+        protected int getFlagType() {
+            return EpisodeFlagOutbox.TYPE_WATCHED;
         }
 
         @Override
@@ -881,11 +679,6 @@ public class EpisodeTools {
             }
         }
 
-        @Override
-        public List<SyncSeason> getEpisodesForTrakt() {
-            return buildTraktEpisodeList();
-        }
-
         @Override
         protected void onPostExecute() {
             ListWidgetProvider.notifyAllAppWidgetsViewDataChanged(mContext);
@@ -901,18 +694,18 @@ public class EpisodeTools {
 
         @Override
         public String getSelection() {
-            // only exclude specials (here will only affect database + hexagon)
+            // only exclude specials
             return SeriesGuideContract.Episodes.SELECTION_NO_SPECIALS;
         }
 
         @Override
-        protected void setEpisodeProperties(Episode episode) {
-            episode.setIsInCollection(isCollected(mEpisodeFlag));
+        protected int getFlagType() {
+            return EpisodeFlagOutbox.TYPE_COLLECTED;
         }
 
         @Override
-        protected String getColumn() {
-            return SeriesGuideContract.Episodes.COLLECTED;
+        protected void updateUnwatchedCounts() {
+            // collected flags are not counted
         }
 
         @Override
@@ -920,12 +713,6 @@ public class EpisodeTools {
             // we don't care
             return -1;
         }
-
-        @Override
-        public List<SyncSeason> getEpisodesForTrakt() {
-            // send whole show
-            return null;
-        }
     }
 
     public static class EpisodeWatchedPreviousType extends FlagType {
@@ -936,11 +723,12 @@ public class EpisodeTools {
             super(context, showTvdbId);
             mEpisodeFirstAired = episodeFirstAired;
             mAction = EpisodeAction.EPISODE_WATCHED_PREVIOUS;
+            mEpisodeFlag = EpisodeFlags.WATCHED;
         }
 
         @Override
-        public Uri getUri() {
-            return SeriesGuideContract.Episodes.buildEpisodesOfShowUri(String.valueOf(mShowTvdbId));
+        protected String getScopeSelection() {
+            return SeriesGuideContract.Shows.REF_SHOW_ID + "=" + mShowTvdbId;
         }
 
         @Override
@@ -955,26 +743,8 @@ public class EpisodeTools {
         }
 
         @Override
-        protected ContentValues getContentValues() {
-            ContentValues values = new ContentValues();
-            values.put(SeriesGuideContract.Episodes.WATCHED, EpisodeFlags.WATCHED);
-            return values;
-        }
-
-        @Override
-        public List<SyncSeason> getEpisodesForTrakt() {
-            return buildTraktEpisodeList();
-        }
-
-        @Override
-        protected void setEpisodeProperties(Episode episode) {
-            episode.setWatchedFlag(EpisodeFlags.WATCHED);
-        }
-
-        @Override
-        protected String getColumn() {
-            // not used
-            return null;
+        protected int getFlagType() {
+            return EpisodeFlagOutbox.TYPE_WATCHED;
         }
 
         @Override
@@ -987,22 +757,18 @@ public class EpisodeTools {
         protected void onPostExecute() {
             ListWidgetProvider.notifyAllAppWidgetsViewDataChanged(mContext);
         }
-
-        @Override
-        public String getNotificationText() {
-            return null;
-        }
     }
 
-    private static class EpisodeFlagTask extends AsyncTask<Void, Void, Integer> {
+    /**
+     * Flags episodes in the local database. If connected to Hexagon or trakt, queues the changes
+     * for upload by {@link EpisodeFlagUploadService}.
+     */
+    private static class EpisodeFlagTask extends AsyncTask<Void, Void, Void> {
 
         private final Context mContext;
         private final FlagType mType;
 
-        private boolean mIsSendingToTrakt;
-        private boolean mIsSendingToHexagon;
-
-        private boolean mCanSendToTrakt;
+        private boolean mIsQueueingUpload;
 
         public EpisodeFlagTask(Context context, FlagType type) {
             mContext = context.getApplicationContext();
@@ -1011,228 +777,23 @@ public class EpisodeTools {
 
         @Override
         protected void onPreExecute() {
-            // network ops may run long, so immediately show a status toast
-            mIsSendingToHexagon = HexagonTools.isSignedIn(mContext);
-            if (mIsSendingToHexagon) {
-                Toast.makeText(mContext, R.string.hexagon_api_queued, Toast.LENGTH_SHORT).show();
-            }
-            mIsSendingToTrakt = TraktCredentials.get(mContext).hasCredentials()
-                    && !isSkipped(mType.mEpisodeFlag);
+            mIsQueueingUpload = HexagonTools.isSignedIn(mContext)
+                    || TraktCredentials.get(mContext).hasCredentials();
         }
 
         @Override
-        protected Integer doInBackground(Void... params) {
-            // upload to hexagon
-            if (mIsSendingToHexagon) {
-                if (!AndroidUtils.isNetworkConnected(mContext)) {
-                    return ERROR_NETWORK;
-                }
-
-                int result = uploadToHexagon(mContext, mType.getShowTvdbId(),
-                        mType.getEpisodesForHexagon());
-                if (result < 0) {
-                    return result;
-                }
-            }
-
-            // upload to trakt
-            /**
-             * Do net send skipped episodes, this is not supported by trakt.
-             * However, if the skipped flag is removed this will be handled identical
-             * to flagging as unwatched.
-             */
-            if (mIsSendingToTrakt) {
-                // Do not send if show has no trakt id (was not on trakt last time we checked).
-                Integer traktId = ShowTools.getShowTraktId(mContext, mType.getShowTvdbId());
-                mCanSendToTrakt = traktId != null;
-                if (mCanSendToTrakt) {
-                    if (!AndroidUtils.isNetworkConnected(mContext)) {
-                        return ERROR_NETWORK;
-                    }
-
-                    int result = uploadToTrakt(mContext,
-                            traktId,
-                            mType.mAction,
-                            mType.getEpisodesForTrakt(),
-                            !isUnwatched(mType.mEpisodeFlag));
-                    if (result < 0) {
-                        return result;
-                    }
-                }
-            }
-
-            // update local database (if uploading went smoothly or not uploading at all)
-            mType.updateDatabase();
+        protected Void doInBackground(Void... params) {
+            // update local database, uploading happens later so this does not wait on network
+            mType.updateDatabase(mIsQueueingUpload);
             mType.storeLastEpisode();
+            mType.updateUnwatchedCounts();
             mType.onPostExecute();
 
-            return SUCCESS;
-        }
-
-        private static int uploadToHexagon(Context context, int showTvdbId,
-                @NonNull List<Episode> batch) {
-            EpisodeList uploadWrapper = new EpisodeList();
-            uploadWrapper.setShowTvdbId(showTvdbId);
-
-            // upload in small batches
-            List<Episode> smallBatch = new ArrayList<>();
-            while (!batch.isEmpty()) {
-                // batch small enough?
-                if (batch.size() <= EPISODE_MAX_BATCH_SIZE) {
-                    smallBatch = batch;
-                } else {
-                    // build smaller batch
-                    for (int count = 0; count < EPISODE_MAX_BATCH_SIZE; count++) {
-                        if (batch.isEmpty()) {
-                            break;
-                        }
-                        smallBatch.add(batch.remove(0));
-                    }
-                }
-
-                // upload
-                uploadWrapper.setEpisodes(smallBatch);
-                if (!Upload.flagsToHexagon(context, uploadWrapper)) {
-                    return ERROR_HEXAGON_API;
-                }
-
-                // prepare for next batch
-                smallBatch.clear();
-            }
-
-            return SUCCESS;
-        }
-
-        /**
-         * @param flags Send {@code null} to upload complete show.
-         */
-        private static int uploadToTrakt(@NonNull Context context, int showTraktId,
-                @NonNull EpisodeAction flagAction, @Nullable List<SyncSeason> flags,
-                boolean isAddNotDelete) {
-            if (flags != null && flags.isEmpty()) {
-                // nothing to upload
-                return SUCCESS;
-            }
-
-            TraktV2 trakt = ServiceUtils.getTraktV2WithAuth(context);
-            if (trakt == null) {
-                return ERROR_TRAKT_AUTH;
-            }
-            Sync traktSync = trakt.sync();
-
-            // outer wrapper and show are always required
-            SyncShow show = new SyncShow().id(ShowIds.trakt(showTraktId));
-            SyncItems items = new SyncItems().shows(show);
-
-            // add season or episodes
-            if (flagAction == EpisodeAction.SEASON_WATCHED
-                    || flagAction == EpisodeAction.SEASON_COLLECTED
-                    || flagAction == EpisodeAction.EPISODE_WATCHED
-                    || flagAction == EpisodeAction.EPISODE_COLLECTED
-                    || flagAction == EpisodeAction.EPISODE_WATCHED_PREVIOUS) {
-                show.seasons(flags);
-            }
-
-            // execute network call
-            try {
-                SyncResponse response = null;
-
-                switch (flagAction) {
-                    case SHOW_WATCHED:
-                    case SEASON_WATCHED:
-                    case EPISODE_WATCHED:
-                        if (isAddNotDelete) {
-                            response = traktSync.addItemsToWatchedHistory(items);
-                        } else {
-                            response = traktSync.deleteItemsFromWatchedHistory(items);
-                        }
-                        break;
-                    case SHOW_COLLECTED:
-                    case SEASON_COLLECTED:
-                    case EPISODE_COLLECTED:
-                        if (isAddNotDelete) {
-                            response = traktSync.addItemsToCollection(items);
-                        } else {
-                            response = traktSync.deleteItemsFromCollection(items);
-                        }
-                        break;
-                    case EPISODE_WATCHED_PREVIOUS:
-                        response = traktSync.addItemsToWatchedHistory(items);
-                        break;
-                }
-
-                // check if any items were not found
-                if (!isSyncSuccessful(response)) {
-                    return ERROR_TRAKT_API;
-                }
-            } catch (RetrofitError e) {
-                Timber.e(e, "uploadToTrakt: failed");
-                return ERROR_TRAKT_API;
-            } catch (OAuthUnauthorizedException e) {
-                TraktCredentials.get(context).setCredentialsInvalid();
-                return ERROR_TRAKT_AUTH;
-            }
-
-            return SUCCESS;
-        }
-
-        /**
-         * If the {@link com.uwetrottmann.trakt.v2.entities.SyncResponse} is invalid or any show,
-         * season or episode was not found returns {@code false}.
-         */
-        private static boolean isSyncSuccessful(SyncResponse response) {
-            if (response == null || response.not_found == null) {
-                // invalid response, assume failure
-                return false;
-            }
-
-            if (response.not_found.shows != null && !response.not_found.shows.isEmpty()) {
-                // show not found
-                return false;
-            }
-            if (response.not_found.seasons != null && !response.not_found.seasons.isEmpty()) {
-                // show exists, but seasons not found
-                return false;
-            }
-            //noinspection RedundantIfStatement
-            if (response.not_found.episodes != null && !response.not_found.episodes.isEmpty()) {
-                // show and season exists, but episodes not found
-                return false;
-            }
-
-            return true;
+            return null;
         }
 
-        private static final int SUCCESS = 0;
-        private static final int ERROR_NETWORK = -1;
-        private static final int ERROR_TRAKT_AUTH = -2;
-        private static final int ERROR_TRAKT_API = -3;
-        private static final int ERROR_HEXAGON_API = -4;
-
         @Override
-        protected void onPostExecute(Integer result) {
-            // handle errors
-            Integer errorResId = null;
-            switch (result) {
-                case ERROR_NETWORK:
-                    errorResId = R.string.offline;
-                    break;
-                case ERROR_TRAKT_AUTH:
-                    errorResId = R.string.trakt_error_credentials;
-                    break;
-                case ERROR_TRAKT_API:
-                    errorResId = R.string.trakt_error_general;
-                    break;
-                case ERROR_HEXAGON_API:
-                    errorResId = R.string.hexagon_api_error;
-                    break;
-            }
-            if (errorResId != null) {
-                Toast.makeText(mContext, errorResId, Toast.LENGTH_LONG).show();
-                return;
-            }
-
-            // success!
+        protected void onPostExecute(Void result) {
             // notify UI it may do relevant updates
             EventBus.getDefault().post(new EpisodeActionCompletedEvent(mType));
 
@@ -1240,29 +801,8 @@ public class EpisodeTools {
             AsyncTaskCompat.executeParallel(new LatestEpisodeUpdateTask(mContext),
                     mType.getShowTvdbId());
 
-            // display success message
-            if (mIsSendingToTrakt) {
-                if (mCanSendToTrakt) {
-                    int status = R.string.trakt_success;
-                    if (mType.mAction == EpisodeAction.SHOW_WATCHED
-                            || mType.mAction == EpisodeAction.SHOW_COLLECTED
-                            || mType.mAction == EpisodeAction.EPISODE_WATCHED_PREVIOUS) {
-                        // simple ack
-                        Toast.makeText(mContext,
-                                mContext.getString(status),
-                                Toast.LENGTH_SHORT).show();
-                    } else {
-                        // detailed ack
-                        String message = mType.getNotificationText();
-                        Toast.makeText(mContext,
-                                message + " " + mContext.getString(status),
-                                Toast.LENGTH_SHORT).show();
-                    }
-                } else {
-                    // tell the user this change can not be sent to trakt for now
-                    Toast.makeText(mContext, R.string.trakt_notice_not_exists, Toast.LENGTH_LONG)
-                            .show();
-                }
+            if (mIsQueueingUpload) {
+                EpisodeFlagUploadService.schedule(mContext);
             }
         }
     }
@@ -1271,24 +811,25 @@ public class EpisodeTools {
 
         /**
          * Downloads all episodes changed since the last time this was called and applies changes to
-         * the database.
+         * the database. Downloads the next page while the current one is written, see {@link
+         * HexagonPagePipeline}.
          */
-        public static boolean flagsFromHexagon(Context context) {
-            List<Episode> episodes;
-            boolean hasMoreEpisodes = true;
-            String cursor = null;
+        public static boolean flagsFromHexagon(final Context context) {
             long currentTime = System.currentTimeMillis();
-            DateTime lastSyncTime = new DateTime(HexagonSettings.getLastEpisodesSyncTime(context));
+            final DateTime lastSyncTime = new DateTime(
+                    HexagonSettings.getLastEpisodesSyncTime(context));
 
             Timber.d("flagsFromHexagon: downloading changed episode flags since " + lastSyncTime);
 
-            while (hasMoreEpisodes) {
-                try {
-                    Episodes episodesService = HexagonTools.getEpisodesService(context);
-                    if (episodesService == null) {
-                        return false;
-                    }
+            final Episodes episodesService = HexagonTools.getEpisodesService(context);
+            if (episodesService == null) {
+                return false;
+            }
 
+            HexagonPagePipeline.PageLoader<Episode> loader
+                    = new HexagonPagePipeline.PageLoader<Episode>() {
+                @Override
+                public HexagonPagePipeline.Page<Episode> load(String cursor) throws IOException {
                     Episodes.Get request = episodesService.get()
                             .setUpdatedSince(lastSyncTime)
                             .setLimit(EPISODE_MAX_BATCH_SIZE);
@@ -1300,60 +841,49 @@ public class EpisodeTools {
                     if (response == null) {
                         // we're done here
                         Timber.d("flagsFromHexagon: response was null, done here");
-                        break;
-                    }
-
-                    episodes = response.getEpisodes();
-
-                    // check for more items
-                    if (response.getCursor() != null) {
-                        cursor = response.getCursor();
-                    } else {
-                        hasMoreEpisodes = false;
+                        return null;
                     }
-                } catch (IOException e) {
-                    Timber.e(e, "flagsFromHexagon: failed to download changed episode flags");
-                    return false;
-                }
-
-                if (episodes == null || episodes.size() == 0) {
-                    // nothing to do here
-                    break;
+                    return new HexagonPagePipeline.Page<>(response.getEpisodes(),
+                            response.getCursor());
                 }
+            };
 
-                // build batch of episode flag updates
-                ArrayList<ContentProviderOperation> batch = new ArrayList<>();
-                for (Episode episode : episodes) {
-                    ContentValues values = new ContentValues();
-                    if (episode.getWatchedFlag() != null) {
-                        values.put(SeriesGuideContract.Episodes.WATCHED, episode.getWatchedFlag());
-                    }
-                    if (episode.getIsInCollection() != null) {
-                        values.put(SeriesGuideContract.Episodes.COLLECTED,
-                                episode.getIsInCollection());
+            HexagonPagePipeline.PageWriter<Episode> writer
+                    = new HexagonPagePipeline.PageWriter<Episode>() {
+                @Override
+                public boolean write(@NonNull List<Episode> episodes) {
+                    // build batch of episode flag updates
+                    EpisodeFlagBatch batch = new EpisodeFlagBatch(episodes.size());
+                    for (Episode episode : episodes) {
+                        if (episode.getShowTvdbId() == null || episode.getSeasonNumber() == null
+                                || episode.getEpisodeNumber() == null) {
+                            continue;
+                        }
+                        int watchedFlag = episode.getWatchedFlag() != null
+                                ? episode.getWatchedFlag() : EpisodeFlagBatch.NO_CHANGE;
+                        int collectedFlag = episode.getIsInCollection() != null
+                                ? (episode.getIsInCollection() ? 1 : 0)
+                                : EpisodeFlagBatch.NO_CHANGE;
+                        batch.add(episode.getShowTvdbId(), episode.getSeasonNumber(),
+                                episode.getEpisodeNumber(), watchedFlag, collectedFlag);
                     }
 
-                    ContentProviderOperation op = ContentProviderOperation
-                            .newUpdate(SeriesGuideContract.Episodes.CONTENT_URI)
-                            .withSelection(SeriesGuideContract.Shows.REF_SHOW_ID + "="
-                                    + episode.getShowTvdbId() + " AND "
-                                    + SeriesGuideContract.Episodes.SEASON + "="
-                                    + episode.getSeasonNumber() + " AND "
-                                    + SeriesGuideContract.Episodes.NUMBER + "="
-                                    + episode.getEpisodeNumber(), null)
-                            .withValues(values)
-                            .build();
-
-                    batch.add(op);
+                    // execute database update
+                    if (!batch.apply(context)) {
+                        Timber.e("flagsFromHexagon: failed to apply changed episode flag updates");
+                        return false;
+                    }
+                    return true;
                 }
+            };
 
-                // execute database update
-                try {
-                    DBUtils.applyInSmallBatches(context, batch);
-                } catch (OperationApplicationException e) {
-                    Timber.e(e, "flagsFromHexagon: failed to apply changed episode flag updates");
+            try {
+                if (!new HexagonPagePipeline<>(loader, writer).run()) {
                     return false;
                 }
+            } catch (IOException e) {
+                Timber.e(e, "flagsFromHexagon: failed to download changed episode flags");
+                return false;
             }
 
             // store new last sync time
@@ -1366,29 +896,26 @@ public class EpisodeTools {
 
         /**
          * Downloads watched, skipped or collected episodes of this show from Hexagon and applies
-         * those flags to episodes in the database.
+         * those flags to episodes in the database. Downloads the next page while the current one is
+         * written, see {@link HexagonPagePipeline}.
          *
          * @return Whether the download was successful and all changes were applied to the database.
          */
-        public static boolean flagsFromHexagon(Context context, int showTvdbId) {
+        public static boolean flagsFromHexagon(final Context context, final int showTvdbId) {
             Timber.d("flagsFromHexagon: downloading episode flags for show " + showTvdbId);
-            List<Episode> episodes;
-            boolean hasMoreEpisodes = true;
-            String cursor = null;
-
-            Uri episodesOfShowUri = SeriesGuideContract.Episodes.buildEpisodesOfShowUri(showTvdbId);
 
-            while (hasMoreEpisodes) {
-                // abort if connection is lost
-                if (!AndroidUtils.isNetworkConnected(context)) {
-                    Timber.e("flagsFromHexagon: no network connection");
-                    return false;
-                }
+            final Episodes episodesService = HexagonTools.getEpisodesService(context);
+            if (episodesService == null) {
+                return false;
+            }
 
-                try {
-                    Episodes episodesService = HexagonTools.getEpisodesService(context);
-                    if (episodesService == null) {
-                        return false;
+            HexagonPagePipeline.PageLoader<Episode> loader
+                    = new HexagonPagePipeline.PageLoader<Episode>() {
+                @Override
+                public HexagonPagePipeline.Page<Episode> load(String cursor) throws IOException {
+                    // abort if connection is lost
+                    if (!AndroidUtils.isNetworkConnected(context)) {
+                        throw new IOException("no network connection");
                     }
 
                     // build request
@@ -1402,70 +929,57 @@ public class EpisodeTools {
                     // execute request
                     EpisodeList response = request.execute();
                     if (response == null) {
-                        break;
-                    }
-
-                    episodes = response.getEpisodes();
-
-                    // check for more items
-                    if (response.getCursor() != null) {
-                        cursor = response.getCursor();
-                    } else {
-                        hasMoreEpisodes = false;
+                        return null;
                     }
-                } catch (IOException e) {
-                    Timber.e(e, "flagsFromHexagon: failed to download episode flags for show "
-                            + showTvdbId);
-                    return false;
+                    return new HexagonPagePipeline.Page<>(response.getEpisodes(),
+                            response.getCursor());
                 }
+            };
 
-                if (episodes == null || episodes.size() == 0) {
-                    // nothing to do here
-                    break;
-                }
+            HexagonPagePipeline.PageWriter<Episode> writer
+                    = new HexagonPagePipeline.PageWriter<Episode>() {
+                @Override
+                public boolean write(@NonNull List<Episode> episodes) {
+                    // build batch of episode flag updates
+                    EpisodeFlagBatch batch = new EpisodeFlagBatch(episodes.size());
+                    for (Episode episode : episodes) {
+                        if (episode.getSeasonNumber() == null
+                                || episode.getEpisodeNumber() == null) {
+                            continue;
+                        }
+                        int watchedFlag = episode.getWatchedFlag() != null
+                                && episode.getWatchedFlag() != EpisodeFlags.UNWATCHED
+                                ? episode.getWatchedFlag() : EpisodeFlagBatch.NO_CHANGE;
+                        int collectedFlag = episode.getIsInCollection() != null
+                                && episode.getIsInCollection() ? 1 : EpisodeFlagBatch.NO_CHANGE;
+
+                        if (watchedFlag == EpisodeFlagBatch.NO_CHANGE
+                                && collectedFlag == EpisodeFlagBatch.NO_CHANGE) {
+                            // skip if episode has neither a watched flag or is in collection
+                            continue;
+                        }
 
-                // build batch of episode flag updates
-                ArrayList<ContentProviderOperation> batch = new ArrayList<>();
-                for (Episode episode : episodes) {
-                    ContentValues values = new ContentValues();
-                    if (episode.getWatchedFlag() != null
-                            && episode.getWatchedFlag() != EpisodeFlags.UNWATCHED) {
-                        values.put(SeriesGuideContract.Episodes.WATCHED, episode.getWatchedFlag());
-                    }
-                    if (episode.getIsInCollection() != null
-                            && episode.getIsInCollection()) {
-                        values.put(SeriesGuideContract.Episodes.COLLECTED,
-                                episode.getIsInCollection());
+                        batch.add(showTvdbId, episode.getSeasonNumber(),
+                                episode.getEpisodeNumber(), watchedFlag, collectedFlag);
                     }
 
-                    if (values.size() == 0) {
-                        // skip if episode has neither a watched flag or is in collection
-                        continue;
+                    // execute database update
+                    if (!batch.apply(context)) {
+                        Timber.e("flagsFromHexagon: failed to apply episode flag updates for show "
+                                + showTvdbId);
+                        return false;
                     }
-
-                    ContentProviderOperation op = ContentProviderOperation
-                            .newUpdate(episodesOfShowUri)
-                            .withSelection(SeriesGuideContract.Episodes.SEASON + "="
-                                    + episode.getSeasonNumber() + " AND "
-                                    + SeriesGuideContract.Episodes.NUMBER + "="
-                                    + episode.getEpisodeNumber(), null)
-                            .withValues(values)
-                            .build();
-
-                    batch.add(op);
+                    return true;
                 }
+            };
 
-                // execute database update
-                try {
-                    DBUtils.applyInSmallBatches(context, batch);
-                } catch (OperationApplicationException e) {
-                    Timber.e(e, "flagsFromHexagon: failed to apply episode flag updates for show "
-                            + showTvdbId);
-                    return false;
-                }
+            try {
+                return new HexagonPagePipeline<>(loader, writer).run();
+            } catch (IOException e) {
+                Timber.e(e, "flagsFromHexagon: failed to download episode flags for show "
+                        + showTvdbId);
+                return false;
             }
-
-            return true;
         }
     }
 
@@ -1582,5 +1096,355 @@ public class EpisodeTools {
 
             return true;
         }
+
+        private interface OutboxQuery {
+            String[] PROJECTION = new String[] {
+                    EpisodeFlagOutbox._ID,
+                    EpisodeFlagOutbox.SHOW_TVDB_ID,
+                    EpisodeFlagOutbox.TYPE,
+                    EpisodeFlagOutbox.VALUE,
+                    EpisodeFlagOutbox.SEASON,
+                    EpisodeFlagOutbox.NUMBER,
+                    EpisodeFlagOutbox.ATTEMPTS
+            };
+
+            String SELECTION = EpisodeFlagOutbox.RETRY_AT + "<=?";
+
+            // group by show, flag and value, within ascending by season, then number for trakt
+            String ORDER = EpisodeFlagOutbox.SHOW_TVDB_ID + " ASC,"
+                    + EpisodeFlagOutbox.TYPE + " ASC,"
+                    + EpisodeFlagOutbox.VALUE + " ASC,"
+                    + EpisodeFlagOutbox.SEASON + " ASC,"
+                    + EpisodeFlagOutbox.NUMBER + " ASC";
+
+            int ID = 0;
+            int SHOW_TVDB_ID = 1;
+            int TYPE = 2;
+            int VALUE = 3;
+            int SEASON = 4;
+            int NUMBER = 5;
+            int ATTEMPTS = 6;
+        }
+
+        /**
+         * Changes failing to upload this often are dropped.
+         */
+        private static final int OUTBOX_MAX_ATTEMPTS = 10;
+
+        private static final Object OUTBOX_LOCK = new Object();
+
+        /**
+         * Episode flag changes of one show, all setting the same flag to the same value, so they
+         * can be sent with a single request.
+         */
+        private static class OutboxBatch {
+
+            final int showTvdbId;
+            final int type;
+            final int value;
+            final List<Long> ids = new ArrayList<>();
+            final List<Episode> hexagonEpisodes = new ArrayList<>();
+            final LinkedList<SyncSeason> traktSeasons = new LinkedList<>();
+            int attempts;
+
+            OutboxBatch(int showTvdbId, int type, int value) {
+                this.showTvdbId = showTvdbId;
+                this.type = type;
+                this.value = value;
+            }
+
+            boolean isSameGroup(int showTvdbId, int type, int value) {
+                return this.showTvdbId == showTvdbId && this.type == type && this.value == value;
+            }
+
+            void add(long id, int season, int number, int attempts) {
+                ids.add(id);
+                this.attempts = Math.max(this.attempts, attempts);
+
+                Episode episode = new Episode();
+                episode.setSeasonNumber(season);
+                episode.setEpisodeNumber(number);
+                if (type == EpisodeFlagOutbox.TYPE_WATCHED) {
+                    episode.setWatchedFlag(value);
+                } else {
+                    episode.setIsInCollection(isCollected(value));
+                }
+                hexagonEpisodes.add(episode);
+
+                SyncSeason currentSeason = traktSeasons.isEmpty() ? null : traktSeasons.getLast();
+                if (currentSeason == null || season > currentSeason.number) {
+                    currentSeason = new SyncSeason().number(season);
+                    currentSeason.episodes = new LinkedList<>();
+                    traktSeasons.add(currentSeason);
+                }
+                currentSeason.episodes.add(new SyncEpisode().number(number));
+            }
+
+            String buildIdSelection() {
+                return EpisodeFlagOutbox._ID + " IN (" + TextUtils.join(",", ids) + ")";
+            }
+        }
+
+        /**
+         * Uploads episode flag changes queued in the {@link EpisodeFlagOutbox} to Hexagon and
+         * trakt. Changes of the same show, flag and value are sent with a single request (of at
+         * most {@link #EPISODE_MAX_BATCH_SIZE} episodes). Changes that fail to upload are tried
+         * again after a delay doubling with each attempt (by {@link EpisodeFlagUploadService} or
+         * the next sync), they are dropped after {@link #OUTBOX_MAX_ATTEMPTS}.
+         *
+         * <p> Changes still queued are not reverted by downloading flags, see {@link
+         * EpisodeFlagBatch#apply}.
+         *
+         * @return Whether all changes due for upload were uploaded. Changes waiting to be tried
+         * again later are ignored.
+         */
+        public static boolean flagsFromOutbox(Context context) {
+            synchronized (OUTBOX_LOCK) {
+                ContentResolver resolver = context.getContentResolver();
+
+                boolean isSendingToHexagon = HexagonTools.isSignedIn(context);
+                boolean isSendingToTrakt = TraktCredentials.get(context).hasCredentials();
+                if (!isSendingToHexagon && !isSendingToTrakt) {
+                    // disconnected since queueing, nothing to upload to
+                    resolver.delete(EpisodeFlagOutbox.CONTENT_URI, null, null);
+                    return true;
+                }
+
+                ContentValues notUploading = new ContentValues();
+                notUploading.put(EpisodeFlagOutbox.UPLOADING, 0);
+
+                long currentTime = System.currentTimeMillis();
+                String[] selectionArgs = new String[] { String.valueOf(currentTime) };
+                List<OutboxBatch> batches = new ArrayList<>();
+                // mark changes as uploading in the same transaction they are read in, so a change
+                // reverted in the meantime is kept, see SeriesGuideDatabase.updateEpisodeFlags
+                boolean isMarked = false;
+                DBUtils.beginTransaction(context);
+                try {
+                    // uploads interrupted before (e.g. the app was killed) are not in progress
+                    resolver.update(EpisodeFlagOutbox.CONTENT_URI, notUploading, null, null);
+
+                    Cursor query = resolver.query(EpisodeFlagOutbox.CONTENT_URI,
+                            OutboxQuery.PROJECTION, OutboxQuery.SELECTION, selectionArgs,
+                            OutboxQuery.ORDER);
+                    if (query == null) {
+                        Timber.e("flagsFromOutbox: outbox query was null");
+                        return false;
+                    }
+                    OutboxBatch batch = null;
+                    while (query.moveToNext()) {
+                        int showTvdbId = query.getInt(OutboxQuery.SHOW_TVDB_ID);
+                        int type = query.getInt(OutboxQuery.TYPE);
+                        int value = query.getInt(OutboxQuery.VALUE);
+                        if (batch == null || !batch.isSameGroup(showTvdbId, type, value)
+                                || batch.ids.size() == EPISODE_MAX_BATCH_SIZE) {
+                            batch = new OutboxBatch(showTvdbId, type, value);
+                            batches.add(batch);
+                        }
+                        batch.add(query.getLong(OutboxQuery.ID),
+                                query.getInt(OutboxQuery.SEASON),
+                                query.getInt(OutboxQuery.NUMBER),
+                                query.getInt(OutboxQuery.ATTEMPTS));
+                    }
+                    query.close();
+
+                    // keep changes reverted during the upload, the server may get the old value
+                    ContentValues uploading = new ContentValues();
+                    uploading.put(EpisodeFlagOutbox.UPLOADING, 1);
+                    resolver.update(EpisodeFlagOutbox.CONTENT_URI, uploading,
+                            OutboxQuery.SELECTION, selectionArgs);
+                    isMarked = true;
+                } finally {
+                    DBUtils.endTransaction(context, isMarked);
+                }
+
+                int uploaded = 0;
+                boolean isAllUploaded = true;
+                for (OutboxBatch outboxBatch : batches) {
+                    if (!AndroidUtils.isNetworkConnected(context)) {
+                        Timber.e("flagsFromOutbox: no network connection");
+                        isAllUploaded = false;
+                        break;
+                    }
+                    if (uploadOutboxBatch(context, outboxBatch, isSendingToHexagon,
+                            isSendingToTrakt)) {
+                        // the server now has this value, even if changed again in the meantime,
+                        // then the new value is uploaded with the next run
+                        ContentValues values = new ContentValues();
+                        values.put(EpisodeFlagOutbox.VALUE_SYNCED, outboxBatch.value);
+                        values.put(EpisodeFlagOutbox.UPLOADING, 0);
+                        resolver.update(EpisodeFlagOutbox.CONTENT_URI, values,
+                                outboxBatch.buildIdSelection(), null);
+                        uploaded += outboxBatch.ids.size();
+                    } else {
+                        isAllUploaded = false;
+                        // if changed in the meantime, the server may still have received this
+                        // value (e.g. Hexagon did, trakt failed), so upload the new one
+                        ContentValues maybeSynced = new ContentValues();
+                        maybeSynced.put(EpisodeFlagOutbox.VALUE_SYNCED, outboxBatch.value);
+                        resolver.update(EpisodeFlagOutbox.CONTENT_URI, maybeSynced,
+                                outboxBatch.buildIdSelection() + " AND "
+                                        + EpisodeFlagOutbox.VALUE + "!=" + outboxBatch.value,
+                                null);
+                        resolver.update(EpisodeFlagOutbox.CONTENT_URI, notUploading,
+                                outboxBatch.buildIdSelection(), null);
+                        // back off, unless changed again in the meantime
+                        int attempts = outboxBatch.attempts + 1;
+                        ContentValues values = new ContentValues();
+                        values.put(EpisodeFlagOutbox.ATTEMPTS, attempts);
+                        values.put(EpisodeFlagOutbox.RETRY_AT, currentTime
+                                + (DateUtils.MINUTE_IN_MILLIS << Math.min(attempts, 6)));
+                        resolver.update(EpisodeFlagOutbox.CONTENT_URI, values,
+                                outboxBatch.buildIdSelection() + " AND "
+                                        + EpisodeFlagOutbox.VALUE + "=" + outboxBatch.value,
+                                null);
+                    }
+                }
+
+                // changes of batches not sent (e.g. when offline) are no longer in progress
+                resolver.update(EpisodeFlagOutbox.CONTENT_URI, notUploading,
+                        EpisodeFlagOutbox.UPLOADING + "=1", null);
+
+                // remove uploaded changes and those failing too often
+                resolver.delete(EpisodeFlagOutbox.CONTENT_URI,
+                        EpisodeFlagOutbox.VALUE + "=" + EpisodeFlagOutbox.VALUE_SYNCED, null);
+                int dropped = resolver.delete(EpisodeFlagOutbox.CONTENT_URI,
+                        EpisodeFlagOutbox.ATTEMPTS + ">=" + OUTBOX_MAX_ATTEMPTS, null);
+                if (dropped > 0) {
+                    Timber.w("flagsFromOutbox: dropped " + dropped + " changes failing to upload");
+                }
+
+                Timber.d("flagsFromOutbox: uploaded " + uploaded + " changes in "
+                        + batches.size() + " batches");
+
+                scheduleOutboxRetry(context, currentTime);
+
+                return isAllUploaded;
+            }
+        }
+
+        /**
+         * If changes failed to upload, schedules {@link EpisodeFlagUploadService} to try again
+         * once the first is due instead of waiting for the next sync.
+         */
+        private static void scheduleOutboxRetry(Context context, long currentTime) {
+            Cursor query = context.getContentResolver().query(EpisodeFlagOutbox.CONTENT_URI,
+                    new String[] { EpisodeFlagOutbox.RETRY_AT }, null, null,
+                    EpisodeFlagOutbox.RETRY_AT + " ASC");
+            if (query == null) {
+                return;
+            }
+            if (query.moveToFirst()) {
+                // changes not sent because offline are due already, do not try again right away
+                long retryAt = Math.max(query.getLong(0),
+                        currentTime + DateUtils.MINUTE_IN_MILLIS);
+                EpisodeFlagUploadService.scheduleRetry(context, retryAt);
+            } else {
+                EpisodeFlagUploadService.cancelRetry(context);
+            }
+            query.close();
+        }
+
+        /**
+         * Sends the batch to Hexagon, then to trakt. Hexagon stores flags as given, so it is fine
+         * to send again if uploading to trakt fails.
+         */
+        private static boolean uploadOutboxBatch(Context context, OutboxBatch batch,
+                boolean isSendingToHexagon, boolean isSendingToTrakt) {
+            if (isSendingToHexagon) {
+                EpisodeList uploadWrapper = new EpisodeList();
+                uploadWrapper.setShowTvdbId(batch.showTvdbId);
+                uploadWrapper.setEpisodes(batch.hexagonEpisodes);
+                if (!flagsToHexagon(context, uploadWrapper)) {
+                    return false;
+                }
+            }
+
+            /*
+             * Do not send skipped episodes, this is not supported by trakt.
+             * However, if the skipped flag is removed this will be handled identical
+             * to flagging as unwatched.
+             */
+            if (isSendingToTrakt && !(batch.type == EpisodeFlagOutbox.TYPE_WATCHED
+                    && isSkipped(batch.value))) {
+                // Do not send if show has no trakt id (was not on trakt last time we checked).
+                Integer showTraktId = ShowTools.getShowTraktId(context, batch.showTvdbId);
+                if (showTraktId != null) {
+                    boolean isAddNotDelete = batch.type == EpisodeFlagOutbox.TYPE_WATCHED
+                            ? isWatched(batch.value) : isCollected(batch.value);
+                    return flagsToTrakt(context, showTraktId, batch.type, isAddNotDelete,
+                            batch.traktSeasons);
+                }
+            }
+
+            return true;
+        }
+
+        private static boolean flagsToTrakt(@NonNull Context context, int showTraktId,
+                int flagType, boolean isAddNotDelete, @NonNull List<SyncSeason> seasons) {
+            TraktV2 trakt = ServiceUtils.getTraktV2WithAuth(context);
+            if (trakt == null) {
+                return false;
+            }
+            Sync traktSync = trakt.sync();
+
+            // outer wrapper and show are always required
+            SyncShow show = new SyncShow().id(ShowIds.trakt(showTraktId)).seasons(seasons);
+            SyncItems items = new SyncItems().shows(show);
+
+            // execute network call
+            try {
+                SyncResponse response;
+                if (flagType == EpisodeFlagOutbox.TYPE_WATCHED) {
+                    if (isAddNotDelete) {
+                        response = traktSync.addItemsToWatchedHistory(items);
+                    } else {
+                        response = traktSync.deleteItemsFromWatchedHistory(items);
+                    }
+                } else {
+                    if (isAddNotDelete) {
+                        response = traktSync.addItemsToCollection(items);
+                    } else {
+                        response = traktSync.deleteItemsFromCollection(items);
+                    }
+                }
+
+                // check if any items were not found
+                return isSyncSuccessful(response);
+            } catch (RetrofitError e) {
+                Timber.e(e, "flagsToTrakt: failed");
+                return false;
+            } catch (OAuthUnauthorizedException e) {
+                TraktCredentials.get(context).setCredentialsInvalid();
+                return false;
+            }
+        }
+
+        /**
+         * If the {@link com.uwetrottmann.trakt.v2.entities.SyncResponse} is invalid or any show,
+         * season or episode was not found returns {@code false}.
+         */
+        private static boolean isSyncSuccessful(SyncResponse response) {
+            if (response == null || response.not_found == null) {
+                // invalid response, assume failure
+                return false;
+            }
+
+            if (response.not_found.shows != null && !response.not_found.shows.isEmpty()) {
+                // show not found
+                return false;
+            }
+            if (response.not_found.seasons != null && !response.not_found.seasons.isEmpty()) {
+                // show exists, but seasons not found
+                return false;
+            }
+            //noinspection RedundantIfStatement
+            if (response.not_found.episodes != null && !response.not_found.episodes.isEmpty()) {
+                // show and season exists, but episodes not found
+                return false;
+            }
+
+            return true;
+        }
     }
 }
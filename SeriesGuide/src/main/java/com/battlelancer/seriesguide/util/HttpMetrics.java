@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects latency, size, cache and status metrics of all requests made through the shared HTTP
+ * client, see {@link HttpMetricsInterceptor}. Metrics are grouped by host and only kept in memory.
+ */
+public class HttpMetrics {
+
+    public enum CacheResult {
+        /** Response came from the network. */
+        MISS,
+        /** Response came from the cache without any request. */
+        HIT,
+        /** Response came from the cache after the server confirmed it is unchanged. */
+        CONDITIONAL_HIT
+    }
+
+    public static class HostStats {
+
+        public final String host;
+        public int requests;
+        public int failures;
+        public int cacheHits;
+        public int conditionalHits;
+        public long totalLatencyMillis;
+        public long totalBytes;
+        /** Number of responses by HTTP status code. */
+        public final Map<Integer, Integer> statusCodes;
+
+        HostStats(String host) {
+            this.host = host;
+            this.statusCodes = new TreeMap<>();
+        }
+
+        HostStats(HostStats other) {
+            this.host = other.host;
+            this.requests = other.requests;
+            this.failures = other.failures;
+            this.cacheHits = other.cacheHits;
+            this.conditionalHits = other.conditionalHits;
+            this.totalLatencyMillis = other.totalLatencyMillis;
+            this.totalBytes = other.totalBytes;
+            this.statusCodes = new TreeMap<>(other.statusCodes);
+        }
+
+        public long getAverageLatencyMillis() {
+            return requests == 0 ? 0 : totalLatencyMillis / requests;
+        }
+
+        @Override
+        public String toString() {
+            return host + ": " + requests + " requests, " + cacheHits + " cached ("
+                    + conditionalHits + " revalidated), " + failures + " failed, avg "
+                    + getAverageLatencyMillis() + " ms, " + totalBytes / 1024 + " KB, status "
+                    + statusCodes;
+        }
+    }
+
+    private static final Map<String, HostStats> statsByHost = new LinkedHashMap<>();
+    private static long totalBytes;
+    private static final ThreadLocal<long[]> bytesOnThread = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private HttpMetrics() {
+    }
+
+    /**
+     * Records a completed response.
+     *
+     * @param latencyMillis Time until the response headers were received.
+     * @param bytes Size of the response body as read by the caller.
+     */
+    public static synchronized void recordResponse(String host, int statusCode,
+            long latencyMillis, long bytes, CacheResult cacheResult) {
+        HostStats stats = getOrCreate(host);
+        stats.requests++;
+        stats.totalLatencyMillis += latencyMillis;
+        stats.totalBytes += bytes;
+        totalBytes += bytes;
+        bytesOnThread.get()[0] += bytes;
+        if (cacheResult == CacheResult.HIT) {
+            stats.cacheHits++;
+        } else if (cacheResult == CacheResult.CONDITIONAL_HIT) {
+            stats.cacheHits++;
+            stats.conditionalHits++;
+        }
+        Integer count = stats.statusCodes.get(statusCode);
+        stats.statusCodes.put(statusCode, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Records a request that failed without a response, e.g. due to a lost connection.
+     */
+    public static synchronized void recordFailure(String host, long latencyMillis) {
+        HostStats stats = getOrCreate(host);
+        stats.requests++;
+        stats.failures++;
+        stats.totalLatencyMillis += latencyMillis;
+    }
+
+    private static HostStats getOrCreate(String host) {
+        HostStats stats = statsByHost.get(host);
+        if (stats == null) {
+            stats = new HostStats(host);
+            statsByHost.put(host, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Returns a copy of the current metrics of each host, in the order hosts were first
+     * requested.
+     */
+    public static synchronized List<HostStats> getStats() {
+        List<HostStats> stats = new ArrayList<>(statsByHost.size());
+        for (HostStats hostStats : statsByHost.values()) {
+            stats.add(new HostStats(hostStats));
+        }
+        return stats;
+    }
+
+    /**
+     * Returns metrics of the given host or {@code null} if no request to it was recorded.
+     */
+    public static synchronized HostStats getStats(String host) {
+        HostStats stats = statsByHost.get(host);
+        return stats == null ? null : new HostStats(stats);
+    }
+
+    /**
+     * Returns the number of response body bytes read from all hosts since the process started,
+     * not affected by {@link #reset()}.
+     */
+    public static synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Like {@link #getTotalBytes()}, but only counts bytes of responses read by the calling
+     * thread. Useful to attribute traffic to work running in parallel.
+     */
+    public static long getBytesOnCurrentThread() {
+        return bytesOnThread.get()[0];
+    }
+
+    /**
+     * Returns one line of metrics per host, e.g. for display on a debug screen.
+     */
+    public static String buildSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (HostStats stats : getStats()) {
+            if (summary.length() > 0) {
+                summary.append('\n');
+            }
+            summary.append(stats);
+        }
+        return summary.toString();
+    }
+
+    public static synchronized void reset() {
+        statsByHost.clear();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.util;
+
+import android.os.SystemClock;
+import java.io.IOException;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Application interceptor recording {@link HttpMetrics} for each request. Must be added as an
+ * application (not network) interceptor to see whether a response came from the cache.
+ *
+ * <p>The response body is recorded once it is read completely or closed, so the number of bytes
+ * is known even if the server does not send a content length.
+ */
+public class HttpMetricsInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String host = request.url().host();
+        long start = SystemClock.elapsedRealtime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            HttpMetrics.recordFailure(host, SystemClock.elapsedRealtime() - start);
+            throw e;
+        }
+        long latency = SystemClock.elapsedRealtime() - start;
+
+        HttpMetrics.CacheResult cacheResult;
+        if (response.cacheResponse() == null) {
+            cacheResult = HttpMetrics.CacheResult.MISS;
+        } else if (response.networkResponse() == null) {
+            cacheResult = HttpMetrics.CacheResult.HIT;
+        } else {
+            cacheResult = HttpMetrics.CacheResult.CONDITIONAL_HIT;
+        }
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            HttpMetrics.recordResponse(host, response.code(), latency, 0, cacheResult);
+            return response;
+        }
+        return response.newBuilder()
+                .body(new CountingResponseBody(body, host, response.code(), latency, cacheResult))
+                .build();
+    }
+
+    private static class CountingResponseBody extends ResponseBody {
+
+        private final ResponseBody body;
+        private final String host;
+        private final int statusCode;
+        private final long latencyMillis;
+        private final HttpMetrics.CacheResult cacheResult;
+        private BufferedSource source;
+        private long bytesRead;
+        private boolean isRecorded;
+
+        CountingResponseBody(ResponseBody body, String host, int statusCode, long latencyMillis,
+                HttpMetrics.CacheResult cacheResult) {
+            this.body = body;
+            this.host = host;
+            this.statusCode = statusCode;
+            this.latencyMillis = latencyMillis;
+            this.cacheResult = cacheResult;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public synchronized BufferedSource source() {
+            if (source == null) {
+                source = Okio.buffer(countingSource(body.source()));
+            }
+            return source;
+        }
+
+        @Override
+        public void close() {
+            record();
+            super.close();
+        }
+
+        private Source countingSource(Source delegate) {
+            return new ForwardingSource(delegate) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read == -1) {
+                        record();
+                    } else {
+                        bytesRead += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    record();
+                    super.close();
+                }
+            };
+        }
+
+        private synchronized void record() {
+            if (isRecorded) {
+                return;
+            }
+            isRecorded = true;
+            HttpMetrics.recordResponse(host, statusCode, latencyMillis, bytesRead, cacheResult);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.util;
+
+import java.util.Arrays;
+
+/**
+ * Maps int keys to long values using two sorted primitive arrays, so no keys or values are boxed.
+ * Lookups use binary search. Adding keys in ascending order (e.g. from a cursor sorted by id) is
+ * cheap, otherwise values are moved to make room. Like {@link android.util.SparseLongArray},
+ * which is only available from API level 18.
+ */
+public class IntLongMap {
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+
+    public IntLongMap(int initialCapacity) {
+        keys = new int[Math.max(initialCapacity, 1)];
+        values = new long[keys.length];
+    }
+
+    /**
+     * Adds a mapping from the given key to the given value, replacing any existing mapping.
+     */
+    public void put(int key, long value) {
+        int index;
+        if (size == 0 || keys[size - 1] < key) {
+            // fast path: appending in ascending order
+            index = ~size;
+        } else {
+            index = Arrays.binarySearch(keys, 0, size, key);
+        }
+
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+
+        index = ~index;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        if (index < size) {
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * Returns the index of the given key, or a negative number if it is not mapped.
+     */
+    public int indexOfKey(int key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * Returns the index of the first mapping with the given value, or -1 if there is none.
+     */
+    public int indexOfValue(long value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int keyAt(int index) {
+        return keys[index];
+    }
+
+    public long valueAt(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+}
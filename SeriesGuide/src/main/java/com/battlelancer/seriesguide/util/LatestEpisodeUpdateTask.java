@@ -18,7 +18,6 @@ package com.battlelancer.seriesguide.util;
 
 import android.content.Context;
 import android.os.AsyncTask;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract;
 import timber.log.Timber;
 
 /**
@@ -49,11 +48,7 @@ public class LatestEpisodeUpdateTask extends AsyncTask<Integer, Void, Void> {
             DBUtils.updateLatestEpisode(mContext, null);
         }
 
-        // Show cursors already notified
-        // List item cursors need to be notified manually as uri differs
-        mContext.getContentResolver()
-                .notifyChange(SeriesGuideContract.ListItems.CONTENT_WITH_DETAILS_URI, null);
-
+        // show and list item cursors already notified
         return null;
     }
 }
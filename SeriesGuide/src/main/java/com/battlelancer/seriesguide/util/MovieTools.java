@@ -24,8 +24,11 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.os.AsyncTaskCompat;
 import android.text.TextUtils;
+import android.text.format.DateUtils;
+import com.battlelancer.seriesguide.backend.HexagonPagePipeline;
 import com.battlelancer.seriesguide.backend.HexagonTools;
 import com.battlelancer.seriesguide.backend.settings.HexagonSettings;
 import com.battlelancer.seriesguide.items.MovieDetails;
@@ -42,6 +45,7 @@ import com.battlelancer.seriesguide.util.tasks.SetMovieUnwatchedTask;
 import com.battlelancer.seriesguide.util.tasks.SetMovieWatchedTask;
 import com.google.api.client.util.DateTime;
 import com.uwetrottmann.androidutils.AndroidUtils;
+import com.uwetrottmann.seriesguide.backend.movies.model.Movie;
 import com.uwetrottmann.seriesguide.backend.movies.model.MovieList;
 import com.uwetrottmann.tmdb.services.MoviesService;
 import com.uwetrottmann.trakt.v2.TraktV2;
@@ -62,11 +66,19 @@ import com.uwetrottmann.trakt.v2.services.Sync;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import retrofit.RetrofitError;
 import timber.log.Timber;
 
@@ -76,6 +88,13 @@ public class MovieTools {
 
     private static final int MOVIES_MAX_BATCH_SIZE = 100;
 
+    /** TMDb allows 40 requests every 10 seconds, leave some for other requests of the app. */
+    private static final RateLimiter TMDB_RATE_LIMIT = new RateLimiter(30,
+            10 * DateUtils.SECOND_IN_MILLIS);
+    /** Stay well below what trakt allows for a single user. */
+    private static final RateLimiter TRAKT_RATE_LIMIT = new RateLimiter(5,
+            DateUtils.SECOND_IN_MILLIS);
+
     public static class MovieChangedEvent {
         public int movieTmdbId;
 
@@ -205,27 +224,6 @@ public class MovieTools {
         AsyncTaskCompat.executeParallel(new RateMovieTask(context, rating, movieTmdbId));
     }
 
-    private static ContentValues[] buildMoviesContentValues(List<MovieDetails> movies) {
-        ContentValues[] valuesArray = new ContentValues[movies.size()];
-        int index = 0;
-        for (MovieDetails movie : movies) {
-            valuesArray[index] = buildMovieContentValues(movie);
-            index++;
-        }
-        return valuesArray;
-    }
-
-    private static ContentValues buildMovieContentValues(MovieDetails details) {
-        ContentValues values = buildBasicMovieContentValuesWithId(details);
-
-        values.put(SeriesGuideContract.Movies.IN_COLLECTION,
-                DBUtils.convertBooleanToInt(details.inCollection));
-        values.put(SeriesGuideContract.Movies.IN_WATCHLIST,
-                DBUtils.convertBooleanToInt(details.inWatchlist));
-
-        return values;
-    }
-
     /**
      * Extracts basic properties, except in_watchlist and in_collection from trakt. Also includes
      * the TMDb id and watched state as value.
@@ -257,7 +255,7 @@ public class MovieTools {
             values.put(SeriesGuideContract.Movies.IMDB_ID, details.tmdbMovie().imdb_id);
             values.put(SeriesGuideContract.Movies.TITLE, details.tmdbMovie().title);
             values.put(SeriesGuideContract.Movies.TITLE_NOARTICLE,
-                    DBUtils.trimLeadingArticle(details.tmdbMovie().title));
+                    TitleTools.trimLeadingArticle(details.tmdbMovie().title));
             values.put(SeriesGuideContract.Movies.OVERVIEW, details.tmdbMovie().overview);
             values.put(SeriesGuideContract.Movies.POSTER, details.tmdbMovie().poster_path);
             values.put(SeriesGuideContract.Movies.RUNTIME_MIN, details.tmdbMovie().runtime);
@@ -402,6 +400,9 @@ public class MovieTools {
     }
 
     public static Integer lookupTraktId(Search traktSearch, int movieTmdbId) {
+        if (!TRAKT_RATE_LIMIT.acquire()) {
+            return null;
+        }
         try {
             List<SearchResult> lookup = traktSearch.idLookup(IdType.TMDB,
                     String.valueOf(movieTmdbId), 1, 10);
@@ -426,21 +427,28 @@ public class MovieTools {
 
     public static class Download {
 
+        /** Number of movies downloaded in parallel by {@link #addMovies}. */
+        private static final int ADD_MOVIES_CONCURRENCY = 4;
+        private static final int ADD_MOVIES_BATCH_SIZE = 10;
+
+        /** Movies currently downloaded by {@link #addMovies}, by TMDb id and language. */
+        private static final ConcurrentHashMap<String, FutureTask<MovieDetails>>
+                moviesDownloading = new ConcurrentHashMap<>();
+
         /**
          * Downloads movies from hexagon, updates existing movies with new properties, removes
-         * movies that are neither in collection or watchlist.
+         * movies that are neither in collection or watchlist. Downloads the next page while the
+         * current one is written, see {@link HexagonPagePipeline}.
          *
          * <p> Adds movie tmdb ids to the respective collection or watchlist set.
          */
-        public static boolean fromHexagon(Context context,
-                @NonNull Set<Integer> newCollectionMovies, @NonNull Set<Integer> newWatchlistMovies,
-                boolean hasMergedMovies) {
-            List<com.uwetrottmann.seriesguide.backend.movies.model.Movie> movies;
-            boolean hasMoreMovies = true;
-            String cursor = null;
+        public static boolean fromHexagon(final Context context,
+                @NonNull final Set<Integer> newCollectionMovies,
+                @NonNull final Set<Integer> newWatchlistMovies, final boolean hasMergedMovies) {
             long currentTime = System.currentTimeMillis();
-            DateTime lastSyncTime = new DateTime(HexagonSettings.getLastMoviesSyncTime(context));
-            HashSet<Integer> localMovies = getMovieTmdbIdsAsSet(context);
+            final DateTime lastSyncTime = new DateTime(
+                    HexagonSettings.getLastMoviesSyncTime(context));
+            final HashSet<Integer> localMovies = getMovieTmdbIdsAsSet(context);
             if (localMovies == null) {
                 Timber.e("fromHexagon: querying for local movies failed.");
                 return false;
@@ -452,18 +460,19 @@ public class MovieTools {
                 Timber.d("fromHexagon: downloading all movies");
             }
 
-            while (hasMoreMovies) {
-                // abort if connection is lost
-                if (!AndroidUtils.isNetworkConnected(context)) {
-                    Timber.e("fromHexagon: no network connection");
-                    return false;
-                }
+            final com.uwetrottmann.seriesguide.backend.movies.Movies moviesService
+                    = HexagonTools.getMoviesService(context);
+            if (moviesService == null) {
+                return false;
+            }
 
-                try {
-                    com.uwetrottmann.seriesguide.backend.movies.Movies moviesService
-                            = HexagonTools.getMoviesService(context);
-                    if (moviesService == null) {
-                        return false;
+            HexagonPagePipeline.PageLoader<Movie> loader
+                    = new HexagonPagePipeline.PageLoader<Movie>() {
+                @Override
+                public HexagonPagePipeline.Page<Movie> load(String cursor) throws IOException {
+                    // abort if connection is lost
+                    if (!AndroidUtils.isNetworkConnected(context)) {
+                        throw new IOException("no network connection");
                     }
 
                     com.uwetrottmann.seriesguide.backend.movies.Movies.Get request
@@ -479,68 +488,36 @@ public class MovieTools {
                     if (response == null) {
                         // nothing more to do
                         Timber.d("fromHexagon: response was null, done here");
-                        break;
+                        return null;
                     }
-
-                    movies = response.getMovies();
-
-                    if (response.getCursor() != null) {
-                        cursor = response.getCursor();
-                    } else {
-                        hasMoreMovies = false;
-                    }
-                } catch (IOException e) {
-                    Timber.e(e, "fromHexagon: failed to download movies");
-                    return false;
-                }
-
-                if (movies == null || movies.size() == 0) {
-                    // nothing more to do
-                    break;
+                    return new HexagonPagePipeline.Page<>(response.getMovies(),
+                            response.getCursor());
                 }
-
-                ArrayList<ContentProviderOperation> batch = new ArrayList<>();
-                for (com.uwetrottmann.seriesguide.backend.movies.model.Movie movie : movies) {
-                    if (localMovies.contains(movie.getTmdbId())) {
-                        // movie is in database
-                        if (movie.getIsInCollection() != null && movie.getIsInWatchlist() != null
-                                && !movie.getIsInCollection() && !movie.getIsInWatchlist()) {
-                            // if neither in watchlist or collection: remove movie
-                            batch.add(ContentProviderOperation.newDelete(
-                                    SeriesGuideContract.Movies.buildMovieUri(movie.getTmdbId()))
-                                    .build());
-                        } else {
-                            // update movie properties
-                            ContentValues values = new ContentValues();
-                            if (movie.getIsInCollection() != null) {
-                                values.put(SeriesGuideContract.Movies.IN_COLLECTION,
-                                        movie.getIsInCollection());
-                            }
-                            if (movie.getIsInWatchlist() != null) {
-                                values.put(SeriesGuideContract.Movies.IN_WATCHLIST,
-                                        movie.getIsInWatchlist());
-                            }
-                            batch.add(ContentProviderOperation.newUpdate(
-                                    SeriesGuideContract.Movies.buildMovieUri(movie.getTmdbId()))
-                                    .withValues(values).build());
-                        }
-                    } else {
-                        // schedule movie to be added
-                        if (movie.getIsInCollection() != null && movie.getIsInCollection()) {
-                            newCollectionMovies.add(movie.getTmdbId());
-                        }
-                        if (movie.getIsInWatchlist() != null && movie.getIsInWatchlist()) {
-                            newWatchlistMovies.add(movie.getTmdbId());
-                        }
+            };
+
+            HexagonPagePipeline.PageWriter<Movie> writer
+                    = new HexagonPagePipeline.PageWriter<Movie>() {
+                @Override
+                public boolean write(@NonNull List<Movie> movies) {
+                    ArrayList<ContentProviderOperation> batch = buildMovieUpdateOps(movies,
+                            localMovies, newCollectionMovies, newWatchlistMovies);
+                    try {
+                        DBUtils.applyInSmallBatches(context, batch);
+                    } catch (OperationApplicationException e) {
+                        Timber.e(e, "fromHexagon: applying movie updates failed");
+                        return false;
                     }
+                    return true;
                 }
+            };
 
-                try {
-                    DBUtils.applyInSmallBatches(context, batch);
-                } catch (OperationApplicationException e) {
-                    Timber.e(e, "fromHexagon: applying movie updates failed");
+            try {
+                if (!new HexagonPagePipeline<>(loader, writer).run()) {
                     return false;
                 }
+            } catch (IOException e) {
+                Timber.e(e, "fromHexagon: failed to download movies");
+                return false;
             }
 
             // set new last sync time
@@ -554,6 +531,48 @@ public class MovieTools {
             return true;
         }
 
+        private static ArrayList<ContentProviderOperation> buildMovieUpdateOps(
+                List<Movie> movies,
+                HashSet<Integer> localMovies, Set<Integer> newCollectionMovies,
+                Set<Integer> newWatchlistMovies) {
+            ArrayList<ContentProviderOperation> batch = new ArrayList<>();
+            for (Movie movie : movies) {
+                if (localMovies.contains(movie.getTmdbId())) {
+                    // movie is in database
+                    if (movie.getIsInCollection() != null && movie.getIsInWatchlist() != null
+                            && !movie.getIsInCollection() && !movie.getIsInWatchlist()) {
+                        // if neither in watchlist or collection: remove movie
+                        batch.add(ContentProviderOperation.newDelete(
+                                SeriesGuideContract.Movies.buildMovieUri(movie.getTmdbId()))
+                                .build());
+                    } else {
+                        // update movie properties
+                        ContentValues values = new ContentValues();
+                        if (movie.getIsInCollection() != null) {
+                            values.put(SeriesGuideContract.Movies.IN_COLLECTION,
+                                    movie.getIsInCollection());
+                        }
+                        if (movie.getIsInWatchlist() != null) {
+                            values.put(SeriesGuideContract.Movies.IN_WATCHLIST,
+                                    movie.getIsInWatchlist());
+                        }
+                        batch.add(ContentProviderOperation.newUpdate(
+                                SeriesGuideContract.Movies.buildMovieUri(movie.getTmdbId()))
+                                .withValues(values).build());
+                    }
+                } else {
+                    // schedule movie to be added
+                    if (movie.getIsInCollection() != null && movie.getIsInCollection()) {
+                        newCollectionMovies.add(movie.getTmdbId());
+                    }
+                    if (movie.getIsInWatchlist() != null && movie.getIsInWatchlist()) {
+                        newWatchlistMovies.add(movie.getTmdbId());
+                    }
+                }
+            }
+            return batch;
+        }
+
         /**
          * Updates the local movie database against trakt movie watchlist and collection. Adds,
          * updates and removes movies in the database.
@@ -592,14 +611,17 @@ public class MovieTools {
             // download collection and watchlist
             Set<Integer> collection;
             Set<Integer> watchlist;
+            Map<Integer, Integer> traktIds = new HashMap<>();
             try {
-                collection = buildTmdbIdSet(sync.collectionMovies(Extended.DEFAULT_MIN));
+                collection = buildTmdbIdSet(sync.collectionMovies(Extended.DEFAULT_MIN),
+                        traktIds);
                 if (collection == null) {
                     Timber.e("syncMoviesWithTrakt: null collection response");
                     return UpdateResult.INCOMPLETE;
                 }
 
-                watchlist = buildTmdbIdSet(sync.watchlistMovies(Extended.DEFAULT_MIN));
+                watchlist = buildTmdbIdSet(sync.watchlistMovies(Extended.DEFAULT_MIN),
+                        traktIds);
                 if (watchlist == null) {
                     Timber.e("syncMoviesWithTrakt: null watchlist response");
                     return UpdateResult.INCOMPLETE;
@@ -688,7 +710,7 @@ public class MovieTools {
             // add movies from trakt missing locally
             // all local movies were removed from trakt collection and watchlist,
             // so they only contain movies missing locally
-            UpdateResult result = addMovies(context, collection, watchlist);
+            UpdateResult result = addMovies(context, collection, watchlist, traktIds);
 
             if (result == UpdateResult.SUCCESS) {
                 // store last activity timestamps
@@ -704,7 +726,11 @@ public class MovieTools {
             return result;
         }
 
-        private static Set<Integer> buildTmdbIdSet(List<BaseMovie> movies) {
+        /**
+         * @param traktIds Map to add the trakt id of each movie to, if known.
+         */
+        private static Set<Integer> buildTmdbIdSet(List<BaseMovie> movies,
+                Map<Integer, Integer> traktIds) {
             if (movies == null) {
                 return null;
             }
@@ -716,6 +742,9 @@ public class MovieTools {
                     continue; // skip invalid values
                 }
                 tmdbIdSet.add(movie.movie.ids.tmdb);
+                if (movie.movie.ids.trakt != null) {
+                    traktIds.put(movie.movie.ids.tmdb, movie.movie.ids.trakt);
+                }
             }
             return tmdbIdSet;
         }
@@ -729,6 +758,21 @@ public class MovieTools {
         public static UpdateResult addMovies(@NonNull Context context,
                 @NonNull Set<Integer> newCollectionMovies,
                 @NonNull Set<Integer> newWatchlistMovies) {
+            return addMovies(context, newCollectionMovies, newWatchlistMovies, null);
+        }
+
+        /**
+         * Adds new movies to the database. Downloads details of multiple movies in parallel and
+         * inserts them as they arrive, requests to trakt and TMDb are rate limited.
+         *
+         * @param newCollectionMovies Movie TMDB ids to add to the collection.
+         * @param newWatchlistMovies Movie TMDB ids to add to the watchlist.
+         * @param traktIds Already known trakt ids by TMDb id, to avoid looking them up.
+         */
+        public static UpdateResult addMovies(@NonNull Context context,
+                @NonNull Set<Integer> newCollectionMovies,
+                @NonNull Set<Integer> newWatchlistMovies,
+                @Nullable Map<Integer, Integer> traktIds) {
             Timber.d("addMovies: " + newCollectionMovies.size() + " to collection, "
                     + newWatchlistMovies.size() + " to watchlist");
 
@@ -740,49 +784,142 @@ public class MovieTools {
             for (Integer tmdbId : newWatchlistMovies) {
                 newMovies.add(tmdbId);
             }
+            if (newMovies.size() == 0) {
+                return UpdateResult.SUCCESS;
+            }
 
             TraktV2 trakt = ServiceUtils.getTraktV2(context);
-            Search traktSearch = trakt.search();
-            Movies traktMovies = trakt.movies();
-            MoviesService tmdbMovies = ServiceUtils.getTmdb(context).moviesService();
-            String languageCode = DisplaySettings.getContentLanguage(context);
-            List<MovieDetails> movies = new LinkedList<>();
-
-            // loop through ids
-            for (Iterator<Integer> iterator = newMovies.iterator(); iterator.hasNext(); ) {
-                int tmdbId = iterator.next();
-                if (!AndroidUtils.isNetworkConnected(context)) {
-                    Timber.e("addMovies: no network connection");
-                    return UpdateResult.INCOMPLETE;
+            final Search traktSearch = trakt.search();
+            final Movies traktMovies = trakt.movies();
+            final MoviesService tmdbMovies = ServiceUtils.getTmdb(context).moviesService();
+            final String languageCode = DisplaySettings.getContentLanguage(context);
+
+            ExecutorService executor = Executors.newFixedThreadPool(
+                    Math.min(ADD_MOVIES_CONCURRENCY, newMovies.size()));
+            ExecutorCompletionService<MovieDetails> completionService
+                    = new ExecutorCompletionService<>(executor);
+            List<ContentValues> movies = new ArrayList<>(ADD_MOVIES_BATCH_SIZE);
+            UpdateResult result = UpdateResult.SUCCESS;
+            try {
+                // download movie data in parallel
+                for (final Integer tmdbId : newMovies) {
+                    final Integer traktId = traktIds == null ? null : traktIds.get(tmdbId);
+                    completionService.submit(new Callable<MovieDetails>() {
+                        @Override
+                        public MovieDetails call() throws Exception {
+                            return getMovieDetailsOnce(traktSearch, traktMovies, tmdbMovies,
+                                    languageCode, tmdbId, traktId);
+                        }
+                    });
                 }
 
-                // download movie data
-                MovieDetails movieDetails = getMovieDetails(traktSearch, traktMovies, tmdbMovies,
-                        languageCode, tmdbId);
-                if (movieDetails.tmdbMovie() == null) {
-                    // skip if minimal values failed to load
-                    Timber.d("addMovies: downloaded movie " + tmdbId + " incomplete, skipping");
-                    continue;
+                // insert movies as they finish downloading
+                for (int remaining = newMovies.size(); remaining > 0; remaining--) {
+                    if (!AndroidUtils.isNetworkConnected(context)) {
+                        Timber.e("addMovies: no network connection");
+                        result = UpdateResult.INCOMPLETE;
+                        break;
+                    }
+
+                    MovieDetails movieDetails;
+                    try {
+                        movieDetails = completionService.take().get();
+                    } catch (ExecutionException e) {
+                        throw new RuntimeException(e.getCause());
+                    }
+                    if (movieDetails.tmdbMovie() == null) {
+                        // skip if minimal values failed to load
+                        Timber.d("addMovies: downloaded movie incomplete, skipping");
+                        continue;
+                    }
+
+                    // set flags
+                    ContentValues values = buildBasicMovieContentValuesWithId(movieDetails);
+                    int tmdbId = movieDetails.tmdbMovie().id;
+                    values.put(SeriesGuideContract.Movies.IN_COLLECTION,
+                            DBUtils.convertBooleanToInt(newCollectionMovies.contains(tmdbId)));
+                    values.put(SeriesGuideContract.Movies.IN_WATCHLIST,
+                            DBUtils.convertBooleanToInt(newWatchlistMovies.contains(tmdbId)));
+                    movies.add(values);
+
+                    // add to database in batches of at most 10
+                    if (movies.size() == ADD_MOVIES_BATCH_SIZE) {
+                        insertMovies(context, movies);
+                    }
                 }
+            } catch (InterruptedException e) {
+                // sync was cancelled
+                Thread.currentThread().interrupt();
+                result = UpdateResult.INCOMPLETE;
+            } finally {
+                executor.shutdownNow();
+            }
 
-                // set flags
-                movieDetails.inCollection = newCollectionMovies.contains(tmdbId);
-                movieDetails.inWatchlist = newWatchlistMovies.contains(tmdbId);
+            // insert remaining movies, even if others failed
+            if (movies.size() > 0) {
+                insertMovies(context, movies);
+            }
 
-                movies.add(movieDetails);
+            return result;
+        }
 
-                // add to database in batches of at most 10
-                if (movies.size() == 10 || !iterator.hasNext()) {
-                    // insert into database
-                    context.getContentResolver().bulkInsert(SeriesGuideContract.Movies.CONTENT_URI,
-                            buildMoviesContentValues(movies));
+        private static void insertMovies(Context context, List<ContentValues> movies) {
+            context.getContentResolver().bulkInsert(SeriesGuideContract.Movies.CONTENT_URI,
+                    movies.toArray(new ContentValues[movies.size()]));
+            movies.clear();
+        }
 
-                    // start new batch
-                    movies.clear();
+        /**
+         * Like {@link #getMovieDetails(Search, Movies, MoviesService, String, int, Integer)}, but
+         * if the same movie is already downloading waits for and returns that result instead of
+         * downloading it again. The returned details must not be modified.
+         */
+        private static MovieDetails getMovieDetailsOnce(Search traktSearch, Movies traktMovies,
+                MoviesService tmdbMovies, final String languageCode, int movieTmdbId,
+                Integer movieTraktId) throws InterruptedException, ExecutionException {
+            final String key = movieTmdbId + "-" + languageCode;
+            FutureTask<MovieDetails> download = new FutureTask<MovieDetails>(
+                    new MovieDetailsCallable(traktSearch, traktMovies, tmdbMovies, languageCode,
+                            movieTmdbId, movieTraktId)) {
+                @Override
+                protected void done() {
+                    moviesDownloading.remove(key, this);
                 }
+            };
+            FutureTask<MovieDetails> existingDownload = moviesDownloading.putIfAbsent(key,
+                    download);
+            if (existingDownload != null) {
+                return existingDownload.get();
             }
+            download.run();
+            return download.get();
+        }
 
-            return UpdateResult.SUCCESS;
+        private static class MovieDetailsCallable implements Callable<MovieDetails> {
+
+            private final Search traktSearch;
+            private final Movies traktMovies;
+            private final MoviesService tmdbMovies;
+            private final String languageCode;
+            private final int movieTmdbId;
+            private final Integer movieTraktId;
+
+            public MovieDetailsCallable(Search traktSearch, Movies traktMovies,
+                    MoviesService tmdbMovies, String languageCode, int movieTmdbId,
+                    Integer movieTraktId) {
+                this.traktSearch = traktSearch;
+                this.traktMovies = traktMovies;
+                this.tmdbMovies = tmdbMovies;
+                this.languageCode = languageCode;
+                this.movieTmdbId = movieTmdbId;
+                this.movieTraktId = movieTraktId;
+            }
+
+            @Override
+            public MovieDetails call() {
+                return getMovieDetails(traktSearch, traktMovies, tmdbMovies, languageCode,
+                        movieTmdbId, movieTraktId);
+            }
         }
 
         /**
@@ -812,10 +949,23 @@ public class MovieTools {
          */
         public static MovieDetails getMovieDetails(Search traktSearch, Movies traktMovies,
                 MoviesService tmdbMovies, String languageCode, int movieTmdbId) {
+            return getMovieDetails(traktSearch, traktMovies, tmdbMovies, languageCode, movieTmdbId,
+                    null);
+        }
+
+        /**
+         * Like {@link #getMovieDetails(Search, Movies, MoviesService, String, int)}, but only looks
+         * up the trakt id if the given one is {@code null}.
+         */
+        private static MovieDetails getMovieDetails(Search traktSearch, Movies traktMovies,
+                MoviesService tmdbMovies, String languageCode, int movieTmdbId,
+                @Nullable Integer movieTraktId) {
             MovieDetails details = new MovieDetails();
 
             // load ratings from trakt
-            Integer movieTraktId = lookupTraktId(traktSearch, movieTmdbId);
+            if (movieTraktId == null) {
+                movieTraktId = lookupTraktId(traktSearch, movieTmdbId);
+            }
             if (movieTraktId != null) {
                 details.traktRatings(loadRatingsFromTrakt(traktMovies, movieTraktId));
             }
@@ -827,6 +977,9 @@ public class MovieTools {
         }
 
         private static Ratings loadRatingsFromTrakt(Movies traktMovies, int movieTraktId) {
+            if (!TRAKT_RATE_LIMIT.acquire()) {
+                return null;
+            }
             try {
                 return traktMovies.ratings(String.valueOf(movieTraktId));
             } catch (RetrofitError e) {
@@ -838,10 +991,16 @@ public class MovieTools {
         private static com.uwetrottmann.tmdb.entities.Movie loadSummaryFromTmdb(
                 MoviesService moviesService, String languageCode, int movieTmdbId) {
             try {
+                if (!TMDB_RATE_LIMIT.acquire()) {
+                    return null;
+                }
                 com.uwetrottmann.tmdb.entities.Movie movie = moviesService.summary(movieTmdbId,
                         languageCode, null);
                 if (movie != null && TextUtils.isEmpty(movie.overview)) {
                     // fall back to English if TMDb has no localized text
+                    if (!TMDB_RATE_LIMIT.acquire()) {
+                        return null;
+                    }
                     movie = moviesService.summary(movieTmdbId, null, null);
                 }
                 return movie;
@@ -875,8 +1034,7 @@ public class MovieTools {
         public static boolean toHexagon(Context context) {
             Timber.d("toHexagon: uploading all movies");
 
-            List<com.uwetrottmann.seriesguide.backend.movies.model.Movie> movies = buildMovieList(
-                    context);
+            List<Movie> movies = buildMovieList(context);
             if (movies == null) {
                 Timber.e("toHexagon: movie query was null");
                 return false;
@@ -905,10 +1063,8 @@ public class MovieTools {
             return true;
         }
 
-        private static List<com.uwetrottmann.seriesguide.backend.movies.model.Movie> buildMovieList(
-                Context context) {
-            List<com.uwetrottmann.seriesguide.backend.movies.model.Movie> movies
-                    = new ArrayList<>();
+        private static List<Movie> buildMovieList(Context context) {
+            List<Movie> movies = new ArrayList<>();
 
             // query for movies in lists (excluding movies that are only watched)
             Cursor moviesInLists = context.getContentResolver().query(
@@ -919,8 +1075,7 @@ public class MovieTools {
             }
 
             while (moviesInLists.moveToNext()) {
-                com.uwetrottmann.seriesguide.backend.movies.model.Movie movie
-                        = new com.uwetrottmann.seriesguide.backend.movies.model.Movie();
+                Movie movie = new Movie();
                 movie.setTmdbId(moviesInLists.getInt(0));
                 movie.setIsInCollection(moviesInLists.getInt(1) == 1);
                 movie.setIsInWatchlist(moviesInLists.getInt(2) == 1);
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.util;
+
+import android.os.SystemClock;
+
+/**
+ * Spaces out requests to a web service evenly, so no more than the given number of requests are
+ * started within the given period, no matter how many threads make requests.
+ */
+public class RateLimiter {
+
+    private final long intervalMillis;
+    private long nextPermitAt;
+
+    public RateLimiter(int requests, long periodMillis) {
+        this.intervalMillis = periodMillis / requests;
+    }
+
+    /**
+     * Blocks until a request may be made.
+     *
+     * @return {@code false} if interrupted while waiting, the interrupted flag of the thread is
+     * set again.
+     */
+    public boolean acquire() {
+        long waitMillis;
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            long permitAt = Math.max(now, nextPermitAt);
+            nextPermitAt = permitAt + intervalMillis;
+            waitMillis = permitAt - now;
+        }
+        if (waitMillis > 0) {
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.util;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalDateTime;
+import org.joda.time.LocalTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * Release time calculations used by {@link TimeTools}. Only depends on Joda-Time and not on
+ * Android, so the benchmark module can run it on a plain JVM.
+ */
+public class ReleaseTimes {
+
+    /**
+     * Returned if a release time can not be determined, same as {@link
+     * com.battlelancer.seriesguide.Constants#EPISODE_UNKNOWN_RELEASE}.
+     */
+    public static final long UNKNOWN_RELEASE = -1;
+
+    private static final String TIMEZONE_ID_PREFIX_AMERICA = "America/";
+    private static final String ISO3166_1_UNITED_STATES = "us";
+    private static final String TIMEZONE_ID_US_EASTERN = "America/New_York";
+    private static final String TIMEZONE_ID_US_EASTERN_DETROIT = "America/Detroit";
+    private static final String TIMEZONE_ID_US_CENTRAL = "America/Chicago";
+    private static final String TIMEZONE_ID_US_MOUNTAIN = "America/Denver";
+    private static final String TIMEZONE_ID_US_ARIZONA = "America/Phoenix";
+    private static final String TIMEZONE_ID_US_PACIFIC = "America/Los_Angeles";
+
+    private static final DateTimeFormatter TVDB_DATE_FORMATTER = ISODateTimeFormat.date();
+
+    private ReleaseTimes() {
+    }
+
+    /**
+     * See {@link TimeTools#parseEpisodeReleaseDate}.
+     *
+     * @return {@link #UNKNOWN_RELEASE} if the release date is empty or could not be parsed.
+     */
+    public static long parseEpisodeReleaseDate(DateTimeZone showTimeZone, String releaseDate,
+            LocalTime showReleaseTime, String showCountry, String deviceTimeZone) {
+        if (releaseDate == null || releaseDate.length() == 0) {
+            return UNKNOWN_RELEASE;
+        }
+
+        // get date
+        LocalDate localDate;
+        try {
+            localDate = parseReleaseDate(releaseDate);
+        } catch (IllegalArgumentException e) {
+            // date string could not be parsed
+            return UNKNOWN_RELEASE;
+        }
+
+        return getEpisodeReleaseTime(showTimeZone, localDate, showReleaseTime, showCountry,
+                deviceTimeZone);
+    }
+
+    /**
+     * Parses a release date in the format TVDb uses (yyyy-MM-dd).
+     *
+     * @throws IllegalArgumentException If the release date could not be parsed.
+     */
+    public static LocalDate parseReleaseDate(String releaseDate) {
+        return TVDB_DATE_FORMATTER.parseLocalDate(releaseDate);
+    }
+
+    /**
+     * Like {@link #parseEpisodeReleaseDate}, but for an already parsed release date.
+     */
+    public static long getEpisodeReleaseTime(DateTimeZone showTimeZone, LocalDate localDate,
+            LocalTime showReleaseTime, String showCountry, String deviceTimeZone) {
+        // set time
+        LocalDateTime localDateTime = localDate.toLocalDateTime(showReleaseTime);
+
+        localDateTime = handleHourPastMidnight(showCountry, localDateTime);
+        localDateTime = handleDstGap(showTimeZone, localDateTime);
+
+        // finally get a valid datetime in the show time zone
+        DateTime dateTime = localDateTime.toDateTime(showTimeZone);
+
+        // handle time zone effects on release time for US shows (only if device is set to US zone)
+        if (deviceTimeZone.startsWith(TIMEZONE_ID_PREFIX_AMERICA)) {
+            dateTime = applyUnitedStatesCorrections(showCountry, deviceTimeZone, dateTime);
+        }
+
+        return dateTime.getMillis();
+    }
+
+    /**
+     * See {@link TimeTools#getShowReleaseDateTime}, but does not apply the user-defined offset.
+     */
+    public static DateTime getShowReleaseDateTime(DateTimeZone showTimeZone, LocalTime time,
+            int weekDay, String country, String deviceTimeZone) {
+        // create current date in show time zone, set local show release time
+        LocalDateTime localDateTime = new LocalDate(showTimeZone).toLocalDateTime(time);
+
+        // adjust day of week so datetime is today or within the next week
+        // for daily shows (weekDay == 0) just use the current day
+        if (weekDay >= 1 && weekDay <= 7) {
+            // joda tries to preserve week
+            // so if we want a week day earlier in the week, advance by 7 days first
+            if (weekDay < localDateTime.getDayOfWeek()) {
+                localDateTime = localDateTime.plusWeeks(1);
+            }
+            localDateTime = localDateTime.withDayOfWeek(weekDay);
+        }
+
+        localDateTime = handleHourPastMidnight(country, localDateTime);
+        localDateTime = handleDstGap(showTimeZone, localDateTime);
+
+        DateTime dateTime = localDateTime.toDateTime(showTimeZone);
+
+        // handle time zone effects on release time for US shows (only if device is set to US zone)
+        if (deviceTimeZone.startsWith(TIMEZONE_ID_PREFIX_AMERICA)) {
+            dateTime = applyUnitedStatesCorrections(country, deviceTimeZone, dateTime);
+        }
+
+        return dateTime;
+    }
+
+    /**
+     * If the release time is within the hour past midnight (0:00 until 0:59) moves the date one day
+     * into the future (currently US shows only).
+     *
+     * <p> This is based on late night shows being commonly listed as releasing the day before if
+     * they air past midnight (e.g. "Monday night at 0:35" actually is Tuesday 0:35).
+     *
+     * <p>Example: https://thetvdb.com/?tab=series&id=292421
+     *
+     * <p>See also: https://forums.thetvdb.com/viewtopic.php?t=22791
+     */
+    private static LocalDateTime handleHourPastMidnight(String country,
+            LocalDateTime localDateTime) {
+        // Example:
+        if (ISO3166_1_UNITED_STATES.equals(country) && localDateTime.getHourOfDay() == 0) {
+            return localDateTime.plusDays(1);
+        }
+        return localDateTime;
+    }
+
+    private static DateTime applyUnitedStatesCorrections(String country, String localTimeZone,
+            DateTime dateTime) {
+        // assumed base time zone for US shows by trakt is America/New_York
+        // EST UTC−5:00, EDT UTC−4:00
+
+        // east feed (default): simultaneously in Eastern and Central
+        // delayed 1 hour in Mountain
+        // delayed three hours in Pacific
+        // <==>
+        // same local time in Eastern + Pacific (e.g. 20:00)
+        // same local time in Central + Mountain (e.g. 19:00)
+
+        // not a US show or no correction necessary (getting east feed)
+        if (!ISO3166_1_UNITED_STATES.equals(country)
+                || localTimeZone.equals(TIMEZONE_ID_US_EASTERN)
+                || localTimeZone.equals(TIMEZONE_ID_US_EASTERN_DETROIT)
+                || localTimeZone.equals(TIMEZONE_ID_US_CENTRAL)) {
+            return dateTime;
+        }
+
+        int offset = 0;
+        if (localTimeZone.equals(TIMEZONE_ID_US_MOUNTAIN)) {
+            // MST UTC−7:00, MDT UTC−6:00
+            offset += 1;
+        } else if (localTimeZone.equals(TIMEZONE_ID_US_ARIZONA)) {
+            // is always UTC-07:00, so like Mountain, but no DST
+            boolean noDstInEastern = DateTimeZone.forID(TIMEZONE_ID_US_EASTERN)
+                    .isStandardOffset(dateTime.getMillis());
+            if (noDstInEastern) {
+                offset += 1;
+            } else {
+                offset += 2;
+            }
+        } else if (localTimeZone.equals(TIMEZONE_ID_US_PACIFIC)) {
+            // PST UTC−8:00 or PDT UTC−7:00
+            offset += 3;
+        }
+
+        dateTime = dateTime.plusHours(offset);
+
+        return dateTime;
+    }
+
+    /**
+     * Handles DST gap (typically a missing clock hour when DST is getting enabled) by moving the
+     * time forward in hour increments until the local date time is outside the gap.
+     */
+    private static LocalDateTime handleDstGap(DateTimeZone showTimeZone,
+            LocalDateTime localDateTime) {
+        while (showTimeZone.isLocalDateTimeGap(localDateTime)) {
+            // move time forward in 1 hour increments, until outside of the gap
+            localDateTime = localDateTime.plusHours(1);
+        }
+        return localDateTime;
+    }
+}
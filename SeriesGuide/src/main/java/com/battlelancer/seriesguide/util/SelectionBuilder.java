@@ -25,6 +25,7 @@ package com.battlelancer.seriesguide.util;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
 import android.text.TextUtils;
 import com.battlelancer.seriesguide.provider.SeriesGuideProvider;
 import java.util.ArrayList;
@@ -160,6 +161,18 @@ public class SelectionBuilder {
                 orderBy, limit);
     }
 
+    /**
+     * Returns the SQL statement {@link #query(SQLiteDatabase, String[], String)} would execute,
+     * e.g. to inspect its query plan.
+     */
+    public String buildQuery(String[] columns, String orderBy) {
+        assertTable();
+        if (columns != null)
+            mapColumns(columns);
+        return SQLiteQueryBuilder.buildQueryString(false, mTable, columns, getSelection(), null,
+                null, orderBy, null);
+    }
+
     /**
      * Execute update using the current internal state as {@code WHERE} clause.
      */
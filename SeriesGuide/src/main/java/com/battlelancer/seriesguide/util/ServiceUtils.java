@@ -62,6 +62,10 @@ public final class ServiceUtils {
     private static final String API_CACHE = "api-cache";
     private static final int MIN_DISK_API_CACHE_SIZE = 2 * 1024 * 1024; // 2MB
     private static final int MAX_DISK_API_CACHE_SIZE = 10 * 1024 * 1024; // 10MB
+    /** Same as used by Picasso's own downloader, to keep already cached images. */
+    private static final String IMAGE_CACHE = "picasso-cache";
+    private static final int MIN_DISK_IMAGE_CACHE_SIZE = 5 * 1024 * 1024; // 5MB
+    private static final int MAX_DISK_IMAGE_CACHE_SIZE = 50 * 1024 * 1024; // 50MB
 
     private static final String IMDB_APP_TITLE_URI_POSTFIX = "/";
 
@@ -102,6 +106,10 @@ public final class ServiceUtils {
     /**
      * Returns this apps {@link OkHttpClient} with enabled response cache.
      * Should be used with API calls.
+     *
+     * <p>Clients for other purposes should be derived from this one using {@link
+     * OkHttpClient#newBuilder()}, so all share the same connection pool and {@link
+     * HttpMetrics} are recorded for all requests.
      */
     @NonNull
     public static synchronized OkHttpClient getCachingOkHttpClient(Context context) {
@@ -109,6 +117,9 @@ public final class ServiceUtils {
             OkHttpClient.Builder builder = new OkHttpClient.Builder();
             builder.connectTimeout(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
             builder.readTimeout(READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            builder.addInterceptor(new HttpMetricsInterceptor());
+            builder.addNetworkInterceptor(
+                    new CachePolicyInterceptor(CachePolicyInterceptor.DEFAULT_RULES));
             File cacheDir = createApiCacheDir(context, API_CACHE);
             builder.cache(new Cache(cacheDir, calculateApiDiskCacheSize(cacheDir)));
             cachingHttpClient = builder.build();
@@ -125,7 +136,11 @@ public final class ServiceUtils {
     }
 
     public static long calculateApiDiskCacheSize(File dir) {
-        long size = MIN_DISK_API_CACHE_SIZE;
+        return calculateDiskCacheSize(dir, MIN_DISK_API_CACHE_SIZE, MAX_DISK_API_CACHE_SIZE);
+    }
+
+    private static long calculateDiskCacheSize(File dir, long minSize, long maxSize) {
+        long size = minSize;
 
         try {
             StatFs statFs = new StatFs(dir.getAbsolutePath());
@@ -142,14 +157,20 @@ public final class ServiceUtils {
         }
 
         // Bound inside min/max size for disk cache.
-        return Math.max(Math.min(size, MAX_DISK_API_CACHE_SIZE), MIN_DISK_API_CACHE_SIZE);
+        return Math.max(Math.min(size, maxSize), minSize);
     }
 
     @NonNull
     public static synchronized Picasso getPicasso(Context context) {
         if (sPicasso == null) {
+            // images get their own, larger cache
+            File cacheDir = createApiCacheDir(context, IMAGE_CACHE);
+            OkHttpClient client = getCachingOkHttpClient(context).newBuilder()
+                    .cache(new Cache(cacheDir, calculateDiskCacheSize(cacheDir,
+                            MIN_DISK_IMAGE_CACHE_SIZE, MAX_DISK_IMAGE_CACHE_SIZE)))
+                    .build();
             sPicasso = new Picasso.Builder(context)
-                    .downloader(new OkHttp3Downloader(context))
+                    .downloader(new OkHttp3Downloader(client))
                     .build();
         }
         return sPicasso;
@@ -31,6 +31,7 @@ import android.text.TextUtils;
 import android.widget.TextView;
 import android.widget.Toast;
 import com.battlelancer.seriesguide.R;
+import com.battlelancer.seriesguide.backend.HexagonPagePipeline;
 import com.battlelancer.seriesguide.backend.HexagonTools;
 import com.battlelancer.seriesguide.backend.settings.HexagonSettings;
 import com.battlelancer.seriesguide.enums.NetworkResult;
@@ -392,15 +393,15 @@ public class ShowTools {
         /**
          * Downloads shows from Hexagon and updates existing shows with new property values. Any
          * shows not yet in the local database, determined by the given TVDb id set, will be added
-         * to the given map.
+         * to the given map. Downloads the next page while the current one is written, see {@link
+         * HexagonPagePipeline}.
          */
-        public static boolean fromHexagon(Context context, HashSet<Integer> existingShows,
-                HashMap<Integer, SearchResult> newShows, boolean hasMergedShows) {
-            List<Show> shows;
-            boolean hasMoreShows = true;
-            String cursor = null;
+        public static boolean fromHexagon(final Context context,
+                final HashSet<Integer> existingShows,
+                final HashMap<Integer, SearchResult> newShows, final boolean hasMergedShows) {
             long currentTime = System.currentTimeMillis();
-            DateTime lastSyncTime = new DateTime(HexagonSettings.getLastShowsSyncTime(context));
+            final DateTime lastSyncTime = new DateTime(
+                    HexagonSettings.getLastShowsSyncTime(context));
 
             if (hasMergedShows) {
                 Timber.d("fromHexagon: downloading changed shows since " + lastSyncTime);
@@ -408,17 +409,18 @@ public class ShowTools {
                 Timber.d("fromHexagon: downloading all shows");
             }
 
-            while (hasMoreShows) {
-                // abort if connection is lost
-                if (!AndroidUtils.isNetworkConnected(context)) {
-                    Timber.e("fromHexagon: no network connection");
-                    return false;
-                }
+            final Shows showsService = HexagonTools.getShowsService(context);
+            if (showsService == null) {
+                return false;
+            }
 
-                try {
-                    Shows showsService = HexagonTools.getShowsService(context);
-                    if (showsService == null) {
-                        return false;
+            HexagonPagePipeline.PageLoader<Show> loader
+                    = new HexagonPagePipeline.PageLoader<Show>() {
+                @Override
+                public HexagonPagePipeline.Page<Show> load(String cursor) throws IOException {
+                    // abort if connection is lost
+                    if (!AndroidUtils.isNetworkConnected(context)) {
+                        throw new IOException("no network connection");
                     }
 
                     Shows.Get request = showsService.get().setLimit(SHOWS_MAX_BATCH_SIZE);
@@ -434,37 +436,39 @@ public class ShowTools {
                     if (response == null) {
                         // we're done
                         Timber.d("fromHexagon: response was null, done here");
-                        break;
-                    }
-
-                    shows = response.getShows();
-
-                    // check for more items
-                    if (response.getCursor() != null) {
-                        cursor = response.getCursor();
-                    } else {
-                        hasMoreShows = false;
+                        return null;
                     }
-                } catch (IOException e) {
-                    Timber.e(e, "fromHexagon: failed to download shows");
-                    return false;
+                    return new HexagonPagePipeline.Page<>(response.getShows(),
+                            response.getCursor());
                 }
-
-                if (shows == null || shows.size() == 0) {
-                    // nothing to do here
-                    break;
+            };
+
+            HexagonPagePipeline.PageWriter<Show> writer
+                    = new HexagonPagePipeline.PageWriter<Show>() {
+                @Override
+                public boolean write(@NonNull List<Show> shows) {
+                    // update all received shows, ContentProvider will ignore those not added
+                    // locally
+                    ArrayList<ContentProviderOperation> batch = buildShowUpdateOps(shows,
+                            existingShows, newShows, !hasMergedShows);
+
+                    try {
+                        DBUtils.applyInSmallBatches(context, batch);
+                    } catch (OperationApplicationException e) {
+                        Timber.e(e, "fromHexagon: applying show updates failed");
+                        return false;
+                    }
+                    return true;
                 }
+            };
 
-                // update all received shows, ContentProvider will ignore those not added locally
-                ArrayList<ContentProviderOperation> batch = buildShowUpdateOps(shows, existingShows,
-                        newShows, !hasMergedShows);
-
-                try {
-                    DBUtils.applyInSmallBatches(context, batch);
-                } catch (OperationApplicationException e) {
-                    Timber.e(e, "fromHexagon: applying show updates failed");
+            try {
+                if (!new HexagonPagePipeline<>(loader, writer).run()) {
                     return false;
                 }
+            } catch (IOException e) {
+                Timber.e(e, "fromHexagon: failed to download shows");
+                return false;
             }
 
             if (hasMergedShows) {
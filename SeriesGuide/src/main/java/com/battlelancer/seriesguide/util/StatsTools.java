@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.util;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.sqlite.SQLiteException;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.text.format.DateUtils;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Movies;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.settings.DisplaySettings;
+import java.util.concurrent.atomic.AtomicInteger;
+import timber.log.Timber;
+
+/**
+ * Computes statistics about the shows, episodes and movies of the user with a few aggregate
+ * queries, see {@link com.battlelancer.seriesguide.provider.SeriesGuideDatabase#getStats}. The
+ * result is cached until shows, episodes (e.g. their flags) or movies change.
+ */
+public class StatsTools {
+
+    public static class Stats {
+        public final boolean isHidingSpecials;
+        public final int shows;
+        public final int showsContinuing;
+        public final int showsWithNextEpisodes;
+        public final int episodes;
+        public final int episodesWatched;
+        /** In ms. */
+        public final long episodesWatchedRuntime;
+        public final int movies;
+        public final int moviesWatchlist;
+        /** In ms. */
+        public final long moviesWatchlistRuntime;
+
+        private Stats(boolean isHidingSpecials, Bundle result) {
+            this.isHidingSpecials = isHidingSpecials;
+            shows = result.getInt(SeriesGuideContract.EXTRA_STATS_SHOWS);
+            showsContinuing = result.getInt(SeriesGuideContract.EXTRA_STATS_SHOWS_CONTINUING);
+            showsWithNextEpisodes = result.getInt(SeriesGuideContract.EXTRA_STATS_SHOWS_WITH_NEXT);
+            episodes = result.getInt(SeriesGuideContract.EXTRA_STATS_EPISODES);
+            episodesWatched = result.getInt(SeriesGuideContract.EXTRA_STATS_EPISODES_WATCHED);
+            episodesWatchedRuntime = result.getLong(
+                    SeriesGuideContract.EXTRA_STATS_EPISODES_WATCHED_RUNTIME)
+                    * DateUtils.MINUTE_IN_MILLIS;
+            movies = result.getInt(SeriesGuideContract.EXTRA_STATS_MOVIES);
+            moviesWatchlist = result.getInt(SeriesGuideContract.EXTRA_STATS_MOVIES_WATCHLIST);
+            moviesWatchlistRuntime = result.getLong(
+                    SeriesGuideContract.EXTRA_STATS_MOVIES_WATCHLIST_RUNTIME)
+                    * DateUtils.MINUTE_IN_MILLIS;
+        }
+    }
+
+    private static volatile Stats cachedStats;
+    /** Increased on each change, so a result computed during a change is not cached. */
+    private static final AtomicInteger changeCount = new AtomicInteger();
+    private static boolean isObserving;
+
+    private static final ContentObserver changeObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            changeCount.incrementAndGet();
+            cachedStats = null;
+        }
+    };
+
+    /**
+     * Returns the cached statistics, or computes them if anything has changed since. Do not call
+     * on the UI thread.
+     *
+     * @return {@code null} if computing failed.
+     */
+    @Nullable
+    public static Stats getStats(Context context) {
+        boolean isHidingSpecials = DisplaySettings.isHidingSpecials(context);
+        Stats stats = cachedStats;
+        if (stats != null && stats.isHidingSpecials == isHidingSpecials) {
+            return stats;
+        }
+
+        // observe before computing, so changes while computing are not missed
+        startObserving(context);
+        int changeCountBefore = changeCount.get();
+
+        Bundle extras = new Bundle();
+        extras.putBoolean(SeriesGuideContract.EXTRA_HIDE_SPECIALS, isHidingSpecials);
+        Bundle result;
+        try {
+            result = context.getContentResolver().call(Shows.CONTENT_URI,
+                    SeriesGuideContract.METHOD_GET_STATS, null, extras);
+        } catch (SQLiteException e) {
+            Timber.e(e, "getStats: failed.");
+            DBUtils.postDatabaseError(e);
+            return null;
+        }
+        if (result == null) {
+            return null;
+        }
+
+        stats = new Stats(isHidingSpecials, result);
+        if (changeCount.get() == changeCountBefore) {
+            cachedStats = stats;
+        }
+        return stats;
+    }
+
+    private static synchronized void startObserving(Context context) {
+        if (isObserving) {
+            return;
+        }
+        ContentResolver resolver = context.getApplicationContext().getContentResolver();
+        resolver.registerContentObserver(Shows.CONTENT_URI, true, changeObserver);
+        resolver.registerContentObserver(Episodes.CONTENT_URI, true, changeObserver);
+        resolver.registerContentObserver(Movies.CONTENT_URI, true, changeObserver);
+        isObserving = true;
+    }
+}
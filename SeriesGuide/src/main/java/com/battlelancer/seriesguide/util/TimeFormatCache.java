@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.util;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import android.text.format.DateFormat;
+import com.battlelancer.seriesguide.settings.SettingsSnapshot;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.TimeZone;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Caches what {@link TimeTools} needs to display release times: time zones and date formats per
+ * thread and built show release day and time strings. Everything is dropped if the device time
+ * zone, time format or locale changes.
+ */
+public class TimeFormatCache {
+
+    private static final int RELEASE_STRINGS_MAX_SIZE = 1000;
+
+    /**
+     * Increased on each change, per thread caches created for an older generation are dropped.
+     */
+    private static volatile int generation;
+    private static volatile boolean isRegistered;
+
+    private static final LruCache<String, String> releaseStrings
+            = new LruCache<>(RELEASE_STRINGS_MAX_SIZE);
+
+    private static final ThreadLocal<Formats> formats = new ThreadLocal<>();
+
+    private static class Formats {
+        final int generation;
+        final Locale locale;
+        final String timeZoneId;
+        final HashMap<String, DateTimeZone> zones = new HashMap<>();
+        final SimpleDateFormat dayFormat;
+        java.text.DateFormat timeFormat;
+
+        Formats(int generation, Locale locale, String timeZoneId) {
+            this.generation = generation;
+            this.locale = locale;
+            this.timeZoneId = timeZoneId;
+            this.dayFormat = new SimpleDateFormat("E", locale);
+        }
+    }
+
+    private static final BroadcastReceiver changeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate();
+        }
+    };
+
+    /**
+     * Drops all cached values.
+     */
+    public static void invalidate() {
+        generation++;
+        releaseStrings.evictAll();
+    }
+
+    /**
+     * Registers for changes invalidating cached values once, must be called before anything is
+     * cached.
+     */
+    private static void ensureRegistered(Context context) {
+        if (!isRegistered) {
+            register(context);
+        }
+    }
+
+    private static synchronized void register(Context context) {
+        if (isRegistered) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED); // also sent if 24-hour format changes
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        appContext.registerReceiver(changeReceiver, filter);
+        isRegistered = true;
+    }
+
+    @NonNull
+    private static Formats getFormats() {
+        // formats use the default locale and time zone when created, so also check those in case
+        // no change receiver is registered, yet
+        Locale locale = Locale.getDefault();
+        String timeZoneId = TimeZone.getDefault().getID();
+        Formats current = formats.get();
+        if (current == null || current.generation != generation
+                || !current.locale.equals(locale) || !current.timeZoneId.equals(timeZoneId)) {
+            current = new Formats(generation, locale, timeZoneId);
+            formats.set(current);
+        }
+        return current;
+    }
+
+    /**
+     * Like {@link DateTimeZone#forID(String)}, but caches the zone for the calling thread.
+     *
+     * @throws IllegalArgumentException If the ID is not recognised.
+     */
+    @NonNull
+    public static DateTimeZone getDateTimeZone(@NonNull String timezone) {
+        HashMap<String, DateTimeZone> zones = getFormats().zones;
+        DateTimeZone zone = zones.get(timezone);
+        if (zone == null) {
+            zone = DateTimeZone.forID(timezone);
+            zones.put(timezone, zone);
+        }
+        return zone;
+    }
+
+    /**
+     * Returns a week day abbreviation format for the default locale, only use on the calling
+     * thread.
+     */
+    @NonNull
+    public static SimpleDateFormat getDayFormat() {
+        return getFormats().dayFormat;
+    }
+
+    /**
+     * Returns {@link DateFormat#getTimeFormat(Context)}, only use on the calling thread.
+     */
+    @NonNull
+    public static java.text.DateFormat getTimeFormat(Context context) {
+        ensureRegistered(context);
+        Formats current = getFormats();
+        if (current.timeFormat == null) {
+            current.timeFormat = DateFormat.getTimeFormat(context);
+        }
+        return current.timeFormat;
+    }
+
+    /**
+     * Returns the release week day and time of a show formatted like "Tue 08:00 PM". The result
+     * is remembered for the current day.
+     *
+     * @param time See {@link TimeTools#getShowReleaseTime(int)}, must not be -1.
+     */
+    @NonNull
+    public static String getShowReleaseDayAndTime(Context context, int time, int weekday,
+            @Nullable String timeZone, @Nullable String country) {
+        ensureRegistered(context);
+        // the release day and time depend on today (e.g. if DST is in effect), the user offset
+        // and the device time zone and locale
+        Calendar today = Calendar.getInstance();
+        String key = time + "|" + weekday + "|" + timeZone + "|" + country
+                + "|" + today.get(Calendar.YEAR) + "-" + today.get(Calendar.DAY_OF_YEAR)
+                + "|" + SettingsSnapshot.get(context).userOffset
+                + "|" + TimeZone.getDefault().getID()
+                + "|" + Locale.getDefault();
+        String dayAndTime = releaseStrings.get(key);
+        if (dayAndTime == null) {
+            Date release = TimeTools.getShowReleaseDateTime(context,
+                    TimeTools.getShowReleaseTime(time), weekday, timeZone, country);
+            dayAndTime = TimeTools.formatToLocalDayOrDaily(context, release, weekday)
+                    + " " + TimeTools.formatToLocalTime(context, release);
+            releaseStrings.put(key, dayAndTime);
+        }
+        return dayAndTime;
+    }
+}
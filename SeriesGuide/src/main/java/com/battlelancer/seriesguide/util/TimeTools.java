@@ -17,14 +17,12 @@
 package com.battlelancer.seriesguide.util;
 
 import android.content.Context;
-import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.format.DateFormat;
 import android.text.format.DateUtils;
-import com.battlelancer.seriesguide.Constants;
 import com.battlelancer.seriesguide.R;
-import com.battlelancer.seriesguide.ui.SeriesGuidePreferences;
+import com.battlelancer.seriesguide.settings.SettingsSnapshot;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
@@ -34,7 +32,6 @@ import org.joda.time.DateTime;
 import org.joda.time.DateTimeConstants;
 import org.joda.time.DateTimeZone;
 import org.joda.time.LocalDate;
-import org.joda.time.LocalDateTime;
 import org.joda.time.LocalTime;
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
@@ -47,8 +44,6 @@ public class TimeTools {
 
     public static final int RELEASE_WEEKDAY_DAILY = 0;
 
-    private static final String TIMEZONE_ID_PREFIX_AMERICA = "America/";
-
     private static final String AUSTRALIA = "Australia";
     private static final String ISO3166_1_AUSTRALIA = "au";
 
@@ -73,11 +68,6 @@ public class TimeTools {
     private static final String UNITED_STATES = "United States";
     private static final String ISO3166_1_UNITED_STATES = "us";
     private static final String TIMEZONE_ID_US_EASTERN = "America/New_York";
-    private static final Object TIMEZONE_ID_US_EASTERN_DETROIT = "America/Detroit";
-    private static final String TIMEZONE_ID_US_CENTRAL = "America/Chicago";
-    private static final String TIMEZONE_ID_US_MOUNTAIN = "America/Denver";
-    private static final String TIMEZONE_ID_US_ARIZONA = "America/Phoenix";
-    private static final String TIMEZONE_ID_US_PACIFIC = "America/Los_Angeles";
 
     private static final DateTimeFormatter DATE_TIME_FORMATTER_UTC
             = ISODateTimeFormat.dateTime().withZoneUTC();
@@ -92,12 +82,12 @@ public class TimeTools {
     public static DateTimeZone getDateTimeZone(@Nullable String timezone) {
         if (timezone != null && timezone.length() != 0) {
             try {
-                return DateTimeZone.forID(timezone);
+                return TimeFormatCache.getDateTimeZone(timezone);
             } catch (IllegalArgumentException ignored) {
             }
         }
 
-        return DateTimeZone.forID(TIMEZONE_ID_US_EASTERN);
+        return TimeFormatCache.getDateTimeZone(TIMEZONE_ID_US_EASTERN);
     }
 
     /**
@@ -172,34 +162,21 @@ public class TimeTools {
             @Nullable String releaseDate, @NonNull LocalTime showReleaseTime,
             @Nullable String showCountry, @NonNull String deviceTimeZone) {
         if (releaseDate == null || releaseDate.length() == 0) {
-            return Constants.EPISODE_UNKNOWN_RELEASE;
+            return ReleaseTimes.UNKNOWN_RELEASE;
         }
 
         // get date
         LocalDate localDate;
         try {
-            localDate = TVDB_DATE_FORMATTER.parseLocalDate(releaseDate);
+            localDate = ReleaseTimes.parseReleaseDate(releaseDate);
         } catch (IllegalArgumentException e) {
             // date string could not be parsed
             Timber.e(e, "TheTVDB date could not be parsed: " + releaseDate);
-            return Constants.EPISODE_UNKNOWN_RELEASE;
-        }
-
-        // set time
-        LocalDateTime localDateTime = localDate.toLocalDateTime(showReleaseTime);
-
-        localDateTime = handleHourPastMidnight(showCountry, localDateTime);
-        localDateTime = handleDstGap(showTimeZone, localDateTime);
-
-        // finally get a valid datetime in the show time zone
-        DateTime dateTime = localDateTime.toDateTime(showTimeZone);
-
-        // handle time zone effects on release time for US shows (only if device is set to US zone)
-        if (deviceTimeZone.startsWith(TIMEZONE_ID_PREFIX_AMERICA)) {
-            dateTime = applyUnitedStatesCorrections(showCountry, deviceTimeZone, dateTime);
+            return ReleaseTimes.UNKNOWN_RELEASE;
         }
 
-        return dateTime.getMillis();
+        return ReleaseTimes.getEpisodeReleaseTime(showTimeZone, localDate, showReleaseTime,
+                showCountry, deviceTimeZone);
     }
 
     /**
@@ -235,56 +212,14 @@ public class TimeTools {
         // determine show time zone (falls back to America/New_York)
         DateTimeZone showTimeZone = getDateTimeZone(timeZone);
 
-        // create current date in show time zone, set local show release time
-        LocalDateTime localDateTime = new LocalDate(showTimeZone).toLocalDateTime(time);
-
-        // adjust day of week so datetime is today or within the next week
-        // for daily shows (weekDay == 0) just use the current day
-        if (weekDay >= 1 && weekDay <= 7) {
-            // joda tries to preserve week
-            // so if we want a week day earlier in the week, advance by 7 days first
-            if (weekDay < localDateTime.getDayOfWeek()) {
-                localDateTime = localDateTime.plusWeeks(1);
-            }
-            localDateTime = localDateTime.withDayOfWeek(weekDay);
-        }
-
-        localDateTime = handleHourPastMidnight(country, localDateTime);
-        localDateTime = handleDstGap(showTimeZone, localDateTime);
-
-        DateTime dateTime = localDateTime.toDateTime(showTimeZone);
-
-        // handle time zone effects on release time for US shows (only if device is set to US zone)
-        String localTimeZone = TimeZone.getDefault().getID();
-        if (localTimeZone.startsWith(TIMEZONE_ID_PREFIX_AMERICA)) {
-            dateTime = applyUnitedStatesCorrections(country, localTimeZone, dateTime);
-        }
+        DateTime dateTime = ReleaseTimes.getShowReleaseDateTime(showTimeZone, time, weekDay,
+                country, TimeZone.getDefault().getID());
 
         dateTime = applyUserOffset(context, dateTime);
 
         return dateTime.toDate();
     }
 
-    /**
-     * If the release time is within the hour past midnight (0:00 until 0:59) moves the date one day
-     * into the future (currently US shows only).
-     *
-     * <p> This is based on late night shows being commonly listed as releasing the day before if
-     * they air past midnight (e.g. "Monday night at 0:35" actually is Tuesday 0:35).
-     *
-     * <p>Example: https://thetvdb.com/?tab=series&id=292421
-     *
-     * <p>See also: https://forums.thetvdb.com/viewtopic.php?t=22791
-     */
-    private static LocalDateTime handleHourPastMidnight(@Nullable String country,
-            LocalDateTime localDateTime) {
-        // Example:
-        if (ISO3166_1_UNITED_STATES.equals(country) && localDateTime.getHourOfDay() == 0) {
-            return localDateTime.plusDays(1);
-        }
-        return localDateTime;
-    }
-
     /**
      * Calculate the year string of a show's first release in the user's default locale from an ISO
      * date time string.
@@ -313,62 +248,6 @@ public class TimeTools {
         return new SimpleDateFormat("yyyy", Locale.getDefault()).format(dateTime.toDate());
     }
 
-    private static DateTime applyUnitedStatesCorrections(@Nullable String country,
-            @NonNull String localTimeZone, @NonNull DateTime dateTime) {
-        // assumed base time zone for US shows by trakt is America/New_York
-        // EST UTC−5:00, EDT UTC−4:00
-
-        // east feed (default): simultaneously in Eastern and Central
-        // delayed 1 hour in Mountain
-        // delayed three hours in Pacific
-        // <==>
-        // same local time in Eastern + Pacific (e.g. 20:00)
-        // same local time in Central + Mountain (e.g. 19:00)
-
-        // not a US show or no correction necessary (getting east feed)
-        if (!ISO3166_1_UNITED_STATES.equals(country)
-                || localTimeZone.equals(TIMEZONE_ID_US_EASTERN)
-                || localTimeZone.equals(TIMEZONE_ID_US_EASTERN_DETROIT)
-                || localTimeZone.equals(TIMEZONE_ID_US_CENTRAL)) {
-            return dateTime;
-        }
-
-        int offset = 0;
-        if (localTimeZone.equals(TIMEZONE_ID_US_MOUNTAIN)) {
-            // MST UTC−7:00, MDT UTC−6:00
-            offset += 1;
-        } else if (localTimeZone.equals(TIMEZONE_ID_US_ARIZONA)) {
-            // is always UTC-07:00, so like Mountain, but no DST
-            boolean noDstInEastern = DateTimeZone.forID(TIMEZONE_ID_US_EASTERN)
-                    .isStandardOffset(dateTime.getMillis());
-            if (noDstInEastern) {
-                offset += 1;
-            } else {
-                offset += 2;
-            }
-        } else if (localTimeZone.equals(TIMEZONE_ID_US_PACIFIC)) {
-            // PST UTC−8:00 or PDT UTC−7:00
-            offset += 3;
-        }
-
-        dateTime = dateTime.plusHours(offset);
-
-        return dateTime;
-    }
-
-    /**
-     * Handles DST gap (typically a missing clock hour when DST is getting enabled) by moving the
-     * time forward in hour increments until the local date time is outside the gap.
-     */
-    private static LocalDateTime handleDstGap(DateTimeZone showTimeZone,
-            LocalDateTime localDateTime) {
-        while (showTimeZone.isLocalDateTimeGap(localDateTime)) {
-            // move time forward in 1 hour increments, until outside of the gap
-            localDateTime = localDateTime.plusHours(1);
-        }
-        return localDateTime;
-    }
-
     /**
      * Returns the text representation of the given country code. If the country is not supported,
      * "unknown" will be returned.
@@ -414,8 +293,7 @@ public class TimeTools {
      * Formats to the week day abbreviation (e.g. "Mon") as defined by the devices locale.
      */
     public static String formatToLocalDay(Date dateTime) {
-        SimpleDateFormat localDayFormat = new SimpleDateFormat("E", Locale.getDefault());
-        return localDayFormat.format(dateTime);
+        return TimeFormatCache.getDayFormat().format(dateTime);
     }
 
     /**
@@ -433,8 +311,7 @@ public class TimeTools {
      * Formats to absolute time format (e.g. "08:00 PM") as defined by the devices locale.
      */
     public static String formatToLocalTime(Context context, Date dateTime) {
-        java.text.DateFormat localTimeFormat = DateFormat.getTimeFormat(context);
-        return localTimeFormat.format(dateTime);
+        return TimeFormatCache.getTimeFormat(context).format(dateTime);
     }
 
     /**
@@ -587,11 +464,6 @@ public class TimeTools {
     }
 
     private static int getUserOffset(Context context) {
-        try {
-            return Integer.valueOf(PreferenceManager.getDefaultSharedPreferences(context)
-                    .getString(SeriesGuidePreferences.KEY_OFFSET, "0"));
-        } catch (NumberFormatException e) {
-            return 0;
-        }
+        return SettingsSnapshot.get(context).userOffset;
     }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.util;
+
+/**
+ * Helpers for show and movie titles. Does not depend on Android, so the benchmark module can run
+ * it on a plain JVM.
+ */
+public class TitleTools {
+
+    private TitleTools() {
+    }
+
+    /**
+     * Removes a leading article from the given string (including the first whitespace that
+     * follows). <p> <em>Currently only supports English articles (the, a and an).</em>
+     */
+    public static String trimLeadingArticle(String title) {
+        if (title == null || title.length() == 0) {
+            return title;
+        }
+
+        if (title.length() > 4 &&
+                (title.startsWith("The ") || title.startsWith("the "))) {
+            return title.substring(4);
+        }
+        if (title.length() > 2 &&
+                (title.startsWith("A ") || title.startsWith("a "))) {
+            return title.substring(2);
+        }
+        if (title.length() > 3 &&
+                (title.startsWith("An ") || title.startsWith("an "))) {
+            return title.substring(3);
+        }
+
+        return title;
+    }
+}
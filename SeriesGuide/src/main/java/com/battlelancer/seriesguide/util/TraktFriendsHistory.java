@@ -0,0 +1,365 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.util;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.text.format.DateUtils;
+import com.battlelancer.seriesguide.adapters.NowAdapter;
+import com.battlelancer.seriesguide.settings.TraktCredentials;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.uwetrottmann.trakt.v2.TraktV2;
+import com.uwetrottmann.trakt.v2.entities.Friend;
+import com.uwetrottmann.trakt.v2.entities.HistoryEntry;
+import com.uwetrottmann.trakt.v2.entities.Username;
+import com.uwetrottmann.trakt.v2.enums.Extended;
+import com.uwetrottmann.trakt.v2.enums.HistoryType;
+import com.uwetrottmann.trakt.v2.exceptions.OAuthUnauthorizedException;
+import com.uwetrottmann.trakt.v2.services.Users;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import retrofit.RetrofitError;
+import timber.log.Timber;
+
+/**
+ * Loads the most recent history entry of each trakt friend. The history of each friend is
+ * requested in parallel with a bounded number of threads, friends whose history fails to load or
+ * takes too long are skipped.
+ *
+ * <p>Results are kept in memory and on disk. Fresh results are returned without any request,
+ * stale results are returned right away while they are reloaded in the background.
+ */
+public class TraktFriendsHistory {
+
+    /**
+     * Builds the item to display for the most recent history entry of a friend.
+     */
+    public interface ItemBuilder {
+        /**
+         * Returns {@code null} if the entry is missing required values.
+         */
+        @Nullable
+        NowAdapter.NowItem build(@NonNull String username, @Nullable String avatar,
+                @NonNull HistoryEntry entry);
+    }
+
+    private static final String CACHE_DIRECTORY = "trakt-friends";
+
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+    /** Time to wait for the history of a friend, after that the friend is skipped. */
+    private static final long REQUEST_TIMEOUT_MILLIS = 10 * DateUtils.SECOND_IN_MILLIS;
+    /** Results younger than this are returned without making any requests. */
+    private static final long FRESH_MILLIS = 2 * DateUtils.MINUTE_IN_MILLIS;
+    /** Results younger than this are returned while they are reloaded in the background. */
+    private static final long MAX_STALE_MILLIS = DateUtils.DAY_IN_MILLIS;
+
+    private static class CachedHistory {
+        long fetchedAt;
+        NowAdapter.NowItem[] items;
+    }
+
+    private static final Map<HistoryType, CachedHistory> cache = new EnumMap<>(
+            HistoryType.class);
+    private static final Map<HistoryType, Boolean> isRevalidating = new EnumMap<>(
+            HistoryType.class);
+    private static final ExecutorService revalidateExecutor = Executors.newSingleThreadExecutor();
+
+    private TraktFriendsHistory() {
+    }
+
+    /**
+     * Returns the most recent history entry of each friend, built into items by the given
+     * builder. The list is empty if there are no friends or none has any history. Returns
+     * {@code null} if not connected to trakt or nothing could be loaded and there is no cached
+     * result.
+     *
+     * @param forceRefresh Ignore any cached result, unless loading fails.
+     */
+    @Nullable
+    public static List<NowAdapter.NowItem> get(Context context, HistoryType type,
+            ItemBuilder builder, boolean forceRefresh) {
+        context = context.getApplicationContext();
+        CachedHistory cached = getCached(context, type);
+        if (cached != null && !forceRefresh) {
+            long age = System.currentTimeMillis() - cached.fetchedAt;
+            if (age < FRESH_MILLIS) {
+                return new ArrayList<>(Arrays.asList(cached.items));
+            }
+            if (age < MAX_STALE_MILLIS) {
+                revalidate(context, type, builder);
+                return new ArrayList<>(Arrays.asList(cached.items));
+            }
+        }
+
+        List<NowAdapter.NowItem> items = fetch(context, type, builder);
+        if (items == null) {
+            // rather show outdated history than nothing
+            return cached == null ? null : new ArrayList<>(Arrays.asList(cached.items));
+        }
+        return items;
+    }
+
+    /**
+     * Removes all cached results, e.g. when disconnecting from trakt.
+     */
+    public static void clear(Context context) {
+        synchronized (cache) {
+            cache.clear();
+            for (HistoryType type : HistoryType.values()) {
+                //noinspection ResultOfMethodCallIgnored
+                getCacheFile(context, type).delete();
+            }
+        }
+    }
+
+    private static void revalidate(final Context context, final HistoryType type,
+            final ItemBuilder builder) {
+        synchronized (isRevalidating) {
+            if (Boolean.TRUE.equals(isRevalidating.get(type))) {
+                return;
+            }
+            isRevalidating.put(type, true);
+        }
+        revalidateExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    fetch(context, type, builder);
+                } finally {
+                    synchronized (isRevalidating) {
+                        isRevalidating.put(type, false);
+                    }
+                }
+            }
+        });
+    }
+
+    @Nullable
+    private static List<NowAdapter.NowItem> fetch(Context context, HistoryType type,
+            ItemBuilder builder) {
+        TraktV2 trakt = ServiceUtils.getTraktV2WithAuth(context);
+        if (trakt == null) {
+            return null;
+        }
+        final Users traktUsers = trakt.users();
+
+        // get all trakt friends
+        List<Friend> friends;
+        try {
+            friends = traktUsers.friends(Username.ME, Extended.IMAGES);
+        } catch (RetrofitError e) {
+            Timber.e(e, "Failed to load trakt friends");
+            return null;
+        } catch (OAuthUnauthorizedException e) {
+            TraktCredentials.get(context).setCredentialsInvalid();
+            return null;
+        }
+        if (friends == null) {
+            return null;
+        }
+
+        // request the history of all friends in parallel
+        List<Friend> validFriends = new ArrayList<>(friends.size());
+        List<Future<List<HistoryEntry>>> histories = new ArrayList<>(friends.size());
+        List<NowAdapter.NowItem> items = new ArrayList<>(friends.size());
+        int failed = 0;
+        if (friends.size() > 0) {
+            ExecutorService executor = Executors.newFixedThreadPool(
+                    Math.min(MAX_CONCURRENT_REQUESTS, friends.size()));
+            try {
+                for (Friend friend : friends) {
+                    // at least need a username
+                    if (friend.user == null || TextUtils.isEmpty(friend.user.username)) {
+                        continue;
+                    }
+                    validFriends.add(friend);
+                    histories.add(executor.submit(
+                            new HistoryCallable(traktUsers, friend.user.username, type)));
+                }
+
+                // keep the order of friends, skip those whose history failed to load
+                long deadline = System.currentTimeMillis() + REQUEST_TIMEOUT_MILLIS;
+                for (int i = 0; i < histories.size(); i++) {
+                    Future<List<HistoryEntry>> pendingHistory = histories.get(i);
+                    List<HistoryEntry> history;
+                    try {
+                        // requests run in parallel, so each gets the same deadline
+                        long timeout = Math.max(deadline - System.currentTimeMillis(), 0);
+                        history = pendingHistory.get(timeout, TimeUnit.MILLISECONDS);
+                    } catch (ExecutionException e) {
+                        if (!(e.getCause() instanceof RetrofitError)) {
+                            throw new RuntimeException(e.getCause());
+                        }
+                        // either lost connection or server error or other error
+                        Timber.e(e.getCause(), "Failed to load friend history");
+                        failed++;
+                        continue;
+                    } catch (TimeoutException e) {
+                        Timber.e("Loading friend history timed out");
+                        pendingHistory.cancel(true);
+                        failed++;
+                        continue;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+
+                    if (history == null || history.size() == 0) {
+                        // no history, or friend might have revoked friendship just now :(
+                        continue;
+                    }
+
+                    Friend friend = validFriends.get(i);
+                    String avatar = (friend.user.images == null
+                            || friend.user.images.avatar == null)
+                            ? null : friend.user.images.avatar.full;
+                    NowAdapter.NowItem item = builder.build(friend.user.username, avatar,
+                            history.get(0));
+                    if (item != null) {
+                        items.add(item);
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        if (failed > 0 && failed == histories.size()) {
+            // nothing loaded, likely no connection
+            return null;
+        }
+        if (failed == 0) {
+            // only cache complete results
+            putCached(context, type, items);
+        }
+        return items;
+    }
+
+    private static class HistoryCallable implements Callable<List<HistoryEntry>> {
+
+        private final Users traktUsers;
+        private final String username;
+        private final HistoryType type;
+
+        public HistoryCallable(Users traktUsers, String username, HistoryType type) {
+            this.traktUsers = traktUsers;
+            this.username = username;
+            this.type = type;
+        }
+
+        @Override
+        public List<HistoryEntry> call() {
+            try {
+                return traktUsers.history(new Username(username), type, 1, 1, Extended.IMAGES);
+            } catch (OAuthUnauthorizedException e) {
+                // friend might have revoked friendship just now :(
+                return null;
+            }
+        }
+    }
+
+    @Nullable
+    private static CachedHistory getCached(Context context, HistoryType type) {
+        synchronized (cache) {
+            CachedHistory cached = cache.get(type);
+            if (cached == null) {
+                cached = readCacheFile(context, type);
+                if (cached != null) {
+                    cache.put(type, cached);
+                }
+            }
+            return cached;
+        }
+    }
+
+    private static void putCached(Context context, HistoryType type,
+            List<NowAdapter.NowItem> items) {
+        CachedHistory cached = new CachedHistory();
+        cached.fetchedAt = System.currentTimeMillis();
+        cached.items = items.toArray(new NowAdapter.NowItem[items.size()]);
+        synchronized (cache) {
+            if (!TraktCredentials.get(context).hasCredentials()) {
+                // disconnected while loading, do not keep history of friends
+                return;
+            }
+            cache.put(type, cached);
+            writeCacheFile(context, type, cached);
+        }
+    }
+
+    private static File getCacheFile(Context context, HistoryType type) {
+        return new File(ServiceUtils.createApiCacheDir(context, CACHE_DIRECTORY),
+                type.toString() + ".json");
+    }
+
+    @Nullable
+    private static CachedHistory readCacheFile(Context context, HistoryType type) {
+        File file = getCacheFile(context, type);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+            try {
+                CachedHistory cached = new Gson().fromJson(reader, CachedHistory.class);
+                return cached == null || cached.items == null ? null : cached;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | JsonParseException e) {
+            Timber.e(e, "Failed to read cached friend history");
+            return null;
+        }
+    }
+
+    private static void writeCacheFile(Context context, HistoryType type, CachedHistory cached) {
+        File file = getCacheFile(context, type);
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            try {
+                new Gson().toJson(cached, CachedHistory.class, writer);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException | JsonParseException e) {
+            Timber.e(e, "Failed to write cached friend history");
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+}
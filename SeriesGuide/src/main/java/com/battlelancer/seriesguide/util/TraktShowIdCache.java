@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.util;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.settings.TraktSettings;
+import java.util.concurrent.atomic.AtomicInteger;
+import retrofit.RetrofitError;
+
+/**
+ * Maps TVDb show ids to trakt show ids. Uses the trakt id stored with a show (and when it was last
+ * looked up) until it is older than {@link TraktSettings#getShowTraktIdMaxAge(Context)}, including
+ * if the show was not found on trakt. Only then looks it up on trakt again.
+ */
+public class TraktShowIdCache {
+
+    private static final String[] PROJECTION = new String[] {
+            Shows.TRAKT_ID, Shows.TRAKT_ID_VERIFIED
+    };
+
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
+
+    public static class Mapping {
+        /** The trakt id, or {@code null} if the show is not on trakt. */
+        @Nullable public final Integer traktId;
+        /** When the trakt id was looked up on trakt. */
+        public final long verifiedAt;
+        /** Whether the trakt id was not just looked up, but loaded from the database. */
+        public final boolean isFromCache;
+
+        private Mapping(@Nullable Integer traktId, long verifiedAt, boolean isFromCache) {
+            this.traktId = traktId;
+            this.verifiedAt = verifiedAt;
+            this.isFromCache = isFromCache;
+        }
+    }
+
+    /**
+     * Returns the stored trakt id of the given show if it was looked up recently enough, otherwise
+     * looks it up on trakt.
+     *
+     * @throws RetrofitError If looking up the trakt id failed.
+     */
+    @NonNull
+    public static Mapping get(@NonNull Context context, int showTvdbId) throws RetrofitError {
+        Cursor query = context.getContentResolver()
+                .query(Shows.buildShowUri(showTvdbId), PROJECTION, null, null, null);
+        if (query != null) {
+            Mapping cached = null;
+            if (query.moveToFirst()) {
+                long verifiedAt = query.getLong(1);
+                long age = System.currentTimeMillis() - verifiedAt;
+                if (verifiedAt > 0 && age >= 0
+                        && age < TraktSettings.getShowTraktIdMaxAge(context)) {
+                    int traktId = query.getInt(0);
+                    cached = new Mapping(traktId > 0 ? traktId : null, verifiedAt, true);
+                }
+            }
+            query.close();
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        return lookUp(context, showTvdbId);
+    }
+
+    /**
+     * Looks up the trakt id of the given show on trakt, e.g. if the stored one is no longer valid.
+     *
+     * @throws RetrofitError If looking up the trakt id failed.
+     */
+    @NonNull
+    public static Mapping lookUp(@NonNull Context context, int showTvdbId) throws RetrofitError {
+        misses.incrementAndGet();
+        String traktId = TraktTools.lookupShowTraktId(context, showTvdbId);
+        return new Mapping(traktId == null ? null : Integer.valueOf(traktId),
+                System.currentTimeMillis(), false);
+    }
+
+    /**
+     * Whether the given error means the requested item does not exist (any longer) on trakt.
+     */
+    public static boolean isNotFound(RetrofitError e) {
+        return e.getKind() == RetrofitError.Kind.HTTP && e.getResponse() != null
+                && e.getResponse().getStatus() == 404;
+    }
+
+    public static void resetStats() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * Returns how many trakt ids were loaded from the database and how many were looked up on
+     * trakt since the last {@link #resetStats()}.
+     */
+    public static String getStats() {
+        return "hits=" + hits.get() + " misses=" + misses.get();
+    }
+}
@@ -26,6 +26,7 @@ import android.support.annotation.Nullable;
 import android.text.format.DateUtils;
 import com.battlelancer.seriesguide.R;
 import com.battlelancer.seriesguide.enums.EpisodeFlags;
+import com.battlelancer.seriesguide.provider.EpisodeFlagBatch;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract;
 import com.battlelancer.seriesguide.settings.TraktCredentials;
 import com.battlelancer.seriesguide.settings.TraktSettings;
@@ -74,26 +75,13 @@ public class TraktTools {
     public static final int FAILED_CREDENTIALS = -3;
 
     public enum Flag {
-        COLLECTED(SeriesGuideContract.Episodes.COLLECTED,
-                // only remove flags for already collected episodes
-                SeriesGuideContract.Episodes.COLLECTED + "=1",
-                1, 0),
-        WATCHED(SeriesGuideContract.Episodes.WATCHED,
-                // do not remove flags of skipped episodes, only of watched ones
-                SeriesGuideContract.Episodes.WATCHED + "=" + EpisodeFlags.WATCHED,
-                EpisodeFlags.WATCHED, EpisodeFlags.UNWATCHED);
-
-        final String databaseColumn;
-        final String clearFlagSelection;
+        COLLECTED(1),
+        WATCHED(EpisodeFlags.WATCHED);
+
         final int flaggedValue;
-        final int nonFlaggedValue;
 
-        Flag(String databaseColumn, String clearFlagSelection, int flaggedValue,
-                int nonFlaggedValue) {
-            this.databaseColumn = databaseColumn;
-            this.clearFlagSelection = clearFlagSelection;
+        Flag(int flaggedValue) {
             this.flaggedValue = flaggedValue;
-            this.nonFlaggedValue = nonFlaggedValue;
         }
     }
 
@@ -617,20 +605,14 @@ public class TraktTools {
         // show is in local database
 
         final int showTvdbId = traktShow.show.ids.tvdb;
-        final ArrayList<ContentProviderOperation> batch = new ArrayList<>();
-        final Uri ofShowUri = SeriesGuideContract.Episodes.buildEpisodesOfShowUri(showTvdbId);
+        final EpisodeFlagBatch batch = new EpisodeFlagBatch();
 
         // if not merging, clear all flags for episodes of this show
         if (!isMerging) {
-            // op-apply is ensured as loop below will run at least once (at least one season)
-            batch.add(ContentProviderOperation
-                    .newUpdate(ofShowUri)
-                    .withSelection(flag.clearFlagSelection, null)
-                    .withValue(flag.databaseColumn, flag.nonFlaggedValue)
-                    .build());
+            batch.clearFlagsOfShow(showTvdbId, flag == Flag.WATCHED, flag == Flag.COLLECTED);
         }
 
-        // loop through seasons and build update ops for flagged episodes
+        // loop through seasons and add flagged episodes to batch
         Set<Integer> traktFlaggedSeasonSet = new HashSet<>();
         List<SyncSeason> syncSeasons = new LinkedList<>();
         for (BaseSeason traktSeason : traktShow.seasons) {
@@ -642,7 +624,7 @@ public class TraktTools {
             // exclude from complete season upload
             traktFlaggedSeasonSet.add(traktSeason.number);
 
-            // loop through episodes and add flag update ops
+            // loop through episodes and add flag changes
             Set<Integer> traktFlaggedEpisodeSet = new HashSet<>();
             for (BaseEpisode traktEpisode : traktSeason.episodes) {
                 if (traktEpisode.number == null) {
@@ -653,15 +635,9 @@ public class TraktTools {
                 // list as flagged on trakt
                 traktFlaggedEpisodeSet.add(traktEpisode.number);
 
-                batch.add(ContentProviderOperation
-                        .newUpdate(ofShowUri)
-                        .withSelection(SeriesGuideContract.Episodes.SEASON
-                                + "=" + traktSeason.number
-                                + " AND "
-                                + SeriesGuideContract.Episodes.NUMBER
-                                + "=" + traktEpisode.number, null)
-                        .withValue(flag.databaseColumn, flag.flaggedValue)
-                        .build());
+                batch.add(showTvdbId, traktSeason.number, traktEpisode.number,
+                        flag == Flag.WATCHED ? flag.flaggedValue : EpisodeFlagBatch.NO_CHANGE,
+                        flag == Flag.COLLECTED ? flag.flaggedValue : EpisodeFlagBatch.NO_CHANGE);
             }
 
             if (isMerging) {
@@ -672,18 +648,12 @@ public class TraktTools {
                     syncSeasons.add(syncSeason);
                 }
             }
+        }
 
-            // apply batch of this season
-            try {
-                DBUtils.applyInSmallBatches(context, batch);
-            } catch (OperationApplicationException e) {
-                Timber.e("Applying flag changes failed: " + showTvdbId + " season: "
-                        + traktSeason.number + " column: " + flag, e);
-                // do not abort, try other seasons
-                // some episodes might be in incorrect state, but next update should fix that
-                // this includes the clear flags op failing
-            }
-            batch.clear();
+        // apply flag changes of all seasons at once
+        if (!batch.apply(context)) {
+            Timber.e("Applying flag changes failed: " + showTvdbId + " column: " + flag);
+            // do not abort, next update should fix any episodes in incorrect state
         }
 
         // if merging: upload all local flagged episodes NOT flagged on trakt
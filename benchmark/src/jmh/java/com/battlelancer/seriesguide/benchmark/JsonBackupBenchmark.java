@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.benchmark;
+
+import com.battlelancer.seriesguide.dataliberation.model.Episode;
+import com.battlelancer.seriesguide.dataliberation.model.Season;
+import com.battlelancer.seriesguide.dataliberation.model.Show;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Serializing shows to JSON like the shows backup does, one show at a time to a JsonWriter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JsonBackupBenchmark {
+
+    private static final int SEASONS_PER_SHOW = 5;
+    private static final int EPISODES_PER_SEASON = 20;
+
+    @Param({"10", "100"})
+    public int showCount;
+
+    private final Gson gson = new Gson();
+    private List<Show> shows;
+
+    @Setup
+    public void setUp() {
+        shows = new ArrayList<>(showCount);
+        for (int i = 0; i < showCount; i++) {
+            shows.add(buildShow(i));
+        }
+    }
+
+    @Benchmark
+    public long writeShows() throws IOException {
+        CountingWriter out = new CountingWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginArray();
+        for (Show show : shows) {
+            gson.toJson(show, Show.class, writer);
+        }
+        writer.endArray();
+        writer.close();
+        return out.count;
+    }
+
+    private static Show buildShow(int index) {
+        Show show = new Show();
+        show.tvdbId = 70000 + index;
+        show.title = "Show " + index;
+        show.favorite = index % 3 == 0;
+        show.language = "en";
+        show.release_time = 2000;
+        show.release_weekday = index % 7 + 1;
+        show.release_timezone = "America/New_York";
+        show.country = "us";
+        show.poster = "posters/" + show.tvdbId + "-1.jpg";
+        show.contentRating = "TV-14";
+        show.status = "continuing";
+        show.runtime = 45;
+        show.network = "Network";
+        show.imdbId = "tt" + (100000 + index);
+        show.traktId = 1000 + index;
+        show.firstAired = "2010-09-21T00:00:00.000Z";
+        show.overview = "A show about benchmarks, sometimes they are fast, sometimes not.";
+        show.rating = 8.1;
+        show.rating_votes = 1234;
+        show.genres = "|Drama|Comedy|";
+        show.seasons = new ArrayList<>(SEASONS_PER_SHOW);
+        for (int s = 1; s <= SEASONS_PER_SHOW; s++) {
+            Season season = new Season();
+            season.tvdbId = show.tvdbId * 10 + s;
+            season.season = s;
+            season.episodes = new ArrayList<>(EPISODES_PER_SEASON);
+            for (int e = 1; e <= EPISODES_PER_SEASON; e++) {
+                Episode episode = new Episode();
+                episode.tvdbId = season.tvdbId * 100 + e;
+                episode.episode = e;
+                episode.episodeAbsolute = (s - 1) * EPISODES_PER_SEASON + e;
+                episode.title = "Episode " + e;
+                episode.firstAired = 1285027200000L + episode.episodeAbsolute * 604800000L;
+                episode.watched = e % 2 == 0;
+                episode.collected = e % 5 == 0;
+                episode.imdbId = "tt" + episode.tvdbId;
+                episode.episodeDvd = e;
+                episode.overview = "Things happen, then other things happen.";
+                episode.image = "episodes/" + show.tvdbId + "/" + episode.tvdbId + ".jpg";
+                episode.writers = "|Alex Writer|";
+                episode.gueststars = "|John Roe|Mary Major|";
+                episode.directors = "|Jane Doe|";
+                episode.rating = 7.5;
+                episode.rating_votes = 100;
+                episode.lastEdited = 1450000000L;
+                season.episodes.add(episode);
+            }
+            show.seasons.add(season);
+        }
+        return show;
+    }
+
+    /**
+     * Discards all output, only counts characters.
+     */
+    private static class CountingWriter extends Writer {
+
+        long count;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
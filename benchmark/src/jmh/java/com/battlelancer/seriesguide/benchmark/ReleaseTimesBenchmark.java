@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.benchmark;
+
+import com.battlelancer.seriesguide.util.ReleaseTimes;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Release time calculation done for every episode when updating a show and for every show when
+ * displaying its next release.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReleaseTimesBenchmark {
+
+    /** US devices get additional corrections for US shows. */
+    @Param({"America/Los_Angeles", "Europe/Berlin"})
+    public String deviceTimeZone;
+
+    private DateTimeZone showTimeZone;
+    private LocalTime showReleaseTime;
+    private String[] releaseDates;
+
+    @Setup
+    public void setUp() {
+        showTimeZone = DateTimeZone.forID("America/New_York");
+        showReleaseTime = new LocalTime(20, 0);
+        // a week of release dates, includes the start of DST in the US
+        releaseDates = new String[] {
+                "2016-03-08", "2016-03-09", "2016-03-10", "2016-03-11", "2016-03-12",
+                "2016-03-13", "2016-03-14"
+        };
+    }
+
+    @Benchmark
+    public void parseEpisodeReleaseDate(Blackhole blackhole) {
+        for (String releaseDate : releaseDates) {
+            blackhole.consume(ReleaseTimes.parseEpisodeReleaseDate(showTimeZone, releaseDate,
+                    showReleaseTime, "us", deviceTimeZone));
+        }
+    }
+
+    @Benchmark
+    public void getShowReleaseDateTime(Blackhole blackhole) {
+        for (int weekDay = 1; weekDay <= 7; weekDay++) {
+            blackhole.consume(ReleaseTimes.getShowReleaseDateTime(showTimeZone, showReleaseTime,
+                    weekDay, "us", deviceTimeZone));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.benchmark;
+
+import com.battlelancer.seriesguide.util.TitleTools;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Removing leading articles, done for every show and movie title that is stored.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TitleToolsBenchmark {
+
+    private final String[] titles = new String[] {
+            "The Big Bang Theory", "A Series of Unfortunate Events", "An Idiot Abroad",
+            "Game of Thrones", "the expanse", "Another Period", "Theory of Everything", ""
+    };
+
+    @Benchmark
+    public void trimLeadingArticle(Blackhole blackhole) {
+        for (String title : titles) {
+            blackhole.consume(TitleTools.trimLeadingArticle(title));
+        }
+    }
+}
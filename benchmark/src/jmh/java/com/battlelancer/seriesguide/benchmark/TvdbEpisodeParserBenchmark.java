@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.benchmark;
+
+import com.battlelancer.seriesguide.thetvdbapi.TvdbEpisodeParser;
+import com.battlelancer.seriesguide.thetvdbapi.TvdbEpisodeRecord;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalTime;
+import org.kxml2.io.KXmlParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing a TVDb episode XML file with {@link TvdbEpisodeParser}, using the same XmlPullParser
+ * implementation as Android. Writing the parsed episodes to the database is measured on a device
+ * by EpisodeIngestBenchmarkTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TvdbEpisodeParserBenchmark {
+
+    @Param({"100", "5000"})
+    public int episodeCount;
+
+    private byte[] xml;
+    private TvdbEpisodeParser episodeParser;
+
+    @Setup
+    public void setUp() {
+        xml = TvdbEpisodeXml.generate(episodeCount);
+        episodeParser = new TvdbEpisodeParser(DateTimeZone.forID("America/New_York"),
+                new LocalTime(20, 0), "us", "America/Los_Angeles");
+    }
+
+    @Benchmark
+    public void parseEpisodes(final Blackhole blackhole) throws Exception {
+        KXmlParser parser = new KXmlParser();
+        parser.setInput(new ByteArrayInputStream(xml), "UTF-8");
+        episodeParser.parse(parser, new TvdbEpisodeParser.Callback() {
+            @Override
+            public void onEpisode(TvdbEpisodeRecord episode) {
+                blackhole.consume(episode.id);
+                blackhole.consume(episode.firstAiredMs);
+                blackhole.consume(episode.title);
+                blackhole.consume(episode.overview);
+            }
+        });
+    }
+}
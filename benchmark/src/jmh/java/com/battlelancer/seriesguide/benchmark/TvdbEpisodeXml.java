@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Uwe Trottmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.battlelancer.seriesguide.benchmark;
+
+import java.nio.charset.Charset;
+
+/**
+ * Generates TVDb episode XML files like those returned for "all/&lt;language&gt;.zip", with
+ * realistic text lengths.
+ */
+public class TvdbEpisodeXml {
+
+    private static final String OVERVIEW = "After a mysterious signal is received from deep"
+            + " space, the crew has to decide whether to answer it, while back home an old"
+            + " friend shows up with news that changes everything. Meanwhile, a storm keeps"
+            + " everybody inside for the night.";
+
+    public static byte[] generate(int episodeCount) {
+        int seriesId = 80379;
+        StringBuilder xml = new StringBuilder(episodeCount * 1024);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<Data>\n");
+        xml.append("<Series><id>").append(seriesId).append("</id>"
+                + "<SeriesName>Benchmark Show</SeriesName></Series>\n");
+        for (int i = 0; i < episodeCount; i++) {
+            int season = i / 25 + 1;
+            int number = i % 25 + 1;
+            int day = i % 28 + 1;
+            xml.append("<Episode>\n")
+                    .append("  <id>").append(1000000 + i).append("</id>\n")
+                    .append("  <Combined_episodenumber>").append(number)
+                    .append("</Combined_episodenumber>\n")
+                    .append("  <Combined_season>").append(season).append("</Combined_season>\n")
+                    .append("  <DVD_episodenumber>").append(number).append(".0")
+                    .append("</DVD_episodenumber>\n")
+                    .append("  <Director>|Jane Doe|</Director>\n")
+                    .append("  <EpisodeName>Episode ").append(i).append("</EpisodeName>\n")
+                    .append("  <EpisodeNumber>").append(number).append("</EpisodeNumber>\n")
+                    .append("  <FirstAired>").append(1990 + season % 25).append("-0")
+                    .append(season % 9 + 1).append('-').append(day < 10 ? "0" : "").append(day)
+                    .append("</FirstAired>\n")
+                    .append("  <GuestStars>|John Roe|Richard Miles|Mary Major|</GuestStars>\n")
+                    .append("  <IMDB_ID>tt").append(2000000 + i).append("</IMDB_ID>\n")
+                    .append("  <Language>en</Language>\n")
+                    .append("  <Overview>").append(OVERVIEW).append("</Overview>\n")
+                    .append("  <Rating>7.9</Rating>\n")
+                    .append("  <RatingCount>42</RatingCount>\n")
+                    .append("  <SeasonNumber>").append(season).append("</SeasonNumber>\n")
+                    .append("  <Writer>|Alex Writer|Sam Author|</Writer>\n")
+                    .append("  <absolute_number>").append(i + 1).append("</absolute_number>\n")
+                    .append("  <filename>episodes/").append(seriesId).append('/')
+                    .append(1000000 + i).append(".jpg</filename>\n")
+                    .append("  <lastupdated>").append(1450000000 + i).append("</lastupdated>\n")
+                    .append("  <seasonid>").append(10000 + season).append("</seasonid>\n")
+                    .append("  <seriesid>").append(seriesId).append("</seriesid>\n")
+                    .append("</Episode>\n");
+        }
+        xml.append("</Data>\n");
+        return xml.toString().getBytes(Charset.forName("UTF-8"));
+    }
+}